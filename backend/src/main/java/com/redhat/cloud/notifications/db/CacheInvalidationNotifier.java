@@ -0,0 +1,43 @@
+package com.redhat.cloud.notifications.db;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+
+import static com.redhat.cloud.notifications.db.CacheInvalidation.CHANNEL;
+import static com.redhat.cloud.notifications.db.CacheInvalidation.KEY_SEPARATOR;
+
+@ApplicationScoped
+public class CacheInvalidationNotifier {
+
+    @Inject
+    EntityManager entityManager;
+
+    /**
+     * Asks all engine pods to invalidate the given cache. This method should be called from the transaction that
+     * modifies the cached data: PostgreSQL will only deliver the notification if that transaction is committed.
+     *
+     * @param cacheName one of the cache names from {@link CacheInvalidation}
+     */
+    public void notifyEngine(String cacheName) {
+        notify(cacheName);
+    }
+
+    /**
+     * Asks all engine pods to invalidate the entries of the given cache which belong to an account. If the account ID
+     * is {@code null} (e.g. default behavior groups), the whole cache is invalidated.
+     *
+     * @param cacheName one of the cache names from {@link CacheInvalidation}
+     * @param accountId the account ID
+     */
+    public void notifyEngine(String cacheName, String accountId) {
+        notify(accountId == null ? cacheName : cacheName + KEY_SEPARATOR + accountId);
+    }
+
+    private void notify(String payload) {
+        entityManager.createNativeQuery("SELECT CAST(pg_notify(:channel, :payload) AS VARCHAR)")
+                .setParameter("channel", CHANNEL)
+                .setParameter("payload", payload)
+                .getSingleResult();
+    }
+}
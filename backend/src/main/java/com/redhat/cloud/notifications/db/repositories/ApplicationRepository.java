@@ -1,5 +1,6 @@
 package com.redhat.cloud.notifications.db.repositories;
 
+import com.redhat.cloud.notifications.db.CacheInvalidationNotifier;
 import com.redhat.cloud.notifications.db.Query;
 import com.redhat.cloud.notifications.db.builder.JoinBuilder;
 import com.redhat.cloud.notifications.db.builder.QueryBuilder;
@@ -22,12 +23,17 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.function.Supplier;
 
+import static com.redhat.cloud.notifications.db.CacheInvalidation.EVENT_TYPES;
+
 @ApplicationScoped
 public class ApplicationRepository {
 
     @Inject
     EntityManager entityManager;
 
+    @Inject
+    CacheInvalidationNotifier cacheInvalidationNotifier;
+
     @Transactional
     public Application createApp(Application app) {
         Bundle bundle = entityManager.find(Bundle.class, app.getBundleId());
@@ -53,6 +59,7 @@ public class ApplicationRepository {
                 .setParameter("displayName", app.getDisplayName())
                 .setParameter("applicationId", id)
                 .executeUpdate();
+        cacheInvalidationNotifier.notifyEngine(EVENT_TYPES);
         return rowCount;
     }
 
@@ -62,6 +69,7 @@ public class ApplicationRepository {
         int rowCount = entityManager.createQuery(query)
                 .setParameter("id", id)
                 .executeUpdate();
+        cacheInvalidationNotifier.notifyEngine(EVENT_TYPES);
         return rowCount > 0;
     }
 
@@ -74,6 +82,7 @@ public class ApplicationRepository {
             eventType.setApplication(app);
             entityManager.persist(eventType);
             eventType.filterOutApplication();
+            cacheInvalidationNotifier.notifyEngine(EVENT_TYPES);
             return eventType;
         }
     }
@@ -167,6 +176,7 @@ public class ApplicationRepository {
                 .setParameter("displayName", eventType.getDisplayName())
                 .setParameter("eventTypeId", id)
                 .executeUpdate();
+        cacheInvalidationNotifier.notifyEngine(EVENT_TYPES);
         return rowCount;
     }
 
@@ -176,6 +186,7 @@ public class ApplicationRepository {
         int rowCount = entityManager.createQuery(query)
                 .setParameter("id", id)
                 .executeUpdate();
+        cacheInvalidationNotifier.notifyEngine(EVENT_TYPES);
         return rowCount > 0;
     }
 
@@ -1,6 +1,7 @@
 package com.redhat.cloud.notifications.db.repositories;
 
 import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.db.CacheInvalidationNotifier;
 import com.redhat.cloud.notifications.db.Query;
 import com.redhat.cloud.notifications.models.BehaviorGroup;
 import com.redhat.cloud.notifications.models.Bundle;
@@ -23,6 +24,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
+import static com.redhat.cloud.notifications.db.CacheInvalidation.ROUTING;
 import static javax.persistence.LockModeType.PESSIMISTIC_WRITE;
 import static org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH;
 
@@ -37,6 +39,9 @@ public class BehaviorGroupRepository {
     @Inject
     FeatureFlipper featureFlipper;
 
+    @Inject
+    CacheInvalidationNotifier cacheInvalidationNotifier;
+
     public BehaviorGroup create(String accountId, @Valid BehaviorGroup behaviorGroup) {
         return this.create(accountId, behaviorGroup, false);
     }
@@ -137,7 +142,10 @@ public class BehaviorGroupRepository {
             q = q.setParameter("accountId", accountId);
         }
 
-        return q.executeUpdate() > 0;
+        int rowCount = q.executeUpdate();
+        // A null account ID (default behavior group) invalidates the routing of all accounts.
+        cacheInvalidationNotifier.notifyEngine(ROUTING, accountId);
+        return rowCount > 0;
     }
 
     private void checkBehaviorGroupDisplayNameDuplicate(String accountId, BehaviorGroup behaviorGroup, boolean isDefaultBehaviorGroup) {
@@ -195,7 +203,10 @@ public class BehaviorGroupRepository {
             q = q.setParameter("accountId", accountId);
         }
 
-        return q.executeUpdate() > 0;
+        int rowCount = q.executeUpdate();
+        // A null account ID (default behavior group) invalidates the routing of all accounts.
+        cacheInvalidationNotifier.notifyEngine(ROUTING, accountId);
+        return rowCount > 0;
     }
 
     @Transactional
@@ -209,6 +220,7 @@ public class BehaviorGroupRepository {
                 .setParameter("behaviorGroupId", behaviorGroupId)
                 .setParameter("created", LocalDateTime.now(UTC))
                 .executeUpdate();
+        cacheInvalidationNotifier.notifyEngine(ROUTING);
         return true;
     }
 
@@ -222,6 +234,7 @@ public class BehaviorGroupRepository {
                 .setParameter("eventTypeId", eventTypeId)
                 .setParameter("behaviorGroupId", behaviorGroupId)
                 .executeUpdate();
+        cacheInvalidationNotifier.notifyEngine(ROUTING);
         return true;
     }
 
@@ -293,6 +306,7 @@ public class BehaviorGroupRepository {
                             .executeUpdate();
                 }
             }
+            cacheInvalidationNotifier.notifyEngine(ROUTING, accountId);
         }
     }
 
@@ -414,6 +428,8 @@ public class BehaviorGroupRepository {
 
             sessionQuery.executeUpdate();
         }
+        // A null account ID (default behavior group) invalidates the routing of all accounts.
+        cacheInvalidationNotifier.notifyEngine(ROUTING, accountId);
     }
 
     public void updateDefaultBehaviorGroupActions(UUID behaviorGroupId, List<UUID> endpointIds) {
@@ -1,5 +1,6 @@
 package com.redhat.cloud.notifications.db.repositories;
 
+import com.redhat.cloud.notifications.db.CacheInvalidationNotifier;
 import com.redhat.cloud.notifications.models.Application;
 import com.redhat.cloud.notifications.models.Bundle;
 
@@ -12,12 +13,17 @@ import javax.ws.rs.NotFoundException;
 import java.util.List;
 import java.util.UUID;
 
+import static com.redhat.cloud.notifications.db.CacheInvalidation.EVENT_TYPES;
+
 @ApplicationScoped
 public class BundleRepository {
 
     @Inject
     EntityManager entityManager;
 
+    @Inject
+    CacheInvalidationNotifier cacheInvalidationNotifier;
+
     @Transactional
     public Bundle createBundle(Bundle bundle) {
         // The returned bundle will contain an ID and a creation timestamp.
@@ -59,6 +65,7 @@ public class BundleRepository {
                 .setParameter("displayName", bundle.getDisplayName())
                 .setParameter("bundleId", id)
                 .executeUpdate();
+        cacheInvalidationNotifier.notifyEngine(EVENT_TYPES);
         return rowCount;
     }
 
@@ -68,6 +75,7 @@ public class BundleRepository {
         int rowCount = entityManager.createQuery(query)
                 .setParameter("id", id)
                 .executeUpdate();
+        cacheInvalidationNotifier.notifyEngine(EVENT_TYPES);
         return rowCount > 0;
     }
 
@@ -1,5 +1,6 @@
 package com.redhat.cloud.notifications.db.repositories;
 
+import com.redhat.cloud.notifications.db.CacheInvalidationNotifier;
 import com.redhat.cloud.notifications.db.Query;
 import com.redhat.cloud.notifications.db.builder.QueryBuilder;
 import com.redhat.cloud.notifications.db.builder.WhereBuilder;
@@ -31,12 +32,17 @@ import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import static com.redhat.cloud.notifications.db.CacheInvalidation.ROUTING;
+
 @ApplicationScoped
 public class EndpointRepository {
 
     @Inject
     EntityManager entityManager;
 
+    @Inject
+    CacheInvalidationNotifier cacheInvalidationNotifier;
+
     @Transactional
     public Endpoint createEndpoint(Endpoint endpoint) {
         // Todo: NOTIF-429 backward compatibility change - Remove soon.
@@ -189,6 +195,7 @@ public class EndpointRepository {
                 .setParameter("id", id)
                 .setParameter("accountId", tenant)
                 .executeUpdate();
+        cacheInvalidationNotifier.notifyEngine(ROUTING, tenant);
         return rowCount > 0;
         // Actually, the endpoint targeting this should be repeatable
     }
@@ -209,6 +216,7 @@ public class EndpointRepository {
                 .setParameter("accountId", tenant)
                 .setParameter("enabled", enabled)
                 .executeUpdate();
+        cacheInvalidationNotifier.notifyEngine(ROUTING, tenant);
         return rowCount > 0;
     }
 
@@ -219,7 +227,8 @@ public class EndpointRepository {
         String endpointQuery = "UPDATE Endpoint SET name = :name, description = :description, enabled = :enabled " +
                 "WHERE accountId = :accountId AND id = :id";
         String webhookQuery = "UPDATE WebhookProperties SET url = :url, method = :method, " +
-                "disableSslVerification = :disableSslVerification, secretToken = :secretToken WHERE endpoint.id = :endpointId";
+                "disableSslVerification = :disableSslVerification, secretToken = :secretToken, " +
+                "batchMaxSize = :batchMaxSize, batchMaxLingerMs = :batchMaxLingerMs, timeoutMs = :timeoutMs WHERE endpoint.id = :endpointId";
         String camelQuery = "UPDATE CamelProperties SET url = :url, extras = :extras, " +
                 "basicAuthentication = :basicAuthentication, " +
                 "disableSslVerification = :disableSslVerification, secretToken = :secretToken WHERE endpoint.id = :endpointId";
@@ -238,7 +247,9 @@ public class EndpointRepository {
 
         if (endpointRowCount == 0) {
             return false;
-        } else if (endpoint.getProperties() == null) {
+        }
+        cacheInvalidationNotifier.notifyEngine(ROUTING, endpoint.getAccountId());
+        if (endpoint.getProperties() == null) {
             return true;
         } else {
             switch (endpoint.getType()) {
@@ -249,6 +260,9 @@ public class EndpointRepository {
                             .setParameter("method", properties.getMethod())
                             .setParameter("disableSslVerification", properties.getDisableSslVerification())
                             .setParameter("secretToken", properties.getSecretToken())
+                            .setParameter("batchMaxSize", properties.getBatchMaxSize())
+                            .setParameter("batchMaxLingerMs", properties.getBatchMaxLingerMs())
+                            .setParameter("timeoutMs", properties.getTimeoutMs())
                             .setParameter("endpointId", endpoint.getId())
                             .executeUpdate() > 0;
                 case CAMEL:
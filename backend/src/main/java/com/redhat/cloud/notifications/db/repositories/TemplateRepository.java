@@ -1,5 +1,6 @@
 package com.redhat.cloud.notifications.db.repositories;
 
+import com.redhat.cloud.notifications.db.CacheInvalidationNotifier;
 import com.redhat.cloud.notifications.models.AggregationEmailTemplate;
 import com.redhat.cloud.notifications.models.Application;
 import com.redhat.cloud.notifications.models.EventType;
@@ -16,10 +17,14 @@ import javax.persistence.TypedQuery;
 import javax.transaction.Transactional;
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.NotFoundException;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import static com.redhat.cloud.notifications.db.CacheInvalidation.TEMPLATES;
+import static java.time.ZoneOffset.UTC;
+
 @ApplicationScoped
 public class TemplateRepository {
 
@@ -29,6 +34,9 @@ public class TemplateRepository {
     @Inject
     EntityManager entityManager;
 
+    @Inject
+    CacheInvalidationNotifier cacheInvalidationNotifier;
+
     @Transactional
     public Template createTemplate(Template template) {
         entityManager.persist(template);
@@ -47,13 +55,19 @@ public class TemplateRepository {
 
     @Transactional
     public boolean updateTemplate(UUID id, Template template) {
-        String hql = "UPDATE Template SET name = :name, description = :description, data = :data WHERE id = :id";
+        // The update timestamp has to be set explicitly because a bulk update doesn't trigger @PreUpdate.
+        String hql = "UPDATE Template SET name = :name, description = :description, data = :data, updated = :updated WHERE id = :id";
         int rowCount = entityManager.createQuery(hql)
                 .setParameter("name", template.getName())
                 .setParameter("description", template.getDescription())
                 .setParameter("data", template.getData())
+                .setParameter("updated", LocalDateTime.now(UTC))
                 .setParameter("id", id)
                 .executeUpdate();
+        if (rowCount > 0) {
+            // The templates which include the updated one have to be compiled again by the engine.
+            cacheInvalidationNotifier.notifyEngine(TEMPLATES);
+        }
         return rowCount > 0;
     }
 
@@ -75,6 +89,9 @@ public class TemplateRepository {
                 int rowCount = entityManager.createQuery(deleteHql)
                         .setParameter("id", id)
                         .executeUpdate();
+                if (rowCount > 0) {
+                    cacheInvalidationNotifier.notifyEngine(TEMPLATES);
+                }
                 return rowCount > 0;
             }
         }
@@ -7,17 +7,30 @@ import com.redhat.cloud.notifications.models.EndpointType;
 import com.redhat.cloud.notifications.openbridge.Bridge;
 import com.redhat.cloud.notifications.openbridge.BridgeApiService;
 import com.redhat.cloud.notifications.openbridge.BridgeAuth;
-import com.redhat.cloud.notifications.openbridge.Processor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.quarkus.logging.Log;
 import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 
+import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
 import javax.ws.rs.WebApplicationException;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static io.quarkus.scheduler.Scheduled.ConcurrentExecution.SKIP;
 import static javax.persistence.LockModeType.PESSIMISTIC_WRITE;
@@ -29,10 +42,17 @@ import static org.hibernate.LockOptions.SKIP_LOCKED;
  * 'accepted' to 'provisioning' and then 'ready' or 'failed'.
  * We need to poll OB regularly to see when they are
  * good and then set the state accordingly.
+ * <p>
+ * The processors are polled concurrently. An endpoint which is still not ready is polled again after a delay which
+ * doubles with each check, up to {@code ob.ready-check.max-backoff}.
  */
 @ApplicationScoped
 public class EndpointReadyChecker {
 
+    public static final String CYCLE_TIMER_NAME = "ob.ready-check.cycle";
+    public static final String PENDING_GAUGE_NAME = "ob.ready-check.pending";
+    public static final String DUE_GAUGE_NAME = "ob.ready-check.due";
+
     @Inject
     EntityManager em;
 
@@ -46,17 +66,52 @@ public class EndpointReadyChecker {
     @Inject
     BridgeAuth bridgeAuth;
 
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "ob.ready-check.max-concurrency", defaultValue = "16")
+    int maxConcurrency;
+
+    @ConfigProperty(name = "ob.ready-check.timeout", defaultValue = "5S")
+    Duration timeout;
+
+    @ConfigProperty(name = "ob.ready-check.initial-backoff", defaultValue = "10S")
+    Duration initialBackoff;
+
+    @ConfigProperty(name = "ob.ready-check.max-backoff", defaultValue = "5M")
+    Duration maxBackoff;
+
     String endpointQueryString = "SELECT e FROM Endpoint e " +
             "WHERE e.compositeType.type = :type AND e.compositeType.subType IN (:subTypes) " +
-            "AND e.status NOT IN (:ready, :failed) ";
+            "AND e.status NOT IN (:ready, :failed, :circuitOpen) ";
+
+    // Endpoints which are still not ready, by endpoint ID. This is not shared between the pods.
+    private final Map<UUID, Backoff> backoffs = new ConcurrentHashMap<>();
+    // Number of endpoints which were waiting for OB during the last cycle.
+    private final AtomicInteger pending = new AtomicInteger();
+    // Number of endpoints which were polled during the last cycle.
+    private final AtomicInteger due = new AtomicInteger();
+    private Timer cycleTimer;
+
+    @PostConstruct
+    void init() {
+        cycleTimer = registry.timer(CYCLE_TIMER_NAME);
+        registry.gauge(PENDING_GAUGE_NAME, pending);
+        registry.gauge(DUE_GAUGE_NAME, due);
+    }
 
     @Scheduled(concurrentExecution = SKIP, every = "${ob.ready-check.period:10s}")
     @Transactional
     public void execute() {
+        cycleTimer.record(this::checkEndpoints);
+    }
+
+    private void checkEndpoints() {
 
         List<Endpoint> endpoints = em.createQuery(endpointQueryString, Endpoint.class)
                 .setParameter("ready", EndpointStatus.READY)
                 .setParameter("failed", EndpointStatus.FAILED)
+                .setParameter("circuitOpen", EndpointStatus.CIRCUIT_OPEN)
                 .setParameter("type", EndpointType.CAMEL)
                 .setParameter("subTypes", "slack")
                 // DB rows will be locked when they are processed by this scheduled job, preventing other pods from accessing them.
@@ -64,24 +119,112 @@ public class EndpointReadyChecker {
                 // Postgres will skip the DB rows that were locked by another pod so that this scheduled job will never be waiting for locks.
                 .setHint("javax.persistence.lock.timeout", SKIP_LOCKED)
                 .getResultList();
+        pending.set(endpoints.size());
+
+        // The endpoints which are gone or which were processed by another pod are forgotten.
+        Set<UUID> endpointIds = endpoints.stream().map(Endpoint::getId).collect(Collectors.toSet());
+        backoffs.keySet().retainAll(endpointIds);
+
+        long now = System.currentTimeMillis();
+        List<Endpoint> dueEndpoints = endpoints.stream()
+                .filter(ep -> {
+                    Backoff backoff = backoffs.get(ep.getId());
+                    return backoff == null || backoff.nextCheck <= now;
+                })
+                .collect(Collectors.toList());
+        due.set(dueEndpoints.size());
+        if (dueEndpoints.isEmpty()) {
+            return;
+        }
+
+        Map<UUID, CamelProperties> properties = em.createQuery("FROM CamelProperties WHERE id IN (:ids)", CamelProperties.class)
+                .setParameter("ids", dueEndpoints.stream().map(Endpoint::getId).collect(Collectors.toList()))
+                .getResultStream()
+                .collect(Collectors.toMap(CamelProperties::getId, Function.identity()));
+
+        String bridgeId = bridge.getId();
+        String token = bridgeAuth.getToken();
+
+        // Only the calls are concurrent, the endpoints are updated from the current thread which owns the transaction.
+        List<Check> checks = Multi.createFrom().iterable(dueEndpoints)
+                .onItem().transformToUni(ep -> check(ep, properties.get(ep.getId()), bridgeId, token))
+                .merge(maxConcurrency)
+                .collect().asList()
+                .await().indefinitely();
+
+        for (Check check : checks) {
+            apply(check);
+        }
+    }
+
+    private Uni<Check> check(Endpoint ep, CamelProperties cp, String bridgeId, String token) {
+        String processorId = cp == null || cp.getExtras() == null ? null : cp.getExtras().get("processorId");
+        if (processorId == null) {
+            return Uni.createFrom().item(new Check(ep, null, null, null));
+        }
+        return bridgeApiService.getProcessorByIdAsync(bridgeId, processorId, token)
+                .ifNoItem().after(timeout).fail()
+                .onItemOrFailure().transform((processor, failure) ->
+                        new Check(ep, processorId, processor == null ? null : processor.getStatus(), failure));
+    }
 
-        for (Endpoint ep : endpoints) {
-            CamelProperties cp = em.find(CamelProperties.class, ep.getId()); // TODO Fetch in one go
-            String processorId = cp.getExtras().get("processorId");
-            try {
-                Processor processor = bridgeApiService.getProcessorById(bridge.getId(), processorId, bridgeAuth.getToken());
-                String status = processor.getStatus();
-                Log.debugf("  Status reported by OB for processor %s : %s", processorId, status);
-                if ("ready".equals(status)) {
-                    ep.setStatus(EndpointStatus.READY);
-                }
-                if ("failed".equals(status)) {
-                    ep.setStatus(EndpointStatus.FAILED);
-                }
-            } catch (WebApplicationException wae) {
-                Log.warn("Getting data from OB failed", wae);
+    private void apply(Check check) {
+        Endpoint ep = check.endpoint;
+        if (check.processorId == null) {
+            // There is nothing to poll, the endpoint would never leave the backoff otherwise.
+            Log.warnf("Endpoint %s has no OpenBridge processor ID, it is marked as failed", ep.getId());
+            ep.setStatus(EndpointStatus.FAILED);
+        } else if (check.failure instanceof WebApplicationException) {
+            Log.warn("Getting data from OB failed", check.failure);
+            ep.setStatus(EndpointStatus.FAILED);
+        } else if (check.failure != null) {
+            // OB did not reply in time or could not be reached, the endpoint is not failed.
+            Log.warnf("Checking the processor %s of endpoint %s failed: %s", check.processorId, ep.getId(), check.failure.getMessage());
+        } else {
+            Log.debugf("  Status reported by OB for processor %s : %s", check.processorId, check.status);
+            if ("ready".equals(check.status)) {
+                ep.setStatus(EndpointStatus.READY);
+            }
+            if ("failed".equals(check.status)) {
                 ep.setStatus(EndpointStatus.FAILED);
             }
         }
+
+        if (ep.getStatus() == EndpointStatus.READY || ep.getStatus() == EndpointStatus.FAILED) {
+            backoffs.remove(ep.getId());
+        } else {
+            Backoff backoff = backoffs.get(ep.getId());
+            Duration delay = backoff == null ? initialBackoff : backoff.delay.multipliedBy(2);
+            if (delay.compareTo(maxBackoff) > 0) {
+                delay = maxBackoff;
+            }
+            backoffs.put(ep.getId(), new Backoff(System.currentTimeMillis() + delay.toMillis(), delay));
+        }
+    }
+
+    private static class Check {
+
+        final Endpoint endpoint;
+        final String processorId;
+        final String status;
+        final Throwable failure;
+
+        Check(Endpoint endpoint, String processorId, String status, Throwable failure) {
+            this.endpoint = endpoint;
+            this.processorId = processorId;
+            this.status = status;
+            this.failure = failure;
+        }
+    }
+
+    private static class Backoff {
+
+        final long nextCheck;
+        final Duration delay;
+
+        Backoff(long nextCheck, Duration delay) {
+            this.nextCheck = nextCheck;
+            this.delay = delay;
+        }
     }
 }
@@ -1,12 +1,11 @@
 package com.redhat.cloud.notifications.routers;
 
 import com.redhat.cloud.notifications.Constants;
+import com.redhat.cloud.notifications.cloudevents.CloudEventCodec;
 import com.redhat.cloud.notifications.db.repositories.NotificationRepository;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.quarkus.logging.Log;
-import io.vertx.core.json.Json;
-import io.vertx.core.json.JsonObject;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import javax.annotation.PostConstruct;
@@ -68,11 +67,10 @@ public class FromOBHistoryFiller {
         }
 
         String eventId = eventUUId.toString();
-        JsonObject ce;
+        String reason;
         try {
             Log.infof("Processing return from OB with id %s and payload: %s", eventId, payload);
-            Object o = Json.decodeValue(payload);
-            ce = (JsonObject) o;
+            reason = CloudEventCodec.decodeDeadLetterReason(payload);
 
         } catch (Exception e) {
             messagesErrorCounter.increment();
@@ -84,7 +82,6 @@ public class FromOBHistoryFiller {
             Map<String, Object> historyMap = new HashMap<>();
             historyMap.put("historyId", eventId);
             historyMap.put("successful", false);
-            String reason = ce.getString("deadletterreason");
             historyMap.put("details", reason);
             historyMap.put("duration", 0); // OB does not supply this
 
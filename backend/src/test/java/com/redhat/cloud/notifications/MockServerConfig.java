@@ -143,6 +143,19 @@ public class MockServerConfig {
                 ClearType.EXPECTATIONS);
     }
 
+    public static HttpRequest addOpenBridgeProcessor(String processorId, String status) {
+        HttpRequest request = request()
+                .withPath("/api/v1/bridges/.*/processors/" + processorId)
+                .withMethod("GET");
+        getClient()
+                .when(request)
+                .respond(response()
+                        .withStatusCode(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(Json.encode(Map.of("id", processorId, "status", status))));
+        return request;
+    }
+
     public static void removeHttpTestEndpoint(HttpRequest request) {
         getClient().clear(request);
     }
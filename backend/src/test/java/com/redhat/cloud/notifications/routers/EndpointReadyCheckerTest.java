@@ -0,0 +1,105 @@
+package com.redhat.cloud.notifications.routers;
+
+import com.redhat.cloud.notifications.MockServerConfig;
+import com.redhat.cloud.notifications.TestLifecycleManager;
+import com.redhat.cloud.notifications.db.ResourceHelpers;
+import com.redhat.cloud.notifications.models.CamelProperties;
+import com.redhat.cloud.notifications.models.Endpoint;
+import com.redhat.cloud.notifications.models.EndpointStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockserver.model.HttpRequest;
+import org.mockserver.verify.VerificationTimes;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.redhat.cloud.notifications.MockServerLifecycleManager.getClient;
+import static com.redhat.cloud.notifications.models.EndpointType.CAMEL;
+import static com.redhat.cloud.notifications.routers.EndpointReadyChecker.CYCLE_TIMER_NAME;
+import static java.lang.Boolean.TRUE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@QuarkusTest
+@QuarkusTestResource(TestLifecycleManager.class)
+public class EndpointReadyCheckerTest {
+
+    @Inject
+    EndpointReadyChecker endpointReadyChecker;
+
+    @Inject
+    ResourceHelpers resourceHelpers;
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    MeterRegistry registry;
+
+    private final List<HttpRequest> processorRequests = new ArrayList<>();
+
+    @AfterEach
+    void afterEach() {
+        processorRequests.forEach(MockServerConfig::removeHttpTestEndpoint);
+        processorRequests.clear();
+    }
+
+    @Test
+    void testStatusUpdatesAndBackoff() {
+        String suffix = UUID.randomUUID().toString();
+        // The processors are mocked before the endpoints are created because the checker may run in the background.
+        processorRequests.add(MockServerConfig.addOpenBridgeProcessor("ready-" + suffix, "ready"));
+        processorRequests.add(MockServerConfig.addOpenBridgeProcessor("failed-" + suffix, "failed"));
+        HttpRequest provisioningRequest = MockServerConfig.addOpenBridgeProcessor("provisioning-" + suffix, "provisioning");
+        processorRequests.add(provisioningRequest);
+
+        Endpoint ready = createSlackEndpoint("ready-" + suffix);
+        Endpoint failed = createSlackEndpoint("failed-" + suffix);
+        Endpoint provisioning = createSlackEndpoint("provisioning-" + suffix);
+        long cyclesBefore = registry.timer(CYCLE_TIMER_NAME).count();
+
+        endpointReadyChecker.execute();
+
+        assertEquals(EndpointStatus.READY, getStatus(ready.getId()));
+        assertEquals(EndpointStatus.FAILED, getStatus(failed.getId()));
+        assertEquals(EndpointStatus.UNKNOWN, getStatus(provisioning.getId()));
+        assertTrue(registry.timer(CYCLE_TIMER_NAME).count() > cyclesBefore);
+
+        // The processor which is still provisioning is not polled again before its backoff delay is over.
+        endpointReadyChecker.execute();
+        getClient().verify(provisioningRequest, VerificationTimes.exactly(1));
+        assertEquals(EndpointStatus.UNKNOWN, getStatus(provisioning.getId()));
+    }
+
+    @Test
+    void testEndpointWithoutProcessorIdIsFailed() {
+        CamelProperties properties = new CamelProperties();
+        properties.setUrl("https://slack.example.com");
+        properties.setExtras(Map.of());
+        Endpoint endpoint = resourceHelpers.createEndpoint("account-id", CAMEL, "slack", "Slack " + UUID.randomUUID(), "description", properties, TRUE);
+
+        endpointReadyChecker.execute();
+
+        assertEquals(EndpointStatus.FAILED, getStatus(endpoint.getId()));
+    }
+
+    private Endpoint createSlackEndpoint(String processorId) {
+        CamelProperties properties = new CamelProperties();
+        properties.setUrl("https://slack.example.com");
+        properties.setExtras(Map.of("processorId", processorId));
+        return resourceHelpers.createEndpoint("account-id", CAMEL, "slack", "Slack " + processorId, "description", properties, TRUE);
+    }
+
+    private EndpointStatus getStatus(UUID endpointId) {
+        entityManager.clear();
+        return entityManager.find(Endpoint.class, endpointId).getStatus();
+    }
+}
@@ -279,6 +279,17 @@ public class EndpointResourceTest extends DbIsolatedTest {
         properties.setMethod(null);
         expectReturn400(identityHeader, ep);
 
+        // Invalid batch size
+        properties.setMethod(HttpType.POST);
+        properties.setBatchMaxSize(0);
+        expectReturn400(identityHeader, ep);
+        properties.setBatchMaxSize(null);
+
+        // Invalid timeout
+        properties.setTimeoutMs(10);
+        expectReturn400(identityHeader, ep);
+        properties.setTimeoutMs(null);
+
         // Type and attributes don't match
         properties.setMethod(HttpType.POST);
         ep.setType(EndpointType.EMAIL_SUBSCRIPTION);
@@ -621,6 +632,9 @@ public class EndpointResourceTest extends DbIsolatedTest {
         JsonObject attrSingle = responsePointSingle.getJsonObject("properties");
         attrSingle.mapTo(WebhookProperties.class);
         attrSingle.put("secret_token", "not-so-secret-anymore");
+        attrSingle.put("batch_max_size", 50);
+        attrSingle.put("batch_max_linger_ms", 2000);
+        attrSingle.put("timeout_ms", 5000);
 
         // Update without payload
         given()
@@ -648,6 +662,9 @@ public class EndpointResourceTest extends DbIsolatedTest {
         attrSingleUpdated.mapTo(WebhookProperties.class);
         assertEquals("endpoint found", updatedEndpoint.getString("name"));
         assertEquals("not-so-secret-anymore", attrSingleUpdated.getString("secret_token"));
+        assertEquals(50, attrSingleUpdated.getInteger("batch_max_size"));
+        assertEquals(2000, attrSingleUpdated.getInteger("batch_max_linger_ms"));
+        assertEquals(5000, attrSingleUpdated.getInteger("timeout_ms"));
     }
 
     private static Stream<Arguments> testEndpointTypeQuery() {
@@ -45,6 +45,7 @@ import static com.redhat.cloud.notifications.models.EmailSubscriptionType.DAILY;
 import static io.restassured.RestAssured.given;
 import static io.restassured.http.ContentType.JSON;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.when;
 
@@ -83,6 +84,8 @@ public class TemplateResourceTest extends DbIsolatedTest {
         template.setDescription("My new template");
         template.setData("new-template-data");
         updateTemplate(adminIdentity, jsonTemplate.getString("id"), template);
+        // The engine relies on the update timestamp to know if its compiled version of the template is outdated.
+        assertNotNull(getAllTemplates(adminIdentity).getJsonObject(0).getString("updated"));
 
         // Now we'll delete the template and check that it no longer exists with the following line.
         deleteTemplate(adminIdentity, jsonTemplate.getString("id"), 200);
@@ -1,10 +1,12 @@
 package com.redhat.cloud.notifications.demoCamelSender;
 
+import com.redhat.cloud.notifications.cloudevents.CloudEventCodec;
+import com.redhat.cloud.notifications.cloudevents.ToCamelEvent;
 import org.apache.camel.Exchange;
 import org.apache.camel.Message;
 import org.apache.camel.Processor;
-import org.apache.camel.util.json.JsonObject;
-import org.apache.camel.util.json.Jsoner;
+
+import java.util.Map;
 
 
 /**
@@ -18,23 +20,17 @@ public class CloudEventDecoder implements Processor {
 
         Message in = exchange.getIn();
         String body = in.getBody(String.class);
-        JsonObject ceIn = (JsonObject) Jsoner.deserialize(body);
-        for (String key : ceIn.keySet()) {
-            if (key.equals("data")) {
-                continue; // This is the data. We don't put it in the header
-            }
-            in.setHeader("Ce-" + key, ceIn.getString(key));
+        ToCamelEvent ceIn = CloudEventCodec.decodeToCamelEvent(body);
+        for (Map.Entry<String, String> attribute : ceIn.getAttributes().entrySet()) {
+            in.setHeader("Ce-" + attribute.getKey(), attribute.getValue());
         }
 
-        // Extract metadata, put it in headers and then delete from the body.
-        JsonObject bodyObject = (JsonObject) Jsoner.deserialize(ceIn.getString("data"));
-        JsonObject metaData = (JsonObject) bodyObject.get("notif-metadata");
+        // The metadata has already been removed from the body by the codec, we put it in headers.
+        Map<String, Object> metaData = ceIn.getMetadata();
         in.setHeader("metadata", metaData);
-        JsonObject extras = (JsonObject) Jsoner.deserialize(metaData.getString("extras"));
+        Map<String, Object> extras = CloudEventCodec.decodeObject((String) metaData.get("extras"));
         in.setHeader("extras", extras);
 
-        bodyObject.remove("notif-metadata");
-
-        in.setBody(bodyObject);
+        in.setBody(ceIn.getData());
     }
 }
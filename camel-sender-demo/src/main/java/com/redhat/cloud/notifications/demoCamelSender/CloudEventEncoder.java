@@ -1,9 +1,10 @@
 package com.redhat.cloud.notifications.demoCamelSender;
 
+import com.redhat.cloud.notifications.cloudevents.CamelReturn;
+import com.redhat.cloud.notifications.cloudevents.CloudEventCodec;
 import org.apache.camel.Exchange;
 import org.apache.camel.Message;
 import org.apache.camel.Processor;
-import org.apache.camel.util.json.JsonObject;
 
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
@@ -14,7 +15,7 @@ import java.util.Set;
 import java.util.TimeZone;
 
 /**
- * Encode the passed body in a CloudEvent, marshalled as Json
+ * Encode the passed {@link CamelReturn} body in a CloudEvent, marshalled as Json
  */
 public class CloudEventEncoder implements Processor {
 
@@ -33,7 +34,6 @@ public class CloudEventEncoder implements Processor {
     public void process(Exchange exchange) throws Exception {
 
         Message in = exchange.getIn();
-        JsonObject out = new JsonObject();
 
         // Save the id
         String id = (String) in.getHeader("ce-id");
@@ -47,19 +47,9 @@ public class CloudEventEncoder implements Processor {
             }
         }
 
-        // Set CloudEvent headers
-        out.put("specversion", "1.0");
-        out.put("source", this.source);
-        out.put("type", this.type);
-        out.put("time", df.format(new Date()));
-        out.put("id", id);
-        out.put("content-type", "application/json");
-
-        // Attach payload
-        out.put("data", in.getBody(String.class));
-
-        // Marshall the CloudEvent to json
-        String bodyAsJsonString = out.toJson();
+        // Attach payload and marshall the CloudEvent to json
+        CamelReturn result = in.getBody(CamelReturn.class);
+        String bodyAsJsonString = CloudEventCodec.encodeCamelReturn(id, this.source, this.type, df.format(new Date()), result);
 
         in.setBody(bodyAsJsonString);
     }
@@ -3,6 +3,8 @@ package com.redhat.cloud.notifications.demoCamelSender;
 import io.quarkus.runtime.annotations.RegisterForReflection;
 import org.apache.camel.Processor;
 import org.apache.camel.builder.RouteBuilder;
+import org.eclipse.microprofile.config.ConfigProvider;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import javax.enterprise.context.ApplicationScoped;
 import java.io.IOException;
@@ -12,6 +14,8 @@ import java.io.IOException;
  * Entry point for messages is below 'from(INCOMING_CHANNEL)'
  * Upon success/failure a message is returned to the RETURN_CHANNEL
  * topic.
+ * With simulator.enabled=true, the component stands in for all the
+ * integrations instead, see {@link Simulator}.
  */
 
 /*
@@ -35,6 +39,13 @@ public class Main extends RouteBuilder {
     // The (CloudEvent) type for the return channel
     public static final String RETURN_TYPE = "com.redhat.cloud.notifications.history";
 
+    @ConfigProperty(name = "simulator.enabled", defaultValue = "false")
+    boolean simulatorEnabled;
+
+    // Number of messages simulated at the same time
+    @ConfigProperty(name = "simulator.concurrency", defaultValue = "10")
+    int simulatorConcurrency;
+
     /*
      * This method sets up the camel route and is started by the underlying
      * code when Quarkus-camel starts.
@@ -49,6 +60,11 @@ public class Main extends RouteBuilder {
         // and forward to the error handler
         // Setting handled to true ends the processing chain below
         // This is not needed with the log component, but left as example
+        if (simulatorEnabled) {
+            configureSimulator(ceDecoder, resultTransformer, ceEncoder);
+            return;
+        }
+
         onException(IOException.class)
             .to("direct:error")
             .handled(true);
@@ -58,7 +74,6 @@ public class Main extends RouteBuilder {
             .setBody(simple("${exception.message}"))
             .setHeader("outcome-fail", simple("true"))
             .process(resultTransformer)
-            .marshal().json()
             .log("Fail with for id ${header.ce-id} : ${exception.message}")
             .process(ceEncoder)
             .to(RETURN_CHANNEL);
@@ -105,11 +120,32 @@ public class Main extends RouteBuilder {
             // Processing is done, now look at the output
             // and inform notifications
             .process(resultTransformer)
-                // translate the inner stuff to json
-            .marshal().json()
             .log("Success with ${body} and ${header.Ce-Id}")
             // encode as CloudEvent
             .process(ceEncoder)
             .to(RETURN_CHANNEL);
     }
+
+    /*
+     * Load test mode: the messages of every integration type are answered
+     * after a simulated call, without logging each of them.
+     */
+    private void configureSimulator(Processor ceDecoder, Processor resultTransformer, Processor ceEncoder) {
+
+        Processor simulator = new Simulator(ConfigProvider.getConfig());
+
+        from(INCOMING_CHANNEL)
+            .process(ceDecoder)
+            .filter().simple("${header.ce-type} startsWith '" + Simulator.TYPE_PREFIX + "'")
+                // The simulated calls wait, they must not hold the Kafka consumer
+                .threads(simulatorConcurrency, simulatorConcurrency)
+                .to("direct:simulate")
+            .end();
+
+        from("direct:simulate")
+            .process(simulator)
+            .process(resultTransformer)
+            .process(ceEncoder)
+            .to(RETURN_CHANNEL);
+    }
 }
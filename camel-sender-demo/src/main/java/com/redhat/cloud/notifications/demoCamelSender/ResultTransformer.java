@@ -1,5 +1,6 @@
 package com.redhat.cloud.notifications.demoCamelSender;
 
+import com.redhat.cloud.notifications.cloudevents.CamelReturn;
 import org.apache.camel.Exchange;
 import org.apache.camel.Message;
 import org.apache.camel.Processor;
@@ -8,7 +9,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 /**
- * Transformer to create a Map from the outcome
+ * Transformer to create a {@link CamelReturn} from the outcome
  * of the actual component.
  */
 public class ResultTransformer implements Processor {
@@ -27,16 +28,16 @@ public class ResultTransformer implements Processor {
         }
         long timeDiff = System.currentTimeMillis() - timeIn;
 
-        Map<String, Object> out = new HashMap<>();
-        out.put("outcome", oldBody);
+        CamelReturn out = new CamelReturn();
+        out.setOutcome(oldBody);
         boolean isFail = Boolean.parseBoolean((String) in.getHeader("outcome-fail", "false"));
-        out.put("successful", !isFail);
-        out.put("finishTime", System.currentTimeMillis());
-        out.put("duration", timeDiff);
-        Map<String, String> details = new HashMap<>();
-        details.put("target", (String) in.getHeader("targetUrl"));
-        details.put("type", (String) in.getHeader("Ce-type"));
-        out.put("details", details);
+        out.setSuccessful(!isFail);
+        out.setFinishTime(System.currentTimeMillis());
+        out.setDuration(timeDiff);
+        Map<String, Object> details = new HashMap<>();
+        details.put("target", in.getHeader("targetUrl"));
+        details.put("type", in.getHeader("Ce-type"));
+        out.setDetails(details);
 
         in.setBody(out);
     }
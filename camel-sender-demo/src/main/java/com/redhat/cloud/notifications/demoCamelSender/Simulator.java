@@ -0,0 +1,130 @@
+package com.redhat.cloud.notifications.demoCamelSender;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.apache.camel.Processor;
+import org.eclipse.microprofile.config.Config;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stands in for the real integrations when load testing the Camel round trip. Instead of calling a remote service,
+ * each message waits for a latency drawn from the configured distribution and then succeeds or fails with the
+ * configured ratio. The outcome is put in the body and in the {@code outcome-fail} header, for the
+ * {@link ResultTransformer}.
+ * <p>
+ * The behavior is read from the {@code simulator.*} properties. Each of them can be overridden for a subtype of
+ * integration with {@code simulator.subtype.<subtype>.*}, e.g. {@code simulator.subtype.slack.failure-ratio=0.1}.
+ */
+public class Simulator implements Processor {
+
+    public static final String TYPE_PREFIX = "com.redhat.console.notification.toCamel.";
+
+    private final Config config;
+    // Minimum time between two messages, in nanoseconds. 0 means unlimited.
+    private final long interval;
+    private final AtomicLong nextSlot = new AtomicLong();
+    private final Map<String, Behavior> behaviors = new ConcurrentHashMap<>();
+
+    public Simulator(Config config) {
+        this.config = config;
+        double maxThroughput = config.getOptionalValue("simulator.max-throughput", Double.class).orElse(0D);
+        interval = maxThroughput > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / maxThroughput) : 0L;
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+
+        Message in = exchange.getIn();
+        in.setHeader("timeIn", String.valueOf(System.currentTimeMillis()));
+        in.setHeader("targetUrl", in.getHeader("metadata", Map.class).get("url"));
+
+        String type = in.getHeader("Ce-type", String.class);
+        String subType = type != null && type.startsWith(TYPE_PREFIX) ? type.substring(TYPE_PREFIX.length()) : "unknown";
+        Behavior behavior = behaviors.computeIfAbsent(subType, Behavior::new);
+
+        waitForSlot();
+        Thread.sleep(behavior.nextLatency());
+
+        if (ThreadLocalRandom.current().nextDouble() < behavior.failureRatio) {
+            in.setHeader("outcome-fail", "true");
+            in.setBody(behavior.failureOutcome);
+        } else {
+            in.setBody("Success");
+        }
+    }
+
+    /*
+     * Spreads the messages so that the throughput never exceeds simulator.max-throughput.
+     */
+    private void waitForSlot() throws InterruptedException {
+        if (interval == 0L) {
+            return;
+        }
+        long now = System.nanoTime();
+        long slot = Math.max(nextSlot.getAndUpdate(previous -> Math.max(previous, now) + interval), now);
+        if (slot > now) {
+            TimeUnit.NANOSECONDS.sleep(slot - now);
+        }
+    }
+
+    private class Behavior {
+
+        final String distribution;
+        final long minLatency;
+        final long meanLatency;
+        final long maxLatency;
+        final double sigma;
+        final double failureRatio;
+        final String failureOutcome;
+
+        Behavior(String subType) {
+            distribution = get(subType, "latency.distribution", String.class).orElse("fixed");
+            minLatency = get(subType, "latency.min-ms", Long.class).orElse(0L);
+            meanLatency = get(subType, "latency.mean-ms", Long.class).orElse(50L);
+            maxLatency = get(subType, "latency.max-ms", Long.class).orElse(0L);
+            sigma = get(subType, "latency.sigma", Double.class).orElse(0.5D);
+            failureRatio = get(subType, "failure-ratio", Double.class).orElse(0D);
+            failureOutcome = get(subType, "failure-outcome", String.class).orElse("Simulated failure");
+        }
+
+        private <T> Optional<T> get(String subType, String key, Class<T> valueType) {
+            Optional<T> value = config.getOptionalValue("simulator.subtype." + subType + "." + key, valueType);
+            return value.isPresent() ? value : config.getOptionalValue("simulator." + key, valueType);
+        }
+
+        /*
+         * Draws a latency in milliseconds. It is capped by latency.max-ms, if set.
+         */
+        long nextLatency() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            double latency;
+            switch (distribution) {
+                case "fixed":
+                    latency = meanLatency;
+                    break;
+                case "uniform":
+                    latency = minLatency + random.nextDouble() * (Math.max(maxLatency, minLatency) - minLatency);
+                    break;
+                case "exponential":
+                    latency = minLatency - Math.log(1D - random.nextDouble()) * Math.max(meanLatency - minLatency, 0L);
+                    break;
+                case "log-normal":
+                    // The location is shifted so that the mean of the distribution is latency.mean-ms.
+                    latency = meanLatency * Math.exp(sigma * random.nextGaussian() - sigma * sigma / 2D);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown latency distribution: " + distribution);
+            }
+            if (maxLatency > 0L && latency > maxLatency) {
+                latency = maxLatency;
+            }
+            return Math.max((long) latency, 0L);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.redhat.cloud.notifications.cloudevents;
+
+import java.util.Map;
+
+/**
+ * Outcome of a call made by a Camel integration, carried by the {@code data} of the CloudEvents sent back to
+ * notifications on the {@code fromCamel} channel.
+ */
+public class CamelReturn {
+
+    private String historyId;
+    private String outcome;
+    private Boolean successful;
+    private long duration;
+    private Long finishTime;
+    private Map<String, Object> details;
+
+    /**
+     * The ID of the history item, taken from the ID of the CloudEvent.
+     */
+    public String getHistoryId() {
+        return historyId;
+    }
+
+    public void setHistoryId(String historyId) {
+        this.historyId = historyId;
+    }
+
+    public String getOutcome() {
+        return outcome;
+    }
+
+    public void setOutcome(String outcome) {
+        this.outcome = outcome;
+    }
+
+    /**
+     * Returns {@code null} if the integration did not report the success of the call.
+     */
+    public Boolean getSuccessful() {
+        return successful;
+    }
+
+    public void setSuccessful(Boolean successful) {
+        this.successful = successful;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public void setDuration(long duration) {
+        this.duration = duration;
+    }
+
+    public Long getFinishTime() {
+        return finishTime;
+    }
+
+    public void setFinishTime(Long finishTime) {
+        this.finishTime = finishTime;
+    }
+
+    public Map<String, Object> getDetails() {
+        return details;
+    }
+
+    public void setDetails(Map<String, Object> details) {
+        this.details = details;
+    }
+
+    /**
+     * Returns {@code true} if the integration reports a successful call.
+     */
+    public boolean isSuccess() {
+        // TODO NOTIF-636 Remove oldResult after the Eventing team is done integrating with the new way to determine the success.
+        boolean oldResult = outcome != null && outcome.startsWith("Success");
+        return oldResult || Boolean.TRUE.equals(successful);
+    }
+
+    @Override
+    public String toString() {
+        return "CamelReturn{" +
+                "historyId='" + historyId + '\'' +
+                ", outcome='" + outcome + '\'' +
+                ", successful=" + successful +
+                ", duration=" + duration +
+                ", details=" + details +
+                '}';
+    }
+}
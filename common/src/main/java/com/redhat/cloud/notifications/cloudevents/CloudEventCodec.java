@@ -0,0 +1,304 @@
+package com.redhat.cloud.notifications.cloudevents;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes and decodes the CloudEvents exchanged between notifications, the Camel integrations and OpenBridge. The
+ * JSON is read with a streaming parser straight into the typed results, without building an intermediate map of the
+ * envelope. The {@code data} of these CloudEvents is a JSON document encoded as a string: it is parsed from the
+ * characters buffered by the envelope parser, without copying them.
+ */
+public class CloudEventCodec {
+
+    public static final String NOTIF_METADATA_KEY = "notif-metadata";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private CloudEventCodec() {
+    }
+
+    /**
+     * Decodes a CloudEvent received on the {@code fromCamel} channel.
+     * @param cloudEvent the JSON CloudEvent
+     * @return the outcome of the call, with the ID of the CloudEvent as history ID
+     * @throws IllegalArgumentException if the CloudEvent is not valid
+     */
+    public static CamelReturn decodeCamelReturn(String cloudEvent) {
+        try (JsonParser parser = JSON_FACTORY.createParser(cloudEvent)) {
+            expectObject(parser.nextToken());
+            String id = null;
+            CamelReturn camelReturn = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if ("id".equals(field)) {
+                    id = parser.getValueAsString();
+                } else if ("data".equals(field)) {
+                    if (token == JsonToken.VALUE_STRING) {
+                        try (JsonParser dataParser = createDataParser(parser)) {
+                            expectObject(dataParser.nextToken());
+                            camelReturn = readCamelReturn(dataParser);
+                        }
+                    } else {
+                        expectObject(token);
+                        camelReturn = readCamelReturn(parser);
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (camelReturn == null) {
+                throw new IllegalArgumentException("CloudEvent without data");
+            }
+            camelReturn.setHistoryId(id);
+            return camelReturn;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid CloudEvent", e);
+        }
+    }
+
+    /**
+     * Encodes the outcome of a call into a CloudEvent for the {@code fromCamel} channel.
+     */
+    public static String encodeCamelReturn(String id, String source, String type, String time, CamelReturn camelReturn) {
+        StringWriter data = new StringWriter();
+        StringWriter cloudEvent = new StringWriter();
+        try {
+            try (JsonGenerator generator = JSON_FACTORY.createGenerator(data)) {
+                generator.writeStartObject();
+                generator.writeStringField("outcome", camelReturn.getOutcome());
+                if (camelReturn.getSuccessful() != null) {
+                    generator.writeBooleanField("successful", camelReturn.getSuccessful());
+                }
+                if (camelReturn.getFinishTime() != null) {
+                    generator.writeNumberField("finishTime", camelReturn.getFinishTime());
+                }
+                generator.writeNumberField("duration", camelReturn.getDuration());
+                if (camelReturn.getDetails() != null) {
+                    generator.writeFieldName("details");
+                    writeValue(generator, camelReturn.getDetails());
+                }
+                generator.writeEndObject();
+            }
+            try (JsonGenerator generator = JSON_FACTORY.createGenerator(cloudEvent)) {
+                generator.writeStartObject();
+                generator.writeStringField("specversion", "1.0");
+                generator.writeStringField("source", source);
+                generator.writeStringField("type", type);
+                generator.writeStringField("time", time);
+                generator.writeStringField("id", id);
+                generator.writeStringField("content-type", "application/json");
+                generator.writeStringField("data", data.toString());
+                generator.writeEndObject();
+            }
+        } catch (IOException e) {
+            // StringWriter does not throw IOException.
+            throw new IllegalStateException(e);
+        }
+        return cloudEvent.toString();
+    }
+
+    /**
+     * Decodes a CloudEvent received by a Camel integration on the {@code toCamel} channel. The metadata of the
+     * endpoint is moved from the {@code data} to {@link ToCamelEvent#getMetadata()}.
+     * @throws IllegalArgumentException if the CloudEvent is not valid
+     */
+    public static ToCamelEvent decodeToCamelEvent(String cloudEvent) {
+        try (JsonParser parser = JSON_FACTORY.createParser(cloudEvent)) {
+            expectObject(parser.nextToken());
+            Map<String, String> attributes = new LinkedHashMap<>();
+            Map<String, Object> data = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if ("data".equals(field)) {
+                    if (token == JsonToken.VALUE_STRING) {
+                        try (JsonParser dataParser = createDataParser(parser)) {
+                            expectObject(dataParser.nextToken());
+                            data = readObject(dataParser);
+                        }
+                    } else {
+                        expectObject(token);
+                        data = readObject(parser);
+                    }
+                } else if (token.isScalarValue()) {
+                    attributes.put(field, parser.getValueAsString());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (data == null) {
+                throw new IllegalArgumentException("CloudEvent without data");
+            }
+            Map<String, Object> metadata = (Map<String, Object>) data.remove(NOTIF_METADATA_KEY);
+            return new ToCamelEvent(attributes, data, metadata == null ? new LinkedHashMap<>() : metadata);
+        } catch (IOException | ClassCastException e) {
+            throw new IllegalArgumentException("Invalid CloudEvent", e);
+        }
+    }
+
+    /**
+     * Decodes the reason of the failure from a CloudEvent sent back by OpenBridge after a failed delivery.
+     * @return the {@code deadletterreason} of the CloudEvent or {@code null} if there is none
+     * @throws IllegalArgumentException if the CloudEvent is not a valid JSON object
+     */
+    public static String decodeDeadLetterReason(String cloudEvent) {
+        try (JsonParser parser = JSON_FACTORY.createParser(cloudEvent)) {
+            expectObject(parser.nextToken());
+            String reason = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("deadletterreason".equals(field)) {
+                    reason = parser.getValueAsString();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            // The whole payload is read to make sure it is valid.
+            if (parser.nextToken() != null) {
+                throw new IllegalArgumentException("Trailing content after the CloudEvent");
+            }
+            return reason;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid CloudEvent", e);
+        }
+    }
+
+    /**
+     * Decodes a JSON object, such as the {@code extras} of the metadata of an endpoint.
+     * @throws IllegalArgumentException if the JSON is not a valid JSON object
+     */
+    public static Map<String, Object> decodeObject(String json) {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            expectObject(parser.nextToken());
+            return readObject(parser);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid JSON object", e);
+        }
+    }
+
+    private static JsonParser createDataParser(JsonParser parser) throws IOException {
+        return JSON_FACTORY.createParser(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+    }
+
+    private static CamelReturn readCamelReturn(JsonParser parser) throws IOException {
+        CamelReturn camelReturn = new CamelReturn();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "outcome":
+                    if (token.isScalarValue()) {
+                        camelReturn.setOutcome(parser.getValueAsString());
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "successful":
+                    if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
+                        camelReturn.setSuccessful(parser.getBooleanValue());
+                    }
+                    break;
+                case "duration":
+                    if (token.isScalarValue()) {
+                        camelReturn.setDuration(parser.getValueAsLong());
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "finishTime":
+                    if (token.isNumeric()) {
+                        camelReturn.setFinishTime(parser.getLongValue());
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "details":
+                    if (token == JsonToken.START_OBJECT) {
+                        camelReturn.setDetails(readObject(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        return camelReturn;
+    }
+
+    private static Map<String, Object> readObject(JsonParser parser) throws IOException {
+        Map<String, Object> object = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            object.put(field, readValue(parser, parser.nextToken()));
+        }
+        return object;
+    }
+
+    private static Object readValue(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case START_OBJECT:
+                return readObject(parser);
+            case START_ARRAY:
+                List<Object> array = new ArrayList<>();
+                JsonToken next;
+                while ((next = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    array.add(readValue(parser, next));
+                }
+                return array;
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                // Integer, Long, BigInteger or Double depending on the value, like Jackson does for maps.
+                return parser.getNumberValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            default:
+                throw new IllegalArgumentException("Unexpected JSON token: " + token);
+        }
+    }
+
+    private static void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value instanceof Map) {
+            generator.writeStartObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                generator.writeFieldName(String.valueOf(entry.getKey()));
+                writeValue(generator, entry.getValue());
+            }
+            generator.writeEndObject();
+        } else if (value instanceof Iterable) {
+            generator.writeStartArray();
+            for (Object item : (Iterable<?>) value) {
+                writeValue(generator, item);
+            }
+            generator.writeEndArray();
+        } else {
+            // Strings, numbers, booleans and null.
+            generator.writeObject(value);
+        }
+    }
+
+    private static void expectObject(JsonToken token) {
+        if (token != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("JSON object expected, found: " + token);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.redhat.cloud.notifications.cloudevents;
+
+import java.util.Map;
+
+/**
+ * CloudEvent sent by notifications to the Camel integrations on the {@code toCamel} channel.
+ */
+public class ToCamelEvent {
+
+    private final Map<String, String> attributes;
+    private final Map<String, Object> data;
+    private final Map<String, Object> metadata;
+
+    public ToCamelEvent(Map<String, String> attributes, Map<String, Object> data, Map<String, Object> metadata) {
+        this.attributes = attributes;
+        this.data = data;
+        this.metadata = metadata;
+    }
+
+    /**
+     * The attributes of the CloudEvent envelope such as {@code id} or {@code type}, everything but the {@code data}.
+     */
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * The transformed action, without the metadata of the endpoint.
+     */
+    public Map<String, Object> getData() {
+        return data;
+    }
+
+    /**
+     * The metadata of the endpoint, which is removed from the {@code data}.
+     */
+    public Map<String, Object> getMetadata() {
+        return metadata;
+    }
+}
@@ -54,6 +54,45 @@ public class FeatureFlipper {
     @ConfigProperty(name = "notifications.use-org-id", defaultValue = "false")
     boolean useOrgId;
 
+    @ConfigProperty(name = "notifications.event-type-cache.enabled", defaultValue = "false")
+    boolean eventTypeCacheEnabled;
+
+    @ConfigProperty(name = "notifications.insert-first-deduplication.enabled", defaultValue = "false")
+    boolean insertFirstDeduplicationEnabled;
+
+    @ConfigProperty(name = "notifications.lazy-action-parsing.enabled", defaultValue = "false")
+    boolean lazyActionParsingEnabled;
+
+    @ConfigProperty(name = "notifications.tenant-scheduler.enabled", defaultValue = "false")
+    boolean tenantSchedulerEnabled;
+
+    @ConfigProperty(name = "notifications.concurrent-fan-out.enabled", defaultValue = "false")
+    boolean concurrentFanOutEnabled;
+
+    @ConfigProperty(name = "notifications.history-write-behind.enabled", defaultValue = "false")
+    boolean historyWriteBehindEnabled;
+
+    @ConfigProperty(name = "notifications.webhook-retry-topic.enabled", defaultValue = "false")
+    boolean webhookRetryTopicEnabled;
+
+    @ConfigProperty(name = "notifications.routing-cache.enabled", defaultValue = "false")
+    boolean routingCacheEnabled;
+
+    @ConfigProperty(name = "notifications.webhook-reactive-delivery.enabled", defaultValue = "false")
+    boolean webhookReactiveDeliveryEnabled;
+
+    @ConfigProperty(name = "notifications.circuit-breaker.enabled", defaultValue = "false")
+    boolean circuitBreakerEnabled;
+
+    @ConfigProperty(name = "notifications.webhook-batching.enabled", defaultValue = "false")
+    boolean webhookBatchingEnabled;
+
+    @ConfigProperty(name = "notifications.webhook-adaptive-timeout.enabled", defaultValue = "false")
+    boolean webhookAdaptiveTimeoutEnabled;
+
+    @ConfigProperty(name = "notifications.template-cache.enabled", defaultValue = "false")
+    boolean templateCacheEnabled;
+
     void logFeaturesStatusAtStartup(@Observes StartupEvent event) {
         Log.infof("=== %s startup status ===", FeatureFlipper.class.getSimpleName());
         Log.infof("The behavior groups unique name constraint is %s", enforceBehaviorGroupNameUnicity ? "enabled" : "disabled");
@@ -61,6 +100,19 @@ public class FeatureFlipper {
         Log.infof("The actions reinjection in case of Camel integration error is %s", enableReInject ? "enabled" : "disabled");
         Log.infof("The Kafka outage detector is %s", kafkaConsumedTotalCheckerEnabled ? "enabled" : "disabled");
         Log.infof("The org ID migration is %s", useOrgId ? "enabled" : "disabled");
+        Log.infof("The event type cache is %s", eventTypeCacheEnabled ? "enabled" : "disabled");
+        Log.infof("The insert-first Kafka messages deduplication is %s", insertFirstDeduplicationEnabled ? "enabled" : "disabled");
+        Log.infof("The lazy action parsing is %s", lazyActionParsingEnabled ? "enabled" : "disabled");
+        Log.infof("The tenant scheduler is %s", tenantSchedulerEnabled ? "enabled" : "disabled");
+        Log.infof("The concurrent fan-out across endpoint types is %s", concurrentFanOutEnabled ? "enabled" : "disabled");
+        Log.infof("The write-behind notification history persistence is %s", historyWriteBehindEnabled ? "enabled" : "disabled");
+        Log.infof("The webhook retries through the retry topic are %s", webhookRetryTopicEnabled ? "enabled" : "disabled");
+        Log.infof("The routing cache is %s", routingCacheEnabled ? "enabled" : "disabled");
+        Log.infof("The non-blocking webhook delivery is %s", webhookReactiveDeliveryEnabled ? "enabled" : "disabled");
+        Log.infof("The endpoints circuit breaker is %s", circuitBreakerEnabled ? "enabled" : "disabled");
+        Log.infof("The webhook batching is %s", webhookBatchingEnabled ? "enabled" : "disabled");
+        Log.infof("The latency-adaptive webhook timeouts are %s", webhookAdaptiveTimeoutEnabled ? "enabled" : "disabled");
+        Log.infof("The compiled DB templates cache is %s", templateCacheEnabled ? "enabled" : "disabled");
     }
 
     public boolean isEnforceBehaviorGroupNameUnicity() {
@@ -85,6 +137,123 @@ public class FeatureFlipper {
         this.useOrgId = useOrgId;
     }
 
+    public boolean isEventTypeCacheEnabled() {
+        return eventTypeCacheEnabled;
+    }
+
+    public void setEventTypeCacheEnabled(boolean eventTypeCacheEnabled) {
+        checkTestLaunchMode();
+        this.eventTypeCacheEnabled = eventTypeCacheEnabled;
+    }
+
+    public boolean isInsertFirstDeduplicationEnabled() {
+        return insertFirstDeduplicationEnabled;
+    }
+
+    public void setInsertFirstDeduplicationEnabled(boolean insertFirstDeduplicationEnabled) {
+        checkTestLaunchMode();
+        this.insertFirstDeduplicationEnabled = insertFirstDeduplicationEnabled;
+    }
+
+    public boolean isLazyActionParsingEnabled() {
+        return lazyActionParsingEnabled;
+    }
+
+    public void setLazyActionParsingEnabled(boolean lazyActionParsingEnabled) {
+        checkTestLaunchMode();
+        this.lazyActionParsingEnabled = lazyActionParsingEnabled;
+    }
+
+    public boolean isTenantSchedulerEnabled() {
+        return tenantSchedulerEnabled;
+    }
+
+    public void setTenantSchedulerEnabled(boolean tenantSchedulerEnabled) {
+        checkTestLaunchMode();
+        this.tenantSchedulerEnabled = tenantSchedulerEnabled;
+    }
+
+    public boolean isConcurrentFanOutEnabled() {
+        return concurrentFanOutEnabled;
+    }
+
+    public void setConcurrentFanOutEnabled(boolean concurrentFanOutEnabled) {
+        checkTestLaunchMode();
+        this.concurrentFanOutEnabled = concurrentFanOutEnabled;
+    }
+
+    public boolean isHistoryWriteBehindEnabled() {
+        return historyWriteBehindEnabled;
+    }
+
+    public void setHistoryWriteBehindEnabled(boolean historyWriteBehindEnabled) {
+        checkTestLaunchMode();
+        this.historyWriteBehindEnabled = historyWriteBehindEnabled;
+    }
+
+    public boolean isWebhookRetryTopicEnabled() {
+        return webhookRetryTopicEnabled;
+    }
+
+    public void setWebhookRetryTopicEnabled(boolean webhookRetryTopicEnabled) {
+        checkTestLaunchMode();
+        this.webhookRetryTopicEnabled = webhookRetryTopicEnabled;
+    }
+
+    public boolean isRoutingCacheEnabled() {
+        return routingCacheEnabled;
+    }
+
+    public void setRoutingCacheEnabled(boolean routingCacheEnabled) {
+        checkTestLaunchMode();
+        this.routingCacheEnabled = routingCacheEnabled;
+    }
+
+    public boolean isWebhookReactiveDeliveryEnabled() {
+        return webhookReactiveDeliveryEnabled;
+    }
+
+    public void setWebhookReactiveDeliveryEnabled(boolean webhookReactiveDeliveryEnabled) {
+        checkTestLaunchMode();
+        this.webhookReactiveDeliveryEnabled = webhookReactiveDeliveryEnabled;
+    }
+
+    public boolean isCircuitBreakerEnabled() {
+        return circuitBreakerEnabled;
+    }
+
+    public void setCircuitBreakerEnabled(boolean circuitBreakerEnabled) {
+        checkTestLaunchMode();
+        this.circuitBreakerEnabled = circuitBreakerEnabled;
+    }
+
+    public boolean isWebhookBatchingEnabled() {
+        return webhookBatchingEnabled;
+    }
+
+    public void setWebhookBatchingEnabled(boolean webhookBatchingEnabled) {
+        checkTestLaunchMode();
+        this.webhookBatchingEnabled = webhookBatchingEnabled;
+    }
+
+    public boolean isWebhookAdaptiveTimeoutEnabled() {
+        return webhookAdaptiveTimeoutEnabled;
+    }
+
+    public void setWebhookAdaptiveTimeoutEnabled(boolean webhookAdaptiveTimeoutEnabled) {
+        checkTestLaunchMode();
+        this.webhookAdaptiveTimeoutEnabled = webhookAdaptiveTimeoutEnabled;
+    }
+
+    public boolean isTemplateCacheEnabled() {
+        return templateCacheEnabled;
+    }
+
+    public void setTemplateCacheEnabled(boolean templateCacheEnabled) {
+        checkTestLaunchMode();
+        this.templateCacheEnabled = templateCacheEnabled;
+    }
+
     public boolean isEnableReInject() {
         return enableReInject;
     }
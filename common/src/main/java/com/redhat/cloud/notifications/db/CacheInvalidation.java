@@ -0,0 +1,21 @@
+package com.redhat.cloud.notifications.db;
+
+/**
+ * The backend broadcasts cache invalidation requests to all engine pods through a PostgreSQL {@code LISTEN/NOTIFY}
+ * channel. The notification payload is the name of the cache that has to be invalidated, optionally followed by
+ * {@link #KEY_SEPARATOR} and the account ID whose entries have to be invalidated. Notifications sent from a transaction
+ * are only delivered when that transaction is committed.
+ */
+public final class CacheInvalidation {
+
+    public static final String CHANNEL = "notifications_cache_invalidation";
+
+    public static final String KEY_SEPARATOR = ":";
+
+    public static final String EVENT_TYPES = "event-types";
+    public static final String ROUTING = "routing";
+    public static final String TEMPLATES = "templates";
+
+    private CacheInvalidation() {
+    }
+}
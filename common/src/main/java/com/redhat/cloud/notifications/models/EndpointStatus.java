@@ -6,5 +6,6 @@ public enum EndpointStatus {
     NEW,
     PROVISIONING,
     DELETING,
-    FAILED
+    FAILED,
+    CIRCUIT_OPEN // the engine stopped calling the endpoint after too many failures
 }
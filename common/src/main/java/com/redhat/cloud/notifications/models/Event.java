@@ -17,6 +17,7 @@ import java.time.LocalDateTime;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 import static java.time.ZoneOffset.UTC;
 import static javax.persistence.CascadeType.REMOVE;
@@ -66,6 +67,10 @@ public class Event {
     @Transient
     private Action action;
 
+    // Decodes the action on the first getAction() call when the event was created from the routing fields only.
+    @Transient
+    private Supplier<Action> actionSupplier;
+
     public Event() { }
 
     public Event(EventType eventType, String payload, Action action) {
@@ -190,12 +195,24 @@ public class Event {
         this.payload = payload;
     }
 
-    public Action getAction() {
+    // The endpoint processors may call this method concurrently from several threads.
+    public synchronized Action getAction() {
+        Supplier<Action> supplier = actionSupplier;
+        if (action == null && supplier != null) {
+            action = supplier.get();
+            actionSupplier = null;
+        }
         return action;
     }
 
-    public void setAction(Action action) {
+    public synchronized void setAction(Action action) {
         this.action = action;
+        actionSupplier = null;
+    }
+
+    public synchronized void setActionSupplier(Supplier<Action> actionSupplier) {
+        action = null;
+        this.actionSupplier = actionSupplier;
     }
 
     @Override
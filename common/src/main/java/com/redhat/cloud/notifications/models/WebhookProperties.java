@@ -8,6 +8,8 @@ import com.redhat.cloud.notifications.db.converters.HttpTypeConverter;
 import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.Table;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 
@@ -36,6 +38,27 @@ public class WebhookProperties extends EndpointProperties {
     @JsonProperty("basic_authentication")
     private BasicAuthentication basicAuthentication;
 
+    /*
+     * When this is set, the events sent to the webhook are coalesced into a single request containing a JSON array of
+     * at most batchMaxSize events. A batch is sent when it is full or batchMaxLingerMs after its first event.
+     */
+    @Min(1)
+    @Max(1000)
+    @JsonProperty("batch_max_size")
+    private Integer batchMaxSize;
+
+    @Min(0)
+    @Max(60000)
+    @JsonProperty("batch_max_linger_ms")
+    private Integer batchMaxLingerMs;
+
+    // When this is set, it replaces the timeout derived by the engine from the latency of the endpoint. It can't exceed
+    // the default global timeout of the engine (processor.webhook.await-timeout).
+    @Min(100)
+    @Max(60000)
+    @JsonProperty("timeout_ms")
+    private Integer timeoutMs;
+
     public String getUrl() {
         return url;
     }
@@ -75,4 +98,28 @@ public class WebhookProperties extends EndpointProperties {
     public void setBasicAuthentication(BasicAuthentication basicAuthentication) {
         this.basicAuthentication = basicAuthentication;
     }
+
+    public Integer getBatchMaxSize() {
+        return batchMaxSize;
+    }
+
+    public void setBatchMaxSize(Integer batchMaxSize) {
+        this.batchMaxSize = batchMaxSize;
+    }
+
+    public Integer getBatchMaxLingerMs() {
+        return batchMaxLingerMs;
+    }
+
+    public void setBatchMaxLingerMs(Integer batchMaxLingerMs) {
+        this.batchMaxLingerMs = batchMaxLingerMs;
+    }
+
+    public Integer getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public void setTimeoutMs(Integer timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
 }
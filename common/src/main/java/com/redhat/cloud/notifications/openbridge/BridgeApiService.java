@@ -1,5 +1,6 @@
 package com.redhat.cloud.notifications.openbridge;
 
+import io.smallrye.mutiny.Uni;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 
 import javax.ws.rs.Consumes;
@@ -62,6 +63,13 @@ public interface BridgeApiService {
                     @HeaderParam("Authorization") String bearerToken
     );
 
+    @GET
+    @Path("/{bridgeId}/processors/{processorId}")
+    Uni<Processor> getProcessorByIdAsync(@PathParam("bridgeId") String bridgeId,
+                    @PathParam("processorId") String processorId,
+                    @HeaderParam("Authorization") String bearerToken
+    );
+
     @PUT
     @Path("/{bridgeId}/processors/{processorId}")
     Processor updateProcessor(@PathParam("bridgeId") String bridgeId,
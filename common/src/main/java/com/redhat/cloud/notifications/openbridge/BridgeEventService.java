@@ -1,5 +1,6 @@
 package com.redhat.cloud.notifications.openbridge;
 
+import io.smallrye.mutiny.Uni;
 import io.vertx.core.json.JsonObject;
 
 import javax.ws.rs.Consumes;
@@ -22,4 +23,9 @@ public interface BridgeEventService {
                    @HeaderParam("Authorization") String bearerToken
     );
 
+    @POST
+    @Consumes("application/cloudevents+json")
+    Uni<Void> sendEventAsync(JsonObject payload,
+                             @HeaderParam("Authorization") String bearerToken
+    );
 }
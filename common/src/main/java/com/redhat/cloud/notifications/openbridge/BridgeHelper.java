@@ -1,17 +1,23 @@
 package com.redhat.cloud.notifications.openbridge;
 
 import com.redhat.cloud.notifications.config.FeatureFlipper;
-import io.quarkus.cache.CacheResult;
 import io.quarkus.logging.Log;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.context.RequestScoped;
 import javax.enterprise.inject.Produces;
 import javax.inject.Inject;
 import javax.ws.rs.WebApplicationException;
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  *
@@ -28,6 +34,12 @@ public class BridgeHelper {
     String clientSecret;
     @ConfigProperty(name = "ob.token.client.id")
     String clientId;
+    // The token is refreshed in the background when it is about to expire, before any caller needs a new one.
+    @ConfigProperty(name = "ob.token.refresh-ahead", defaultValue = "30S")
+    Duration refreshAhead;
+    // Used when the SSO response does not contain the lifetime of the token.
+    @ConfigProperty(name = "ob.token.default-lifetime", defaultValue = "120S")
+    Duration defaultLifetime;
 
     @Inject
     @RestClient
@@ -38,6 +50,23 @@ public class BridgeHelper {
     BridgeAuthService authService;
 
     private Bridge bridgeInstance;
+    private volatile CachedToken cachedToken;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private ExecutorService refreshExecutor;
+
+    @PostConstruct
+    void init() {
+        refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bridge-token-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refreshExecutor.shutdown();
+    }
 
     @ApplicationScoped
     @Produces
@@ -100,9 +129,44 @@ public class BridgeHelper {
     }
 
 
-    // We can cache the token for up to 15 minutes
-    @CacheResult(cacheName = "kc-cache")
+    /*
+     * The token is fetched synchronously only when there is none or when it expired. Once it reaches the refresh-ahead
+     * window, the current token is still returned while a single background refresh replaces it.
+     */
     String getAuthTokenInternal() {
+        CachedToken token = cachedToken;
+        long now = System.currentTimeMillis();
+        if (token == null || now >= token.expiresAt) {
+            synchronized (this) {
+                token = cachedToken;
+                if (token == null || System.currentTimeMillis() >= token.expiresAt) {
+                    token = fetchToken();
+                    cachedToken = token;
+                }
+            }
+        } else if (now >= token.refreshAt && refreshing.compareAndSet(false, true)) {
+            try {
+                refreshExecutor.execute(this::refreshToken);
+            } catch (RejectedExecutionException e) {
+                // The application is stopping.
+                refreshing.set(false);
+            }
+        }
+        return token.value;
+    }
+
+    private void refreshToken() {
+        try {
+            cachedToken = fetchToken();
+        } catch (Exception e) {
+            // The current token is still valid, the next call will try again.
+            Log.warnf("Failed to refresh the auth token: %s", e.getMessage());
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    private CachedToken fetchToken() {
 
         Log.debug("Fetching a new token from SSO");
 
@@ -110,12 +174,31 @@ public class BridgeHelper {
                     + "&client_secret=" + clientSecret
                     + "&grant_type=client_credentials";
 
+        long fetchTime = System.currentTimeMillis();
         Map<String, Object> tokenMap = authService.getTokenStructWithClientCredentials(body);
         String authToken = (String) tokenMap.get("access_token");
-        return "Bearer " + authToken;
+        long lifetime = tokenMap.get("expires_in") instanceof Number
+                ? Duration.ofSeconds(((Number) tokenMap.get("expires_in")).longValue()).toMillis()
+                : defaultLifetime.toMillis();
+        long expiresAt = fetchTime + lifetime;
+        long refreshAt = Math.max(fetchTime, expiresAt - refreshAhead.toMillis());
+        return new CachedToken("Bearer " + authToken, refreshAt, expiresAt);
     }
 
     public void setOurBridge(String id) {
         ourBridge = id;
     }
+
+    private static class CachedToken {
+
+        private final String value;
+        private final long refreshAt;
+        private final long expiresAt;
+
+        CachedToken(String value, long refreshAt, long expiresAt) {
+            this.value = value;
+            this.refreshAt = refreshAt;
+            this.expiresAt = expiresAt;
+        }
+    }
 }
@@ -0,0 +1,148 @@
+package com.redhat.cloud.notifications.cloudevents;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CloudEventCodecTest {
+
+    private static final String HISTORY_ID = "e3c90a94-751b-4ce1-b345-b85d825795a4";
+
+    @Test
+    void testDecodeCamelReturnWithStringData() {
+        String data = new JsonObject()
+                .put("duration", 67549274)
+                .put("finishTime", 1639476503209L)
+                .put("details", Map.of("type", "com.redhat.console.notification.toCamel.tower", "target", "1.2.3.4"))
+                .put("outcome", "com.jayway.jsonpath.PathNotFoundException: Missing property in path $['bla']")
+                .put("successful", false)
+                .encode();
+        String cloudEvent = new JsonObject()
+                .put("specversion", "1.0")
+                .put("source", "demo-log")
+                .put("id", HISTORY_ID)
+                .put("data", data)
+                .encode();
+
+        CamelReturn camelReturn = CloudEventCodec.decodeCamelReturn(cloudEvent);
+
+        assertEquals(HISTORY_ID, camelReturn.getHistoryId());
+        assertEquals(67549274L, camelReturn.getDuration());
+        assertEquals(1639476503209L, camelReturn.getFinishTime());
+        assertEquals("com.jayway.jsonpath.PathNotFoundException: Missing property in path $['bla']", camelReturn.getOutcome());
+        assertFalse(camelReturn.getSuccessful());
+        assertFalse(camelReturn.isSuccess());
+        assertEquals("1.2.3.4", camelReturn.getDetails().get("target"));
+    }
+
+    @Test
+    void testDecodeCamelReturnWithObjectData() {
+        String cloudEvent = new JsonObject()
+                .put("data", new JsonObject().put("outcome", "Success").put("details", Map.of("codes", List.of(1, 2))))
+                .put("id", HISTORY_ID)
+                .encode();
+
+        CamelReturn camelReturn = CloudEventCodec.decodeCamelReturn(cloudEvent);
+
+        assertEquals(HISTORY_ID, camelReturn.getHistoryId());
+        assertNull(camelReturn.getSuccessful());
+        // TODO NOTIF-636 Remove this assertion with the old way to determine the success.
+        assertTrue(camelReturn.isSuccess());
+        assertEquals(List.of(1, 2), camelReturn.getDetails().get("codes"));
+    }
+
+    @Test
+    void testDecodeCamelReturnWithNonScalarFields() {
+        String cloudEvent = new JsonObject()
+                .put("data", new JsonObject()
+                        .put("outcome", new JsonObject().put("successful", true))
+                        .put("duration", List.of(1, 2))
+                        .put("finishTime", new JsonObject().put("outcome", "Nested"))
+                        .put("successful", false)
+                        .put("details", Map.of("target", "1.2.3.4")))
+                .put("id", HISTORY_ID)
+                .encode();
+
+        CamelReturn camelReturn = CloudEventCodec.decodeCamelReturn(cloudEvent);
+
+        // The nested values are skipped, they don't override the fields which follow them.
+        assertEquals(HISTORY_ID, camelReturn.getHistoryId());
+        assertNull(camelReturn.getOutcome());
+        assertEquals(0L, camelReturn.getDuration());
+        assertNull(camelReturn.getFinishTime());
+        assertFalse(camelReturn.getSuccessful());
+        assertEquals("1.2.3.4", camelReturn.getDetails().get("target"));
+    }
+
+    @Test
+    void testDecodeInvalidCamelReturn() {
+        assertThrows(IllegalArgumentException.class, () -> CloudEventCodec.decodeCamelReturn("I am not valid!"));
+        assertThrows(IllegalArgumentException.class, () -> CloudEventCodec.decodeCamelReturn("{\"id\":\"" + HISTORY_ID + "\"}"));
+        assertThrows(IllegalArgumentException.class, () -> CloudEventCodec.decodeCamelReturn("{\"data\":\"[1, 2]\"}"));
+    }
+
+    @Test
+    void testEncodeDecodeCamelReturn() {
+        CamelReturn camelReturn = new CamelReturn();
+        camelReturn.setOutcome("Success \"quoted\"");
+        camelReturn.setSuccessful(true);
+        camelReturn.setDuration(123L);
+        camelReturn.setFinishTime(456L);
+        camelReturn.setDetails(Map.of("target", "https://example.com"));
+
+        String cloudEvent = CloudEventCodec.encodeCamelReturn(HISTORY_ID, "demo-log", "com.redhat.cloud.notifications.history",
+                "2021-12-14T10:08:23.217Z", camelReturn);
+
+        // The data must still be a string for the consumers which decode it twice.
+        JsonObject decodedEnvelope = new JsonObject(cloudEvent);
+        assertEquals("demo-log", decodedEnvelope.getString("source"));
+        assertEquals(123, new JsonObject(decodedEnvelope.getString("data")).getInteger("duration"));
+
+        CamelReturn decoded = CloudEventCodec.decodeCamelReturn(cloudEvent);
+        assertEquals(HISTORY_ID, decoded.getHistoryId());
+        assertEquals(camelReturn.getOutcome(), decoded.getOutcome());
+        assertTrue(decoded.getSuccessful());
+        assertEquals(123L, decoded.getDuration());
+        assertEquals(456L, decoded.getFinishTime());
+        assertEquals(camelReturn.getDetails(), decoded.getDetails());
+    }
+
+    @Test
+    void testDecodeToCamelEvent() {
+        String data = new JsonObject()
+                .put("application", "policies")
+                .put("events", List.of(Map.of("payload", Map.of("foo", "bar"))))
+                .put(CloudEventCodec.NOTIF_METADATA_KEY, Map.of("url", "https://example.com", "extras", "{\"channel\":\"#general\"}"))
+                .encode();
+        String cloudEvent = new JsonObject()
+                .put("id", HISTORY_ID)
+                .put("type", "com.redhat.console.notification.toCamel.demo-log")
+                .put("rh-account", "12345")
+                .put("data", data)
+                .encode();
+
+        ToCamelEvent event = CloudEventCodec.decodeToCamelEvent(cloudEvent);
+
+        assertEquals(Map.of("id", HISTORY_ID, "type", "com.redhat.console.notification.toCamel.demo-log", "rh-account", "12345"), event.getAttributes());
+        assertEquals("policies", event.getData().get("application"));
+        assertFalse(event.getData().containsKey(CloudEventCodec.NOTIF_METADATA_KEY));
+        assertEquals("https://example.com", event.getMetadata().get("url"));
+        assertEquals(Map.of("channel", "#general"), CloudEventCodec.decodeObject((String) event.getMetadata().get("extras")));
+    }
+
+    @Test
+    void testDecodeDeadLetterReason() {
+        assertEquals("Too many retries", CloudEventCodec.decodeDeadLetterReason("{\"data\":{\"a\":[1]},\"deadletterreason\":\"Too many retries\"}"));
+        assertNull(CloudEventCodec.decodeDeadLetterReason("{\"id\":\"123\"}"));
+        assertThrows(IllegalArgumentException.class, () -> CloudEventCodec.decodeDeadLetterReason("[]"));
+        assertThrows(IllegalArgumentException.class, () -> CloudEventCodec.decodeDeadLetterReason("{\"id\":"));
+    }
+}
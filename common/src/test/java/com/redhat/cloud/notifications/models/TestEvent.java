@@ -0,0 +1,33 @@
+package com.redhat.cloud.notifications.models;
+
+import com.redhat.cloud.notifications.ingress.Action;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class TestEvent {
+
+    @Test
+    void actionSupplierIsCalledOnceConcurrently() {
+        Action action = new Action();
+        AtomicInteger calls = new AtomicInteger();
+        Event event = new Event();
+        event.setActionSupplier(() -> {
+            calls.incrementAndGet();
+            return action;
+        });
+
+        List<CompletableFuture<Action>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(CompletableFuture.supplyAsync(event::getAction));
+        }
+        futures.forEach(future -> assertSame(action, future.join()));
+        assertEquals(1, calls.get());
+    }
+}
@@ -0,0 +1,4 @@
+-- The events sent to a webhook can be coalesced into a single request, this is disabled when batch_max_size is null.
+ALTER TABLE endpoint_webhooks
+    ADD COLUMN batch_max_size INTEGER,
+    ADD COLUMN batch_max_linger_ms INTEGER;
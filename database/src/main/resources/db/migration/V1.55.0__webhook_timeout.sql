@@ -0,0 +1,3 @@
+-- Overrides the timeout of the webhook calls derived from the endpoint latency when it is not null.
+ALTER TABLE endpoint_webhooks
+    ADD COLUMN timeout_ms INTEGER;
@@ -0,0 +1,31 @@
+package com.redhat.cloud.notifications.db;
+
+/**
+ * CDI event fired by {@link CacheInvalidationListener} when the backend asks the engine to invalidate a cache.
+ */
+public class CacheInvalidationEvent {
+
+    private final String cacheName;
+    private final String accountId;
+
+    public CacheInvalidationEvent(String cacheName) {
+        this(cacheName, null);
+    }
+
+    public CacheInvalidationEvent(String cacheName, String accountId) {
+        this.cacheName = cacheName;
+        this.accountId = accountId;
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    /**
+     * Returns the account whose cache entries have to be invalidated, or {@code null} if the whole cache has to be
+     * invalidated.
+     */
+    public String getAccountId() {
+        return accountId;
+    }
+}
@@ -0,0 +1,99 @@
+package com.redhat.cloud.notifications.db;
+
+import com.redhat.cloud.notifications.config.FeatureFlipper;
+import io.quarkus.logging.Log;
+import io.quarkus.scheduler.Scheduled;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
+import javax.inject.Inject;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.redhat.cloud.notifications.db.CacheInvalidation.CHANNEL;
+import static com.redhat.cloud.notifications.db.CacheInvalidation.EVENT_TYPES;
+import static com.redhat.cloud.notifications.db.CacheInvalidation.KEY_SEPARATOR;
+import static com.redhat.cloud.notifications.db.CacheInvalidation.ROUTING;
+import static com.redhat.cloud.notifications.db.CacheInvalidation.TEMPLATES;
+import static io.quarkus.scheduler.Scheduled.ConcurrentExecution.SKIP;
+
+/**
+ * Listens to the cache invalidation requests broadcast by the backend through the PostgreSQL {@code LISTEN/NOTIFY}
+ * channel from {@link CacheInvalidation} and turns them into {@link CacheInvalidationEvent} CDI events. A dedicated
+ * connection is used because a connection returned to the pool stops receiving the notifications.
+ */
+@ApplicationScoped
+public class CacheInvalidationListener {
+
+    private static final List<String> CACHE_NAMES = List.of(EVENT_TYPES, ROUTING, TEMPLATES);
+
+    @Inject
+    DataSource dataSource;
+
+    @Inject
+    FeatureFlipper featureFlipper;
+
+    @Inject
+    Event<CacheInvalidationEvent> cacheInvalidationEvent;
+
+    private Connection connection;
+
+    @Scheduled(concurrentExecution = SKIP, every = "${notifications.cache-invalidation.poll-period:5s}")
+    public synchronized void poll() {
+        if (!featureFlipper.isEventTypeCacheEnabled() && !featureFlipper.isRoutingCacheEnabled() && !featureFlipper.isTemplateCacheEnabled()) {
+            close();
+            return;
+        }
+        try {
+            // Each payload is a cache name, optionally followed by an account ID.
+            Set<String> payloads = new LinkedHashSet<>();
+            if (connection == null || connection.isClosed()) {
+                connection = dataSource.getConnection();
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                // Notifications sent while the engine was not listening are lost, so all caches have to be invalidated.
+                payloads.addAll(CACHE_NAMES);
+            }
+            // This call does not block, it only returns the notifications already received by the connection.
+            PGNotification[] notifications = connection.unwrap(PGConnection.class).getNotifications();
+            if (notifications != null) {
+                for (PGNotification notification : notifications) {
+                    payloads.add(notification.getParameter());
+                }
+            }
+            for (String payload : payloads) {
+                Log.debugf("Invalidating cache %s", payload);
+                int separatorIndex = payload.indexOf(KEY_SEPARATOR);
+                if (separatorIndex < 0) {
+                    cacheInvalidationEvent.fire(new CacheInvalidationEvent(payload));
+                } else {
+                    cacheInvalidationEvent.fire(new CacheInvalidationEvent(payload.substring(0, separatorIndex), payload.substring(separatorIndex + 1)));
+                }
+            }
+        } catch (SQLException e) {
+            Log.warn("Cache invalidation notifications polling failed", e);
+            close();
+        }
+    }
+
+    @PreDestroy
+    synchronized void close() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                Log.debug("Cache invalidation connection closing failed", e);
+            }
+            connection = null;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.redhat.cloud.notifications.db;
+
+import com.redhat.cloud.notifications.db.repositories.NotificationHistoryRepository;
+import com.redhat.cloud.notifications.models.NotificationHistory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.logging.Log;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for the history entries. The entries are flushed by a background thread as JDBC batches, either
+ * when {@code notifications.history-write-behind.batch-size} entries are buffered or when the oldest buffered entry
+ * has been waiting for {@code notifications.history-write-behind.flush-period}. The buffer is bounded: when it is
+ * full, {@link #write(NotificationHistory)} blocks until the flusher catches up. The remaining entries are flushed
+ * when the application is stopped.
+ */
+@ApplicationScoped
+public class NotificationHistoryWriter {
+
+    public static final String BUFFER_SIZE_GAUGE_NAME = "notification-history.write-behind.buffer.size";
+    public static final String FLUSHED_COUNTER_NAME = "notification-history.write-behind.flushed";
+    public static final String FLUSH_ERROR_COUNTER_NAME = "notification-history.write-behind.flush.error";
+
+    @ConfigProperty(name = "notifications.history-write-behind.buffer-size", defaultValue = "10000")
+    int bufferSize;
+
+    @ConfigProperty(name = "notifications.history-write-behind.batch-size", defaultValue = "500")
+    int batchSize;
+
+    @ConfigProperty(name = "notifications.history-write-behind.flush-period", defaultValue = "1s")
+    Duration flushPeriod;
+
+    @Inject
+    NotificationHistoryRepository notificationHistoryRepository;
+
+    @Inject
+    StatelessSessionFactory statelessSessionFactory;
+
+    @Inject
+    MeterRegistry registry;
+
+    private BlockingQueue<NotificationHistory> buffer;
+    private Counter flushedCounter;
+    private Counter flushErrorCounter;
+    private ExecutorService flusher;
+    private volatile boolean running;
+
+    @PostConstruct
+    void init() {
+        buffer = new ArrayBlockingQueue<>(bufferSize);
+        registry.gaugeCollectionSize(BUFFER_SIZE_GAUGE_NAME, List.of(), buffer);
+        flushedCounter = registry.counter(FLUSHED_COUNTER_NAME);
+        flushErrorCounter = registry.counter(FLUSH_ERROR_COUNTER_NAME);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(flushPeriod.toMillis() * 2, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // The entries buffered after the flusher stopped are flushed from the current thread.
+        List<NotificationHistory> batch = new ArrayList<>();
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Buffers a history entry. This method blocks if the buffer is full.
+     */
+    public void write(NotificationHistory history) throws InterruptedException {
+        startFlusher();
+        buffer.put(history);
+    }
+
+    private synchronized void startFlusher() {
+        if (flusher == null) {
+            running = true;
+            flusher = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "history-writer-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.submit(this::flushLoop);
+        }
+    }
+
+    private void flushLoop() {
+        List<NotificationHistory> batch = new ArrayList<>();
+        while (running) {
+            try {
+                long flushAt = System.nanoTime() + flushPeriod.toNanos();
+                while (batch.size() < batchSize) {
+                    long wait = batch.isEmpty() ? flushPeriod.toNanos() : flushAt - System.nanoTime();
+                    if (wait <= 0) {
+                        break;
+                    }
+                    NotificationHistory history = buffer.poll(wait, TimeUnit.NANOSECONDS);
+                    if (history == null) {
+                        break;
+                    }
+                    if (batch.isEmpty()) {
+                        // The flush period starts when the first entry of the batch is received.
+                        flushAt = System.nanoTime() + flushPeriod.toNanos();
+                    }
+                    batch.add(history);
+                    buffer.drainTo(batch, batchSize - batch.size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<NotificationHistory> batch) {
+        try {
+            statelessSessionFactory.withSession(statelessSession -> {
+                notificationHistoryRepository.createAll(batch);
+            });
+            flushedCounter.increment(batch.size());
+        } catch (Exception e) {
+            // A single invalid entry fails the whole batch, so the entries are persisted one by one instead.
+            Log.warnf(e, "Notification history batch creation failed for %d entries, retrying them individually", batch.size());
+            statelessSessionFactory.withSession(statelessSession -> {
+                for (NotificationHistory history : batch) {
+                    try {
+                        notificationHistoryRepository.createNotificationHistory(history);
+                        flushedCounter.increment();
+                    } catch (Exception ex) {
+                        flushErrorCounter.increment();
+                        Log.errorf("Notification history creation failed for %s", history.getEndpoint());
+                    }
+                }
+            });
+        }
+    }
+}
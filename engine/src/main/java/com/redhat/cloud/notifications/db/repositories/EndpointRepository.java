@@ -6,6 +6,7 @@ import com.redhat.cloud.notifications.models.CamelProperties;
 import com.redhat.cloud.notifications.models.EmailSubscriptionProperties;
 import com.redhat.cloud.notifications.models.Endpoint;
 import com.redhat.cloud.notifications.models.EndpointProperties;
+import com.redhat.cloud.notifications.models.EndpointStatus;
 import com.redhat.cloud.notifications.models.EndpointType;
 import com.redhat.cloud.notifications.models.EventType;
 import com.redhat.cloud.notifications.models.WebhookProperties;
@@ -13,6 +14,8 @@ import io.quarkus.logging.Log;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import javax.transaction.Transactional;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -84,6 +87,45 @@ public class EndpointRepository {
         return endpoint;
     }
 
+    /**
+     * Retrieves an enabled endpoint with its properties.
+     *
+     * @return the endpoint or {@code null} if it doesn't exist anymore or if it is disabled
+     */
+    public Endpoint findEnabledById(UUID id) {
+        String query = "FROM Endpoint WHERE id = :id AND enabled IS TRUE";
+        List<Endpoint> endpoints = statelessSessionFactory.getCurrentSession().createQuery(query, Endpoint.class)
+                .setParameter("id", id)
+                .getResultList();
+        loadProperties(endpoints);
+        return endpoints.isEmpty() ? null : endpoints.get(0);
+    }
+
+    /**
+     * Retrieves the given endpoints, without their properties. The endpoints which don't exist anymore are not returned.
+     */
+    public List<Endpoint> findByIds(Collection<UUID> ids) {
+        String query = "FROM Endpoint WHERE id IN (:ids)";
+        return statelessSessionFactory.getCurrentSession().createQuery(query, Endpoint.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /**
+     * Replaces the status of an endpoint if its current status is one of the expected statuses.
+     *
+     * @return {@code true} if the status was replaced
+     */
+    @Transactional
+    public boolean updateEndpointStatus(UUID id, Set<EndpointStatus> expectedStatuses, EndpointStatus newStatus) {
+        String query = "UPDATE Endpoint SET status = :newStatus WHERE id = :id AND status IN (:expectedStatuses)";
+        return statelessSessionFactory.getCurrentSession().createQuery(query)
+                .setParameter("newStatus", newStatus)
+                .setParameter("id", id)
+                .setParameter("expectedStatuses", expectedStatuses)
+                .executeUpdate() > 0;
+    }
+
     public List<Endpoint> getTargetEndpoints(String accountId, String orgId, EventType eventType) {
         List<Endpoint> endpoints;
         if (orgIdHelper.useOrgId(orgId)) {
@@ -5,10 +5,18 @@ import com.redhat.cloud.notifications.models.Event;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
 
 @ApplicationScoped
 public class EventRepository {
 
+    private static final String INSERT_EVENT_SQL = "INSERT INTO event (id, account_id, org_id, bundle_id, bundle_display_name, " +
+            "application_id, application_display_name, event_type_id, event_type_display_name, payload, created) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
     @Inject
     StatelessSessionFactory statelessSessionFactory;
 
@@ -17,4 +25,47 @@ public class EventRepository {
         statelessSessionFactory.getCurrentSession().insert(event);
         return event;
     }
+
+    /**
+     * Retrieves an event with its event type, application and bundle.
+     *
+     * @return the event or {@code null} if it doesn't exist (anymore)
+     */
+    public Event findById(UUID id) {
+        String hql = "FROM Event e JOIN FETCH e.eventType et JOIN FETCH et.application a JOIN FETCH a.bundle WHERE e.id = :id";
+        return statelessSessionFactory.getCurrentSession().createQuery(hql, Event.class)
+                .setParameter("id", id)
+                .uniqueResult();
+    }
+
+    /**
+     * Persists all given events with a single JDBC batch. A {@link org.hibernate.StatelessSession StatelessSession}
+     * does not batch its inserts, which is why the statement is executed directly on the JDBC connection.
+     */
+    public List<Event> createAll(List<Event> events) {
+        if (events.isEmpty()) {
+            return events;
+        }
+        statelessSessionFactory.getCurrentSession().doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_EVENT_SQL)) {
+                for (Event event : events) {
+                    event.prePersist(); // This method must be called manually while using a StatelessSession.
+                    statement.setObject(1, event.getId());
+                    statement.setString(2, event.getAccountId());
+                    statement.setString(3, event.getOrgId());
+                    statement.setObject(4, event.getBundleId());
+                    statement.setString(5, event.getBundleDisplayName());
+                    statement.setObject(6, event.getApplicationId());
+                    statement.setString(7, event.getApplicationDisplayName());
+                    statement.setObject(8, event.getEventType().getId());
+                    statement.setString(9, event.getEventTypeDisplayName());
+                    statement.setString(10, event.getPayload());
+                    statement.setTimestamp(11, Timestamp.valueOf(event.getCreated()));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+        return events;
+    }
 }
@@ -5,6 +5,7 @@ import com.redhat.cloud.notifications.models.EventType;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.util.List;
 
 @ApplicationScoped
 public class EventTypeRepository {
@@ -21,4 +22,10 @@ public class EventTypeRepository {
                 .setParameter("eventTypeName", eventTypeName)
                 .getSingleResult();
     }
+
+    public List<EventType> getAll() {
+        String query = "FROM EventType e JOIN FETCH e.application a JOIN FETCH a.bundle b";
+        return statelessSessionFactory.getCurrentSession().createQuery(query, EventType.class)
+                .getResultList();
+    }
 }
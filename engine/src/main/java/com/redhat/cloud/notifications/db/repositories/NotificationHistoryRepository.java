@@ -1,21 +1,33 @@
 package com.redhat.cloud.notifications.db.repositories;
 
+import com.redhat.cloud.notifications.cloudevents.CamelReturn;
 import com.redhat.cloud.notifications.db.StatelessSessionFactory;
 import com.redhat.cloud.notifications.db.converters.EndpointTypeConverter;
 import com.redhat.cloud.notifications.db.converters.NotificationHistoryDetailsConverter;
-import com.redhat.cloud.notifications.models.Endpoint;
 import com.redhat.cloud.notifications.models.NotificationHistory;
+import com.redhat.cloud.notifications.models.UpdatedHistoryItem;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
-import javax.persistence.NoResultException;
 import javax.transaction.Transactional;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @ApplicationScoped
 public class NotificationHistoryRepository {
 
+    private static final String INSERT_HISTORY_SQL = "INSERT INTO notification_history (id, invocation_time, invocation_result, " +
+            "details, event_id, endpoint_type, endpoint_sub_type, created, endpoint_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
     @Inject
     StatelessSessionFactory statelessSessionFactory;
 
@@ -44,60 +56,120 @@ public class NotificationHistoryRepository {
     }
 
     /**
-     * Update a stub history item with data we have received from the Camel sender
+     * Persists all given history entries with a single JDBC batch. The existence of the endpoints is checked with a
+     * single query for the whole batch instead of a subquery per entry: the endpoint ID of an entry is set to
+     * {@code null} if the endpoint is gone, just like {@link #createNotificationHistory(NotificationHistory)} does.
+     */
+    public void createAll(List<NotificationHistory> historyEntries) {
+        if (historyEntries.isEmpty()) {
+            return;
+        }
+        NotificationHistoryDetailsConverter detailsConverter = new NotificationHistoryDetailsConverter();
+        EndpointTypeConverter endpointTypeConverter = new EndpointTypeConverter();
+        statelessSessionFactory.getCurrentSession().doWork(connection -> {
+            Set<UUID> existingEndpointIds = new HashSet<>();
+            UUID[] endpointIds = historyEntries.stream()
+                    .map(history -> history.getEndpoint().getId())
+                    .distinct()
+                    .toArray(UUID[]::new);
+            try (PreparedStatement statement = connection.prepareStatement("SELECT id FROM endpoints WHERE id = ANY(?)")) {
+                statement.setArray(1, connection.createArrayOf("uuid", endpointIds));
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        existingEndpointIds.add(resultSet.getObject(1, UUID.class));
+                    }
+                }
+            }
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_HISTORY_SQL)) {
+                for (NotificationHistory history : historyEntries) {
+                    history.prePersist(); // This method must be called manually while using a StatelessSession.
+                    UUID endpointId = history.getEndpoint().getId();
+                    statement.setObject(1, history.getId());
+                    statement.setObject(2, history.getInvocationTime(), Types.BIGINT);
+                    statement.setObject(3, history.isInvocationResult(), Types.BOOLEAN);
+                    statement.setString(4, detailsConverter.convertToDatabaseColumn(history.getDetails()));
+                    statement.setObject(5, history.getEvent().getId());
+                    statement.setObject(6, endpointTypeConverter.convertToDatabaseColumn(history.getEndpointType()), Types.SMALLINT);
+                    statement.setString(7, history.getEndpointSubType());
+                    statement.setTimestamp(8, Timestamp.valueOf(history.getCreated()));
+                    statement.setObject(9, existingEndpointIds.contains(endpointId) ? endpointId : null, Types.OTHER);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    /**
+     * Updates the stub history items of several Camel return payloads with a single statement. The payloads must
+     * contain a valid {@code historyId}.
      *
-     * @param jo Map containing the returned data
-     * @return Nothing
+     * @param returns the decoded return payloads, with distinct history IDs
+     * @return each history item which was found and updated, by history ID
      * @see com.redhat.cloud.notifications.events.FromCamelHistoryFiller for the source of data
      */
-    @Transactional
-    public boolean updateHistoryItem(Map<String, Object> jo) {
-
-        String historyId = (String) jo.get("historyId");
-
-        if (historyId == null || historyId.isBlank()) {
-            throw new IllegalArgumentException("History Id is null");
+    public Map<UUID, UpdatedHistoryItem> updateHistoryItems(List<CamelReturn> returns) {
+        Map<UUID, UpdatedHistoryItem> updated = new HashMap<>();
+        if (returns.isEmpty()) {
+            return updated;
         }
-
-        String outcome = (String) jo.get("outcome");
-        // TODO NOTIF-636 Remove oldResult after the Eventing team is done integrating with the new way to determine the success.
-        boolean oldResult = outcome != null && outcome.startsWith("Success");
-        boolean result = oldResult || jo.containsKey("successful") && ((Boolean) jo.get("successful"));
-        Map details = (Map) jo.get("details");
-        if (!details.containsKey("outcome")) {
-            details.put("outcome", outcome);
+        StringBuilder sql = new StringBuilder("UPDATE notification_history h SET details = v.details, " +
+                "invocation_result = v.invocation_result, invocation_time = v.invocation_time FROM (VALUES ");
+        for (int i = 0; i < returns.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(CAST(? AS UUID), ?, CAST(? AS BOOLEAN), CAST(? AS BIGINT))");
         }
+        sql.append(") AS v(id, details, invocation_result, invocation_time) WHERE h.id = v.id RETURNING h.id, h.endpoint_id, h.created");
+
+        NotificationHistoryDetailsConverter detailsConverter = new NotificationHistoryDetailsConverter();
+        statelessSessionFactory.getCurrentSession().doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+                int index = 1;
+                for (CamelReturn camelReturn : returns) {
+                    Map<String, Object> details = camelReturn.getDetails() == null ? new HashMap<>() : camelReturn.getDetails();
+                    if (!details.containsKey("outcome")) {
+                        details.put("outcome", camelReturn.getOutcome());
+                    }
+                    statement.setObject(index++, UUID.fromString(camelReturn.getHistoryId()));
+                    statement.setString(index++, detailsConverter.convertToDatabaseColumn(details));
+                    statement.setBoolean(index++, camelReturn.isSuccess());
+                    statement.setLong(index++, camelReturn.getDuration());
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        updated.put(resultSet.getObject(1, UUID.class),
+                                new UpdatedHistoryItem(resultSet.getObject(2, UUID.class), resultSet.getObject(3, LocalDateTime.class)));
+                    }
+                }
+            }
+        });
+        return updated;
+    }
 
-        Integer duration = (Integer) jo.getOrDefault("duration", 0);
+    public boolean historyExists(UUID historyId) {
+        String query = "SELECT 1 FROM NotificationHistory WHERE id = :id";
+        return !statelessSessionFactory.getCurrentSession().createQuery(query)
+                .setParameter("id", historyId)
+                .getResultList()
+                .isEmpty();
+    }
 
-        String updateQuery = "UPDATE NotificationHistory SET details = :details, invocationResult = :result, invocationTime= :invocationTime WHERE id = :id";
+    /**
+     * Replaces the outcome of an existing history item with the outcome of a retried call.
+     *
+     * @return {@code true} if the history item was found and updated
+     */
+    @Transactional
+    public boolean updateRetriedHistoryItem(NotificationHistory history) {
+        String updateQuery = "UPDATE NotificationHistory SET details = :details, invocationResult = :result, invocationTime = :invocationTime WHERE id = :id";
         int count = statelessSessionFactory.getCurrentSession().createQuery(updateQuery)
-                .setParameter("details", details)
-                .setParameter("result", result)
-                .setParameter("id", UUID.fromString(historyId))
-                .setParameter("invocationTime", (long) duration)
+                .setParameter("details", history.getDetails())
+                .setParameter("result", history.isInvocationResult())
+                .setParameter("invocationTime", history.getInvocationTime())
+                .setParameter("id", history.getId())
                 .executeUpdate();
-
-        if (count == 0) {
-            throw new NoResultException("Update returned no rows");
-        } else if (count > 1) {
-            throw new IllegalStateException("Update count was " + count);
-        }
-
-        return true;
-    }
-
-    public Endpoint getEndpointForHistoryId(String historyId) {
-
-        String query = "SELECT e from Endpoint e, NotificationHistory h WHERE h.id = :id AND e.id = h.endpoint.id";
-        UUID hid = UUID.fromString(historyId);
-
-        try {
-            return statelessSessionFactory.getCurrentSession().createQuery(query, Endpoint.class)
-                    .setParameter("id", hid)
-                    .getSingleResult();
-        } catch (NoResultException e) {
-            return null;
-        }
+        return count > 0;
     }
 }
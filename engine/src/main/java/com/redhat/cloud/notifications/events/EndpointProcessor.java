@@ -1,6 +1,8 @@
 package com.redhat.cloud.notifications.events;
 
-import com.redhat.cloud.notifications.db.repositories.EndpointRepository;
+import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.db.NotificationHistoryWriter;
+import com.redhat.cloud.notifications.db.StatelessSessionFactory;
 import com.redhat.cloud.notifications.db.repositories.NotificationHistoryRepository;
 import com.redhat.cloud.notifications.models.Endpoint;
 import com.redhat.cloud.notifications.models.EndpointType;
@@ -12,14 +14,28 @@ import com.redhat.cloud.notifications.processors.email.EmailSubscriptionTypeProc
 import com.redhat.cloud.notifications.processors.webhooks.WebhookTypeProcessor;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.quarkus.logging.Log;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @ApplicationScoped
@@ -27,13 +43,28 @@ public class EndpointProcessor {
 
     public static final String PROCESSED_MESSAGES_COUNTER_NAME = "processor.input.processed";
     public static final String PROCESSED_ENDPOINTS_COUNTER_NAME = "processor.input.endpoint.processed";
+    public static final String DEADLINE_EXCEEDED_COUNTER_NAME = "processor.input.deadline-exceeded";
+    public static final String LATE_FAILURE_COUNTER_NAME = "processor.input.late-failure";
+    public static final String PROCESSING_TIMER_NAME = "processor.endpoint-type.processing";
+
+    @ConfigProperty(name = "notifications.concurrent-fan-out.threads", defaultValue = "16")
+    int threads;
+
+    @ConfigProperty(name = "notifications.concurrent-fan-out.queue-capacity", defaultValue = "100")
+    int queueCapacity;
+
+    @ConfigProperty(name = "notifications.concurrent-fan-out.deadline", defaultValue = "2m")
+    Duration deadline;
 
     @Inject
-    EndpointRepository endpointRepository;
+    EndpointRoutingCache endpointRoutingCache;
 
     @Inject
     NotificationHistoryRepository notificationHistoryRepository;
 
+    @Inject
+    NotificationHistoryWriter notificationHistoryWriter;
+
     @Inject
     WebhookTypeProcessor webhooks;
 
@@ -43,43 +74,172 @@ public class EndpointProcessor {
     @Inject
     EmailSubscriptionTypeProcessor emails;
 
+    @Inject
+    StatelessSessionFactory statelessSessionFactory;
+
+    @Inject
+    FeatureFlipper featureFlipper;
+
     @Inject
     MeterRegistry registry;
 
     private Counter processedItems;
     private Counter endpointTargeted;
+    private Counter deadlineExceeded;
+    private Counter lateFailures;
+    private ExecutorService executor;
 
     @PostConstruct
     void init() {
         processedItems = registry.counter(PROCESSED_MESSAGES_COUNTER_NAME);
         endpointTargeted = registry.counter(PROCESSED_ENDPOINTS_COUNTER_NAME);
+        deadlineExceeded = registry.counter(DEADLINE_EXCEEDED_COUNTER_NAME);
+        lateFailures = registry.counter(LATE_FAILURE_COUNTER_NAME);
+    }
+
+    @PreDestroy
+    synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
     }
 
     public void process(Event event) {
         processedItems.increment();
-        List<Endpoint> endpoints = endpointRepository.getTargetEndpoints(event.getAccountId(), event.getOrgId(), event.getEventType());
+        List<Endpoint> endpoints = endpointRoutingCache.getTargetEndpoints(event);
 
         // Target endpoints are grouped by endpoint type.
         endpointTargeted.increment(endpoints.size());
         Map<EndpointType, List<Endpoint>> endpointsByType = endpoints.stream().collect(Collectors.groupingBy(Endpoint::getType));
 
+        if (!endpoints.isEmpty()) {
+            /*
+             * If the action was lazily parsed, it is decoded and validated once here, before it is shared between the
+             * processors. An invalid action is rejected before any endpoint is processed.
+             */
+            event.getAction();
+        }
+
+        if (featureFlipper.isConcurrentFanOutEnabled() && endpointsByType.size() > 1) {
+            processConcurrently(event, endpointsByType);
+            return;
+        }
+
         for (Map.Entry<EndpointType, List<Endpoint>> entry : endpointsByType.entrySet()) {
 
             /*
              * For each endpoint type, the list of target endpoints is sent alongside with the action to the relevant processor.
              * Each processor returns a list of history entries. All of the returned lists are flattened into a single list.
              */
-            EndpointTypeProcessor processor = endpointTypeToProcessor(entry.getKey());
-            List<NotificationHistory> historyEntries = processor.process(event, entry.getValue());
+            List<NotificationHistory> historyEntries = process(event, entry.getKey(), entry.getValue());
 
             // TODO Action processing and history persistence should be a single atomic operation.
             // Now each history entry is persisted.
-            for (NotificationHistory history : historyEntries) {
+            persist(historyEntries);
+        }
+    }
+
+    /*
+     * Each endpoint type is processed on a thread from the executor with its own stateless session, so that a slow
+     * processor (e.g. the email recipients resolution) no longer delays the others. The history entries are persisted
+     * from the calling thread once all processors are done or when the deadline is exceeded. In the latter case, the
+     * history entries of the late processors are persisted from the executor when they eventually complete. The late
+     * processors are not cancelled: they may already have notified some endpoints, and their history entries are still
+     * needed. A late processor which fails is logged and counted, its failure can't be propagated to the caller anymore.
+     */
+    private void processConcurrently(Event event, Map<EndpointType, List<Endpoint>> endpointsByType) {
+        Map<EndpointType, CompletableFuture<List<NotificationHistory>>> futures = endpointsByType.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> CompletableFuture.supplyAsync(() ->
+                        statelessSessionFactory.withSession(statelessSession -> {
+                            return process(event, entry.getKey(), entry.getValue());
+                        }), getExecutor())));
+
+        try {
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0]))
+                    .get(deadline.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // The failures and timeouts are handled below for each endpoint type.
+        }
+
+        for (Map.Entry<EndpointType, CompletableFuture<List<NotificationHistory>>> entry : futures.entrySet()) {
+            CompletableFuture<List<NotificationHistory>> future = entry.getValue();
+            if (future.isDone()) {
+                if (!future.isCompletedExceptionally()) {
+                    persist(future.join());
+                }
+            } else {
+                deadlineExceeded.increment();
+                Log.warnf("Processing of event %s exceeded the deadline of %s for the %s endpoints", event.getId(), deadline, entry.getKey());
+                EndpointType endpointType = entry.getKey();
+                future.thenAcceptAsync(historyEntries -> statelessSessionFactory.withSession(statelessSession -> {
+                    persist(historyEntries);
+                }), getExecutor()).exceptionally(e -> {
+                    lateFailures.increment();
+                    Log.errorf(e, "Late processing of event %s failed for the %s endpoints", event.getId(), endpointType);
+                    return null;
+                });
+            }
+        }
+
+        // Same behavior as the sequential processing: a processor failure is propagated to the caller.
+        for (CompletableFuture<List<NotificationHistory>> future : futures.values()) {
+            if (future.isCompletedExceptionally()) {
                 try {
+                    future.join();
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "fan-out-worker-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            // When all threads are busy and the queue is full, the calling thread processes the endpoint type itself.
+            executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), threadFactory, (runnable, pool) -> runnable.run());
+        }
+        return executor;
+    }
+
+    private List<NotificationHistory> process(Event event, EndpointType endpointType, List<Endpoint> endpoints) {
+        EndpointTypeProcessor processor = endpointTypeToProcessor(endpointType);
+        Timer.Sample sample = Timer.start(registry);
+        try {
+            return processor.process(event, endpoints);
+        } finally {
+            sample.stop(registry.timer(PROCESSING_TIMER_NAME, "type", endpointType.name()));
+        }
+    }
+
+    private void persist(List<NotificationHistory> historyEntries) {
+        for (NotificationHistory history : historyEntries) {
+            try {
+                /*
+                 * The Camel history entries are updated by FromCamelHistoryFiller as soon as the Camel sender replies,
+                 * so they have to be persisted right away.
+                 */
+                if (featureFlipper.isHistoryWriteBehindEnabled() && history.getEndpointType() != EndpointType.CAMEL) {
+                    notificationHistoryWriter.write(history);
+                } else {
                     notificationHistoryRepository.createNotificationHistory(history);
-                } catch (Exception e) {
-                    Log.errorf("Notification history creation failed for %s", history.getEndpoint());
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                Log.errorf("Notification history creation interrupted for %s", history.getEndpoint());
+            } catch (Exception e) {
+                Log.errorf("Notification history creation failed for %s", history.getEndpoint());
             }
         }
     }
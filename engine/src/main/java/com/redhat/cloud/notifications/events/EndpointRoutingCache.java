@@ -0,0 +1,156 @@
+package com.redhat.cloud.notifications.events;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.db.CacheInvalidationEvent;
+import com.redhat.cloud.notifications.db.StatelessSessionFactory;
+import com.redhat.cloud.notifications.db.repositories.EndpointRepository;
+import com.redhat.cloud.notifications.models.Endpoint;
+import com.redhat.cloud.notifications.models.Event;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.logging.Log;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.redhat.cloud.notifications.db.CacheInvalidation.ROUTING;
+
+/**
+ * Routing table of the engine: the target endpoints of each tenant and event type, fully loaded (properties included,
+ * default behavior groups included) so that the processing of an event does not query the DB to find its targets. The
+ * entries of an account are invalidated when the backend notifies the engine that the behavior groups or the endpoints
+ * of that account changed. A change of a default behavior group invalidates all entries. The entries also expire after
+ * {@code notifications.routing-cache.expire-after-write} as a safety net.
+ */
+@ApplicationScoped
+public class EndpointRoutingCache {
+
+    public static final String CACHE_HIT_COUNTER_NAME = "routing-cache.hit";
+    public static final String CACHE_MISS_COUNTER_NAME = "routing-cache.miss";
+
+    @ConfigProperty(name = "notifications.routing-cache.max-entries", defaultValue = "10000")
+    long maxEntries;
+
+    @ConfigProperty(name = "notifications.routing-cache.expire-after-write", defaultValue = "10m")
+    Duration expireAfterWrite;
+
+    @Inject
+    EndpointRepository endpointRepository;
+
+    @Inject
+    FeatureFlipper featureFlipper;
+
+    @Inject
+    MeterRegistry registry;
+
+    private Cache<Key, List<Endpoint>> cache;
+    // Incremented on each invalidation, used to avoid caching the result of a load that raced with an invalidation.
+    private final AtomicLong generation = new AtomicLong();
+
+    private Counter cacheHitCounter;
+    private Counter cacheMissCounter;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+        cacheHitCounter = registry.counter(CACHE_HIT_COUNTER_NAME);
+        cacheMissCounter = registry.counter(CACHE_MISS_COUNTER_NAME);
+    }
+
+    /**
+     * Returns the enabled endpoints targeted by the given event. If the cache is disabled, the endpoints are always
+     * retrieved from the DB. This method has to be called from a {@link StatelessSessionFactory#withSession} unit of
+     * work. The returned list must not be modified.
+     */
+    public List<Endpoint> getTargetEndpoints(Event event) {
+        if (!featureFlipper.isRoutingCacheEnabled()) {
+            return endpointRepository.getTargetEndpoints(event.getAccountId(), event.getOrgId(), event.getEventType());
+        }
+
+        Key key = new Key(event.getAccountId(), event.getOrgId(), event.getEventType().getId());
+        List<Endpoint> endpoints = cache.getIfPresent(key);
+        if (endpoints != null) {
+            cacheHitCounter.increment();
+            return endpoints;
+        }
+
+        cacheMissCounter.increment();
+        long loadGeneration = generation.get();
+        endpoints = List.copyOf(endpointRepository.getTargetEndpoints(event.getAccountId(), event.getOrgId(), event.getEventType()));
+        synchronized (this) {
+            if (loadGeneration == generation.get()) {
+                cache.put(key, endpoints);
+            }
+        }
+        return endpoints;
+    }
+
+    public void onCacheInvalidation(@Observes CacheInvalidationEvent event) {
+        if (ROUTING.equals(event.getCacheName())) {
+            invalidate(event.getAccountId());
+        }
+    }
+
+    /**
+     * Invalidates the entries of the given account, or all entries if the account ID is {@code null}.
+     */
+    synchronized void invalidate(String accountId) {
+        generation.incrementAndGet();
+        if (accountId == null) {
+            cache.invalidateAll();
+        } else {
+            cache.asMap().keySet().removeIf(key -> accountId.equals(key.accountId));
+        }
+        Log.debugf("Routing cache invalidated for account %s", accountId);
+    }
+
+    long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    private static class Key {
+
+        private final String accountId;
+        private final String orgId;
+        private final UUID eventTypeId;
+
+        Key(String accountId, String orgId, UUID eventTypeId) {
+            this.accountId = accountId;
+            this.orgId = orgId;
+            this.eventTypeId = eventTypeId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o instanceof Key) {
+                Key other = (Key) o;
+                return Objects.equals(accountId, other.accountId) &&
+                        Objects.equals(orgId, other.orgId) &&
+                        Objects.equals(eventTypeId, other.eventTypeId);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(accountId, orgId, eventTypeId);
+        }
+    }
+}
@@ -4,34 +4,54 @@ import com.redhat.cloud.notifications.OrgIdHelper;
 import com.redhat.cloud.notifications.config.FeatureFlipper;
 import com.redhat.cloud.notifications.db.StatelessSessionFactory;
 import com.redhat.cloud.notifications.db.repositories.EventRepository;
-import com.redhat.cloud.notifications.db.repositories.EventTypeRepository;
-import com.redhat.cloud.notifications.ingress.Action;
 import com.redhat.cloud.notifications.models.Event;
 import com.redhat.cloud.notifications.models.EventType;
 import com.redhat.cloud.notifications.utils.ActionParser;
+import com.redhat.cloud.notifications.utils.ActionParsingException;
+import com.redhat.cloud.notifications.utils.ParsedAction;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import io.quarkus.logging.Log;
 import io.smallrye.reactive.messaging.annotations.Blocking;
+import io.smallrye.reactive.messaging.kafka.KafkaRecordBatch;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.reactive.messaging.Acknowledgment;
 import org.eclipse.microprofile.reactive.messaging.Incoming;
 import org.eclipse.microprofile.reactive.messaging.Message;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.persistence.NoResultException;
+import javax.transaction.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.eclipse.microprofile.reactive.messaging.Acknowledgment.Strategy.MANUAL;
 import static org.eclipse.microprofile.reactive.messaging.Acknowledgment.Strategy.PRE_PROCESSING;
 
 @ApplicationScoped
 public class EventConsumer {
 
     public static final String INGRESS_CHANNEL = "ingress";
+    public static final String INGRESS_BATCH_CHANNEL = "ingress-batch";
     public static final String REJECTED_COUNTER_NAME = "input.rejected";
     public static final String PROCESSING_ERROR_COUNTER_NAME = "input.processing.error";
     public static final String PROCESSING_EXCEPTION_COUNTER_NAME = "input.processing.exception";
@@ -41,6 +61,13 @@ public class EventConsumer {
 
     private static final String EVENT_TYPE_NOT_FOUND_MSG = "No event type found for [bundleName=%s, applicationName=%s, eventTypeName=%s]";
 
+    @ConfigProperty(name = "notifications.ingress-batch.concurrency", defaultValue = "1")
+    int concurrency;
+
+    // The lanes of a batch which can't be queued when all threads are busy are processed by the consumer thread.
+    @ConfigProperty(name = "notifications.ingress-batch.queue-capacity", defaultValue = "100")
+    int queueCapacity;
+
     @Inject
     MeterRegistry registry;
 
@@ -51,7 +78,7 @@ public class EventConsumer {
     ActionParser actionParser;
 
     @Inject
-    EventTypeRepository eventTypeRepository;
+    EventTypeCatalog eventTypeCatalog;
 
     @Inject
     EventRepository eventRepository;
@@ -68,14 +95,30 @@ public class EventConsumer {
     @Inject
     OrgIdHelper orgIdHelper;
 
+    @Inject
+    TenantScheduler tenantScheduler;
+
     private Counter rejectedCounter;
     private Counter processingErrorCounter;
     private Counter duplicateCounter;
     private Counter processingExceptionCounter;
     private Counter missingOrgIdCounter;
 
+    // Only used by the batch consumer when the concurrency is greater than 1. Package-private for the tests.
+    ExecutorService executor;
+
     @PostConstruct
     public void init() {
+        if (concurrency > 1) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "ingress-batch-worker-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            executor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), threadFactory, (runnable, pool) -> runnable.run());
+        }
         rejectedCounter = registry.counter(REJECTED_COUNTER_NAME);
         processingErrorCounter = registry.counter(PROCESSING_ERROR_COUNTER_NAME);
         processingExceptionCounter = registry.counter(PROCESSING_EXCEPTION_COUNTER_NAME);
@@ -83,6 +126,13 @@ public class EventConsumer {
         missingOrgIdCounter = registry.counter(MISSING_ORG_ID);
     }
 
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
     @Incoming(INGRESS_CHANNEL)
     @Acknowledgment(PRE_PROCESSING)
     @Blocking
@@ -95,12 +145,13 @@ public class EventConsumer {
         String[] appName = new String[1];
         /*
          * Step 1
-         * The payload (JSON) is parsed into an Action.
+         * The payload (JSON) is parsed into an Action. Depending on the configuration, only the routing fields may be
+         * parsed at this point. The rest of the Action is then decoded when it is needed for the first time.
          */
         try {
-            Action action;
+            ParsedAction action;
             try {
-                action = actionParser.fromJsonString(payload);
+                action = actionParser.parse(payload);
             } catch (Exception e) {
                 /*
                  * An exception (most likely UncheckedIOException) was thrown during the payload parsing. The message
@@ -136,9 +187,16 @@ public class EventConsumer {
                 /*
                  * Step 3
                  * It's time to check if the message ID is already known. For now, messages without an ID
-                 * (messageId == null) are always considered new.
+                 * (messageId == null) are always considered new. With the insert-first deduplication, the message
+                 * ID is checked and registered (step 4) with a single statement.
                  */
-                if (kafkaMessageDeduplicator.isDuplicate(messageId)) {
+                boolean duplicate;
+                if (featureFlipper.isInsertFirstDeduplicationEnabled()) {
+                    duplicate = !kafkaMessageDeduplicator.registerIfNew(messageId);
+                } else {
+                    duplicate = kafkaMessageDeduplicator.isDuplicate(messageId);
+                }
+                if (duplicate) {
                     /*
                      * The message ID is already known which means we already processed the current
                      * message and sent notifications. The message is therefore ignored.
@@ -150,15 +208,17 @@ public class EventConsumer {
                      * The message ID is new. Let's persist it. The current message will never be processed again as
                      * long as its ID stays in the DB.
                      */
-                    kafkaMessageDeduplicator.registerMessageId(messageId);
+                    if (!featureFlipper.isInsertFirstDeduplicationEnabled()) {
+                        kafkaMessageDeduplicator.registerMessageId(messageId);
+                    }
                     /*
                      * Step 5
-                     * We need to retrieve an EventType from the DB using the bundle/app/eventType triplet from the
-                     * parsed Action.
+                     * We need to retrieve an EventType from the DB (or from its in-memory cache) using the
+                     * bundle/app/eventType triplet from the parsed Action.
                      */
                     EventType eventType;
                     try {
-                        eventType = eventTypeRepository.getEventType(bundleName[0], appName[0], eventTypeName);
+                        eventType = eventTypeCatalog.getEventType(bundleName[0], appName[0], eventTypeName);
                     } catch (NoResultException e) {
                         /*
                          * A NoResultException was thrown because no EventType was found. The message is therefore
@@ -171,17 +231,7 @@ public class EventConsumer {
                      * Step 6
                      * The EventType was found. It's time to create an Event from the current message and persist it.
                      */
-                    Event event = new Event(eventType, payload, action);
-                    if (event.getId() == null) {
-                        // NOTIF-499 If there is no ID provided whatsoever we create one.
-                        if (messageId != null) {
-                            event.setId(messageId);
-                        } else {
-                            Log.infof("NOID: Event with %s/%s/%s did not have an incoming id or messageId ",
-                                    bundleName[0], appName[0], eventTypeName);
-                            event.setId(UUID.randomUUID());
-                        }
-                    }
+                    Event event = buildEvent(eventType, payload, action, messageId);
                     eventRepository.create(event);
                     /*
                      * Step 7
@@ -189,6 +239,12 @@ public class EventConsumer {
                      */
                     try {
                         endpointProcessor.process(event);
+                    } catch (ActionParsingException e) {
+                        /*
+                         * The lazily parsed Action is invalid. The message is therefore considered rejected.
+                         */
+                        rejectedCounter.increment();
+                        throw e;
                     } catch (Exception e) {
                         /*
                          * The Event processing failed.
@@ -213,4 +269,327 @@ public class EventConsumer {
         }
         return message.ack();
     }
+
+    /**
+     * Batch counterpart of {@link #process(Message)}. This method is only invoked when the {@link #INGRESS_BATCH_CHANNEL}
+     * channel is enabled, which should always be done while disabling the {@link #INGRESS_CHANNEL} channel. All records
+     * from a Kafka poll are deduplicated and persisted with a constant number of DB round trips, in a single transaction,
+     * then each record is processed and acknowledged individually. If that transaction fails, the records are persisted
+     * one by one so that an invalid record doesn't fail the whole poll. If {@code notifications.ingress-batch.concurrency} is greater than 1, the
+     * records are processed in parallel while preserving their order per org ID (or account ID when the org ID is
+     * missing). A record is only acknowledged once it is fully processed, so the committed offset of a partition never
+     * goes beyond the lowest record still being processed. If the tenant scheduler is enabled, it takes care of the
+     * events processing instead.
+     */
+    @Incoming(INGRESS_BATCH_CHANNEL)
+    @Acknowledgment(MANUAL)
+    @Blocking
+    public CompletionStage<Void> processBatch(KafkaRecordBatch<String, String> batch) {
+        return process(batch.getRecords());
+    }
+
+    public CompletionStage<Void> process(List<? extends Message<String>> messages) {
+        List<IngressRecord> records = new ArrayList<>();
+        for (Message<String> message : messages) {
+            IngressRecord record = new IngressRecord(message, Timer.start(registry));
+            records.add(record);
+            try {
+                record.action = actionParser.parse(message.getPayload());
+            } catch (Exception e) {
+                rejectedCounter.increment();
+                processingExceptionCounter.increment();
+                Log.infof(e, "Could not process the payload: %s", message.getPayload());
+                record.done = true;
+                continue;
+            }
+            record.bundleName = record.action.getBundle();
+            record.appName = record.action.getApplication();
+            if (orgIdHelper.useOrgId(record.action.getOrgId())) {
+                Log.infof("Processing received action: (%s) %s/%s/%s", record.action.getOrgId(), record.bundleName, record.appName, record.action.getEventType());
+            } else {
+                Log.infof("Processing received action: (%s) %s/%s/%s", record.action.getAccountId(), record.bundleName, record.appName, record.action.getEventType());
+                if (featureFlipper.isUseOrgId()) {
+                    missingOrgIdCounter.increment();
+                    Log.info("The org ID migration is enabled but the orgId field is missing or blank in the action");
+                }
+            }
+            record.messageId = kafkaMessageDeduplicator.findMessageId(record.bundleName, record.appName, message);
+        }
+
+        List<IngressRecord> newRecords = new ArrayList<>();
+        try {
+            statelessSessionFactory.withSession(statelessSession -> {
+                List<IngressRecord> candidates = new ArrayList<>();
+                if (featureFlipper.isInsertFirstDeduplicationEnabled()) {
+                    for (IngressRecord record : records) {
+                        if (!record.done) {
+                            candidates.add(record);
+                        }
+                    }
+                } else {
+                    // All message IDs from the batch are checked with a single query before they are registered.
+                    Set<UUID> knownIds = kafkaMessageDeduplicator.findKnownMessageIds(getMessageIds(records));
+                    for (IngressRecord record : records) {
+                        if (record.done) {
+                            continue;
+                        }
+                        if (record.messageId != null && knownIds.contains(record.messageId)) {
+                            duplicateCounter.increment();
+                            record.done = true;
+                        } else {
+                            candidates.add(record);
+                        }
+                    }
+                }
+
+                try {
+                    persist(candidates);
+                } catch (Exception e) {
+                    // The transaction was rolled back, so the records are persisted one by one and only the invalid ones are lost.
+                    Log.warnf(e, "Ingress batch persistence failed for %d records, retrying them individually", candidates.size());
+                    for (IngressRecord record : candidates) {
+                        try {
+                            persist(List.of(record));
+                        } catch (Exception ex) {
+                            processingExceptionCounter.increment();
+                            Log.infof(ex, "Could not process the payload: %s", record.message.getPayload());
+                            record.event = null;
+                            record.done = true;
+                        }
+                    }
+                }
+
+                for (IngressRecord record : candidates) {
+                    if (record.done) {
+                        continue;
+                    }
+                    if (record.duplicate) {
+                        duplicateCounter.increment();
+                        record.done = true;
+                    } else if (record.event == null) {
+                        rejectedCounter.increment();
+                        processingExceptionCounter.increment();
+                        Log.infof("Could not process the payload: %s. " + EVENT_TYPE_NOT_FOUND_MSG,
+                                record.message.getPayload(), record.bundleName, record.appName, record.action.getEventType());
+                        record.done = true;
+                    } else {
+                        newRecords.add(record);
+                    }
+                }
+
+                if (!featureFlipper.isTenantSchedulerEnabled() && concurrency <= 1) {
+                    for (IngressRecord record : newRecords) {
+                        processEvent(record);
+                    }
+                }
+            });
+            if (featureFlipper.isTenantSchedulerEnabled()) {
+                schedule(newRecords);
+            } else if (concurrency > 1) {
+                processConcurrently(newRecords);
+            }
+        } catch (Exception e) {
+            // The batch failed before all records could be processed. The remaining records are counted as failures.
+            for (IngressRecord record : records) {
+                if (!record.done) {
+                    processingExceptionCounter.increment();
+                    Log.infof(e, "Could not process the payload: %s", record.message.getPayload());
+                }
+            }
+        }
+
+        // Each message is acknowledged individually once processed, whatever the outcome of its processing.
+        CompletableFuture<?>[] acks = new CompletableFuture[records.size()];
+        for (int i = 0; i < records.size(); i++) {
+            IngressRecord record = records.get(i);
+            acks[i] = record.completion.thenCompose(unused -> {
+                String bundle = record.bundleName == null ? "" : record.bundleName;
+                String application = record.appName == null ? "" : record.appName;
+                record.consumedTimer.stop(registry.timer(CONSUMED_TIMER_NAME, "bundle", bundle, "application", application));
+                return record.message.ack();
+            }).toCompletableFuture();
+        }
+        return CompletableFuture.allOf(acks);
+    }
+
+    /*
+     * The records are grouped by ordering key. The groups (lanes) are processed in parallel, each one on a worker thread
+     * with its own DB session, while the records of a lane are processed sequentially in the order of the batch. The
+     * records of a lane are acknowledged as soon as the lane is done, without waiting for the other lanes. The next
+     * batch is still only consumed once all lanes of the current batch are done, so records with the same key from the
+     * next batch can't be processed before the records from the current batch. The parallelism is therefore limited to
+     * the records of a single poll and the slowest lane of a batch delays the next one.
+     */
+    private void processConcurrently(List<IngressRecord> records) {
+        Map<String, List<IngressRecord>> recordsByKey = new LinkedHashMap<>();
+        for (IngressRecord record : records) {
+            if (record.event != null) {
+                recordsByKey.computeIfAbsent(getOrderingKey(record.action), unused -> new ArrayList<>()).add(record);
+            }
+        }
+        for (List<IngressRecord> keyRecords : recordsByKey.values()) {
+            CompletionStage<Void> lane = CompletableFuture.runAsync(() -> {
+                statelessSessionFactory.withSession(statelessSession -> {
+                    for (IngressRecord record : keyRecords) {
+                        processEvent(record);
+                    }
+                });
+            }, executor).handle((unused, throwable) -> {
+                if (throwable != null) {
+                    // The records of the lane which were not processed yet are counted as failures.
+                    for (IngressRecord record : keyRecords) {
+                        if (!record.done) {
+                            processingExceptionCounter.increment();
+                            Log.infof(throwable, "Could not process the payload: %s", record.message.getPayload());
+                        }
+                    }
+                }
+                return null;
+            });
+            for (IngressRecord record : keyRecords) {
+                record.completion = lane;
+            }
+        }
+    }
+
+    /*
+     * The events are handed over to the tenant scheduler which processes them asynchronously. Each record is considered
+     * done (and can be acknowledged) once its event is processed or throttled and sent to the delay topic.
+     */
+    private void schedule(List<IngressRecord> records) {
+        for (IngressRecord record : records) {
+            if (record.event != null) {
+                CompletionStage<Void> completion;
+                try {
+                    completion = tenantScheduler.schedule(record.event);
+                } catch (Exception e) {
+                    completion = CompletableFuture.failedFuture(e);
+                }
+                record.completion = completion.handle((unused, throwable) -> {
+                    if (throwable != null) {
+                        countProcessingFailure(throwable instanceof CompletionException ? throwable.getCause() : throwable);
+                        Log.infof(throwable, "Could not process the payload: %s", record.message.getPayload());
+                    }
+                    return null;
+                });
+                record.done = true;
+            }
+        }
+    }
+
+    /*
+     * The message IDs of the records are registered and their events are persisted in the same transaction, so that a
+     * failure of the events insertion doesn't leave registered message IDs whose records would never be processed. The
+     * INSERT ... RETURNING statement tells which message IDs were registered concurrently by another consumer. The
+     * outcome of each record is stored in the record, the counters are only updated once the transaction is committed.
+     */
+    @Transactional
+    void persist(List<IngressRecord> records) {
+        Set<UUID> registeredIds = kafkaMessageDeduplicator.registerNewMessageIds(getMessageIds(records));
+        // Each distinct bundle/app/eventType triplet of the batch is only retrieved once from the DB.
+        Map<String, EventType> eventTypes = new HashMap<>();
+        List<Event> events = new ArrayList<>();
+        for (IngressRecord record : records) {
+            record.event = null;
+            // A registered message ID is removed from the set so that its next occurrences in the batch are duplicates.
+            record.duplicate = record.messageId != null && !registeredIds.remove(record.messageId);
+            if (record.duplicate) {
+                continue;
+            }
+            String eventTypeName = record.action.getEventType();
+            String key = record.bundleName + "/" + record.appName + "/" + eventTypeName;
+            EventType eventType;
+            try {
+                eventType = eventTypes.computeIfAbsent(key, unused ->
+                        eventTypeCatalog.getEventType(record.bundleName, record.appName, eventTypeName));
+            } catch (NoResultException e) {
+                // The record is rejected once the transaction is committed.
+                continue;
+            }
+            record.event = buildEvent(eventType, record.message.getPayload(), record.action, record.messageId);
+            events.add(record.event);
+        }
+        // All events are persisted with a single JDBC batch.
+        eventRepository.createAll(events);
+    }
+
+    private void processEvent(IngressRecord record) {
+        if (record.event != null) {
+            try {
+                endpointProcessor.process(record.event);
+            } catch (Exception e) {
+                countProcessingFailure(e);
+                Log.infof(e, "Could not process the payload: %s", record.message.getPayload());
+            }
+            record.done = true;
+        }
+    }
+
+    // An invalid lazily parsed action is a rejected message, like a payload which can't be parsed at all.
+    private void countProcessingFailure(Throwable failure) {
+        if (failure instanceof ActionParsingException) {
+            rejectedCounter.increment();
+        } else {
+            processingErrorCounter.increment();
+        }
+        processingExceptionCounter.increment();
+    }
+
+    // The notifications of a tenant have to be sent in the order of the ingress records.
+    private static String getOrderingKey(ParsedAction action) {
+        if (action.getOrgId() != null && !action.getOrgId().isBlank()) {
+            return "org:" + action.getOrgId();
+        } else {
+            return "account:" + action.getAccountId();
+        }
+    }
+
+    private static Event buildEvent(EventType eventType, String payload, ParsedAction action, UUID messageId) {
+        Event event = new Event(action.getAccountId(), action.getOrgId(), eventType, action.getId());
+        event.setPayload(payload);
+        event.setActionSupplier(action::getAction);
+        if (event.getId() == null) {
+            // NOTIF-499 If there is no ID provided whatsoever we create one.
+            if (messageId != null) {
+                event.setId(messageId);
+            } else {
+                Log.infof("NOID: Event with %s/%s/%s did not have an incoming id or messageId ",
+                        action.getBundle(), action.getApplication(), action.getEventType());
+                event.setId(UUID.randomUUID());
+            }
+        }
+        return event;
+    }
+
+    private static List<UUID> getMessageIds(List<IngressRecord> records) {
+        List<UUID> messageIds = new ArrayList<>();
+        for (IngressRecord record : records) {
+            if (!record.done && record.messageId != null) {
+                messageIds.add(record.messageId);
+            }
+        }
+        return messageIds;
+    }
+
+    /*
+     * Processing state of a single Kafka message from a batch.
+     */
+    private static class IngressRecord {
+
+        final Message<String> message;
+        final Timer.Sample consumedTimer;
+        ParsedAction action;
+        String bundleName;
+        String appName;
+        UUID messageId;
+        Event event;
+        boolean duplicate;
+        boolean done;
+        CompletionStage<Void> completion = CompletableFuture.completedFuture(null);
+
+        IngressRecord(Message<String> message, Timer.Sample consumedTimer) {
+            this.message = message;
+            this.consumedTimer = consumedTimer;
+        }
+    }
 }
@@ -0,0 +1,201 @@
+package com.redhat.cloud.notifications.events;
+
+import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.db.CacheInvalidationEvent;
+import com.redhat.cloud.notifications.db.StatelessSessionFactory;
+import com.redhat.cloud.notifications.db.repositories.EventTypeRepository;
+import com.redhat.cloud.notifications.models.EventType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.logging.Log;
+import io.quarkus.scheduler.Scheduled;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.persistence.NoResultException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.redhat.cloud.notifications.db.CacheInvalidation.EVENT_TYPES;
+import static io.quarkus.scheduler.Scheduled.ConcurrentExecution.SKIP;
+
+/**
+ * In-memory snapshot of all event types, used to resolve the bundle/application/eventType triplet of the ingested
+ * actions without querying the DB. The snapshot is replaced (never modified) when the backend notifies the engine that
+ * the event types changed and periodically as a safety net. Unknown triplets are also cached until the next reload:
+ * they belong to the snapshot which was current when they were looked up, so a lookup which completes after a reload
+ * can't add a stale entry to the new snapshot.
+ */
+@ApplicationScoped
+public class EventTypeCatalog {
+
+    public static final String CACHE_HIT_COUNTER_NAME = "event-type-cache.hit";
+    public static final String CACHE_MISS_COUNTER_NAME = "event-type-cache.miss";
+
+    private static final String EVENT_TYPE_NOT_FOUND_MSG = "No event type found for [bundleName=%s, applicationName=%s, eventTypeName=%s]";
+
+    @ConfigProperty(name = "notifications.event-type-cache.max-unknown-entries", defaultValue = "1000")
+    int maxUnknownEntries;
+
+    @Inject
+    EventTypeRepository eventTypeRepository;
+
+    @Inject
+    StatelessSessionFactory statelessSessionFactory;
+
+    @Inject
+    FeatureFlipper featureFlipper;
+
+    @Inject
+    MeterRegistry registry;
+
+    // A null value means the snapshot has to be loaded before it can be used.
+    private volatile Snapshot snapshot;
+
+    private Counter cacheHitCounter;
+    private Counter cacheMissCounter;
+
+    @PostConstruct
+    void init() {
+        cacheHitCounter = registry.counter(CACHE_HIT_COUNTER_NAME);
+        cacheMissCounter = registry.counter(CACHE_MISS_COUNTER_NAME);
+    }
+
+    /**
+     * Returns the event type matching the given triplet. If the cache is disabled, the event type is always retrieved
+     * from the DB. This method has to be called from a {@link StatelessSessionFactory#withSession} unit of work.
+     *
+     * @throws NoResultException if the event type does not exist
+     */
+    public EventType getEventType(String bundleName, String applicationName, String eventTypeName) {
+        if (!featureFlipper.isEventTypeCacheEnabled()) {
+            return eventTypeRepository.getEventType(bundleName, applicationName, eventTypeName);
+        }
+
+        Snapshot currentSnapshot = snapshot;
+        if (currentSnapshot == null) {
+            currentSnapshot = load();
+        }
+        Key key = new Key(bundleName, applicationName, eventTypeName);
+        EventType eventType = currentSnapshot.eventTypes.get(key);
+        if (eventType != null) {
+            cacheHitCounter.increment();
+            return eventType;
+        }
+        if (currentSnapshot.unknownKeys.contains(key)) {
+            cacheHitCounter.increment();
+            throw new NoResultException(String.format(EVENT_TYPE_NOT_FOUND_MSG, bundleName, applicationName, eventTypeName));
+        }
+
+        /*
+         * The triplet may belong to an event type created after the last reload, before the invalidation notification
+         * was received. The DB is the source of truth in that case.
+         */
+        cacheMissCounter.increment();
+        try {
+            eventType = eventTypeRepository.getEventType(bundleName, applicationName, eventTypeName);
+        } catch (NoResultException e) {
+            if (currentSnapshot.unknownKeys.size() < maxUnknownEntries) {
+                currentSnapshot.unknownKeys.add(key);
+            }
+            throw e;
+        }
+        addToSnapshot(key, eventType);
+        return eventType;
+    }
+
+    @Scheduled(concurrentExecution = SKIP, every = "${notifications.event-type-cache.reload-period:10m}", delayed = "${notifications.event-type-cache.reload-period:10m}")
+    public void periodicReload() {
+        if (featureFlipper.isEventTypeCacheEnabled()) {
+            reload();
+        }
+    }
+
+    public void onCacheInvalidation(@Observes CacheInvalidationEvent event) {
+        if (EVENT_TYPES.equals(event.getCacheName()) && featureFlipper.isEventTypeCacheEnabled()) {
+            reload();
+        }
+    }
+
+    private void reload() {
+        try {
+            statelessSessionFactory.withSession(statelessSession -> {
+                load();
+            });
+        } catch (Exception e) {
+            // The snapshot will be loaded again from the next getEventType call.
+            Log.warn("Event type cache reload failed", e);
+            snapshot = null;
+        }
+    }
+
+    private synchronized Snapshot load() {
+        Map<Key, EventType> eventTypes = new HashMap<>();
+        for (EventType eventType : eventTypeRepository.getAll()) {
+            Key key = new Key(eventType.getApplication().getBundle().getName(), eventType.getApplication().getName(), eventType.getName());
+            eventTypes.put(key, eventType);
+        }
+        Snapshot newSnapshot = new Snapshot(Map.copyOf(eventTypes), ConcurrentHashMap.newKeySet());
+        snapshot = newSnapshot;
+        Log.debugf("Event type cache loaded with %d entries", eventTypes.size());
+        return newSnapshot;
+    }
+
+    private synchronized void addToSnapshot(Key key, EventType eventType) {
+        if (snapshot != null) {
+            Map<Key, EventType> eventTypes = new HashMap<>(snapshot.eventTypes);
+            eventTypes.put(key, eventType);
+            // The unknown triplets are still valid, they are not affected by the event types found in the DB.
+            snapshot = new Snapshot(Map.copyOf(eventTypes), snapshot.unknownKeys);
+        }
+    }
+
+    private static class Snapshot {
+
+        private final Map<Key, EventType> eventTypes;
+        private final Set<Key> unknownKeys;
+
+        Snapshot(Map<Key, EventType> eventTypes, Set<Key> unknownKeys) {
+            this.eventTypes = eventTypes;
+            this.unknownKeys = unknownKeys;
+        }
+    }
+
+    private static class Key {
+
+        private final String bundleName;
+        private final String applicationName;
+        private final String eventTypeName;
+
+        Key(String bundleName, String applicationName, String eventTypeName) {
+            this.bundleName = bundleName;
+            this.applicationName = applicationName;
+            this.eventTypeName = eventTypeName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o instanceof Key) {
+                Key other = (Key) o;
+                return Objects.equals(bundleName, other.bundleName) &&
+                        Objects.equals(applicationName, other.applicationName) &&
+                        Objects.equals(eventTypeName, other.eventTypeName);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(bundleName, applicationName, eventTypeName);
+        }
+    }
+}
@@ -1,39 +1,33 @@
 package com.redhat.cloud.notifications.events;
 
+import com.redhat.cloud.notifications.cloudevents.CamelReturn;
+import com.redhat.cloud.notifications.cloudevents.CloudEventCodec;
 import com.redhat.cloud.notifications.config.FeatureFlipper;
 import com.redhat.cloud.notifications.db.StatelessSessionFactory;
 import com.redhat.cloud.notifications.db.repositories.NotificationHistoryRepository;
-import com.redhat.cloud.notifications.ingress.Action;
-import com.redhat.cloud.notifications.ingress.Context;
-import com.redhat.cloud.notifications.ingress.Event;
-import com.redhat.cloud.notifications.ingress.Parser;
-import com.redhat.cloud.notifications.ingress.Payload;
-import com.redhat.cloud.notifications.ingress.Recipient;
-import com.redhat.cloud.notifications.models.Endpoint;
+import com.redhat.cloud.notifications.models.UpdatedHistoryItem;
+import com.redhat.cloud.notifications.processors.EndpointCircuitBreaker;
+import com.redhat.cloud.notifications.processors.ResponseBodyLimiter;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.quarkus.logging.Log;
 import io.smallrye.reactive.messaging.annotations.Blocking;
-import io.smallrye.reactive.messaging.kafka.api.OutgoingKafkaRecordMetadata;
-import io.vertx.core.json.Json;
-import org.apache.kafka.common.header.internals.RecordHeaders;
 import org.eclipse.microprofile.reactive.messaging.Acknowledgment;
-import org.eclipse.microprofile.reactive.messaging.Channel;
-import org.eclipse.microprofile.reactive.messaging.Emitter;
 import org.eclipse.microprofile.reactive.messaging.Incoming;
-import org.eclipse.microprofile.reactive.messaging.Message;
 
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.ZoneOffset;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
-import static com.redhat.cloud.notifications.events.KafkaMessageDeduplicator.MESSAGE_ID_HEADER;
-import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.ZoneOffset.UTC;
 
 /**
  * We sent data via Camel. Now Camel informs us about the outcome,
@@ -46,6 +40,7 @@ public class FromCamelHistoryFiller {
     public static final String MESSAGES_ERROR_COUNTER_NAME = "camel.messages.error";
     public static final String MESSAGES_PROCESSED_COUNTER_NAME = "camel.messages.processed";
     public static final String EGRESS_CHANNEL = "egress";
+    public static final String ROUND_TRIP_TIMER_NAME = "camel.round-trip";
 
     @Inject
     NotificationHistoryRepository notificationHistoryRepository;
@@ -58,112 +53,108 @@ public class FromCamelHistoryFiller {
 
     private Counter messagesProcessedCounter;
     private Counter messagesErrorCounter;
+    private Timer roundTripTimer;
 
     @PostConstruct
     void init() {
         messagesProcessedCounter = meterRegistry.counter(MESSAGES_PROCESSED_COUNTER_NAME);
         messagesErrorCounter = meterRegistry.counter(MESSAGES_ERROR_COUNTER_NAME);
+        // Time between the creation of a Camel history item and the update with the outcome of the call.
+        roundTripTimer = Timer.builder(ROUND_TRIP_TIMER_NAME)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
-    @Channel(EGRESS_CHANNEL)
-    Emitter<String> emitter;
-
     @Inject
     FeatureFlipper featureFlipper;
 
+    @Inject
+    EndpointCircuitBreaker circuitBreaker;
+
+    @Inject
+    ResponseBodyLimiter responseBodyLimiter;
+
+    @Inject
+    IntegrationFailureAggregator integrationFailureAggregator;
+
+    /**
+     * Consumes the records of a Kafka poll at once. The records are decoded one by one, an invalid record does not
+     * prevent the other ones from being applied. The history items of the whole poll are then updated with a single
+     * statement, or one by one if that statement fails.
+     */
     @Acknowledgment(Acknowledgment.Strategy.POST_PROCESSING)
     @Incoming(FROMCAMEL_CHANNEL)
     @Blocking
-    public void processAsync(String payload) {
-        try {
-            Log.infof("Processing return from camel: %s", payload);
-            Map<String, Object> decodedPayload = decodeItem(payload);
-            statelessSessionFactory.withSession(statelessSession -> {
-                reinjectIfNeeded(decodedPayload);
-                try {
-                    notificationHistoryRepository.updateHistoryItem(decodedPayload);
-                } catch (Exception e) {
-                    Log.info("|  Update Fail", e);
+    public void processAsync(List<String> payloads) {
+        // If the same history ID is received twice in a poll, only the last outcome is kept.
+        Map<UUID, CamelReturn> decodedPayloads = new LinkedHashMap<>();
+        for (String payload : payloads) {
+            try {
+                Log.infof("Processing return from camel: %s", payload);
+                CamelReturn decodedPayload = CloudEventCodec.decodeCamelReturn(payload);
+                UUID historyId = UUID.fromString(decodedPayload.getHistoryId());
+                if (decodedPayload.getDetails() != null) {
+                    // The details may contain the whole response of the remote endpoint.
+                    responseBodyLimiter.limitDetails(decodedPayload.getDetails());
                 }
-            });
+                decodedPayloads.put(historyId, decodedPayload);
+            } catch (Exception e) {
+                messagesErrorCounter.increment();
+                Log.error("|  Failure to update the history", e);
+            }
+        }
+        try {
+            if (!decodedPayloads.isEmpty()) {
+                statelessSessionFactory.withSession(statelessSession -> {
+                    updateHistory(decodedPayloads);
+                });
+            }
         } catch (Exception e) {
-            messagesErrorCounter.increment();
-            Log.error("|  Failure to update the history", e);
+            // A single invalid record fails the whole statement, so the history items are updated one by one instead.
+            Log.warnf(e, "History batch update failed for %d items, retrying them individually", decodedPayloads.size());
+            updateHistoryIndividually(decodedPayloads);
         } finally {
-            messagesProcessedCounter.increment();
+            messagesProcessedCounter.increment(payloads.size());
         }
     }
 
-    private void reinjectIfNeeded(Map<String, Object> payloadMap) {
-        if (!featureFlipper.isEnableReInject() || (payloadMap.containsKey("successful") && ((Boolean) payloadMap.get("successful")))) {
-            return;
+    private void updateHistoryIndividually(Map<UUID, CamelReturn> decodedPayloads) {
+        for (Map.Entry<UUID, CamelReturn> entry : decodedPayloads.entrySet()) {
+            try {
+                statelessSessionFactory.withSession(statelessSession -> {
+                    updateHistory(Map.of(entry.getKey(), entry.getValue()));
+                });
+            } catch (Exception e) {
+                messagesErrorCounter.increment();
+                Log.error("|  Failure to update the history", e);
+            }
         }
-
-        String historyId = (String) payloadMap.get("historyId");
-        Log.infof("Notification with id %s was not successful, resubmitting for further processing", historyId);
-
-        Endpoint ep = notificationHistoryRepository.getEndpointForHistoryId(historyId);
-
-        Event event = new Event();
-        Payload.PayloadBuilder payloadBuilder = new Payload.PayloadBuilder();
-        payloadMap.forEach(payloadBuilder::withAdditionalProperty);
-
-        // TODO augment with details from Endpoint and original event
-        event.setPayload(payloadBuilder.build());
-
-        // Save the original id, as we may need it in the future.
-        Context.ContextBuilder contextBuilder = new Context.ContextBuilder();
-        contextBuilder.withAdditionalProperty("original-id", historyId);
-        if (ep != null) { // TODO For the current tests. EP should not be null in real life
-            contextBuilder.withAdditionalProperty("failed-integration", ep.getName());
-        }
-
-        Action action = new Action.ActionBuilder()
-                .withId(UUID.randomUUID())
-                .withBundle("console")
-                .withApplication("notifications")
-                .withEventType("integration-failed")
-                .withAccountId(ep != null ? ep.getAccountId() : "")
-                .withContext(contextBuilder.build())
-                .withTimestamp(LocalDateTime.now(ZoneOffset.UTC))
-                .withEvents(Collections.singletonList(event))
-                .withRecipients(Collections.singletonList(
-                        new Recipient.RecipientBuilder()
-                                .withOnlyAdmins(true)
-                                .withIgnoreUserPreferences(true)
-                                .build()))
-                .build();
-
-        String ser = Parser.encode(action);
-        // Add the message id in Kafka header for the de-duplicator
-        Message<String> message = buildMessageWithId(ser);
-        emitter.send(message);
     }
 
-
-    // Blindly copied from -gw.  Perhaps put this into Schema project
-    private static Message buildMessageWithId(String payload) {
-        byte[] messageId = UUID.randomUUID().toString().getBytes(UTF_8);
-        OutgoingKafkaRecordMetadata metadata = OutgoingKafkaRecordMetadata.builder()
-                .withHeaders(new RecordHeaders().add(MESSAGE_ID_HEADER, messageId))
-                .build();
-        return Message.of(payload).addMetadata(metadata);
-    }
-
-
-
-    private Map<String, Object> decodeItem(String s) {
-
-        // 1st step CloudEvent as String -> map
-        Map<String, Object> ceMap = Json.decodeValue(s, Map.class);
-
-        // Take the id from the CloudEvent as the historyId
-        String id = (String) ceMap.get("id");
-
-        // 2nd step data item (as String) to final map
-        Map<String, Object> map = Json.decodeValue((String) ceMap.get("data"), Map.class);
-        map.put("historyId", id);
-        return map;
+    private void updateHistory(Map<UUID, CamelReturn> decodedPayloads) {
+        Map<UUID, UpdatedHistoryItem> updated = notificationHistoryRepository.updateHistoryItems(new ArrayList<>(decodedPayloads.values()));
+        LocalDateTime now = LocalDateTime.now(UTC);
+        for (Map.Entry<UUID, CamelReturn> entry : decodedPayloads.entrySet()) {
+            UpdatedHistoryItem historyItem = updated.get(entry.getKey());
+            if (historyItem == null) {
+                Log.infof("|  Update Fail: history %s not found", entry.getKey());
+                continue;
+            }
+            if (historyItem.getCreated() != null) {
+                roundTripTimer.record(Duration.between(historyItem.getCreated(), now));
+            }
+            UUID endpointId = historyItem.getEndpointId();
+            if (endpointId == null) {
+                // The endpoint was deleted since the call.
+                continue;
+            }
+            if (featureFlipper.isCircuitBreakerEnabled()) {
+                circuitBreaker.recordResult(endpointId, entry.getValue().isSuccess());
+            }
+            if (featureFlipper.isEnableReInject() && !Boolean.TRUE.equals(entry.getValue().getSuccessful())) {
+                Log.infof("Notification with id %s was not successful, resubmitting for further processing", entry.getKey());
+                integrationFailureAggregator.record(endpointId, entry.getValue());
+            }
+        }
     }
-
 }
@@ -0,0 +1,256 @@
+package com.redhat.cloud.notifications.events;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.redhat.cloud.notifications.cloudevents.CamelReturn;
+import com.redhat.cloud.notifications.db.CacheInvalidationEvent;
+import com.redhat.cloud.notifications.db.StatelessSessionFactory;
+import com.redhat.cloud.notifications.db.repositories.EndpointRepository;
+import com.redhat.cloud.notifications.ingress.Action;
+import com.redhat.cloud.notifications.ingress.Context;
+import com.redhat.cloud.notifications.ingress.Event;
+import com.redhat.cloud.notifications.ingress.Parser;
+import com.redhat.cloud.notifications.ingress.Payload;
+import com.redhat.cloud.notifications.ingress.Recipient;
+import com.redhat.cloud.notifications.models.Endpoint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.logging.Log;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.reactive.messaging.kafka.api.OutgoingKafkaRecordMetadata;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.reactive.messaging.Channel;
+import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.eclipse.microprofile.reactive.messaging.Message;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static com.redhat.cloud.notifications.db.CacheInvalidation.ROUTING;
+import static com.redhat.cloud.notifications.events.FromCamelHistoryFiller.EGRESS_CHANNEL;
+import static com.redhat.cloud.notifications.events.KafkaMessageDeduplicator.MESSAGE_ID_HEADER;
+import static io.quarkus.scheduler.Scheduled.ConcurrentExecution.SKIP;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Aggregates the failed Camel calls per endpoint. Instead of one {@code integration-failed} action per failed call,
+ * a single action is reinjected per endpoint and per {@code reinject.aggregation.window}. It carries the number of
+ * failures of the window and a sample of them. The names and accounts of the endpoints are cached, they are loaded at
+ * most once per {@code reinject.endpoint-cache.expire-after-write} and invalidated when the endpoints of an account
+ * change. The failures of the current window are reinjected when the application is stopped gracefully.
+ */
+@ApplicationScoped
+public class IntegrationFailureAggregator {
+
+    public static final String RECORDED_COUNTER_NAME = "reinject.failures.recorded";
+    public static final String EMITTED_COUNTER_NAME = "reinject.actions.emitted";
+
+    @ConfigProperty(name = "reinject.aggregation.sample-size", defaultValue = "10")
+    int sampleSize;
+
+    @ConfigProperty(name = "reinject.endpoint-cache.expire-after-write", defaultValue = "10m")
+    Duration expireAfterWrite;
+
+    @ConfigProperty(name = "reinject.endpoint-cache.max-size", defaultValue = "10000")
+    long endpointCacheMaxSize;
+
+    @Inject
+    EndpointRepository endpointRepository;
+
+    @Inject
+    StatelessSessionFactory statelessSessionFactory;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Channel(EGRESS_CHANNEL)
+    Emitter<String> emitter;
+
+    private final Map<UUID, Failures> failures = new ConcurrentHashMap<>();
+    private Cache<UUID, EndpointInfo> endpoints;
+    private Counter recordedCounter;
+    private Counter emittedCounter;
+
+    @PostConstruct
+    void init() {
+        endpoints = Caffeine.newBuilder()
+                .maximumSize(endpointCacheMaxSize)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+        recordedCounter = registry.counter(RECORDED_COUNTER_NAME);
+        emittedCounter = registry.counter(EMITTED_COUNTER_NAME);
+    }
+
+    // The failures of the current window would be lost otherwise.
+    @PreDestroy
+    void shutdown() {
+        try {
+            flush();
+        } catch (Exception e) {
+            Log.errorf(e, "Reinjection of the failures of %d endpoints failed during the shutdown", failures.size());
+        }
+    }
+
+    /**
+     * Records a failed call of the given endpoint. The failure will be reinjected with the other failures of the same
+     * endpoint at the end of the current window.
+     */
+    public void record(UUID endpointId, CamelReturn camelReturn) {
+        // The failure is added atomically so that it can't be lost if the window is flushed at the same time.
+        failures.compute(endpointId, (ignored, endpointFailures) -> {
+            if (endpointFailures == null) {
+                endpointFailures = new Failures();
+            }
+            endpointFailures.add(camelReturn, sampleSize);
+            return endpointFailures;
+        });
+        recordedCounter.increment();
+    }
+
+    /**
+     * Reinjects one action per endpoint which failed during the window which just ended.
+     */
+    @Scheduled(concurrentExecution = SKIP, every = "${reinject.aggregation.window:60s}")
+    public void flush() {
+        if (failures.isEmpty()) {
+            return;
+        }
+        Map<UUID, Failures> window = new HashMap<>();
+        for (UUID endpointId : new ArrayList<>(failures.keySet())) {
+            Failures endpointFailures = failures.remove(endpointId);
+            if (endpointFailures != null) {
+                window.put(endpointId, endpointFailures);
+            }
+        }
+
+        loadMissingEndpoints(window.keySet());
+        window.forEach((endpointId, endpointFailures) -> {
+            EndpointInfo endpoint = endpoints.getIfPresent(endpointId);
+            if (endpoint == null) {
+                // The endpoint was deleted since its calls failed, there's no one left to warn.
+                Log.debugf("Endpoint %s not found, %d failures dropped", endpointId, endpointFailures.count);
+                return;
+            }
+            try {
+                emitter.send(buildMessageWithId(Parser.encode(buildAction(endpointId, endpoint, endpointFailures))));
+                emittedCounter.increment();
+            } catch (Exception e) {
+                Log.errorf(e, "Reinjection failed for the %d failures of endpoint %s", endpointFailures.count, endpointId);
+            }
+        });
+    }
+
+    public void onCacheInvalidation(@Observes CacheInvalidationEvent event) {
+        if (ROUTING.equals(event.getCacheName())) {
+            if (event.getAccountId() == null) {
+                endpoints.invalidateAll();
+            } else {
+                endpoints.asMap().values().removeIf(endpoint -> event.getAccountId().equals(endpoint.accountId));
+            }
+        }
+    }
+
+    private void loadMissingEndpoints(Set<UUID> endpointIds) {
+        Set<UUID> missing = new HashSet<>(endpointIds);
+        missing.removeAll(endpoints.getAllPresent(endpointIds).keySet());
+        if (missing.isEmpty()) {
+            return;
+        }
+        List<Endpoint> loaded = statelessSessionFactory.withSession(statelessSession -> {
+            return endpointRepository.findByIds(missing);
+        });
+        endpoints.putAll(loaded.stream()
+                .collect(Collectors.toMap(Endpoint::getId, endpoint -> new EndpointInfo(endpoint.getName(), endpoint.getAccountId()))));
+    }
+
+    private static Action buildAction(UUID endpointId, EndpointInfo endpoint, Failures endpointFailures) {
+        List<CamelReturn> sample = endpointFailures.sample;
+
+        List<Event> events = new ArrayList<>();
+        for (CamelReturn camelReturn : sample) {
+            Payload.PayloadBuilder payloadBuilder = new Payload.PayloadBuilder();
+            payloadBuilder.withAdditionalProperty("historyId", camelReturn.getHistoryId());
+            payloadBuilder.withAdditionalProperty("outcome", camelReturn.getOutcome());
+            payloadBuilder.withAdditionalProperty("successful", camelReturn.getSuccessful());
+            payloadBuilder.withAdditionalProperty("duration", camelReturn.getDuration());
+            payloadBuilder.withAdditionalProperty("finishTime", camelReturn.getFinishTime());
+            payloadBuilder.withAdditionalProperty("details", camelReturn.getDetails());
+            Event event = new Event();
+            event.setPayload(payloadBuilder.build());
+            events.add(event);
+        }
+
+        Context.ContextBuilder contextBuilder = new Context.ContextBuilder();
+        // Save the original id of the first failure, as we may need it in the future.
+        contextBuilder.withAdditionalProperty("original-id", sample.get(0).getHistoryId());
+        contextBuilder.withAdditionalProperty("failed-integration", endpoint.name);
+        contextBuilder.withAdditionalProperty("endpoint-id", endpointId.toString());
+        contextBuilder.withAdditionalProperty("failure-count", endpointFailures.count);
+        contextBuilder.withAdditionalProperty("history-ids", sample.stream().map(CamelReturn::getHistoryId).collect(Collectors.toList()));
+
+        return new Action.ActionBuilder()
+                .withId(UUID.randomUUID())
+                .withBundle("console")
+                .withApplication("notifications")
+                .withEventType("integration-failed")
+                .withAccountId(endpoint.accountId)
+                .withContext(contextBuilder.build())
+                .withTimestamp(LocalDateTime.now(ZoneOffset.UTC))
+                .withEvents(events)
+                .withRecipients(List.of(
+                        new Recipient.RecipientBuilder()
+                                .withOnlyAdmins(true)
+                                .withIgnoreUserPreferences(true)
+                                .build()))
+                .build();
+    }
+
+    // Blindly copied from -gw.  Perhaps put this into Schema project
+    private static Message<String> buildMessageWithId(String payload) {
+        byte[] messageId = UUID.randomUUID().toString().getBytes(UTF_8);
+        OutgoingKafkaRecordMetadata<?> metadata = OutgoingKafkaRecordMetadata.builder()
+                .withHeaders(new RecordHeaders().add(MESSAGE_ID_HEADER, messageId))
+                .build();
+        return Message.of(payload).addMetadata(metadata);
+    }
+
+    private static class Failures {
+
+        private final List<CamelReturn> sample = new ArrayList<>();
+        private int count;
+
+        void add(CamelReturn camelReturn, int sampleSize) {
+            count++;
+            if (sample.size() < sampleSize) {
+                sample.add(camelReturn);
+            }
+        }
+    }
+
+    private static class EndpointInfo {
+
+        private final String name;
+        private final String accountId;
+
+        EndpointInfo(String name, String accountId) {
+            this.name = name;
+            this.accountId = accountId;
+        }
+    }
+}
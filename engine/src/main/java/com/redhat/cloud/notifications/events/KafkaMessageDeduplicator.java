@@ -13,11 +13,20 @@ import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.persistence.NoResultException;
+import javax.persistence.Query;
+import javax.transaction.Transactional;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.ZoneOffset.UTC;
 
 @ApplicationScoped
 public class KafkaMessageDeduplicator {
@@ -127,4 +136,74 @@ public class KafkaMessageDeduplicator {
             statelessSessionFactory.getCurrentSession().insert(kafkaMessage);
         }
     }
+
+    /**
+     * Batch counterpart of {@link #isDuplicate(UUID)}: all given message IDs are checked with a single query.
+     *
+     * @param messageIds the message IDs to check, {@code null} values are ignored
+     * @return the subset of the given message IDs which are already known
+     */
+    public Set<UUID> findKnownMessageIds(Collection<UUID> messageIds) {
+        Set<UUID> ids = new HashSet<>(messageIds);
+        ids.remove(null);
+        if (ids.isEmpty()) {
+            return new HashSet<>();
+        }
+        String hql = "SELECT id FROM KafkaMessage WHERE id IN (:messageIds)";
+        return new HashSet<>(statelessSessionFactory.getCurrentSession().createQuery(hql, UUID.class)
+                .setParameter("messageIds", ids)
+                .getResultList());
+    }
+
+    /**
+     * Single round trip replacement of {@link #isDuplicate(UUID)} followed by {@link #registerMessageId(UUID)}. The
+     * message ID is registered with an {@code INSERT ... ON CONFLICT DO NOTHING RETURNING} statement which tells
+     * atomically whether the ID was already known, even if another consumer is registering it at the same time.
+     *
+     * @return {@code true} if the message ID is new (or {@code null}) and was registered by this call
+     */
+    @Transactional
+    public boolean registerIfNew(UUID messageId) {
+        if (messageId == null) {
+            // Same as isDuplicate: messages without an ID are always considered new.
+            return true;
+        }
+        return registerNewMessageIds(List.of(messageId)).contains(messageId);
+    }
+
+    /**
+     * Batch counterpart of {@link #registerIfNew(UUID)}: all given message IDs are registered with a single statement.
+     *
+     * @param messageIds the message IDs to register, {@code null} values are ignored
+     * @return the subset of the given message IDs which were new and registered by this call
+     */
+    @Transactional
+    public Set<UUID> registerNewMessageIds(Collection<UUID> messageIds) {
+        Set<UUID> ids = new HashSet<>(messageIds);
+        ids.remove(null);
+        if (ids.isEmpty()) {
+            return new HashSet<>();
+        }
+        // HQL does not support multi-row inserts nor the ON CONFLICT clause so we need a native query here.
+        StringBuilder sql = new StringBuilder("INSERT INTO kafka_message (id, created) VALUES ");
+        for (int i = 0; i < ids.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(:id").append(i).append(", :created)");
+        }
+        // The IDs are returned as strings to avoid depending on the dialect mapping of the uuid type.
+        sql.append(" ON CONFLICT DO NOTHING RETURNING CAST(id AS VARCHAR)");
+        Query query = statelessSessionFactory.getCurrentSession().createNativeQuery(sql.toString())
+                .setParameter("created", Timestamp.valueOf(LocalDateTime.now(UTC)));
+        int i = 0;
+        for (UUID id : ids) {
+            query.setParameter("id" + i++, id);
+        }
+        Set<UUID> newIds = new HashSet<>();
+        for (Object id : query.getResultList()) {
+            newIds.add(UUID.fromString((String) id));
+        }
+        return newIds;
+    }
 }
@@ -0,0 +1,358 @@
+package com.redhat.cloud.notifications.events;
+
+import com.redhat.cloud.notifications.db.StatelessSessionFactory;
+import com.redhat.cloud.notifications.db.repositories.EventRepository;
+import com.redhat.cloud.notifications.models.Event;
+import com.redhat.cloud.notifications.utils.ActionParser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.logging.Log;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.reactive.messaging.annotations.Blocking;
+import io.vertx.core.json.JsonObject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.reactive.messaging.Acknowledgment;
+import org.eclipse.microprofile.reactive.messaging.Channel;
+import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.eclipse.microprofile.reactive.messaging.Incoming;
+import org.eclipse.microprofile.reactive.messaging.Message;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.quarkus.scheduler.Scheduled.ConcurrentExecution.SKIP;
+import static org.eclipse.microprofile.reactive.messaging.Acknowledgment.Strategy.MANUAL;
+
+/**
+ * Tenant-aware scheduler between the ingress consumer and the {@link EndpointProcessor}. Each tenant (org ID, or
+ * account ID when the org ID is missing) has its own queue. The queues are served by a pool of workers with a weighted
+ * round-robin: a tenant with a weight of N gets up to N events processed each time its turn comes. Events from the same
+ * tenant are always processed sequentially, in submission order.
+ * <p>
+ * Before being queued, an event has to get a token from the bucket of its tenant and from the bucket of its bundle.
+ * If one of them is empty, the event is throttled: it is sent to the delay topic and submitted again later by
+ * {@link #processDelayed(Message)}, so that a bursting tenant never blocks the ingress consumer. A throttled event may
+ * therefore be processed after newer events of its tenant which were submitted once its bucket was refilled.
+ * </p>
+ * <p>
+ * The queue, token bucket and queue depth gauge of a tenant are evicted once the tenant has been idle for
+ * {@code notifications.tenant-scheduler.idle-eviction}. A tenant which comes back later starts with a full bucket.
+ * </p>
+ */
+@ApplicationScoped
+public class TenantScheduler {
+
+    public static final String DELAY_CHANNEL = "toDelay";
+    public static final String DELAYED_CHANNEL = "fromDelay";
+    public static final String QUEUE_DEPTH_GAUGE_NAME = "tenant-scheduler.queue.depth";
+    public static final String THROTTLED_COUNTER_NAME = "tenant-scheduler.throttled";
+
+    private static final String EVENT_ID_KEY = "eventId";
+    private static final String NOT_BEFORE_KEY = "notBefore";
+
+    @ConfigProperty(name = "notifications.tenant-scheduler.workers", defaultValue = "4")
+    int workers;
+
+    // Each entry has the following format: <orgId>:<weight>. The default weight is 1.
+    @ConfigProperty(name = "notifications.tenant-scheduler.tenant-weights")
+    Optional<List<String>> tenantWeights;
+
+    @ConfigProperty(name = "notifications.tenant-scheduler.tenant.capacity", defaultValue = "500")
+    double tenantCapacity;
+
+    @ConfigProperty(name = "notifications.tenant-scheduler.tenant.refill-per-second", defaultValue = "50")
+    double tenantRefillPerSecond;
+
+    @ConfigProperty(name = "notifications.tenant-scheduler.bundle.capacity", defaultValue = "5000")
+    double bundleCapacity;
+
+    @ConfigProperty(name = "notifications.tenant-scheduler.bundle.refill-per-second", defaultValue = "500")
+    double bundleRefillPerSecond;
+
+    @ConfigProperty(name = "notifications.tenant-scheduler.delay", defaultValue = "30s")
+    Duration delay;
+
+    @ConfigProperty(name = "notifications.tenant-scheduler.idle-eviction", defaultValue = "10m")
+    Duration idleEviction;
+
+    @Inject
+    EndpointProcessor endpointProcessor;
+
+    @Inject
+    EventRepository eventRepository;
+
+    @Inject
+    ActionParser actionParser;
+
+    @Inject
+    StatelessSessionFactory statelessSessionFactory;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    @Channel(DELAY_CHANNEL)
+    Emitter<String> delayEmitter;
+
+    private final Map<String, Integer> weights = new HashMap<>();
+    private final Map<String, TenantQueue> tenantQueues = new ConcurrentHashMap<>();
+    private final Map<UUID, TokenBucket> bundleBuckets = new ConcurrentHashMap<>();
+    // Tenants which have queued events and are not being served by a worker.
+    private final BlockingQueue<TenantQueue> readyTenants = new LinkedBlockingQueue<>();
+    private ExecutorService executor;
+    // Not tagged with the tenant, the number of meters would otherwise grow with each org.
+    private Counter throttledCounter;
+
+    @PostConstruct
+    void init() {
+        throttledCounter = registry.counter(THROTTLED_COUNTER_NAME);
+        tenantWeights.ifPresent(entries -> {
+            for (String entry : entries) {
+                String[] parts = entry.split(":");
+                if (parts.length != 2) {
+                    throw new IllegalStateException("Invalid tenant weight: " + entry);
+                }
+                weights.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+            }
+        });
+    }
+
+    @PreDestroy
+    synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Submits an event for processing by the {@link EndpointProcessor}.
+     *
+     * @return a stage completed when the event is processed, or when it was throttled and sent to the delay topic
+     */
+    public CompletionStage<Void> schedule(Event event) {
+        startWorkers();
+        String tenant = getTenant(event);
+        ScheduledEvent scheduledEvent = new ScheduledEvent(event);
+        while (true) {
+            TenantQueue tenantQueue = tenantQueues.computeIfAbsent(tenant, this::createTenantQueue);
+            boolean throttled;
+            synchronized (tenantQueue) {
+                if (tenantQueue.evicted) {
+                    // The queue was evicted after it was retrieved from the map, a new one has to be created.
+                    continue;
+                }
+                tenantQueue.lastActivity = System.nanoTime();
+                throttled = !acquireTokens(tenantQueue, event.getBundleId());
+                if (!throttled) {
+                    tenantQueue.events.add(scheduledEvent);
+                    tenantQueue.depth.incrementAndGet();
+                    if (!tenantQueue.ready) {
+                        tenantQueue.ready = true;
+                        readyTenants.add(tenantQueue);
+                    }
+                }
+            }
+            if (throttled) {
+                throttledCounter.increment();
+                JsonObject payload = new JsonObject()
+                        .put(EVENT_ID_KEY, event.getId().toString())
+                        .put(NOT_BEFORE_KEY, System.currentTimeMillis() + delay.toMillis());
+                return delayEmitter.send(payload.encode());
+            }
+            return scheduledEvent.future;
+        }
+    }
+
+    /*
+     * The throttled events are consumed from the delay topic, retrieved from the DB (the payload was persisted by the
+     * ingress consumer) and submitted again. They may be throttled once more if their tenant is still bursting.
+     */
+    @Incoming(DELAYED_CHANNEL)
+    @Acknowledgment(MANUAL)
+    @Blocking
+    public CompletionStage<Void> processDelayed(Message<String> message) {
+        try {
+            JsonObject payload = new JsonObject(message.getPayload());
+            long wait = payload.getLong(NOT_BEFORE_KEY) - System.currentTimeMillis();
+            if (wait > 0) {
+                // This only blocks the delay topic consumer, never the ingress one.
+                Thread.sleep(Math.min(wait, delay.toMillis()));
+            }
+            UUID eventId = UUID.fromString(payload.getString(EVENT_ID_KEY));
+            Event[] event = new Event[1];
+            statelessSessionFactory.withSession(statelessSession -> {
+                event[0] = eventRepository.findById(eventId);
+            });
+            if (event[0] == null) {
+                Log.warnf("Delayed event %s not found, it will not be processed", eventId);
+                return message.ack();
+            }
+            String eventPayload = event[0].getPayload();
+            event[0].setActionSupplier(() -> actionParser.fromJsonString(eventPayload));
+            return schedule(event[0]).handle((unused, throwable) -> {
+                if (throwable != null) {
+                    Log.infof(throwable, "Could not process the delayed event %s", eventId);
+                }
+                return null;
+            }).thenCompose(unused -> message.ack());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return message.nack(e);
+        } catch (Exception e) {
+            Log.infof(e, "Could not process the delayed payload: %s", message.getPayload());
+            return message.ack();
+        }
+    }
+
+    /*
+     * Removes the tenants which have no queued events and did not submit any event for a while, as well as their
+     * queue depth gauge.
+     */
+    @Scheduled(concurrentExecution = SKIP, every = "${notifications.tenant-scheduler.eviction-period:1m}")
+    public void evictIdleTenants() {
+        long now = System.nanoTime();
+        for (TenantQueue tenantQueue : tenantQueues.values()) {
+            synchronized (tenantQueue) {
+                if (!tenantQueue.ready && tenantQueue.events.isEmpty() && now - tenantQueue.lastActivity >= idleEviction.toNanos()) {
+                    tenantQueue.evicted = true;
+                    tenantQueues.remove(tenantQueue.tenant, tenantQueue);
+                    registry.remove(tenantQueue.depthGauge);
+                }
+            }
+        }
+    }
+
+    private synchronized void startWorkers() {
+        if (executor == null) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(workers, runnable -> {
+                Thread thread = new Thread(runnable, "tenant-scheduler-worker-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            for (int i = 0; i < workers; i++) {
+                executor.submit(this::work);
+            }
+        }
+    }
+
+    private void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            TenantQueue tenantQueue;
+            try {
+                tenantQueue = readyTenants.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            // The tenant is no longer in readyTenants, so no other worker can process its events concurrently.
+            for (int i = 0; i < tenantQueue.weight; i++) {
+                ScheduledEvent scheduledEvent = tenantQueue.events.poll();
+                if (scheduledEvent == null) {
+                    break;
+                }
+                tenantQueue.depth.decrementAndGet();
+                process(scheduledEvent);
+            }
+            synchronized (tenantQueue) {
+                tenantQueue.lastActivity = System.nanoTime();
+                if (tenantQueue.events.isEmpty()) {
+                    tenantQueue.ready = false;
+                } else {
+                    readyTenants.add(tenantQueue);
+                }
+            }
+        }
+    }
+
+    private synchronized boolean acquireTokens(TenantQueue tenantQueue, UUID bundleId) {
+        TokenBucket bundleBucket = bundleBuckets.computeIfAbsent(bundleId, unused -> new TokenBucket(bundleCapacity, bundleRefillPerSecond));
+        if (tenantQueue.bucket.nanosUntilToken() == 0L && bundleBucket.nanosUntilToken() == 0L) {
+            tenantQueue.bucket.consume();
+            bundleBucket.consume();
+            return true;
+        }
+        return false;
+    }
+
+    private void process(ScheduledEvent scheduledEvent) {
+        try {
+            statelessSessionFactory.withSession(statelessSession -> {
+                endpointProcessor.process(scheduledEvent.event);
+            });
+            scheduledEvent.future.complete(null);
+        } catch (Exception e) {
+            scheduledEvent.future.completeExceptionally(e);
+        }
+    }
+
+    private TenantQueue createTenantQueue(String tenant) {
+        AtomicInteger depth = new AtomicInteger();
+        Gauge depthGauge = Gauge.builder(QUEUE_DEPTH_GAUGE_NAME, depth, AtomicInteger::get)
+                .tag("org", tenant)
+                .register(registry);
+        TokenBucket bucket = new TokenBucket(tenantCapacity, tenantRefillPerSecond);
+        return new TenantQueue(tenant, Math.max(1, weights.getOrDefault(tenant, 1)), bucket, depth, depthGauge);
+    }
+
+    private static String getTenant(Event event) {
+        if (event.getOrgId() != null && !event.getOrgId().isBlank()) {
+            return event.getOrgId();
+        } else {
+            // Micrometer doesn't like when tags are null and throws a NPE.
+            return event.getAccountId() == null ? "" : event.getAccountId();
+        }
+    }
+
+    private static class TenantQueue {
+
+        final String tenant;
+        final int weight;
+        final TokenBucket bucket;
+        final AtomicInteger depth;
+        final Gauge depthGauge;
+        final Queue<ScheduledEvent> events = new ConcurrentLinkedQueue<>();
+        // The following fields are guarded by the TenantQueue monitor.
+        // True if the tenant is in readyTenants or being served by a worker.
+        boolean ready;
+        boolean evicted;
+        long lastActivity = System.nanoTime();
+
+        TenantQueue(String tenant, int weight, TokenBucket bucket, AtomicInteger depth, Gauge depthGauge) {
+            this.tenant = tenant;
+            this.weight = weight;
+            this.bucket = bucket;
+            this.depth = depth;
+            this.depthGauge = depthGauge;
+        }
+    }
+
+    private static class ScheduledEvent {
+
+        final Event event;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        ScheduledEvent(Event event) {
+            this.event = event;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.redhat.cloud.notifications.events;
+
+/**
+ * Rate limiter which holds up to {@code capacity} tokens and refills them continuously at {@code refillPerSecond}.
+ */
+class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+    private double tokens;
+    private long lastRefill;
+
+    TokenBucket(double capacity, double refillPerSecond) {
+        this.capacity = capacity;
+        refillPerNano = refillPerSecond / 1_000_000_000D;
+        tokens = capacity;
+        lastRefill = System.nanoTime();
+    }
+
+    synchronized void consume() {
+        refill();
+        tokens = Math.max(0D, tokens - 1D);
+    }
+
+    // Returns 0 if a token is available, Long.MAX_VALUE if the bucket is empty and never refilled.
+    synchronized long nanosUntilToken() {
+        refill();
+        if (tokens >= 1D) {
+            return 0L;
+        } else if (refillPerNano == 0D) {
+            return Long.MAX_VALUE;
+        } else {
+            return (long) Math.ceil((1D - tokens) / refillPerNano);
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerNano);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,32 @@
+package com.redhat.cloud.notifications.models;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A history item updated with the outcome returned by a Camel integration.
+ */
+public class UpdatedHistoryItem {
+
+    private final UUID endpointId;
+    private final LocalDateTime created;
+
+    public UpdatedHistoryItem(UUID endpointId, LocalDateTime created) {
+        this.endpointId = endpointId;
+        this.created = created;
+    }
+
+    /**
+     * @return the endpoint ID or {@code null} if the endpoint is gone
+     */
+    public UUID getEndpointId() {
+        return endpointId;
+    }
+
+    /**
+     * @return the creation time of the history item, in UTC
+     */
+    public LocalDateTime getCreated() {
+        return created;
+    }
+}
@@ -0,0 +1,308 @@
+package com.redhat.cloud.notifications.processors;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.db.StatelessSessionFactory;
+import com.redhat.cloud.notifications.db.repositories.EndpointRepository;
+import com.redhat.cloud.notifications.models.Endpoint;
+import com.redhat.cloud.notifications.models.Event;
+import com.redhat.cloud.notifications.models.NotificationHistory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.logging.Log;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.redhat.cloud.notifications.models.EndpointStatus.CIRCUIT_OPEN;
+import static com.redhat.cloud.notifications.models.EndpointStatus.READY;
+import static com.redhat.cloud.notifications.models.EndpointStatus.UNKNOWN;
+
+/**
+ * Circuit breaker keyed by endpoint ID. The outcomes of the last {@code processor.circuit-breaker.window-size} calls of
+ * each endpoint are kept in a sliding window. When the failure rate of that window reaches
+ * {@code processor.circuit-breaker.failure-rate-threshold}, the circuit opens and the endpoint is not called for
+ * {@code processor.circuit-breaker.open-duration}. A single trial call is then allowed (half-open state): the circuit
+ * closes if it succeeds and opens again otherwise.
+ * <p>
+ * The breakers are kept in memory by each engine pod. When {@code processor.circuit-breaker.endpoint-status.enabled}
+ * is {@code true}, the transitions are also written into the endpoint status so that the backend can show them, and a
+ * pod which loads an endpoint with an open circuit status starts with an open circuit for that endpoint.
+ */
+@ApplicationScoped
+public class EndpointCircuitBreaker {
+
+    public static final String SHORT_CIRCUITED_COUNTER_NAME = "processor.circuit-breaker.short-circuited";
+    public static final String OPENED_COUNTER_NAME = "processor.circuit-breaker.opened";
+    public static final String CIRCUIT_OPEN_DETAIL = "circuit_open";
+
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    @ConfigProperty(name = "processor.circuit-breaker.window-size", defaultValue = "20")
+    int windowSize;
+
+    @ConfigProperty(name = "processor.circuit-breaker.minimum-calls", defaultValue = "10")
+    int minimumCalls;
+
+    @ConfigProperty(name = "processor.circuit-breaker.failure-rate-threshold", defaultValue = "50")
+    int failureRateThreshold;
+
+    @ConfigProperty(name = "processor.circuit-breaker.open-duration", defaultValue = "1m")
+    Duration openDuration;
+
+    @ConfigProperty(name = "processor.circuit-breaker.max-entries", defaultValue = "10000")
+    long maxEntries;
+
+    @ConfigProperty(name = "processor.circuit-breaker.endpoint-status.enabled", defaultValue = "false")
+    boolean endpointStatusEnabled;
+
+    @Inject
+    EndpointRepository endpointRepository;
+
+    @Inject
+    StatelessSessionFactory statelessSessionFactory;
+
+    @Inject
+    FeatureFlipper featureFlipper;
+
+    @Inject
+    MeterRegistry registry;
+
+    private Cache<UUID, Breaker> breakers;
+    private Counter shortCircuitedCounter;
+    private Counter openedCounter;
+    private ExecutorService statusWriter;
+
+    @PostConstruct
+    void init() {
+        // The breakers of the endpoints which are no longer called are eventually evicted.
+        breakers = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterAccess(openDuration.multipliedBy(10L))
+                .build();
+        shortCircuitedCounter = registry.counter(SHORT_CIRCUITED_COUNTER_NAME);
+        openedCounter = registry.counter(OPENED_COUNTER_NAME);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (statusWriter != null) {
+            statusWriter.shutdown();
+        }
+    }
+
+    /**
+     * Returns {@code true} if the endpoint can be called. If the circuit of the endpoint is half-open, this method only
+     * returns {@code true} for the trial call. The outcome of every allowed call has to be reported with
+     * {@link #recordResult(UUID, boolean)}.
+     */
+    public boolean allowRequest(Endpoint endpoint) {
+        if (!featureFlipper.isCircuitBreakerEnabled() || endpoint.getId() == null) {
+            return true;
+        }
+        Breaker breaker = breakers.get(endpoint.getId(), id -> {
+            Breaker newBreaker = new Breaker(windowSize);
+            if (endpointStatusEnabled && endpoint.getStatus() == CIRCUIT_OPEN) {
+                // The circuit was opened by another pod.
+                newBreaker.open(System.nanoTime() + openDuration.toNanos());
+            }
+            return newBreaker;
+        });
+        boolean allowed = breaker.allowRequest(System.nanoTime(), openDuration.toNanos());
+        if (!allowed) {
+            shortCircuitedCounter.increment();
+        }
+        return allowed;
+    }
+
+    /**
+     * Reports the outcome of a call allowed by {@link #allowRequest(Endpoint)}.
+     */
+    public void recordResult(UUID endpointId, boolean success) {
+        if (!featureFlipper.isCircuitBreakerEnabled() || endpointId == null) {
+            return;
+        }
+        Breaker breaker = breakers.getIfPresent(endpointId);
+        if (breaker == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        State previousState;
+        State newState;
+        synchronized (breaker) {
+            previousState = breaker.getState();
+            newState = breaker.record(success, now + openDuration.toNanos(), minimumCalls, failureRateThreshold);
+        }
+        if (previousState != State.OPEN && newState == State.OPEN) {
+            openedCounter.increment();
+            Log.infof("Circuit opened for endpoint %s", endpointId);
+            writeStatus(endpointId, true);
+        } else if (previousState != State.CLOSED && newState == State.CLOSED) {
+            Log.infof("Circuit closed for endpoint %s", endpointId);
+            writeStatus(endpointId, false);
+        }
+    }
+
+    /**
+     * Builds the history entry of a call which was not made because the circuit of the endpoint is open.
+     */
+    public NotificationHistory buildShortCircuitHistory(Endpoint endpoint, Event event) {
+        NotificationHistory history = NotificationHistory.getHistoryStub(endpoint, event, 0L, UUID.randomUUID());
+        Map<String, Object> details = new HashMap<>();
+        details.put(CIRCUIT_OPEN_DETAIL, true);
+        details.put("failure", "Circuit open: the endpoint was not called because of its recent failures");
+        history.setDetails(details);
+        return history;
+    }
+
+    State getState(UUID endpointId) {
+        Breaker breaker = breakers.getIfPresent(endpointId);
+        return breaker == null ? State.CLOSED : breaker.getState();
+    }
+
+    void reset() {
+        breakers.invalidateAll();
+    }
+
+    private void writeStatus(UUID endpointId, boolean open) {
+        if (!endpointStatusEnabled) {
+            return;
+        }
+        // The transitions can happen on the event loop, so the DB is updated from another thread.
+        getStatusWriter().execute(() -> {
+            try {
+                statelessSessionFactory.withSession(statelessSession -> {
+                    if (open) {
+                        endpointRepository.updateEndpointStatus(endpointId, Set.of(READY, UNKNOWN), CIRCUIT_OPEN);
+                    } else {
+                        endpointRepository.updateEndpointStatus(endpointId, Set.of(CIRCUIT_OPEN), READY);
+                    }
+                });
+            } catch (Exception e) {
+                Log.warnf(e, "Circuit status update failed for endpoint %s", endpointId);
+            }
+        });
+    }
+
+    private synchronized ExecutorService getStatusWriter() {
+        if (statusWriter == null) {
+            statusWriter = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "circuit-breaker-status-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return statusWriter;
+    }
+
+    private static class Breaker {
+
+        // Sliding window of the last outcomes, true means failure.
+        private final boolean[] window;
+        private int position;
+        private int calls;
+        private int failures;
+        private State state = State.CLOSED;
+        private long openUntil;
+        private long trialStartedAt;
+        private boolean trialInFlight;
+
+        Breaker(int windowSize) {
+            window = new boolean[windowSize];
+        }
+
+        synchronized State getState() {
+            return state;
+        }
+
+        synchronized void open(long openUntil) {
+            state = State.OPEN;
+            this.openUntil = openUntil;
+            trialInFlight = false;
+            clearWindow();
+        }
+
+        synchronized boolean allowRequest(long now, long trialTimeout) {
+            switch (state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (now - openUntil < 0) {
+                        return false;
+                    }
+                    state = State.HALF_OPEN;
+                    return startTrial(now);
+                case HALF_OPEN:
+                    // If the outcome of the trial call is never reported (e.g. lost Camel reply), another trial is allowed.
+                    if (trialInFlight && now - trialStartedAt < trialTimeout) {
+                        return false;
+                    }
+                    return startTrial(now);
+                default:
+                    throw new IllegalStateException("Unexpected state: " + state);
+            }
+        }
+
+        synchronized State record(boolean success, long openUntil, int minimumCalls, int failureRateThreshold) {
+            switch (state) {
+                case CLOSED:
+                    if (calls == window.length) {
+                        if (window[position]) {
+                            failures--;
+                        }
+                    } else {
+                        calls++;
+                    }
+                    window[position] = !success;
+                    if (!success) {
+                        failures++;
+                    }
+                    position = (position + 1) % window.length;
+                    if (calls >= minimumCalls && failures * 100 >= failureRateThreshold * calls) {
+                        open(openUntil);
+                    }
+                    break;
+                case HALF_OPEN:
+                    if (success) {
+                        state = State.CLOSED;
+                        trialInFlight = false;
+                        clearWindow();
+                    } else {
+                        open(openUntil);
+                    }
+                    break;
+                default:
+                    // A call allowed before the circuit opened does not change the state.
+                    break;
+            }
+            return state;
+        }
+
+        private boolean startTrial(long now) {
+            trialInFlight = true;
+            trialStartedAt = now;
+            return true;
+        }
+
+        private void clearWindow() {
+            position = 0;
+            calls = 0;
+            failures = 0;
+        }
+    }
+}
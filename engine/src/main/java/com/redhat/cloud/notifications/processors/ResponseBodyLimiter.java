@@ -0,0 +1,74 @@
+package com.redhat.cloud.notifications.processors;
+
+import io.quarkus.runtime.configuration.MemorySize;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Bounds the size of the remote responses stored in the notification history details. Some endpoints answer with
+ * multi-megabyte error pages, only their first {@code processor.response-body.max-size} bytes are kept.
+ */
+@ApplicationScoped
+public class ResponseBodyLimiter {
+
+    public static final String LENGTH_SUFFIX = "_length";
+    public static final String TRUNCATED_KEY = "truncated";
+
+    @ConfigProperty(name = "processor.response-body.max-size", defaultValue = "8K")
+    MemorySize maxSize;
+
+    private int maxBytes;
+
+    @PostConstruct
+    void init() {
+        maxBytes = (int) Math.min(Integer.MAX_VALUE, maxSize.asLongValue());
+    }
+
+    public int getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Truncates the string values of the given details which are longer than the limit. The original length in bytes
+     * of each truncated value is added to the details with the {@link #LENGTH_SUFFIX} suffix.
+     */
+    public void limitDetails(Map<String, Object> details) {
+        Map<String, Object> lengths = new HashMap<>();
+        for (Map.Entry<String, Object> entry : details.entrySet()) {
+            if (entry.getValue() instanceof String) {
+                String value = (String) entry.getValue();
+                // A UTF-8 char is encoded with at most 4 bytes, the short values don't need to be encoded.
+                if ((long) value.length() * 4 > maxBytes) {
+                    byte[] bytes = value.getBytes(UTF_8);
+                    if (bytes.length > maxBytes) {
+                        entry.setValue(decode(bytes, maxBytes));
+                        lengths.put(entry.getKey() + LENGTH_SUFFIX, bytes.length);
+                    }
+                }
+            }
+        }
+        if (!lengths.isEmpty()) {
+            details.putAll(lengths);
+            details.put(TRUNCATED_KEY, true);
+        }
+    }
+
+    /**
+     * Decodes the first {@code length} bytes of the given UTF-8 bytes, without the last char if it was cut.
+     */
+    public static String decode(byte[] bytes, int length) {
+        if (length < bytes.length) {
+            // The continuation bytes of a multi-byte char start with 10.
+            while (length > 0 && (bytes[length] & 0xC0) == 0x80) {
+                length--;
+            }
+        }
+        return new String(bytes, 0, length, UTF_8);
+    }
+}
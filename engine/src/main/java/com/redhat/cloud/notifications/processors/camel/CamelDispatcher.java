@@ -0,0 +1,183 @@
+package com.redhat.cloud.notifications.processors.camel;
+
+import com.redhat.cloud.notifications.db.StatelessSessionFactory;
+import com.redhat.cloud.notifications.db.repositories.NotificationHistoryRepository;
+import com.redhat.cloud.notifications.models.NotificationHistory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.logging.Log;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.reactive.messaging.Channel;
+import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.eclipse.microprofile.reactive.messaging.Message;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.redhat.cloud.notifications.processors.camel.CamelTypeProcessor.TOCAMEL_CHANNEL;
+
+/**
+ * Sends the messages of the Camel integrations to the {@code toCamel} channel. At most
+ * {@code processor.camel.max-in-flight} messages can wait for their Kafka acknowledgement at the same time: when that
+ * limit is reached, the calling thread waits up to {@code processor.camel.in-flight-wait} for a permit and the message
+ * is failed if none becomes available. The acknowledgements are awaited asynchronously. When a message is nacked, the
+ * stub history entry created for it is updated as failed, since the Camel sender will never report its outcome.
+ */
+@ApplicationScoped
+public class CamelDispatcher {
+
+    public static final String IN_FLIGHT_GAUGE_NAME = "processor.camel.in-flight";
+    public static final String SEND_TIMER_NAME = "processor.camel.send";
+    public static final String REJECTED_COUNTER_NAME = "processor.camel.rejected";
+
+    private static final int MAX_HISTORY_LOOKUPS = 5;
+    private static final long HISTORY_LOOKUP_DELAY_MS = 1000L;
+
+    @ConfigProperty(name = "processor.camel.max-in-flight", defaultValue = "128")
+    int maxInFlight;
+
+    @ConfigProperty(name = "processor.camel.in-flight-wait", defaultValue = "10S")
+    Duration inFlightWait;
+
+    @Inject
+    @Channel(TOCAMEL_CHANNEL)
+    Emitter<String> emitter;
+
+    @Inject
+    NotificationHistoryRepository notificationHistoryRepository;
+
+    @Inject
+    StatelessSessionFactory statelessSessionFactory;
+
+    @Inject
+    MeterRegistry registry;
+
+    private Semaphore permits;
+    private Timer ackTimer;
+    private Timer nackTimer;
+    private Counter rejectedCounter;
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    void init() {
+        permits = new Semaphore(maxInFlight);
+        registry.gauge(IN_FLIGHT_GAUGE_NAME, permits, p -> maxInFlight - p.availablePermits());
+        ackTimer = registry.timer(SEND_TIMER_NAME, "outcome", "ack");
+        nackTimer = registry.timer(SEND_TIMER_NAME, "outcome", "nack");
+        rejectedCounter = registry.counter(REJECTED_COUNTER_NAME);
+        // The nacks are received from the Kafka producer thread, the history entries are updated from this executor.
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "camel-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Sends the given message whose outcome will be written into the given stub history entry. If the message cannot
+     * be sent, the history entry is marked as failed before this method returns.
+     */
+    public void dispatch(Message<String> message, NotificationHistory history) {
+        Message<String> tracked = track(message, history);
+        if (tracked == null) {
+            rejectedCounter.increment();
+            markFailed(history, "Too many messages waiting for the Kafka acknowledgement");
+            return;
+        }
+        try {
+            emitter.send(tracked);
+        } catch (RuntimeException e) {
+            // The emitter buffer is full or the channel is down.
+            permits.release();
+            rejectedCounter.increment();
+            markFailed(history, e.getMessage());
+        }
+    }
+
+    /*
+     * Acquires an in-flight permit which is released when the returned message is acked or nacked. Returns null if no
+     * permit became available in time.
+     */
+    Message<String> track(Message<String> message, NotificationHistory history) {
+        try {
+            if (!permits.tryAcquire(inFlightWait.toMillis(), TimeUnit.MILLISECONDS)) {
+                return null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        long startTime = System.nanoTime();
+        // Only the first of the ack and the nack is taken into account.
+        AtomicBoolean done = new AtomicBoolean();
+        return message
+                .withAck(() -> {
+                    if (done.compareAndSet(false, true)) {
+                        permits.release();
+                        ackTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+                    }
+                    return CompletableFuture.completedFuture(null);
+                })
+                .withNack(failure -> {
+                    if (done.compareAndSet(false, true)) {
+                        permits.release();
+                        long duration = System.nanoTime() - startTime;
+                        nackTimer.record(duration, TimeUnit.NANOSECONDS);
+                        Log.warnf(failure, "Message with historyId=%s could not be sent to Camel", history.getId());
+                        // The stub is still owned by the caller, a new history entry with the same ID is written.
+                        NotificationHistory failed = NotificationHistory.getHistoryStub(history.getEndpoint(), history.getEvent(),
+                                TimeUnit.NANOSECONDS.toMillis(duration), history.getId());
+                        markFailed(failed, failure.getMessage());
+                        executor.execute(() -> updateFailedHistory(failed, 1));
+                    }
+                    return CompletableFuture.completedFuture(null);
+                });
+    }
+
+    /*
+     * The stub history entry is persisted by the caller of the processor, a nack received very quickly may arrive
+     * before it exists in the DB.
+     */
+    private void updateFailedHistory(NotificationHistory history, int lookup) {
+        boolean updated;
+        try {
+            updated = statelessSessionFactory.withSession(statelessSession -> {
+                return notificationHistoryRepository.updateRetriedHistoryItem(history);
+            });
+        } catch (Exception e) {
+            Log.errorf(e, "History entry %s could not be marked as failed", history.getId());
+            return;
+        }
+        if (!updated) {
+            if (lookup < MAX_HISTORY_LOOKUPS) {
+                executor.schedule(() -> updateFailedHistory(history, lookup + 1), HISTORY_LOOKUP_DELAY_MS, TimeUnit.MILLISECONDS);
+            } else {
+                Log.warnf("History entry %s not found, it could not be marked as failed", history.getId());
+            }
+        }
+    }
+
+    private static void markFailed(NotificationHistory history, String failure) {
+        history.setInvocationResult(false);
+        Map<String, Object> details = new HashMap<>();
+        details.put("failure", failure);
+        history.setDetails(details);
+    }
+}
@@ -11,31 +11,29 @@ import com.redhat.cloud.notifications.models.Notification;
 import com.redhat.cloud.notifications.models.NotificationHistory;
 import com.redhat.cloud.notifications.openbridge.Bridge;
 import com.redhat.cloud.notifications.openbridge.BridgeAuth;
-import com.redhat.cloud.notifications.openbridge.BridgeEventService;
+import com.redhat.cloud.notifications.processors.EndpointCircuitBreaker;
 import com.redhat.cloud.notifications.processors.EndpointTypeProcessor;
 import com.redhat.cloud.notifications.transformers.BaseTransformer;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.opentelemetry.context.Context;
 import io.quarkus.logging.Log;
+import io.smallrye.mutiny.Uni;
 import io.smallrye.reactive.messaging.TracingMetadata;
 import io.smallrye.reactive.messaging.ce.OutgoingCloudEventMetadata;
 import io.smallrye.reactive.messaging.kafka.api.OutgoingKafkaRecordMetadata;
 import io.vertx.core.json.JsonObject;
 import org.apache.kafka.common.header.internals.RecordHeaders;
-import org.eclipse.microprofile.reactive.messaging.Channel;
-import org.eclipse.microprofile.reactive.messaging.Emitter;
 import org.eclipse.microprofile.reactive.messaging.Message;
-import org.eclipse.microprofile.rest.client.RestClientBuilder;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
-import java.net.URI;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 import static com.redhat.cloud.notifications.events.KafkaMessageDeduplicator.MESSAGE_ID_HEADER;
 import static com.redhat.cloud.notifications.models.NotificationHistory.getHistoryStub;
@@ -60,8 +58,7 @@ public class CamelTypeProcessor implements EndpointTypeProcessor {
     BaseTransformer transformer;
 
     @Inject
-    @Channel(TOCAMEL_CHANNEL)
-    Emitter<String> emitter;
+    CamelDispatcher camelDispatcher;
 
     @Inject
     MeterRegistry registry;
@@ -72,23 +69,43 @@ public class CamelTypeProcessor implements EndpointTypeProcessor {
     @Inject
     BridgeAuth bridgeAuth;
 
+    @Inject
+    OpenBridgeSender openBridgeSender;
+
+    @Inject
+    EndpointCircuitBreaker circuitBreaker;
+
     @Override
     public List<NotificationHistory> process(Event event, List<Endpoint> endpoints) {
-        return endpoints.stream()
-                .map(endpoint -> {
-                    Notification notification = new Notification(event, endpoint);
-                    return process(notification);
-                })
-                .collect(Collectors.toList());
+        // The action is transformed once for all the endpoints of the event.
+        JsonObject transformedAction = transformer.transform(event.getAction());
+        List<Uni<NotificationHistory>> histories = new ArrayList<>();
+        for (Endpoint endpoint : endpoints) {
+            Notification notification = new Notification(event, endpoint);
+            histories.add(process(notification, transformedAction));
+        }
+        if (histories.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // The OpenBridge calls of the event are made concurrently, the current thread waits once for all of them.
+        return Uni.join().all(histories).andFailFast().await().indefinitely();
     }
 
-    private NotificationHistory process(Notification item) {
+    private Uni<NotificationHistory> process(Notification item, JsonObject transformedAction) {
         Endpoint endpoint = item.getEndpoint();
         String subType = endpoint.getSubType();
 
         Counter processedCount = registry.counter(PROCESSED_COUNTER_NAME, "subType", subType);
         processedCount.increment();
 
+        /*
+         * The outcome of the OpenBridge calls is known immediately. The outcome of the other Camel calls is reported
+         * later to the circuit breaker by FromCamelHistoryFiller.
+         */
+        if (!circuitBreaker.allowRequest(endpoint)) {
+            return Uni.createFrom().item(circuitBreaker.buildShortCircuitHistory(endpoint, item.getEvent()));
+        }
+
         CamelProperties properties = (CamelProperties) endpoint.getProperties();
 
         Map<String, String> metaData = new HashMap<>();
@@ -118,7 +135,11 @@ public class CamelTypeProcessor implements EndpointTypeProcessor {
         }
         metaData.put("_originalId", originalEventId);
 
-        JsonObject payload = transformer.transform(item.getEvent().getAction());
+        /*
+         * Each message carries the metadata of its endpoint, so the payload is a shallow copy of the transformed action.
+         * The nested values are shared between the messages, they are only read when the payload is encoded.
+         */
+        JsonObject payload = new JsonObject(new LinkedHashMap<>(transformedAction.getMap()));
         UUID historyId = UUID.randomUUID();
 
         JsonObject metadataAsJson = new JsonObject();
@@ -128,7 +149,7 @@ public class CamelTypeProcessor implements EndpointTypeProcessor {
         return callCamel(item, historyId, payload, originalEventId);
     }
 
-    public NotificationHistory callCamel(Notification item, UUID historyId, JsonObject payload, String originalEventId) {
+    private Uni<NotificationHistory> callCamel(Notification item, UUID historyId, JsonObject payload, String originalEventId) {
 
         final long startTime = System.currentTimeMillis();
 
@@ -140,34 +161,40 @@ public class CamelTypeProcessor implements EndpointTypeProcessor {
         String integrationName = endpoint.getName();
 
         if (subType.equals("slack")) { // OpenBridge
-            long endTime;
             NotificationHistory history = getHistoryStub(endpoint, item.getEvent(), 0L, historyId);
+            Uni<Void> call;
             try {
-                callOpenBridge(payload, historyId, accountId, camelProperties, integrationName, originalEventId);
-                history.setInvocationResult(true);
+                call = callOpenBridge(payload, historyId, accountId, camelProperties, integrationName, originalEventId);
             } catch (Exception e) {
-                history.setInvocationResult(false);
-                Map<String, Object> details = new HashMap<>();
-                details.put("failure", e.getMessage());
-                history.setDetails(details);
-                Log.infof("SE: Sending event with historyId=%s and originalId=%s failed: %s ",
-                        historyId, originalEventId, e.getMessage());
-            } finally {
-                endTime = System.currentTimeMillis();
+                call = Uni.createFrom().failure(e);
             }
-            history.setInvocationTime(endTime - startTime);
-            return history;
+            return call.onItemOrFailure().transform((ignored, failure) -> {
+                if (failure == null) {
+                    history.setInvocationResult(true);
+                } else {
+                    history.setInvocationResult(false);
+                    Map<String, Object> details = new HashMap<>();
+                    details.put("failure", failure.getMessage());
+                    history.setDetails(details);
+                    Log.infof("SE: Sending event with historyId=%s and originalId=%s failed: %s ",
+                            historyId, originalEventId, failure.getMessage());
+                }
+                history.setInvocationTime(System.currentTimeMillis() - startTime);
+                circuitBreaker.recordResult(endpoint.getId(), history.isInvocationResult());
+                return history;
+            });
 
         } else {
-            reallyCallCamel(payload, historyId, accountId, subType, integrationName, originalEventId);
-            final long endTime = System.currentTimeMillis();
-            // We only create a basic stub. The FromCamel filler will update it later
-            NotificationHistory history = getHistoryStub(endpoint, item.getEvent(), endTime - startTime, historyId);
-            return history;
+            // We only create a basic stub. The FromCamel filler will update it later, unless Kafka refuses the message.
+            NotificationHistory history = getHistoryStub(endpoint, item.getEvent(), 0L, historyId);
+            Message<String> msg = buildCamelMessage(payload, historyId, accountId, subType, integrationName, originalEventId);
+            camelDispatcher.dispatch(msg, history);
+            history.setInvocationTime(System.currentTimeMillis() - startTime);
+            return Uni.createFrom().item(history);
         }
     }
 
-    public void reallyCallCamel(JsonObject body, UUID historyId, String accountId, String subType, String integrationName, String originalEventId) {
+    private Message<String> buildCamelMessage(JsonObject body, UUID historyId, String accountId, String subType, String integrationName, String originalEventId) {
 
         TracingMetadata tracingMetadata = TracingMetadata.withPrevious(Context.current());
         Message<String> msg = Message.of(body.encode());
@@ -185,15 +212,17 @@ public class CamelTypeProcessor implements EndpointTypeProcessor {
         msg = msg.addMetadata(tracingMetadata);
         Log.infof("CA Sending for account=%s, historyId=%s, integration=%s, origId=%s",
                 accountId, historyId, integrationName, originalEventId);
-        emitter.send(msg);
-
+        return msg;
     }
 
-    private void callOpenBridge(JsonObject body, UUID id, String accountId, CamelProperties camelProperties, String integrationName, String originalEventId) {
+    /*
+     * The bridge and the token are resolved from the current thread, only the call itself is asynchronous.
+     */
+    private Uni<Void> callOpenBridge(JsonObject body, UUID id, String accountId, CamelProperties camelProperties, String integrationName, String originalEventId) {
 
         if (!featureFlipper.isObEnabled()) {
             Log.debug("Ob not enabled, doing nothing");
-            return;
+            return Uni.createFrom().voidItem();
         }
 
         Map<String, String> extras = camelProperties.getExtras();
@@ -215,13 +244,7 @@ public class CamelTypeProcessor implements EndpointTypeProcessor {
         body.remove(NOTIF_METADATA_KEY); // Not needed on OB
         ce.put("data", body);
 
-        BridgeEventService evtSvc = RestClientBuilder.newBuilder()
-                .baseUri(URI.create(bridge.getEndpoint()))
-                .build(BridgeEventService.class);
-
         JsonObject payload = JsonObject.mapFrom(ce);
-        evtSvc.sendEvent(payload, bridgeAuth.getToken());
+        return openBridgeSender.send(bridge.getEndpoint(), payload, bridgeAuth.getToken());
     }
-
-
 }
@@ -0,0 +1,88 @@
+package com.redhat.cloud.notifications.processors.camel;
+
+import com.redhat.cloud.notifications.openbridge.BridgeEventService;
+import com.redhat.cloud.notifications.processors.webhooks.InFlightLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.json.JsonObject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.RestClientBuilder;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.jboss.resteasy.reactive.client.api.QuarkusRestClientProperties.CONNECTION_POOL_SIZE;
+
+/**
+ * Sends the CloudEvents of the Slack integrations to the OpenBridge ingress. A single REST client, with its own
+ * connection pool, is kept for each bridge endpoint. The calls are asynchronous and at most
+ * {@code processor.openbridge.max-in-flight} calls are in flight for the whole pod.
+ */
+@ApplicationScoped
+public class OpenBridgeSender {
+
+    public static final String CALL_TIMER_NAME = "processor.openbridge.call";
+    public static final String IN_FLIGHT_GAUGE_NAME = "processor.openbridge.in-flight";
+
+    @ConfigProperty(name = "processor.openbridge.max-in-flight", defaultValue = "32")
+    int maxInFlight;
+
+    @ConfigProperty(name = "processor.openbridge.connection-pool-size", defaultValue = "32")
+    int connectionPoolSize;
+
+    @ConfigProperty(name = "processor.openbridge.connect-timeout", defaultValue = "3S")
+    Duration connectTimeout;
+
+    @ConfigProperty(name = "processor.openbridge.timeout", defaultValue = "30S")
+    Duration timeout;
+
+    @Inject
+    MeterRegistry registry;
+
+    private final Map<String, BridgeEventService> clients = new ConcurrentHashMap<>();
+    private InFlightLimiter inFlightLimiter;
+    private Timer successTimer;
+    private Timer failureTimer;
+
+    @PostConstruct
+    void init() {
+        inFlightLimiter = new InFlightLimiter(maxInFlight);
+        registry.gauge(IN_FLIGHT_GAUGE_NAME, inFlightLimiter, InFlightLimiter::getInFlight);
+        successTimer = registry.timer(CALL_TIMER_NAME, "outcome", "success");
+        failureTimer = registry.timer(CALL_TIMER_NAME, "outcome", "failure");
+    }
+
+    /**
+     * Sends the given CloudEvent to the given bridge endpoint. The returned {@link Uni} fails if the call fails or
+     * if OpenBridge does not reply within {@code processor.openbridge.timeout}. Only the duration of the call itself is
+     * measured, not the time spent waiting for a permit.
+     */
+    public Uni<Void> send(String bridgeEndpoint, JsonObject cloudEvent, String token) {
+        BridgeEventService client = clients.computeIfAbsent(bridgeEndpoint, this::createClient);
+        return inFlightLimiter.limit(() -> {
+            long startTime = System.nanoTime();
+            return client.sendEventAsync(cloudEvent, token)
+                    .ifNoItem().after(timeout).fail()
+                    .onItemOrFailure().invoke((ignored, failure) -> {
+                        Timer timer = failure == null ? successTimer : failureTimer;
+                        timer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+                    });
+        });
+    }
+
+    private BridgeEventService createClient(String bridgeEndpoint) {
+        return RestClientBuilder.newBuilder()
+                .baseUri(URI.create(bridgeEndpoint))
+                .property(CONNECTION_POOL_SIZE, connectionPoolSize)
+                .connectTimeout(connectTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .readTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .build(BridgeEventService.class);
+    }
+}
@@ -23,9 +23,9 @@ import com.redhat.cloud.notifications.recipients.RecipientSettings;
 import com.redhat.cloud.notifications.recipients.User;
 import com.redhat.cloud.notifications.recipients.request.ActionRecipientSettings;
 import com.redhat.cloud.notifications.recipients.request.EndpointRecipientSettings;
+import com.redhat.cloud.notifications.templates.CompiledTemplateCache;
 import com.redhat.cloud.notifications.templates.EmailTemplate;
 import com.redhat.cloud.notifications.templates.EmailTemplateFactory;
-import com.redhat.cloud.notifications.templates.TemplateService;
 import com.redhat.cloud.notifications.transformers.BaseTransformer;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
@@ -103,7 +103,7 @@ public class EmailSubscriptionTypeProcessor implements EndpointTypeProcessor {
     TemplateRepository templateRepository;
 
     @Inject
-    TemplateService templateService;
+    CompiledTemplateCache compiledTemplateCache;
 
     private Counter processedEmailCount;
     private Counter rejectedAggregationCommandCount;
@@ -166,10 +166,8 @@ public class EmailSubscriptionTypeProcessor implements EndpointTypeProcessor {
             if (instantEmailTemplate.isEmpty()) {
                 return Collections.emptyList();
             } else {
-                String subjectData = instantEmailTemplate.get().getSubjectTemplate().getData();
-                subject = templateService.compileTemplate(subjectData, "subject");
-                String bodyData = instantEmailTemplate.get().getBodyTemplate().getData();
-                body = templateService.compileTemplate(bodyData, "body");
+                subject = compiledTemplateCache.getTemplateInstance(instantEmailTemplate.get().getSubjectTemplate(), "subject");
+                body = compiledTemplateCache.getTemplateInstance(instantEmailTemplate.get().getBodyTemplate(), "body");
             }
         } else {
             if (!emailTemplate.isSupported(action.getEventType(), emailSubscriptionType)) {
@@ -247,10 +245,8 @@ public class EmailSubscriptionTypeProcessor implements EndpointTypeProcessor {
                 }
                 return;
             } else {
-                String subjectData = aggregationEmailTemplate.get().getSubjectTemplate().getData();
-                subject = templateService.compileTemplate(subjectData, "subject");
-                String bodyData = aggregationEmailTemplate.get().getBodyTemplate().getData();
-                body = templateService.compileTemplate(bodyData, "body");
+                subject = compiledTemplateCache.getTemplateInstance(aggregationEmailTemplate.get().getSubjectTemplate(), "subject");
+                body = compiledTemplateCache.getTemplateInstance(aggregationEmailTemplate.get().getBodyTemplate(), "body");
             }
         } else {
             if (!emailTemplate.isEmailSubscriptionSupported(emailSubscriptionType)) {
@@ -0,0 +1,152 @@
+package com.redhat.cloud.notifications.processors.webclient;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpConnection;
+import io.vertx.ext.web.client.impl.HttpContext;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * WebClient interceptor which publishes the state of the connection pools per destination host. Vert.x keeps one
+ * connection pool per host, these gauges show which destinations hold the connections of the pod:
+ * <ul>
+ *     <li>{@code active}: requests which hold a connection</li>
+ *     <li>{@code idle}: open connections which do not carry any request</li>
+ *     <li>{@code pending}: requests waiting for a connection from the pool</li>
+ *     <li>{@code wait}: time spent by the requests waiting for a connection</li>
+ * </ul>
+ * The number of tagged hosts is bounded, the requests to the other hosts are aggregated in a single bucket.
+ */
+class HostPoolMetrics implements Handler<HttpContext<?>> {
+
+    static final String ACTIVE_GAUGE_NAME = "webclient.pool.active";
+    static final String IDLE_GAUGE_NAME = "webclient.pool.idle";
+    static final String PENDING_GAUGE_NAME = "webclient.pool.pending";
+    static final String WAIT_TIMER_NAME = "webclient.pool.wait";
+
+    static final String OTHER_HOSTS = "other";
+
+    private static final String STATE_KEY = HostPoolMetrics.class.getName();
+
+    private final MeterRegistry registry;
+    private final String client;
+    private final int maxHosts;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    HostPoolMetrics(MeterRegistry registry, String client, int maxHosts) {
+        this.registry = registry;
+        this.client = client;
+        this.maxHosts = maxHosts;
+    }
+
+    @Override
+    public void handle(HttpContext<?> context) {
+        switch (context.phase()) {
+            case CREATE_REQUEST:
+                onCreateRequest(context);
+                break;
+            case SEND_REQUEST:
+                onSendRequest(context);
+                break;
+            case DISPATCH_RESPONSE:
+            case FAILURE:
+                onEnd(context);
+                break;
+            default:
+                break;
+        }
+        context.next();
+    }
+
+    private void onCreateRequest(HttpContext<?> context) {
+        // A redirected request goes through this phase again, possibly to another host.
+        onEnd(context);
+        RequestState state = new RequestState(getBucket(context.requestOptions().getHost()));
+        state.bucket.pending.incrementAndGet();
+        context.set(STATE_KEY, state);
+    }
+
+    private void onSendRequest(HttpContext<?> context) {
+        RequestState state = context.get(STATE_KEY);
+        if (state != null && state.pending) {
+            // The connection was acquired from the pool.
+            state.pending = false;
+            state.active = true;
+            state.bucket.pending.decrementAndGet();
+            state.bucket.active.incrementAndGet();
+            state.bucket.waitTimer.record(System.nanoTime() - state.createdAt, TimeUnit.NANOSECONDS);
+            HttpConnection connection = context.clientRequest().connection();
+            if (connection != null && state.bucket.connections.add(connection)) {
+                connection.closeHandler(ignored -> state.bucket.connections.remove(connection));
+            }
+        }
+    }
+
+    private void onEnd(HttpContext<?> context) {
+        RequestState state = context.get(STATE_KEY);
+        if (state != null) {
+            if (state.pending) {
+                state.bucket.pending.decrementAndGet();
+            } else if (state.active) {
+                state.bucket.active.decrementAndGet();
+            }
+            state.pending = false;
+            state.active = false;
+            context.set(STATE_KEY, null);
+        }
+    }
+
+    private Bucket getBucket(String host) {
+        Bucket bucket = buckets.get(host);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxHosts) {
+            host = OTHER_HOSTS;
+        }
+        return buckets.computeIfAbsent(host, this::createBucket);
+    }
+
+    private Bucket createBucket(String host) {
+        Bucket bucket = new Bucket();
+        Tags tags = Tags.of("client", client, "host", host);
+        Gauge.builder(ACTIVE_GAUGE_NAME, bucket.active, AtomicInteger::get).tags(tags).register(registry);
+        Gauge.builder(PENDING_GAUGE_NAME, bucket.pending, AtomicInteger::get).tags(tags).register(registry);
+        Gauge.builder(IDLE_GAUGE_NAME, bucket, Bucket::getIdle).tags(tags).register(registry);
+        bucket.waitTimer = Timer.builder(WAIT_TIMER_NAME).tags(tags).register(registry);
+        return bucket;
+    }
+
+    private static class Bucket {
+
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final Set<HttpConnection> connections = ConcurrentHashMap.newKeySet();
+        private Timer waitTimer;
+
+        double getIdle() {
+            // With HTTP/2, several requests can share a connection.
+            return Math.max(0, connections.size() - active.get());
+        }
+    }
+
+    private static class RequestState {
+
+        private final Bucket bucket;
+        private final long createdAt = System.nanoTime();
+        private boolean pending = true;
+        private boolean active;
+
+        RequestState(Bucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+}
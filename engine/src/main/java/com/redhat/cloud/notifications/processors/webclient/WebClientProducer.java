@@ -1,7 +1,10 @@
 package com.redhat.cloud.notifications.processors.webclient;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import io.quarkus.logging.Log;
+import io.vertx.core.http.HttpVersion;
 import io.vertx.ext.web.client.WebClientOptions;
+import io.vertx.ext.web.client.impl.WebClientInternal;
 import io.vertx.mutiny.core.Vertx;
 import io.vertx.mutiny.ext.web.client.WebClient;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
@@ -10,46 +13,104 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Produces;
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.time.Duration;
 import java.util.Optional;
 
+/**
+ * Vert.x keeps one connection pool per destination host and port in each {@link WebClient}, so the pool settings below
+ * apply to each host separately: a slow host can only exhaust its own connections and its own wait queue.
+ */
 @ApplicationScoped
 public class WebClientProducer {
 
     @Inject
     Vertx vertx;
 
+    @Inject
+    MeterRegistry registry;
+
     @ConfigProperty(name = "webclient.max_pool_size")
     Optional<Integer> maxPoolSize;
 
+    // When the wait queue of a host is full, the new requests to that host fail immediately.
+    @ConfigProperty(name = "webclient.max-wait-queue-size")
+    Optional<Integer> maxWaitQueueSize;
+
+    // The request timeouts are set on each request, see AdaptiveTimeouts.
+    @ConfigProperty(name = "webclient.connect-timeout", defaultValue = "3S")
+    Duration connectTimeout;
+
+    @ConfigProperty(name = "webclient.keep-alive-timeout", defaultValue = "60S")
+    Duration keepAliveTimeout;
+
+    @ConfigProperty(name = "webclient.pool-cleaner-period", defaultValue = "1S")
+    Duration poolCleanerPeriod;
+
+    @ConfigProperty(name = "webclient.http2.enabled", defaultValue = "false")
+    boolean http2Enabled;
+
+    @ConfigProperty(name = "webclient.http2.max-pool-size", defaultValue = "1")
+    int http2MaxPoolSize;
+
+    @ConfigProperty(name = "webclient.http2.multiplexing-limit", defaultValue = "-1")
+    int http2MultiplexingLimit;
+
+    @ConfigProperty(name = "webclient.metrics.max-hosts", defaultValue = "100")
+    int metricsMaxHosts;
+
     @Produces
     @Singleton
     @SslVerificationEnabled
     public WebClient securedWebClient() {
-        return WebClient.create(vertx, buildOptions(false));
+        return create("secured", buildOptions(false, http2Enabled));
     }
 
     @Produces
     @Singleton
     @SslVerificationDisabled
     public WebClient unsecuredWebClient() {
-        return WebClient.create(vertx, buildOptions(true));
+        return create("unsecured", buildOptions(true, false));
     }
 
     @Produces
     @Singleton
     @BopWebClient
     public WebClient bopWebClient() {
-        return WebClient.create(vertx, buildOptions(true));
+        return create("bop", buildOptions(true, http2Enabled));
     }
 
-    private WebClientOptions buildOptions(boolean trustAll) {
+    private WebClient create(String name, WebClientOptions options) {
+        WebClient webClient = WebClient.create(vertx, options);
+        ((WebClientInternal) webClient.getDelegate()).addInterceptor(new HostPoolMetrics(registry, name, metricsMaxHosts));
+        return webClient;
+    }
+
+    private WebClientOptions buildOptions(boolean trustAll, boolean http2) {
         WebClientOptions options = new WebClientOptions()
                 .setTrustAll(trustAll)
-                .setConnectTimeout(3000); // TODO Should this be configurable by the system? We need a maximum in any case
+                .setConnectTimeout((int) connectTimeout.toMillis())
+                .setKeepAlive(true)
+                .setKeepAliveTimeout((int) keepAliveTimeout.toSeconds())
+                .setPoolCleanerPeriod((int) poolCleanerPeriod.toMillis());
         if (maxPoolSize.isPresent()) {
             Log.debugf("Producing a WebClient with a configured max pool size: %d", maxPoolSize.get());
             options = options.setMaxPoolSize(maxPoolSize.get());
         }
+        if (maxWaitQueueSize.isPresent()) {
+            options = options.setMaxWaitQueueSize(maxWaitQueueSize.get());
+        }
+        if (http2) {
+            /*
+             * The protocol is negotiated with ALPN on TLS connections and with an h2c upgrade on plain connections, the
+             * hosts which do not support HTTP/2 are still called with HTTP/1.1. Several requests to the same host are
+             * multiplexed on each HTTP/2 connection.
+             */
+            options = options.setProtocolVersion(HttpVersion.HTTP_2)
+                    .setUseAlpn(true)
+                    .setHttp2MaxPoolSize(http2MaxPoolSize)
+                    .setHttp2MultiplexingLimit(http2MultiplexingLimit)
+                    .setHttp2KeepAliveTimeout((int) keepAliveTimeout.toSeconds());
+        }
         return options;
     }
 }
@@ -0,0 +1,171 @@
+package com.redhat.cloud.notifications.processors.webhooks;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.models.Endpoint;
+import com.redhat.cloud.notifications.models.EndpointType;
+import com.redhat.cloud.notifications.models.WebhookProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Derives the timeout of the webhook calls of each endpoint from the latency of its recent calls: the timeout is the
+ * {@code processor.webhook.adaptive-timeout.percentile} of the last calls latencies multiplied by
+ * {@code processor.webhook.adaptive-timeout.multiplier}, clamped between {@code processor.webhook.adaptive-timeout.floor}
+ * and {@code processor.webhook.await-timeout}. A fast endpoint which hangs fails fast instead of holding a connection
+ * for the whole global timeout. The timeout of an endpoint can be overridden with {@link WebhookProperties#getTimeoutMs()},
+ * up to the global timeout.
+ * <p>
+ * The latencies are tracked in memory by each engine pod. Until an endpoint has enough samples, the global timeout is
+ * used. A call which times out is recorded with the timeout as its latency, so the timeout of an endpoint which became
+ * slower grows back over the next calls.
+ */
+@ApplicationScoped
+public class AdaptiveTimeouts {
+
+    public static final String EFFECTIVE_TIMEOUT_SUMMARY_NAME = "processor.webhook.timeout.effective";
+    public static final String EXPIRED_COUNTER_NAME = "processor.webhook.timeout.expired";
+
+    @ConfigProperty(name = "processor.webhook.await-timeout", defaultValue = "60S")
+    Duration ceiling;
+
+    @ConfigProperty(name = "processor.webhook.adaptive-timeout.floor", defaultValue = "2S")
+    Duration floor;
+
+    @ConfigProperty(name = "processor.webhook.adaptive-timeout.percentile", defaultValue = "0.99")
+    double percentile;
+
+    @ConfigProperty(name = "processor.webhook.adaptive-timeout.multiplier", defaultValue = "3")
+    double multiplier;
+
+    @ConfigProperty(name = "processor.webhook.adaptive-timeout.window-size", defaultValue = "100")
+    int windowSize;
+
+    @ConfigProperty(name = "processor.webhook.adaptive-timeout.min-samples", defaultValue = "20")
+    int minSamples;
+
+    @ConfigProperty(name = "processor.webhook.adaptive-timeout.max-entries", defaultValue = "10000")
+    long maxEntries;
+
+    @Inject
+    FeatureFlipper featureFlipper;
+
+    @Inject
+    MeterRegistry registry;
+
+    private Cache<UUID, LatencyWindow> windows;
+    private DistributionSummary effectiveTimeoutSummary;
+    private Counter expiredCounter;
+
+    @PostConstruct
+    void init() {
+        windows = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .build();
+        // The timeouts are not tagged with the endpoint ID, that would create a time series per endpoint.
+        effectiveTimeoutSummary = DistributionSummary.builder(EFFECTIVE_TIMEOUT_SUMMARY_NAME)
+                .baseUnit("milliseconds")
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .register(registry);
+        expiredCounter = registry.counter(EXPIRED_COUNTER_NAME);
+    }
+
+    /**
+     * Returns the timeout of the next call to the given endpoint.
+     */
+    public Duration getTimeout(Endpoint endpoint) {
+        Duration timeout = computeTimeout(endpoint);
+        effectiveTimeoutSummary.record(timeout.toMillis());
+        return timeout;
+    }
+
+    /**
+     * Records the latency of a call to the given endpoint. This has to be called for the calls which timed out too,
+     * with {@code timedOut} set to {@code true}.
+     */
+    public void record(Endpoint endpoint, long latencyMillis, boolean timedOut) {
+        if (timedOut) {
+            expiredCounter.increment();
+        }
+        if (!isAdaptive(endpoint)) {
+            return;
+        }
+        windows.get(endpoint.getId(), id -> new LatencyWindow(windowSize)).record(latencyMillis);
+    }
+
+    private Duration computeTimeout(Endpoint endpoint) {
+        if (endpoint.getType() != EndpointType.WEBHOOK) {
+            return ceiling;
+        }
+        Integer override = endpoint.getProperties(WebhookProperties.class).getTimeoutMs();
+        if (override != null) {
+            // The override may be lower than the floor, but the calls never wait longer than the global timeout.
+            return Duration.ofMillis(Math.min(ceiling.toMillis(), override));
+        }
+        if (!isAdaptive(endpoint)) {
+            return ceiling;
+        }
+        LatencyWindow window = windows.getIfPresent(endpoint.getId());
+        if (window == null) {
+            return ceiling;
+        }
+        long latency = window.getPercentile(percentile, minSamples);
+        if (latency < 0) {
+            return ceiling;
+        }
+        long timeout = (long) Math.ceil(latency * multiplier);
+        return Duration.ofMillis(Math.max(floor.toMillis(), Math.min(ceiling.toMillis(), timeout)));
+    }
+
+    private boolean isAdaptive(Endpoint endpoint) {
+        return featureFlipper.isWebhookAdaptiveTimeoutEnabled() && endpoint.getId() != null && endpoint.getType() == EndpointType.WEBHOOK;
+    }
+
+    private static class LatencyWindow {
+
+        private final long[] latencies;
+        private int position;
+        private int count;
+        // The percentile is computed again only when new latencies were recorded.
+        private long cachedPercentile = -1L;
+        private boolean dirty;
+
+        LatencyWindow(int size) {
+            latencies = new long[size];
+        }
+
+        synchronized void record(long latency) {
+            latencies[position] = latency;
+            position = (position + 1) % latencies.length;
+            count = Math.min(count + 1, latencies.length);
+            dirty = true;
+        }
+
+        /**
+         * Returns the given percentile of the recorded latencies or -1 if there are less than {@code minSamples}.
+         */
+        synchronized long getPercentile(double percentile, int minSamples) {
+            if (count < minSamples || count == 0) {
+                return -1L;
+            }
+            if (dirty) {
+                long[] sorted = Arrays.copyOf(latencies, count);
+                Arrays.sort(sorted);
+                int index = (int) Math.ceil(percentile * count) - 1;
+                cachedPercentile = sorted[Math.max(0, Math.min(count - 1, index))];
+                dirty = false;
+            }
+            return cachedPercentile;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.redhat.cloud.notifications.processors.webhooks;
+
+import com.redhat.cloud.notifications.processors.ResponseBodyLimiter;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+import io.vertx.ext.web.codec.BodyCodec;
+import io.vertx.ext.web.codec.spi.BodyStream;
+
+/**
+ * Response body codec which keeps the first {@code maxBytes} bytes of the body and only counts the other ones. The
+ * chunks received after the limit are dropped as soon as they arrive, the body is never fully buffered. One extra byte
+ * is kept to tell whether the last kept char was cut in the middle of its UTF-8 encoding.
+ */
+class BoundedBodyCodec implements BodyCodec<BoundedBodyCodec.BoundedBody> {
+
+    private final int maxBytes;
+
+    BoundedBodyCodec(int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public void create(Handler<AsyncResult<BodyStream<BoundedBody>>> handler) {
+        handler.handle(Future.succeededFuture(new BoundedBodyStream(maxBytes)));
+    }
+
+    static class BoundedBody {
+
+        private final Buffer head;
+        private final int maxBytes;
+        private final long length;
+
+        BoundedBody(Buffer head, int maxBytes, long length) {
+            this.head = head;
+            this.maxBytes = maxBytes;
+            this.length = length;
+        }
+
+        /**
+         * Returns the kept part of the body, without the last char if it was cut by the limit.
+         */
+        String asString() {
+            return ResponseBodyLimiter.decode(head.getBytes(), Math.min(maxBytes, head.length()));
+        }
+
+        /**
+         * Returns the length of the whole body in bytes.
+         */
+        long getLength() {
+            return length;
+        }
+
+        boolean isTruncated() {
+            return length > maxBytes;
+        }
+    }
+
+    private static class BoundedBodyStream implements BodyStream<BoundedBody> {
+
+        private final int maxBytes;
+        private final Buffer head = Buffer.buffer();
+        private final Promise<BoundedBody> promise = Promise.promise();
+        private long length;
+
+        BoundedBodyStream(int maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public Future<BoundedBody> result() {
+            return promise.future();
+        }
+
+        @Override
+        public void handle(Throwable failure) {
+            promise.tryFail(failure);
+        }
+
+        @Override
+        public Future<Void> write(Buffer data) {
+            length += data.length();
+            int remaining = maxBytes + 1 - head.length();
+            if (remaining > 0) {
+                head.appendBuffer(data, 0, Math.min(remaining, data.length()));
+            }
+            return Future.succeededFuture();
+        }
+
+        @Override
+        public void write(Buffer data, Handler<AsyncResult<Void>> handler) {
+            handler.handle(write(data));
+        }
+
+        @Override
+        public void end(Handler<AsyncResult<Void>> handler) {
+            promise.tryComplete(new BoundedBody(head, maxBytes, length));
+            if (handler != null) {
+                handler.handle(Future.succeededFuture());
+            }
+        }
+
+        @Override
+        public WriteStream<Buffer> exceptionHandler(Handler<Throwable> handler) {
+            return this;
+        }
+
+        @Override
+        public WriteStream<Buffer> setWriteQueueMaxSize(int maxSize) {
+            return this;
+        }
+
+        @Override
+        public boolean writeQueueFull() {
+            return false;
+        }
+
+        @Override
+        public WriteStream<Buffer> drainHandler(Handler<Void> handler) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.redhat.cloud.notifications.processors.webhooks;
+
+import io.smallrye.mutiny.Uni;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking counterpart of a semaphore: a call submitted with {@link #limit(Supplier)} is only subscribed to when
+ * a permit is available. The waiting calls do not hold any thread, they are started from the thread which releases
+ * the permit they were waiting for.
+ */
+public class InFlightLimiter {
+
+    private static final int WAITING = 0;
+    private static final int ACQUIRED = 1;
+    private static final int DONE = 2;
+
+    private final int maxInFlight;
+    private final Queue<Runnable> waiters = new ArrayDeque<>();
+    private int inFlight;
+
+    public InFlightLimiter(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public <T> Uni<T> limit(Supplier<Uni<T>> call) {
+        return Uni.createFrom().deferred(() -> {
+            AtomicInteger state = new AtomicInteger(WAITING);
+            return Uni.createFrom().<Void>emitter(emitter -> acquire(() -> {
+                if (state.compareAndSet(WAITING, ACQUIRED)) {
+                    emitter.complete(null);
+                } else {
+                    // The call was cancelled while it was waiting, the permit is handed over to the next call.
+                    release();
+                }
+            }))
+                    .onItem().transformToUni(ignored -> call.get())
+                    .onTermination().invoke(() -> {
+                        if (state.getAndSet(DONE) == ACQUIRED) {
+                            release();
+                        }
+                    });
+        });
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    private void acquire(Runnable onPermit) {
+        synchronized (this) {
+            if (inFlight >= maxInFlight) {
+                waiters.add(onPermit);
+                return;
+            }
+            inFlight++;
+        }
+        onPermit.run();
+    }
+
+    private void release() {
+        Runnable next;
+        synchronized (this) {
+            next = waiters.poll();
+            if (next == null) {
+                inFlight--;
+                return;
+            }
+        }
+        // The permit is not released, it is transferred to the next waiting call.
+        next.run();
+    }
+}
@@ -0,0 +1,28 @@
+package com.redhat.cloud.notifications.processors.webhooks;
+
+import com.redhat.cloud.notifications.models.NotificationHistory;
+
+/**
+ * Outcome of a single webhook call.
+ */
+class WebhookAttempt {
+
+    private final NotificationHistory history;
+    private final boolean retryable;
+
+    WebhookAttempt(NotificationHistory history, boolean retryable) {
+        this.history = history;
+        this.retryable = retryable;
+    }
+
+    NotificationHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Returns {@code true} if the call failed with an error which may be temporary.
+     */
+    boolean isRetryable() {
+        return retryable;
+    }
+}
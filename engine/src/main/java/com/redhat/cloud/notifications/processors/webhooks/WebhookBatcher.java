@@ -0,0 +1,268 @@
+package com.redhat.cloud.notifications.processors.webhooks;
+
+import com.redhat.cloud.notifications.db.StatelessSessionFactory;
+import com.redhat.cloud.notifications.db.repositories.NotificationHistoryRepository;
+import com.redhat.cloud.notifications.models.Endpoint;
+import com.redhat.cloud.notifications.models.Event;
+import com.redhat.cloud.notifications.models.NotificationHistory;
+import com.redhat.cloud.notifications.models.WebhookProperties;
+import com.redhat.cloud.notifications.processors.EndpointCircuitBreaker;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.logging.Log;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.core.buffer.Buffer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.redhat.cloud.notifications.models.NotificationHistory.getHistoryStub;
+
+/**
+ * Coalesces the events sent to the webhooks which enabled batching in their {@link WebhookProperties} into a single
+ * request containing a JSON array of the events payloads. A batch is sent when it contains
+ * {@link WebhookProperties#getBatchMaxSize()} events or {@link WebhookProperties#getBatchMaxLingerMs()} after its
+ * first event. A history entry is written for each event of the batch from the outcome of the single request. If the
+ * request fails, a failed history entry is written for each event and, when the retry topic is enabled, each event is
+ * retried individually by the {@link WebhookRetryScheduler}, within a single-element JSON array.
+ * <p>
+ * The delivery of the batched events is at-most-once: an event is considered processed, and the offset of its ingress
+ * record can be committed, as soon as it is added to a batch. The open batches only live in memory, so the events which
+ * are lingering when the pod is killed are lost without any history entry. The pending batches are sent when the
+ * application is stopped gracefully.
+ */
+@ApplicationScoped
+public class WebhookBatcher {
+
+    public static final String BATCH_SIZE_SUMMARY_NAME = "processor.webhook.batch.size";
+
+    private static final int DEFAULT_LINGER_MS = 1000;
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10L);
+
+    @Inject
+    WebhookTypeProcessor webhookTypeProcessor;
+
+    @Inject
+    EndpointCircuitBreaker circuitBreaker;
+
+    @Inject
+    NotificationHistoryRepository notificationHistoryRepository;
+
+    @Inject
+    StatelessSessionFactory statelessSessionFactory;
+
+    @Inject
+    MeterRegistry registry;
+
+    private final Map<UUID, Batch> batches = new ConcurrentHashMap<>();
+    private DistributionSummary batchSizeSummary;
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    void init() {
+        batchSizeSummary = registry.summary(BATCH_SIZE_SUMMARY_NAME);
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "webhook-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+        for (UUID endpointId : batches.keySet()) {
+            Batch batch = batches.remove(endpointId);
+            if (batch != null) {
+                synchronized (batch) {
+                    batch.closed = true;
+                }
+                List<WebhookAttempt> attempts;
+                try {
+                    attempts = send(batch).await().atMost(SHUTDOWN_TIMEOUT);
+                } catch (Exception e) {
+                    attempts = buildFailedAttempts(batch, e);
+                }
+                persistAndRetry(attempts);
+            }
+        }
+    }
+
+    /**
+     * Returns {@code true} if the events sent to the given endpoint have to be batched.
+     */
+    public static boolean isBatched(Endpoint endpoint) {
+        Integer batchMaxSize = endpoint.getProperties(WebhookProperties.class).getBatchMaxSize();
+        return batchMaxSize != null && batchMaxSize > 1;
+    }
+
+    /**
+     * Adds an event to the current batch of the given endpoint. The payload has to be the encoded transformed action of
+     * the event. The history entry of the event will be written once the batch is sent.
+     */
+    public void add(Endpoint endpoint, Event event, Buffer payload) {
+        WebhookProperties properties = endpoint.getProperties(WebhookProperties.class);
+        int maxSize = properties.getBatchMaxSize();
+        int lingerMs = properties.getBatchMaxLingerMs() == null ? DEFAULT_LINGER_MS : properties.getBatchMaxLingerMs();
+
+        Batch full = null;
+        while (true) {
+            Batch batch = batches.computeIfAbsent(endpoint.getId(), id -> new Batch(endpoint));
+            synchronized (batch) {
+                if (batch.closed) {
+                    // The batch was sent in the meantime, a new one is created.
+                    continue;
+                }
+                batch.events.add(event);
+                batch.payloads.add(payload);
+                if (batch.events.size() >= maxSize) {
+                    batch.closed = true;
+                    batches.remove(endpoint.getId(), batch);
+                    full = batch;
+                } else if (batch.events.size() == 1) {
+                    executor.schedule(() -> sendIfLingering(batch), lingerMs, TimeUnit.MILLISECONDS);
+                }
+            }
+            break;
+        }
+        if (full != null) {
+            // The caller may hold a stateless session, the history entries are written from the executor.
+            Batch batch = full;
+            executor.execute(() -> sendAndPersist(batch));
+        }
+    }
+
+    private void sendIfLingering(Batch batch) {
+        synchronized (batch) {
+            if (batch.closed) {
+                return;
+            }
+            batch.closed = true;
+            batches.remove(batch.endpoint.getId(), batch);
+        }
+        sendAndPersist(batch);
+    }
+
+    private void sendAndPersist(Batch batch) {
+        send(batch)
+            .onFailure().recoverWithItem(failure -> buildFailedAttempts(batch, failure))
+            .subscribe().with(attempts -> {
+                try {
+                    executor.execute(() -> persistAndRetry(attempts));
+                } catch (RejectedExecutionException e) {
+                    // The application is stopping.
+                    persistAndRetry(attempts);
+                }
+            });
+    }
+
+    private Uni<List<WebhookAttempt>> send(Batch batch) {
+        batchSizeSummary.record(batch.events.size());
+        if (!circuitBreaker.allowRequest(batch.endpoint)) {
+            List<WebhookAttempt> attempts = new ArrayList<>();
+            for (Event event : batch.events) {
+                attempts.add(new WebhookAttempt(circuitBreaker.buildShortCircuitHistory(batch.endpoint, event), false));
+            }
+            return Uni.createFrom().item(attempts);
+        }
+        return Uni.createFrom().deferred(() -> webhookTypeProcessor.sendBatch(batch.endpoint, batch.events.get(0), encode(batch.payloads)))
+                .map(attempt -> buildAttempts(batch, attempt));
+    }
+
+    /*
+     * The payloads are already encoded JSON objects, the request body is their concatenation into a JSON array.
+     */
+    static Buffer encode(List<Buffer> payloads) {
+        int length = payloads.size() + 1;
+        for (Buffer payload : payloads) {
+            length += payload.length();
+        }
+        Buffer body = Buffer.buffer(length).appendString("[");
+        for (int i = 0; i < payloads.size(); i++) {
+            if (i > 0) {
+                body.appendString(",");
+            }
+            body.appendBuffer(payloads.get(i));
+        }
+        return body.appendString("]");
+    }
+
+    private static List<WebhookAttempt> buildAttempts(Batch batch, WebhookAttempt result) {
+        List<WebhookAttempt> attempts = new ArrayList<>();
+        for (Event event : batch.events) {
+            NotificationHistory history = getHistoryStub(batch.endpoint, event, result.getHistory().getInvocationTime(), UUID.randomUUID());
+            history.setInvocationResult(result.getHistory().isInvocationResult());
+            if (result.getHistory().getDetails() != null) {
+                Map<String, Object> details = new HashMap<>(result.getHistory().getDetails());
+                details.put("batch_size", batch.events.size());
+                history.setDetails(details);
+            }
+            attempts.add(new WebhookAttempt(history, result.isRetryable()));
+        }
+        return attempts;
+    }
+
+    /*
+     * The batch could not be sent at all. Each event gets a failed history entry and can be retried.
+     */
+    private static List<WebhookAttempt> buildFailedAttempts(Batch batch, Throwable failure) {
+        Log.errorf(failure, "Batch of %d events failed for endpoint %s", batch.events.size(), batch.endpoint.getId());
+        List<WebhookAttempt> attempts = new ArrayList<>();
+        for (Event event : batch.events) {
+            NotificationHistory history = getHistoryStub(batch.endpoint, event, 0L, UUID.randomUUID());
+            history.setInvocationResult(false);
+            Map<String, Object> details = new HashMap<>();
+            details.put("error_message", failure.getMessage());
+            details.put("batch_size", batch.events.size());
+            history.setDetails(details);
+            attempts.add(new WebhookAttempt(history, true));
+        }
+        return attempts;
+    }
+
+    private void persistAndRetry(List<WebhookAttempt> attempts) {
+        List<NotificationHistory> histories = new ArrayList<>();
+        for (WebhookAttempt attempt : attempts) {
+            histories.add(attempt.getHistory());
+        }
+        try {
+            statelessSessionFactory.withSession(statelessSession -> {
+                notificationHistoryRepository.createAll(histories);
+            });
+        } catch (Exception e) {
+            Log.errorf(e, "Notification history creation failed for a batch of %d events", histories.size());
+            return;
+        }
+        // The retries need the persisted history entries, they send the events one by one.
+        for (WebhookAttempt attempt : attempts) {
+            if (attempt.isRetryable()) {
+                webhookTypeProcessor.scheduleRetry(attempt.getHistory());
+            }
+        }
+    }
+
+    private static class Batch {
+
+        private final Endpoint endpoint;
+        private final List<Event> events = new ArrayList<>();
+        private final List<Buffer> payloads = new ArrayList<>();
+        private boolean closed;
+
+        Batch(Endpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+    }
+}
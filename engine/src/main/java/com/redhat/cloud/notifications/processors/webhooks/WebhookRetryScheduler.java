@@ -0,0 +1,249 @@
+package com.redhat.cloud.notifications.processors.webhooks;
+
+import com.redhat.cloud.notifications.db.StatelessSessionFactory;
+import com.redhat.cloud.notifications.db.repositories.EndpointRepository;
+import com.redhat.cloud.notifications.db.repositories.EventRepository;
+import com.redhat.cloud.notifications.db.repositories.NotificationHistoryRepository;
+import com.redhat.cloud.notifications.models.Endpoint;
+import com.redhat.cloud.notifications.models.Event;
+import com.redhat.cloud.notifications.models.Notification;
+import com.redhat.cloud.notifications.models.NotificationHistory;
+import com.redhat.cloud.notifications.utils.ActionParser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.logging.Log;
+import io.smallrye.reactive.messaging.annotations.Blocking;
+import io.vertx.core.json.JsonObject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.reactive.messaging.Acknowledgment;
+import org.eclipse.microprofile.reactive.messaging.Channel;
+import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.eclipse.microprofile.reactive.messaging.Incoming;
+import org.eclipse.microprofile.reactive.messaging.Message;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.eclipse.microprofile.reactive.messaging.Acknowledgment.Strategy.MANUAL;
+
+/**
+ * Retries the failed webhook calls without blocking the ingress consumer. A retry is sent to the retry topic with the
+ * time when it is due, then replayed by {@link #replay(String)} which updates the history entry of the initial call
+ * with the outcome of the retry. The back-off between two retries is the same as the one used by the in-thread retries
+ * of {@link WebhookTypeProcessor}.
+ * <p>
+ * The retry consumer never waits for a retry to be due: each retry is handed over to a timer and the consumer moves on to
+ * the next record. Once due, the retry is replayed by a pool of {@code processor.webhook.retry.replay-threads} threads,
+ * so that a slow endpoint doesn't delay the retries of the other endpoints. At most
+ * {@code processor.webhook.retry.max-pending-replays} retries are pending at the same time, the consumer waits for a
+ * pending retry to complete beyond that. A retry record is only acknowledged once it was replayed, so the retries which
+ * are pending when the pod is stopped are consumed again after a restart. The {@code fromWebhookRetry} channel is only
+ * enabled with the {@code notifications.webhook-retry-topic.enabled} flag.
+ * </p>
+ */
+@ApplicationScoped
+public class WebhookRetryScheduler {
+
+    public static final String RETRY_CHANNEL = "toWebhookRetry";
+    public static final String RETRIED_CHANNEL = "fromWebhookRetry";
+    public static final String RETRY_SCHEDULED_COUNTER_NAME = "processor.webhook.retry.scheduled";
+    public static final String RETRY_EXHAUSTED_COUNTER_NAME = "processor.webhook.retry.exhausted";
+
+    private static final String HISTORY_ID_KEY = "historyId";
+    private static final String ENDPOINT_ID_KEY = "endpointId";
+    private static final String EVENT_ID_KEY = "eventId";
+    private static final String ATTEMPT_KEY = "attempt";
+    private static final String DUE_TIME_KEY = "dueTime";
+    private static final String HISTORY_LOOKUPS_KEY = "historyLookups";
+    // The history entry of the initial call may not be persisted yet when the first retry is due.
+    private static final int MAX_HISTORY_LOOKUPS = 10;
+
+    @ConfigProperty(name = "processor.webhook.retry.max-attempts", defaultValue = "3")
+    int maxRetryAttempts;
+
+    @ConfigProperty(name = "processor.webhook.retry.back-off.initial-value", defaultValue = "1S")
+    Duration initialRetryBackOff;
+
+    @ConfigProperty(name = "processor.webhook.retry.back-off.max-value", defaultValue = "30S")
+    Duration maxRetryBackOff;
+
+    @ConfigProperty(name = "processor.webhook.retry.replay-threads", defaultValue = "16")
+    int replayThreads;
+
+    @ConfigProperty(name = "processor.webhook.retry.max-pending-replays", defaultValue = "64")
+    int maxPendingReplays;
+
+    @Inject
+    WebhookTypeProcessor webhookTypeProcessor;
+
+    @Inject
+    EndpointRepository endpointRepository;
+
+    @Inject
+    EventRepository eventRepository;
+
+    @Inject
+    NotificationHistoryRepository notificationHistoryRepository;
+
+    @Inject
+    ActionParser actionParser;
+
+    @Inject
+    StatelessSessionFactory statelessSessionFactory;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    @Channel(RETRY_CHANNEL)
+    Emitter<String> retryEmitter;
+
+    private Counter scheduledCounter;
+    private Counter exhaustedCounter;
+    // Waits for the retries to be due, the replays are made by the executor.
+    private ScheduledExecutorService timer;
+    private ExecutorService executor;
+    // Retries received and not replayed yet, either waiting to be due or replayed.
+    private Semaphore pendingReplays;
+
+    @PostConstruct
+    void init() {
+        scheduledCounter = registry.counter(RETRY_SCHEDULED_COUNTER_NAME);
+        exhaustedCounter = registry.counter(RETRY_EXHAUSTED_COUNTER_NAME);
+        pendingReplays = new Semaphore(maxPendingReplays);
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "webhook-retry-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "webhook-retry-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        // The queue can't be full because the number of pending replays is capped.
+        executor = new ThreadPoolExecutor(replayThreads, replayThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxPendingReplays), threadFactory);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // The pending retries are not acknowledged, they will be consumed again.
+        timer.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Schedules a retry of the webhook call which produced the given history entry.
+     *
+     * @param attempt the retry number, starting at 1
+     */
+    public void schedule(NotificationHistory history, int attempt) {
+        JsonObject retry = new JsonObject()
+                .put(HISTORY_ID_KEY, history.getId().toString())
+                .put(ENDPOINT_ID_KEY, history.getEndpoint().getId().toString())
+                .put(EVENT_ID_KEY, history.getEvent().getId().toString())
+                .put(ATTEMPT_KEY, attempt)
+                .put(DUE_TIME_KEY, System.currentTimeMillis() + getBackOff(attempt))
+                .put(HISTORY_LOOKUPS_KEY, 0);
+        retryEmitter.send(retry.encode());
+        scheduledCounter.increment();
+    }
+
+    @Incoming(RETRIED_CHANNEL)
+    @Acknowledgment(MANUAL)
+    @Blocking
+    public CompletionStage<Void> replay(Message<String> message) {
+        long wait;
+        JsonObject retry;
+        try {
+            retry = new JsonObject(message.getPayload());
+            wait = retry.getLong(DUE_TIME_KEY) - System.currentTimeMillis();
+        } catch (Exception e) {
+            Log.errorf(e, "Invalid webhook retry: %s", message.getPayload());
+            return message.ack();
+        }
+        try {
+            // This only blocks the retry consumer while too many retries are pending.
+            pendingReplays.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return message.nack(e);
+        }
+        timer.schedule(() -> executor.execute(() -> {
+            try {
+                statelessSessionFactory.withSession(statelessSession -> {
+                    doReplay(retry);
+                });
+            } catch (Exception e) {
+                Log.errorf(e, "Webhook retry failed: %s", message.getPayload());
+            } finally {
+                pendingReplays.release();
+            }
+            message.ack();
+        }), Math.max(0L, Math.min(wait, maxRetryBackOff.toMillis())), TimeUnit.MILLISECONDS);
+        // The consumer doesn't wait for the retry, the record is acknowledged once it is replayed.
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private void doReplay(JsonObject retry) {
+        UUID historyId = UUID.fromString(retry.getString(HISTORY_ID_KEY));
+        int attempt = retry.getInteger(ATTEMPT_KEY);
+
+        if (!notificationHistoryRepository.historyExists(historyId)) {
+            int historyLookups = retry.getInteger(HISTORY_LOOKUPS_KEY, 0) + 1;
+            if (historyLookups < MAX_HISTORY_LOOKUPS) {
+                retry.put(HISTORY_LOOKUPS_KEY, historyLookups)
+                        .put(DUE_TIME_KEY, System.currentTimeMillis() + initialRetryBackOff.toMillis());
+                retryEmitter.send(retry.encode());
+            } else {
+                Log.warnf("History entry %s not found, the webhook call will not be retried", historyId);
+            }
+            return;
+        }
+
+        Endpoint endpoint = endpointRepository.findEnabledById(UUID.fromString(retry.getString(ENDPOINT_ID_KEY)));
+        Event event = eventRepository.findById(UUID.fromString(retry.getString(EVENT_ID_KEY)));
+        if (endpoint == null || event == null) {
+            Log.debugf("Endpoint or event of history entry %s is gone or disabled, the webhook call will not be retried", historyId);
+            return;
+        }
+        String eventPayload = event.getPayload();
+        event.setActionSupplier(() -> actionParser.fromJsonString(eventPayload));
+
+        WebhookAttempt result = webhookTypeProcessor.retry(new Notification(event, endpoint));
+        NotificationHistory history = result.getHistory();
+        history.setId(historyId);
+        notificationHistoryRepository.updateRetriedHistoryItem(history);
+
+        if (result.isRetryable()) {
+            if (attempt < maxRetryAttempts) {
+                schedule(history, attempt + 1);
+            } else {
+                exhaustedCounter.increment();
+            }
+        }
+    }
+
+    private long getBackOff(int attempt) {
+        // The back-off is doubled after each attempt, like the one from the Failsafe retry policy.
+        long backOff = initialRetryBackOff.toMillis() << Math.min(attempt - 1, 30);
+        return Math.min(backOff, maxRetryBackOff.toMillis());
+    }
+}
@@ -1,13 +1,17 @@
 package com.redhat.cloud.notifications.processors.webhooks;
 
+import com.redhat.cloud.notifications.config.FeatureFlipper;
 import com.redhat.cloud.notifications.models.Endpoint;
 import com.redhat.cloud.notifications.models.Event;
 import com.redhat.cloud.notifications.models.Notification;
 import com.redhat.cloud.notifications.models.NotificationHistory;
 import com.redhat.cloud.notifications.models.WebhookProperties;
+import com.redhat.cloud.notifications.processors.EndpointCircuitBreaker;
 import com.redhat.cloud.notifications.processors.EndpointTypeProcessor;
+import com.redhat.cloud.notifications.processors.ResponseBodyLimiter;
 import com.redhat.cloud.notifications.processors.webclient.SslVerificationDisabled;
 import com.redhat.cloud.notifications.processors.webclient.SslVerificationEnabled;
+import com.redhat.cloud.notifications.processors.webhooks.BoundedBodyCodec.BoundedBody;
 import com.redhat.cloud.notifications.transformers.BaseTransformer;
 import dev.failsafe.Failsafe;
 import dev.failsafe.RetryPolicy;
@@ -15,7 +19,10 @@ import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.netty.channel.ConnectTimeoutException;
 import io.quarkus.logging.Log;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
 import io.vertx.core.VertxException;
+import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.impl.HttpRequestImpl;
@@ -23,6 +30,7 @@ import io.vertx.mutiny.core.buffer.Buffer;
 import io.vertx.mutiny.ext.web.client.HttpRequest;
 import io.vertx.mutiny.ext.web.client.HttpResponse;
 import io.vertx.mutiny.ext.web.client.WebClient;
+import io.vertx.mutiny.ext.web.codec.BodyCodec;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import javax.annotation.PostConstruct;
@@ -30,16 +38,27 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import java.io.IOException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.redhat.cloud.notifications.models.NotificationHistory.getHistoryStub;
+import static com.redhat.cloud.notifications.processors.ResponseBodyLimiter.TRUNCATED_KEY;
 
 @ApplicationScoped
 public class WebhookTypeProcessor implements EndpointTypeProcessor {
 
+    public static final String IN_FLIGHT_GAUGE_NAME = "processor.webhook.in-flight";
+
     private static final String TOKEN_HEADER = "X-Insight-Token";
+    private static final String JSON_CONTENT_TYPE = "application/json";
     private static final String CONNECTION_CLOSED_MSG = "Connection was closed";
 
     @ConfigProperty(name = "processor.webhook.retry.max-attempts", defaultValue = "3")
@@ -51,8 +70,14 @@ public class WebhookTypeProcessor implements EndpointTypeProcessor {
     @ConfigProperty(name = "processor.webhook.retry.back-off.max-value", defaultValue = "30S")
     Duration maxRetryBackOff;
 
-    @ConfigProperty(name = "processor.webhook.await-timeout", defaultValue = "60S")
-    Duration awaitTimeout;
+    @ConfigProperty(name = "processor.webhook.max-in-flight.per-event", defaultValue = "16")
+    int maxInFlightPerEvent;
+
+    @ConfigProperty(name = "processor.webhook.max-in-flight.per-pod", defaultValue = "256")
+    int maxInFlightPerPod;
+
+    @ConfigProperty(name = "processor.webhook.delivery-deadline", defaultValue = "2m")
+    Duration deliveryDeadline;
 
     @Inject
     @SslVerificationEnabled
@@ -68,12 +93,35 @@ public class WebhookTypeProcessor implements EndpointTypeProcessor {
     @Inject
     MeterRegistry registry;
 
+    @Inject
+    FeatureFlipper featureFlipper;
+
+    @Inject
+    WebhookRetryScheduler webhookRetryScheduler;
+
+    @Inject
+    EndpointCircuitBreaker circuitBreaker;
+
+    @Inject
+    ResponseBodyLimiter responseBodyLimiter;
+
+    @Inject
+    WebhookBatcher webhookBatcher;
+
+    @Inject
+    AdaptiveTimeouts adaptiveTimeouts;
+
     private Counter processedCount;
     private RetryPolicy<Object> retryPolicy;
+    private InFlightLimiter inFlightLimiter;
+    private BodyCodec<BoundedBody> boundedBodyCodec;
 
     @PostConstruct
     void postConstruct() {
         processedCount = registry.counter("processor.webhook.processed");
+        inFlightLimiter = new InFlightLimiter(maxInFlightPerPod);
+        boundedBodyCodec = BodyCodec.newInstance(new BoundedBodyCodec(responseBodyLimiter.getMaxBytes()));
+        registry.gauge(IN_FLIGHT_GAUGE_NAME, inFlightLimiter, InFlightLimiter::getInFlight);
         retryPolicy = RetryPolicy.builder()
                 .handleIf(this::shouldRetry)
                 .withBackoff(initialRetryBackOff, maxRetryBackOff)
@@ -83,21 +131,235 @@ public class WebhookTypeProcessor implements EndpointTypeProcessor {
 
     @Override
     public List<NotificationHistory> process(Event event, List<Endpoint> endpoints) {
-        return endpoints.stream()
+        if (featureFlipper.isWebhookReactiveDeliveryEnabled()) {
+            // The current thread waits once for the whole event instead of once per endpoint.
+            Buffer payload = encodePayload(event);
+            List<Endpoint> targets = batch(event, endpoints, payload);
+            AtomicReferenceArray<WebhookAttempt> completed = new AtomicReferenceArray<>(targets.size());
+            List<WebhookAttempt> attempts;
+            try {
+                attempts = deliver(event, targets, payload, completed).await().atMost(deliveryDeadline);
+            } catch (io.smallrye.mutiny.TimeoutException e) {
+                attempts = collectOnDeadline(event, targets, completed);
+            }
+            return toHistories(attempts);
+        }
+        Buffer payload = encodePayload(event);
+        return batch(event, endpoints, payload).stream()
                 .map(endpoint -> {
                     Notification notification = new Notification(event, endpoint);
-                    return process(notification);
+                    return process(notification, payload);
                 })
                 .collect(Collectors.toList());
     }
 
-    private NotificationHistory process(Notification item) {
+    private NotificationHistory process(Notification item, Buffer payload) {
         processedCount.increment();
         Endpoint endpoint = item.getEndpoint();
+        if (!circuitBreaker.allowRequest(endpoint)) {
+            return circuitBreaker.buildShortCircuitHistory(endpoint, item.getEvent());
+        }
         WebhookProperties properties = endpoint.getProperties(WebhookProperties.class);
+        final HttpRequest<Buffer> req = buildRequest(properties);
+
+        if (featureFlipper.isWebhookRetryTopicEnabled()) {
+            /*
+             * A single call is made from the current thread. If it fails and can be retried, the retries are scheduled
+             * on the retry topic and their outcome will replace the one of the history entry returned here.
+             */
+            WebhookAttempt attempt = doHttpRequestOnce(item, req, payload);
+            recordResult(attempt.getHistory());
+            if (attempt.isRetryable() && maxRetryAttempts > 0) {
+                webhookRetryScheduler.schedule(attempt.getHistory(), 1);
+            }
+            return attempt.getHistory();
+        } else {
+            NotificationHistory history = doHttpRequest(item, req, payload);
+            recordResult(history);
+            return history;
+        }
+    }
+
+    /**
+     * Calls the webhooks of the given endpoints concurrently, without blocking any thread. At most
+     * {@code processor.webhook.max-in-flight.per-event} calls are in flight for the event and at most
+     * {@code processor.webhook.max-in-flight.per-pod} calls are in flight for all events processed by this pod. The
+     * failed calls are retried with the same back-off as the blocking calls, unless the retries are scheduled on the
+     * retry topic.
+     */
+    public Uni<List<NotificationHistory>> processAsync(Event event, List<Endpoint> endpoints) {
+        // The requests and the payload are built from the current thread, the calls are made from the event loop.
+        Buffer payload = encodePayload(event);
+        List<Endpoint> targets = batch(event, endpoints, payload);
+        return deliver(event, targets, payload, new AtomicReferenceArray<>(targets.size()))
+                .map(this::toHistories);
+    }
+
+    /*
+     * Calls the given endpoints concurrently. Each attempt is also stored at the index of its endpoint in the given
+     * array as soon as it completes, so that the caller can still use the completed ones if the whole delivery is late.
+     */
+    private Uni<List<WebhookAttempt>> deliver(Event event, List<Endpoint> targets, Buffer payload, AtomicReferenceArray<WebhookAttempt> completed) {
+        boolean retryTopic = featureFlipper.isWebhookRetryTopicEnabled();
+        List<Uni<WebhookAttempt>> calls = new ArrayList<>();
+        for (int i = 0; i < targets.size(); i++) {
+            Endpoint endpoint = targets.get(i);
+            int index = i;
+            processedCount.increment();
+            if (!circuitBreaker.allowRequest(endpoint)) {
+                WebhookAttempt attempt = new WebhookAttempt(circuitBreaker.buildShortCircuitHistory(endpoint, event), false);
+                completed.set(index, attempt);
+                calls.add(Uni.createFrom().item(attempt));
+                continue;
+            }
+            Notification item = new Notification(event, endpoint);
+            HttpRequest<Buffer> req = buildRequest(endpoint.getProperties(WebhookProperties.class));
+            calls.add(inFlightLimiter.limit(() -> sendRequestAsync(item, req, payload, !retryTopic))
+                    .invoke(attempt -> {
+                        recordResult(attempt.getHistory());
+                        completed.set(index, attempt);
+                    }));
+        }
+        return Multi.createFrom().iterable(calls)
+                .onItem().transformToUni(Function.identity()).merge(maxInFlightPerEvent)
+                .collect().asList();
+    }
+
+    /*
+     * Called when the delivery of an event exceeded processor.webhook.delivery-deadline. The completed attempts are kept
+     * and a failed history entry is returned for each endpoint whose call is still pending. The pending calls are not
+     * cancelled, but their outcome is ignored.
+     */
+    private List<WebhookAttempt> collectOnDeadline(Event event, List<Endpoint> targets, AtomicReferenceArray<WebhookAttempt> completed) {
+        List<WebhookAttempt> attempts = new ArrayList<>();
+        int pending = 0;
+        for (int i = 0; i < targets.size(); i++) {
+            WebhookAttempt attempt = completed.get(i);
+            if (attempt == null) {
+                pending++;
+                NotificationHistory history = getHistoryStub(targets.get(i), event, deliveryDeadline.toMillis(), UUID.randomUUID());
+                Map<String, Object> details = new HashMap<>();
+                details.put("error_message", "The webhook call did not complete before the delivery deadline of " + deliveryDeadline);
+                history.setDetails(details);
+                attempt = new WebhookAttempt(history, false);
+            }
+            attempts.add(attempt);
+        }
+        Log.warnf("Delivery of event %s exceeded the deadline of %s, %d of %d webhook calls were still pending",
+                event.getId(), deliveryDeadline, pending, targets.size());
+        return attempts;
+    }
+
+    private List<NotificationHistory> toHistories(List<WebhookAttempt> attempts) {
+        boolean retryTopic = featureFlipper.isWebhookRetryTopicEnabled();
+        List<NotificationHistory> histories = new ArrayList<>();
+        for (WebhookAttempt attempt : attempts) {
+            if (retryTopic && attempt.isRetryable() && maxRetryAttempts > 0) {
+                webhookRetryScheduler.schedule(attempt.getHistory(), 1);
+            }
+            histories.add(attempt.getHistory());
+        }
+        return histories;
+    }
+
+    public Duration getDeliveryDeadline() {
+        return deliveryDeadline;
+    }
 
+    // Only used by the tests.
+    public void setDeliveryDeadline(Duration deliveryDeadline) {
+        this.deliveryDeadline = deliveryDeadline;
+    }
+
+    /*
+     * The events sent to the endpoints which enabled batching are handed over to the batcher, which writes their history
+     * entries once their batch is sent. The other endpoints are returned.
+     */
+    private List<Endpoint> batch(Event event, List<Endpoint> endpoints, Buffer payload) {
+        if (!featureFlipper.isWebhookBatchingEnabled()) {
+            return endpoints;
+        }
+        List<Endpoint> notBatched = new ArrayList<>();
+        for (Endpoint endpoint : endpoints) {
+            if (WebhookBatcher.isBatched(endpoint)) {
+                processedCount.increment();
+                webhookBatcher.add(endpoint, event, payload);
+            } else {
+                notBatched.add(endpoint);
+            }
+        }
+        return notBatched;
+    }
+
+    /**
+     * Sends a batch of events payloads to the given endpoint with a single call. The failed call is retried with the
+     * same back-off as the other calls, unless the retries are scheduled on the retry topic. The returned history entry
+     * is built for the given event, the caller copies its outcome into the history entries of the other events of the
+     * batch.
+     */
+    Uni<WebhookAttempt> sendBatch(Endpoint endpoint, Event event, Buffer body) {
+        Notification item = new Notification(event, endpoint);
+        HttpRequest<Buffer> req = buildRequest(endpoint.getProperties(WebhookProperties.class));
+        boolean withRetries = !featureFlipper.isWebhookRetryTopicEnabled();
+        return inFlightLimiter.limit(() -> sendRequestAsync(item, req, body, withRetries))
+                .invoke(attempt -> recordResult(attempt.getHistory()));
+    }
+
+    /**
+     * Schedules a retry on the retry topic of the call which produced the given history entry, if the retry topic is
+     * enabled. The history entry has to be persisted.
+     */
+    void scheduleRetry(NotificationHistory history) {
+        if (featureFlipper.isWebhookRetryTopicEnabled() && maxRetryAttempts > 0) {
+            webhookRetryScheduler.schedule(history, 1);
+        }
+    }
+
+    /**
+     * Makes a single webhook call, without any retry.
+     */
+    WebhookAttempt retry(Notification item) {
+        if (!circuitBreaker.allowRequest(item.getEndpoint())) {
+            // The remaining retries are dropped while the circuit is open.
+            return new WebhookAttempt(circuitBreaker.buildShortCircuitHistory(item.getEndpoint(), item.getEvent()), false);
+        }
+        WebhookProperties properties = item.getEndpoint().getProperties(WebhookProperties.class);
+        Buffer payload = encodePayload(item.getEvent());
+        if (featureFlipper.isWebhookBatchingEnabled() && WebhookBatcher.isBatched(item.getEndpoint())) {
+            // The events of a failed batch are retried one by one, the endpoint still expects a JSON array.
+            payload = WebhookBatcher.encode(List.of(payload));
+        }
+        WebhookAttempt attempt = doHttpRequestOnce(item, buildRequest(properties), payload);
+        recordResult(attempt.getHistory());
+        return attempt;
+    }
+
+    /*
+     * The payload only depends on the event, so it is transformed and encoded once and the same buffer is sent to all
+     * the webhooks of the event. Vert.x writes a duplicate of the underlying byte buffer for each request, the bytes
+     * are never copied.
+     */
+    private Buffer encodePayload(Event event) {
+        JsonObject payload = transformer.transform(event.getAction());
+        return Buffer.newInstance(payload.toBuffer());
+    }
+
+    /*
+     * The 4xx responses are caused by the endpoint configuration or by the payload, they do not open the circuit.
+     */
+    private void recordResult(NotificationHistory history) {
+        boolean endpointFailure = false;
+        if (!history.isInvocationResult()) {
+            Object code = history.getDetails() == null ? null : history.getDetails().get("code");
+            endpointFailure = !(code instanceof Integer) || (Integer) code >= 500;
+        }
+        circuitBreaker.recordResult(history.getEndpoint().getId(), !endpointFailure);
+    }
+
+    private HttpRequest<Buffer> buildRequest(WebhookProperties properties) {
         final HttpRequest<Buffer> req = getWebClient(properties.getDisableSslVerification())
-                .requestAbs(HttpMethod.valueOf(properties.getMethod().name()), properties.getUrl());
+                .requestAbs(HttpMethod.valueOf(properties.getMethod().name()), properties.getUrl())
+                .putHeader(HttpHeaders.CONTENT_TYPE.toString(), JSON_CONTENT_TYPE);
 
         if (properties.getSecretToken() != null && !properties.getSecretToken().isBlank()) {
             req.putHeader(TOKEN_HEADER, properties.getSecretToken());
@@ -106,10 +368,7 @@ public class WebhookTypeProcessor implements EndpointTypeProcessor {
         if (properties.getBasicAuthentication() != null) {
             req.basicAuthentication(properties.getBasicAuthentication().getUsername(), properties.getBasicAuthentication().getPassword());
         }
-
-        JsonObject payload = transformer.transform(item.getEvent().getAction());
-
-        return doHttpRequest(item, req, payload);
+        return req;
     }
 
     private WebClient getWebClient(boolean disableSSLVerification) {
@@ -121,69 +380,175 @@ public class WebhookTypeProcessor implements EndpointTypeProcessor {
     }
 
     public NotificationHistory doHttpRequest(Notification item, HttpRequest<Buffer> req, JsonObject payload) {
+        req.putHeader(HttpHeaders.CONTENT_TYPE.toString(), JSON_CONTENT_TYPE);
+        return doHttpRequest(item, req, Buffer.newInstance(payload.toBuffer()));
+    }
+
+    private NotificationHistory doHttpRequest(Notification item, HttpRequest<Buffer> req, Buffer payload) {
         final long startTime = System.currentTimeMillis();
 
         try {
-            return Failsafe.with(retryPolicy).get(() -> {
-
-                // TODO NOTIF-488 We may want to move to a non-reactive HTTP client in the future.
-                HttpResponse<Buffer> resp = req.sendJsonObject(payload).await().atMost(awaitTimeout);
-                NotificationHistory history = buildNotificationHistory(item, startTime);
-
-                HttpRequestImpl<Buffer> reqImpl = (HttpRequestImpl<Buffer>) req.getDelegate();
-
-                boolean serverError = false;
-                if (resp.statusCode() >= 200 && resp.statusCode() < 300) {
-                    // Accepted
-                    Log.debugf("Webhook request to %s was successful: %d", reqImpl.host(), resp.statusCode());
-                    history.setInvocationResult(true);
-                } else if (resp.statusCode() >= 500) {
-                    // Temporary error, allow retry
-                    serverError = true;
-                    Log.debugf("Webhook request to %s failed: %d %s", reqImpl.host(), resp.statusCode(), resp.statusMessage());
-                    history.setInvocationResult(false);
-                } else {
-                    // Disable the target endpoint, it's not working correctly for us (such as 400)
-                    // must be manually re-enabled
-                    // Redirects etc should have been followed by the vertx (test this)
-                    Log.debugf("Webhook request to %s failed: %d %s %s", reqImpl.host(), resp.statusCode(), resp.statusMessage(), payload);
-                    history.setInvocationResult(false);
-                }
-
-                if (!history.isInvocationResult()) {
-                    JsonObject details = new JsonObject();
-                    details.put("url", getCallUrl(reqImpl));
-                    details.put("method", reqImpl.method().name());
-                    details.put("code", resp.statusCode());
-                    // This isn't async body reading, lets hope vertx handles it async underneath before calling this apply method
-                    details.put("response_body", resp.bodyAsString());
-                    history.setDetails(details.getMap());
-                }
-
-                if (serverError) {
-                    throw new ServerErrorException(history);
-                }
-                return history;
-            });
+            return Failsafe.with(retryPolicy).get(() -> sendRequest(item, req, payload, startTime));
         } catch (Exception e) {
             if (e instanceof ServerErrorException) {
                 return ((ServerErrorException) e).getNotificationHistory();
             }
+            return buildErrorHistory(item, req, e, startTime);
+        }
+    }
 
-            NotificationHistory history = buildNotificationHistory(item, startTime);
+    private WebhookAttempt doHttpRequestOnce(Notification item, HttpRequest<Buffer> req, Buffer payload) {
+        final long startTime = System.currentTimeMillis();
 
-            HttpRequestImpl<Buffer> reqImpl = (HttpRequestImpl<Buffer>) req.getDelegate();
+        try {
+            return new WebhookAttempt(sendRequest(item, req, payload, startTime), false);
+        } catch (ServerErrorException e) {
+            return new WebhookAttempt(e.getNotificationHistory(), true);
+        } catch (Exception e) {
+            return new WebhookAttempt(buildErrorHistory(item, req, e, startTime), shouldRetry(e));
+        }
+    }
 
-            Log.debugf("Failed: %s", e.getMessage());
+    private Uni<WebhookAttempt> sendRequestAsync(Notification item, HttpRequest<Buffer> req, Buffer payload, boolean withRetries) {
+        // The invocation time is measured for each attempt.
+        AtomicLong startTime = new AtomicLong();
+        Uni<NotificationHistory> call = Uni.createFrom().deferred(() -> {
+            startTime.set(System.currentTimeMillis());
+            Duration timeout = adaptiveTimeouts.getTimeout(item.getEndpoint());
+            return withBoundedBody(req, timeout).sendBuffer(payload)
+                    .ifNoItem().after(timeout).fail()
+                    .onItemOrFailure().invoke((resp, failure) -> recordLatency(item, startTime.get(), failure))
+                    .map(resp -> handleResponse(item, req, payload, resp, startTime.get()));
+        });
+        if (withRetries && maxRetryAttempts > 0) {
+            call = call.onFailure(this::shouldRetry).retry()
+                    .withBackOff(initialRetryBackOff, maxRetryBackOff)
+                    .atMost(maxRetryAttempts);
+        }
+        return call.map(history -> new WebhookAttempt(history, false))
+                .onFailure().recoverWithItem(failure -> {
+                    Throwable e = unwrapExhaustedRetries(failure);
+                    if (e instanceof ServerErrorException) {
+                        return new WebhookAttempt(((ServerErrorException) e).getNotificationHistory(), true);
+                    }
+                    return new WebhookAttempt(buildErrorHistory(item, req, e, startTime.get()), shouldRetry(e));
+                });
+    }
 
-            // TODO Duplicate code with the error return code part
+    /*
+     * When the retries with back-off are exhausted, Mutiny fails with an exception caused by the last failure.
+     */
+    private Throwable unwrapExhaustedRetries(Throwable failure) {
+        if (!shouldRetry(failure) && failure.getCause() != null && shouldRetry(failure.getCause())) {
+            return failure.getCause();
+        }
+        return failure;
+    }
+
+    private NotificationHistory sendRequest(Notification item, HttpRequest<Buffer> req, Buffer payload, long startTime) {
+        // The latency of each attempt is recorded, the start time of the history entry covers all the attempts.
+        long attemptStartTime = System.currentTimeMillis();
+        Duration timeout = adaptiveTimeouts.getTimeout(item.getEndpoint());
+        HttpResponse<BoundedBody> resp;
+        try {
+            // TODO NOTIF-488 We may want to move to a non-reactive HTTP client in the future.
+            resp = withBoundedBody(req, timeout).sendBuffer(payload).await().atMost(timeout);
+        } catch (RuntimeException e) {
+            recordLatency(item, attemptStartTime, e);
+            throw e;
+        }
+        recordLatency(item, attemptStartTime, null);
+        return handleResponse(item, req, payload, resp, startTime);
+    }
+
+    /*
+     * Only the beginning of the response body is kept, the error pages of some endpoints weigh several megabytes.
+     * The request timeout makes Vert.x reset the connection of a call which hangs, the await timeout alone would not.
+     */
+    private HttpRequest<BoundedBody> withBoundedBody(HttpRequest<Buffer> req, Duration timeout) {
+        return req.copy().as(boundedBodyCodec).timeout(timeout.toMillis());
+    }
+
+    /*
+     * The calls which failed before the endpoint replied, other than timeouts, do not tell anything about its latency.
+     */
+    private void recordLatency(Notification item, long startTime, Throwable failure) {
+        boolean timedOut = isTimeout(failure);
+        if (failure == null || timedOut) {
+            adaptiveTimeouts.record(item.getEndpoint(), System.currentTimeMillis() - startTime, timedOut);
+        }
+    }
+
+    private static boolean isTimeout(Throwable failure) {
+        while (failure != null) {
+            if (failure instanceof TimeoutException || failure instanceof io.smallrye.mutiny.TimeoutException) {
+                return true;
+            }
+            failure = failure.getCause();
+        }
+        return false;
+    }
+
+    private NotificationHistory handleResponse(Notification item, HttpRequest<Buffer> req, Buffer payload, HttpResponse<BoundedBody> resp, long startTime) {
+        NotificationHistory history = buildNotificationHistory(item, startTime);
+
+        HttpRequestImpl<Buffer> reqImpl = (HttpRequestImpl<Buffer>) req.getDelegate();
+
+        boolean serverError = false;
+        if (resp.statusCode() >= 200 && resp.statusCode() < 300) {
+            // Accepted
+            Log.debugf("Webhook request to %s was successful: %d", reqImpl.host(), resp.statusCode());
+            history.setInvocationResult(true);
+        } else if (resp.statusCode() >= 500) {
+            // Temporary error, allow retry
+            serverError = true;
+            Log.debugf("Webhook request to %s failed: %d %s", reqImpl.host(), resp.statusCode(), resp.statusMessage());
+            history.setInvocationResult(false);
+        } else {
+            // Disable the target endpoint, it's not working correctly for us (such as 400)
+            // must be manually re-enabled
+            // Redirects etc should have been followed by the vertx (test this)
+            Log.debugf("Webhook request to %s failed: %d %s %s", reqImpl.host(), resp.statusCode(), resp.statusMessage(), payload);
+            history.setInvocationResult(false);
+        }
+
+        if (!history.isInvocationResult()) {
             JsonObject details = new JsonObject();
-            details.put("url", reqImpl.uri());
-            details.put("method", reqImpl.method());
-            details.put("error_message", e.getMessage()); // TODO This message isn't always the most descriptive..
+            details.put("url", getCallUrl(reqImpl));
+            details.put("method", reqImpl.method().name());
+            details.put("code", resp.statusCode());
+            BoundedBody body = resp.body();
+            if (body != null) {
+                details.put("response_body", body.asString());
+                details.put("response_body_length", body.getLength());
+                if (body.isTruncated()) {
+                    details.put(TRUNCATED_KEY, true);
+                }
+            }
+            details.put("response_content_type", resp.getHeader(HttpHeaders.CONTENT_TYPE.toString()));
             history.setDetails(details.getMap());
-            return history;
         }
+
+        if (serverError) {
+            throw new ServerErrorException(history);
+        }
+        return history;
+    }
+
+    private NotificationHistory buildErrorHistory(Notification item, HttpRequest<Buffer> req, Throwable e, long startTime) {
+        NotificationHistory history = buildNotificationHistory(item, startTime);
+
+        HttpRequestImpl<Buffer> reqImpl = (HttpRequestImpl<Buffer>) req.getDelegate();
+
+        Log.debugf("Failed: %s", e.getMessage());
+
+        // TODO Duplicate code with the error return code part
+        JsonObject details = new JsonObject();
+        details.put("url", reqImpl.uri());
+        details.put("method", reqImpl.method());
+        details.put("error_message", e.getMessage()); // TODO This message isn't always the most descriptive..
+        history.setDetails(details.getMap());
+        return history;
     }
 
     private String getCallUrl(HttpRequestImpl<Buffer> reqImpl) {
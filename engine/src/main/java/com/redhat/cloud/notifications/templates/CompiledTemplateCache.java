@@ -0,0 +1,123 @@
+package com.redhat.cloud.notifications.templates;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.db.CacheInvalidationEvent;
+import com.redhat.cloud.notifications.models.Template;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.logging.Log;
+import io.quarkus.qute.TemplateInstance;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.redhat.cloud.notifications.db.CacheInvalidation.TEMPLATES;
+
+/**
+ * Compiled versions of the DB templates, so that Qute does not parse the same template for each email. An entry is
+ * only used if the template was not updated since it was compiled. The whole cache is invalidated when the backend
+ * notifies the engine that a template was updated or deleted, because the templates which include it have to be
+ * compiled again.
+ */
+@ApplicationScoped
+public class CompiledTemplateCache {
+
+    public static final String CACHE_HIT_COUNTER_NAME = "template-cache.hit";
+    public static final String CACHE_MISS_COUNTER_NAME = "template-cache.miss";
+    public static final String PARSE_TIMER_NAME = "template-cache.parse";
+
+    @ConfigProperty(name = "notifications.template-cache.max-entries", defaultValue = "1000")
+    long maxEntries;
+
+    @Inject
+    TemplateService templateService;
+
+    @Inject
+    FeatureFlipper featureFlipper;
+
+    @Inject
+    MeterRegistry registry;
+
+    private Cache<UUID, CompiledTemplate> cache;
+    // Incremented on each invalidation, used to avoid caching the result of a compilation that raced with an invalidation.
+    private final AtomicLong generation = new AtomicLong();
+
+    private Counter cacheHitCounter;
+    private Counter cacheMissCounter;
+    private Timer parseTimer;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .build();
+        cacheHitCounter = registry.counter(CACHE_HIT_COUNTER_NAME);
+        cacheMissCounter = registry.counter(CACHE_MISS_COUNTER_NAME);
+        parseTimer = registry.timer(PARSE_TIMER_NAME);
+    }
+
+    /**
+     * Returns a new instance of the given DB template. If the cache is disabled, the template is always compiled.
+     */
+    public TemplateInstance getTemplateInstance(Template template, String name) {
+        if (!featureFlipper.isTemplateCacheEnabled()) {
+            return parse(template, name).instance();
+        }
+
+        LocalDateTime version = template.getUpdated() == null ? template.getCreated() : template.getUpdated();
+        CompiledTemplate compiledTemplate = cache.getIfPresent(template.getId());
+        if (compiledTemplate != null && Objects.equals(version, compiledTemplate.version)) {
+            cacheHitCounter.increment();
+            return compiledTemplate.template.instance();
+        }
+
+        cacheMissCounter.increment();
+        long parseGeneration = generation.get();
+        io.quarkus.qute.Template parsedTemplate = parse(template, name);
+        synchronized (this) {
+            if (parseGeneration == generation.get()) {
+                cache.put(template.getId(), new CompiledTemplate(version, parsedTemplate));
+            }
+        }
+        return parsedTemplate.instance();
+    }
+
+    public void onCacheInvalidation(@Observes CacheInvalidationEvent event) {
+        if (TEMPLATES.equals(event.getCacheName())) {
+            invalidate();
+        }
+    }
+
+    synchronized void invalidate() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+        // The included templates are also cached by the Qute engine.
+        templateService.clearTemplates();
+        Log.debug("Compiled templates cache invalidated");
+    }
+
+    private io.quarkus.qute.Template parse(Template template, String name) {
+        return parseTimer.record(() -> templateService.parseTemplate(template.getData(), name));
+    }
+
+    private static class CompiledTemplate {
+
+        private final LocalDateTime version;
+        private final io.quarkus.qute.Template template;
+
+        CompiledTemplate(LocalDateTime version, io.quarkus.qute.Template template) {
+            this.version = version;
+            this.template = template;
+        }
+    }
+}
@@ -11,6 +11,7 @@ import io.quarkus.logging.Log;
 import io.quarkus.qute.Engine;
 import io.quarkus.qute.EvalContext;
 import io.quarkus.qute.ReflectionValueResolver;
+import io.quarkus.qute.Template;
 import io.quarkus.qute.TemplateInstance;
 import io.quarkus.qute.ValueResolver;
 import io.quarkus.scheduler.Scheduled;
@@ -73,7 +74,11 @@ public class TemplateService {
     }
 
     public TemplateInstance compileTemplate(String template, String name) {
-        return getEngine().parse(template, null, name).instance();
+        return parseTemplate(template, name).instance();
+    }
+
+    public Template parseTemplate(String template, String name) {
+        return getEngine().parse(template, null, name);
     }
 
     private Engine getEngine() {
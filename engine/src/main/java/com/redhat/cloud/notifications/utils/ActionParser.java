@@ -1,18 +1,115 @@
 package com.redhat.cloud.notifications.utils;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.redhat.cloud.notifications.config.FeatureFlipper;
 import com.redhat.cloud.notifications.ingress.Action;
 import com.redhat.cloud.notifications.ingress.Parser;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.util.UUID;
 
 @ApplicationScoped
 public class ActionParser {
 
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    @Inject
+    FeatureFlipper featureFlipper;
+
     public Action fromJsonString(String actionJson) {
         try {
             return Parser.decode(actionJson);
         } catch (Exception e) {
-            throw new RuntimeException("Action parsing failed for payload: " + actionJson, e);
+            throw new ActionParsingException("Action parsing failed for payload: " + actionJson, e);
+        }
+    }
+
+    /**
+     * Parses the routing fields of an action. If the lazy action parsing is enabled, the payload is read with a
+     * streaming parser which stops as soon as all routing fields are found and the complete action is only decoded and
+     * validated by {@link ParsedAction#getAction()}. Otherwise, the complete action is decoded right away.
+     * <p>
+     * With the lazy parsing, a payload with valid routing fields but an invalid body is persisted as an event. It is
+     * only rejected when it is routed to at least one endpoint, before being processed. A payload routed to zero
+     * endpoints is never validated.
+     *
+     * @throws ActionParsingException if the payload is not a valid action
+     */
+    public ParsedAction parse(String actionJson) {
+        if (featureFlipper.isLazyActionParsingEnabled()) {
+            try {
+                return parseRoutingFields(actionJson);
+            } catch (Exception e) {
+                throw new ActionParsingException("Action parsing failed for payload: " + actionJson, e);
+            }
+        } else {
+            return new ParsedAction(fromJsonString(actionJson));
+        }
+    }
+
+    private ParsedAction parseRoutingFields(String actionJson) throws IOException {
+        String bundle = null;
+        String application = null;
+        String eventType = null;
+        String orgId = null;
+        String accountId = null;
+        String id = null;
+        try (JsonParser parser = JSON_FACTORY.createParser(actionJson)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "The action must be a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                parser.nextToken();
+                switch (fieldName) {
+                    case "bundle":
+                        bundle = getText(parser);
+                        break;
+                    case "application":
+                        application = getText(parser);
+                        break;
+                    case "event_type":
+                        eventType = getText(parser);
+                        break;
+                    case "org_id":
+                        orgId = getText(parser);
+                        break;
+                    case "account_id":
+                        accountId = getText(parser);
+                        break;
+                    case "id":
+                        id = getText(parser);
+                        break;
+                    default:
+                        // The events, context and recipients fields are skipped without being materialized.
+                        parser.skipChildren();
+                        break;
+                }
+                if (bundle != null && application != null && eventType != null && orgId != null && accountId != null && id != null) {
+                    break;
+                }
+            }
+            if (bundle == null || application == null || eventType == null || accountId == null) {
+                throw new JsonParseException(parser, "The bundle, application, event_type and account_id fields are required");
+            }
+        }
+        return new ParsedAction(bundle, application, eventType, orgId, accountId, id == null ? null : UUID.fromString(id),
+                actionJson, this::fromJsonString);
+    }
+
+    private static String getText(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NULL:
+                return null;
+            default:
+                throw new JsonParseException(parser, "Field " + parser.getCurrentName() + " must be a string");
         }
     }
 }
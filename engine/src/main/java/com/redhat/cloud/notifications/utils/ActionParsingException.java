@@ -0,0 +1,12 @@
+package com.redhat.cloud.notifications.utils;
+
+/**
+ * Thrown when an ingested payload is not a valid action. With the lazy action parsing, it can be thrown long after
+ * the routing fields were parsed, when the complete action is decoded for the first time.
+ */
+public class ActionParsingException extends RuntimeException {
+
+    public ActionParsingException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
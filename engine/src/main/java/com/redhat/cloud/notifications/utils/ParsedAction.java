@@ -0,0 +1,78 @@
+package com.redhat.cloud.notifications.utils;
+
+import com.redhat.cloud.notifications.ingress.Action;
+
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Routing fields of an ingested action. These fields are always available right after the parsing, while the complete
+ * {@link Action} (events, context, recipients...) may only be decoded from the JSON payload when it is needed for the
+ * first time. Actions routed to zero endpoints are therefore never fully decoded.
+ */
+public class ParsedAction {
+
+    private final String bundle;
+    private final String application;
+    private final String eventType;
+    private final String orgId;
+    private final String accountId;
+    private final UUID id;
+    private final String payload;
+    private final Function<String, Action> decoder;
+    private Action action;
+
+    ParsedAction(String bundle, String application, String eventType, String orgId, String accountId, UUID id,
+                 String payload, Function<String, Action> decoder) {
+        this.bundle = bundle;
+        this.application = application;
+        this.eventType = eventType;
+        this.orgId = orgId;
+        this.accountId = accountId;
+        this.id = id;
+        this.payload = payload;
+        this.decoder = decoder;
+    }
+
+    ParsedAction(Action action) {
+        this(action.getBundle(), action.getApplication(), action.getEventType(), action.getOrgId(), action.getAccountId(),
+                action.getId(), null, null);
+        this.action = action;
+    }
+
+    public String getBundle() {
+        return bundle;
+    }
+
+    public String getApplication() {
+        return application;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public String getOrgId() {
+        return orgId;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    /**
+     * Returns the complete action, decoding and validating it if that was not done yet.
+     *
+     * @throws RuntimeException if the payload is not a valid action
+     */
+    public synchronized Action getAction() {
+        if (action == null) {
+            action = decoder.apply(payload);
+        }
+        return action;
+    }
+}
@@ -15,8 +15,12 @@ import static com.redhat.cloud.notifications.MockServerLifecycleManager.getMockS
 import static com.redhat.cloud.notifications.events.EventConsumer.INGRESS_CHANNEL;
 import static com.redhat.cloud.notifications.events.FromCamelHistoryFiller.EGRESS_CHANNEL;
 import static com.redhat.cloud.notifications.events.FromCamelHistoryFiller.FROMCAMEL_CHANNEL;
+import static com.redhat.cloud.notifications.events.TenantScheduler.DELAYED_CHANNEL;
+import static com.redhat.cloud.notifications.events.TenantScheduler.DELAY_CHANNEL;
 import static com.redhat.cloud.notifications.processors.camel.CamelTypeProcessor.TOCAMEL_CHANNEL;
 import static com.redhat.cloud.notifications.processors.email.EmailSubscriptionTypeProcessor.AGGREGATION_CHANNEL;
+import static com.redhat.cloud.notifications.processors.webhooks.WebhookRetryScheduler.RETRIED_CHANNEL;
+import static com.redhat.cloud.notifications.processors.webhooks.WebhookRetryScheduler.RETRY_CHANNEL;
 
 public class TestLifecycleManager implements QuarkusTestResourceLifecycleManager {
 
@@ -42,6 +46,14 @@ public class TestLifecycleManager implements QuarkusTestResourceLifecycleManager
         properties.putAll(InMemoryConnector.switchOutgoingChannelsToInMemory(TOCAMEL_CHANNEL));
         properties.putAll(InMemoryConnector.switchIncomingChannelsToInMemory(FROMCAMEL_CHANNEL));
         properties.putAll(InMemoryConnector.switchOutgoingChannelsToInMemory(EGRESS_CHANNEL));
+        properties.putAll(InMemoryConnector.switchOutgoingChannelsToInMemory(DELAY_CHANNEL));
+        properties.putAll(InMemoryConnector.switchIncomingChannelsToInMemory(DELAYED_CHANNEL));
+        // The delay channel is disabled unless the tenant scheduler is enabled, the tests enable the flag at runtime.
+        properties.put("mp.messaging.incoming." + DELAYED_CHANNEL + ".enabled", "true");
+        properties.putAll(InMemoryConnector.switchOutgoingChannelsToInMemory(RETRY_CHANNEL));
+        properties.putAll(InMemoryConnector.switchIncomingChannelsToInMemory(RETRIED_CHANNEL));
+        // The retry channel is disabled unless the retry topic is enabled, the tests enable the flag at runtime.
+        properties.put("mp.messaging.incoming." + RETRIED_CHANNEL + ".enabled", "true");
 
         properties.put("reinject.enabled", "true");
 
@@ -0,0 +1,109 @@
+package com.redhat.cloud.notifications.db;
+
+import com.redhat.cloud.notifications.MicrometerAssertionHelper;
+import com.redhat.cloud.notifications.TestLifecycleManager;
+import com.redhat.cloud.notifications.models.Application;
+import com.redhat.cloud.notifications.models.Bundle;
+import com.redhat.cloud.notifications.models.Endpoint;
+import com.redhat.cloud.notifications.models.Event;
+import com.redhat.cloud.notifications.models.EventType;
+import com.redhat.cloud.notifications.models.NotificationHistory;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.security.SecureRandom;
+import java.util.UUID;
+
+import static com.redhat.cloud.notifications.db.NotificationHistoryWriter.FLUSHED_COUNTER_NAME;
+import static com.redhat.cloud.notifications.db.NotificationHistoryWriter.FLUSH_ERROR_COUNTER_NAME;
+import static com.redhat.cloud.notifications.models.EndpointType.WEBHOOK;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@QuarkusTest
+@QuarkusTestResource(TestLifecycleManager.class)
+public class NotificationHistoryWriterTest {
+
+    @Inject
+    NotificationHistoryWriter notificationHistoryWriter;
+
+    @Inject
+    ResourceHelpers resourceHelpers;
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    MicrometerAssertionHelper micrometerAssertionHelper;
+
+    @BeforeEach
+    void beforeEach() {
+        micrometerAssertionHelper.saveCounterValuesBeforeTest(FLUSHED_COUNTER_NAME, FLUSH_ERROR_COUNTER_NAME);
+    }
+
+    @AfterEach
+    void afterEach() {
+        micrometerAssertionHelper.clearSavedValues();
+    }
+
+    @Test
+    void testWrite() throws InterruptedException {
+        Event event = createEvent();
+        Endpoint endpoint = resourceHelpers.createEndpoint(WEBHOOK, null);
+        NotificationHistory history1 = buildNotificationHistory(event, endpoint);
+        NotificationHistory history2 = buildNotificationHistory(event, endpoint);
+
+        notificationHistoryWriter.write(history1);
+        notificationHistoryWriter.write(history2);
+
+        micrometerAssertionHelper.awaitAndAssertCounterIncrement(FLUSHED_COUNTER_NAME, 2);
+        micrometerAssertionHelper.assertCounterIncrement(FLUSH_ERROR_COUNTER_NAME, 0);
+        assertNotNull(entityManager.find(NotificationHistory.class, history1.getId()));
+        assertNotNull(entityManager.find(NotificationHistory.class, history2.getId()));
+    }
+
+    @Test
+    void testInvalidEntryDoesNotFailTheBatch() throws InterruptedException {
+        Event event = createEvent();
+        Endpoint endpoint = resourceHelpers.createEndpoint(WEBHOOK, null);
+        NotificationHistory validHistory = buildNotificationHistory(event, endpoint);
+
+        // This event is not persisted, so the foreign key constraint will fail.
+        Event unknownEvent = new Event();
+        unknownEvent.setId(UUID.randomUUID());
+        NotificationHistory invalidHistory = buildNotificationHistory(unknownEvent, endpoint);
+
+        notificationHistoryWriter.write(invalidHistory);
+        notificationHistoryWriter.write(validHistory);
+
+        micrometerAssertionHelper.awaitAndAssertCounterIncrement(FLUSH_ERROR_COUNTER_NAME, 1);
+        micrometerAssertionHelper.awaitAndAssertCounterIncrement(FLUSHED_COUNTER_NAME, 1);
+        assertNotNull(entityManager.find(NotificationHistory.class, validHistory.getId()));
+        assertNull(entityManager.find(NotificationHistory.class, invalidHistory.getId()));
+    }
+
+    @Transactional
+    Event createEvent() {
+        Bundle bundle = resourceHelpers.createBundle("bundle-" + new SecureRandom().nextInt());
+        Application app = resourceHelpers.createApp(bundle.getId(), "app-" + new SecureRandom().nextInt());
+        EventType eventType = resourceHelpers.createEventType(app.getId(), "event-type-" + new SecureRandom().nextInt());
+        return resourceHelpers.createEvent(eventType);
+    }
+
+    private static NotificationHistory buildNotificationHistory(Event event, Endpoint endpoint) {
+        NotificationHistory history = new NotificationHistory();
+        history.setId(UUID.randomUUID());
+        history.setInvocationTime(123L);
+        history.setInvocationResult(true);
+        history.setEvent(event);
+        history.setEndpoint(endpoint);
+        history.setEndpointType(endpoint.getType());
+        return history;
+    }
+}
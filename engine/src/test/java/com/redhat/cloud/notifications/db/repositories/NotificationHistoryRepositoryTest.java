@@ -1,6 +1,7 @@
 package com.redhat.cloud.notifications.db.repositories;
 
 import com.redhat.cloud.notifications.TestLifecycleManager;
+import com.redhat.cloud.notifications.cloudevents.CamelReturn;
 import com.redhat.cloud.notifications.db.ResourceHelpers;
 import com.redhat.cloud.notifications.db.StatelessSessionFactory;
 import com.redhat.cloud.notifications.models.Application;
@@ -10,6 +11,7 @@ import com.redhat.cloud.notifications.models.EndpointType;
 import com.redhat.cloud.notifications.models.Event;
 import com.redhat.cloud.notifications.models.EventType;
 import com.redhat.cloud.notifications.models.NotificationHistory;
+import com.redhat.cloud.notifications.models.UpdatedHistoryItem;
 import io.quarkus.test.common.QuarkusTestResource;
 import io.quarkus.test.junit.QuarkusTest;
 import org.junit.jupiter.api.Test;
@@ -19,6 +21,8 @@ import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
 
 import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -27,7 +31,10 @@ import static com.redhat.cloud.notifications.models.EndpointType.WEBHOOK;
 import static java.lang.Boolean.FALSE;
 import static java.lang.Boolean.TRUE;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @QuarkusTest
 @QuarkusTestResource(TestLifecycleManager.class)
@@ -85,6 +92,80 @@ public class NotificationHistoryRepositoryTest {
         assertEquals(history.getDetails(), persistedHistory.getDetails());
     }
 
+    @Test
+    void testCreateAll() {
+        NotificationHistory history1 = initData(789L, TRUE, WEBHOOK, null, Map.of("foo", "bar"));
+        NotificationHistory history2 = initData(12L, FALSE, CAMEL, "splunk", null);
+        deleteEndpoint(history2.getEndpoint().getId());
+
+        statelessSessionFactory.withSession(statelessSession -> {
+            repository.createAll(List.of(history1, history2));
+        });
+
+        NotificationHistory persistedHistory1 = entityManager.find(NotificationHistory.class, history1.getId());
+        assertEquals(history1.getInvocationTime(), persistedHistory1.getInvocationTime());
+        assertEquals(history1.isInvocationResult(), persistedHistory1.isInvocationResult());
+        assertEquals(history1.getEvent(), persistedHistory1.getEvent());
+        assertEquals(history1.getEndpoint(), persistedHistory1.getEndpoint());
+        assertEquals(history1.getEndpointType(), persistedHistory1.getEndpointType());
+        assertEquals(history1.getDetails(), persistedHistory1.getDetails());
+
+        NotificationHistory persistedHistory2 = entityManager.find(NotificationHistory.class, history2.getId());
+        assertEquals(history2.getEvent(), persistedHistory2.getEvent());
+        assertNull(persistedHistory2.getEndpoint());
+        assertEquals(history2.getEndpointType(), persistedHistory2.getEndpointType());
+        assertEquals(history2.getEndpointSubType(), persistedHistory2.getEndpointSubType());
+        assertNull(persistedHistory2.getDetails());
+    }
+
+    @Test
+    void testUpdateHistoryItems() {
+        NotificationHistory history1 = initData(0L, TRUE, CAMEL, "splunk", null);
+        NotificationHistory history2 = initData(0L, TRUE, CAMEL, "splunk", null);
+        deleteEndpoint(history2.getEndpoint().getId());
+        statelessSessionFactory.withSession(statelessSession -> {
+            repository.createAll(List.of(history1, history2));
+        });
+        String unknownHistoryId = UUID.randomUUID().toString();
+
+        Map<UUID, UpdatedHistoryItem> updated = statelessSessionFactory.withSession(statelessSession -> {
+            return repository.updateHistoryItems(List.of(
+                    buildReturn(history1.getId().toString(), 123, "Success", true),
+                    buildReturn(history2.getId().toString(), 456, "Failed: 500", false),
+                    buildReturn(unknownHistoryId, 789, "Success", true)
+            ));
+        });
+
+        // The unknown history ID is missing from the result and the endpoint ID is null if the endpoint is gone.
+        assertEquals(2, updated.size());
+        assertEquals(history1.getEndpoint().getId(), updated.get(history1.getId()).getEndpointId());
+        assertNotNull(updated.get(history1.getId()).getCreated());
+        assertNull(updated.get(history2.getId()).getEndpointId());
+
+        NotificationHistory persistedHistory1 = entityManager.find(NotificationHistory.class, history1.getId());
+        assertEquals(123L, persistedHistory1.getInvocationTime());
+        assertTrue(persistedHistory1.isInvocationResult());
+        assertEquals("bar", persistedHistory1.getDetails().get("foo"));
+        assertEquals("Success", persistedHistory1.getDetails().get("outcome"));
+
+        NotificationHistory persistedHistory2 = entityManager.find(NotificationHistory.class, history2.getId());
+        assertEquals(456L, persistedHistory2.getInvocationTime());
+        assertFalse(persistedHistory2.isInvocationResult());
+        assertEquals("Failed: 500", persistedHistory2.getDetails().get("outcome"));
+    }
+
+    private static CamelReturn buildReturn(String historyId, int duration, String outcome, boolean successful) {
+        Map<String, Object> details = new HashMap<>();
+        details.put("foo", "bar");
+        CamelReturn camelReturn = new CamelReturn();
+        camelReturn.setHistoryId(historyId);
+        camelReturn.setDuration(duration);
+        camelReturn.setOutcome(outcome);
+        camelReturn.setSuccessful(successful);
+        camelReturn.setDetails(details);
+        return camelReturn;
+    }
+
     @Transactional
     NotificationHistory initData(Long invocationTime, Boolean invocationResult, EndpointType endpointType,
             String endpointSubType, Map<String, Object> details) {
@@ -0,0 +1,91 @@
+package com.redhat.cloud.notifications.events;
+
+import com.redhat.cloud.notifications.cloudevents.CloudEventCodec;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the decoding of the CloudEvents received from Camel with two {@link Json#decodeValue(String, Class)} calls,
+ * one for the envelope and one for the data, and with {@link CloudEventCodec}. This is not a test, it can be run from
+ * the IDE or with:
+ * <pre>
+ * mvn test-compile -pl engine
+ * java -cp "$(cat cp.txt):engine/target/test-classes:engine/target/classes" com.redhat.cloud.notifications.events.CamelReturnDecodingBenchmark
+ * </pre>
+ * where {@code cp.txt} is generated with {@code mvn dependency:build-classpath -pl engine -Dmdep.outputFile=../cp.txt}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CamelReturnDecodingBenchmark {
+
+    // Size of the response body of the remote endpoint, copied into the details.
+    @Param({"0", "1000", "10000"})
+    int responseSize;
+
+    private String cloudEvent;
+
+    @Setup
+    public void setup() {
+        String data = new JsonObject()
+                .put("duration", 67549274)
+                .put("finishTime", 1639476503209L)
+                .put("details", Map.of(
+                        "type", "com.redhat.console.notification.toCamel.splunk",
+                        "target", "https://example.com",
+                        "response", "x".repeat(responseSize)
+                ))
+                .put("outcome", "Event 0c5d5b22-6a1a-4e55-9e6c-0ba9b3e3a1b8 sent successfully")
+                .put("successful", true)
+                .encode();
+        cloudEvent = new JsonObject()
+                .put("specversion", "1.0")
+                .put("source", "notifications-splunk")
+                .put("type", "com.redhat.cloud.notifications.history")
+                .put("time", "2021-12-14T10:08:23.217Z")
+                .put("id", UUID.randomUUID().toString())
+                .put("content-type", "application/json")
+                .put("data", data)
+                .encode();
+    }
+
+    @Benchmark
+    public Map<String, Object> doubleDecode() {
+        Map<String, Object> ceMap = Json.decodeValue(cloudEvent, Map.class);
+        Map<String, Object> map = Json.decodeValue((String) ceMap.get("data"), Map.class);
+        map.put("historyId", ceMap.get("id"));
+        return map;
+    }
+
+    @Benchmark
+    public Object codec() {
+        return CloudEventCodec.decodeCamelReturn(cloudEvent);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CamelReturnDecodingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,193 @@
+package com.redhat.cloud.notifications.events;
+
+import com.redhat.cloud.notifications.MicrometerAssertionHelper;
+import com.redhat.cloud.notifications.TestLifecycleManager;
+import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.db.repositories.EndpointRepository;
+import com.redhat.cloud.notifications.db.repositories.NotificationHistoryRepository;
+import com.redhat.cloud.notifications.models.Endpoint;
+import com.redhat.cloud.notifications.models.EndpointType;
+import com.redhat.cloud.notifications.models.Event;
+import com.redhat.cloud.notifications.models.NotificationHistory;
+import com.redhat.cloud.notifications.processors.email.EmailSubscriptionTypeProcessor;
+import com.redhat.cloud.notifications.processors.webhooks.WebhookTypeProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.arc.ClientProxy;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.mockito.InjectMock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.redhat.cloud.notifications.events.EndpointProcessor.DEADLINE_EXCEEDED_COUNTER_NAME;
+import static com.redhat.cloud.notifications.events.EndpointProcessor.LATE_FAILURE_COUNTER_NAME;
+import static com.redhat.cloud.notifications.events.EndpointProcessor.PROCESSING_TIMER_NAME;
+import static com.redhat.cloud.notifications.models.EndpointType.EMAIL_SUBSCRIPTION;
+import static com.redhat.cloud.notifications.models.EndpointType.WEBHOOK;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@QuarkusTest
+@QuarkusTestResource(TestLifecycleManager.class)
+public class EndpointProcessorTest {
+
+    @InjectMock
+    EndpointRepository endpointRepository;
+
+    @InjectMock
+    NotificationHistoryRepository notificationHistoryRepository;
+
+    @InjectMock
+    WebhookTypeProcessor webhookTypeProcessor;
+
+    @InjectMock
+    EmailSubscriptionTypeProcessor emailSubscriptionTypeProcessor;
+
+    @Inject
+    EndpointProcessor endpointProcessor;
+
+    @Inject
+    FeatureFlipper featureFlipper;
+
+    @Inject
+    MicrometerAssertionHelper micrometerAssertionHelper;
+
+    @Inject
+    MeterRegistry registry;
+
+    private EndpointProcessor processor;
+    private Duration deadline;
+
+    @BeforeEach
+    void beforeEach() {
+        // The bean fields are only visible from the real instance, not from the client proxy.
+        processor = (EndpointProcessor) ((ClientProxy) endpointProcessor).arc_contextualInstance();
+        deadline = processor.deadline;
+        featureFlipper.setConcurrentFanOutEnabled(true);
+        micrometerAssertionHelper.saveCounterValuesBeforeTest(DEADLINE_EXCEEDED_COUNTER_NAME, LATE_FAILURE_COUNTER_NAME);
+        micrometerAssertionHelper.removeDynamicTimer(PROCESSING_TIMER_NAME);
+    }
+
+    @AfterEach
+    void afterEach() {
+        processor.deadline = deadline;
+        featureFlipper.setConcurrentFanOutEnabled(false);
+        micrometerAssertionHelper.clearSavedValues();
+        micrometerAssertionHelper.removeDynamicTimer(PROCESSING_TIMER_NAME);
+    }
+
+    @Test
+    void testEndpointTypesAreProcessedConcurrently() {
+        Event event = mockGetTargetEndpoints();
+        NotificationHistory webhookHistory = buildHistory();
+        NotificationHistory emailHistory = buildHistory();
+
+        // Each processor waits for the other one to start, which can only happen if they are processed concurrently.
+        CountDownLatch webhookStarted = new CountDownLatch(1);
+        CountDownLatch emailStarted = new CountDownLatch(1);
+        when(webhookTypeProcessor.process(eq(event), any())).then(invocation -> {
+            webhookStarted.countDown();
+            assertTrue(emailStarted.await(10L, TimeUnit.SECONDS));
+            return List.of(webhookHistory);
+        });
+        when(emailSubscriptionTypeProcessor.process(eq(event), any())).then(invocation -> {
+            emailStarted.countDown();
+            assertTrue(webhookStarted.await(10L, TimeUnit.SECONDS));
+            return List.of(emailHistory);
+        });
+
+        endpointProcessor.process(event);
+
+        verify(notificationHistoryRepository).createNotificationHistory(webhookHistory);
+        verify(notificationHistoryRepository).createNotificationHistory(emailHistory);
+        assertEquals(1L, registry.timer(PROCESSING_TIMER_NAME, "type", WEBHOOK.name()).count());
+        assertEquals(1L, registry.timer(PROCESSING_TIMER_NAME, "type", EMAIL_SUBSCRIPTION.name()).count());
+        micrometerAssertionHelper.assertCounterIncrement(DEADLINE_EXCEEDED_COUNTER_NAME, 0);
+    }
+
+    @Test
+    void testLateEndpointTypeIsPersistedAfterTheDeadline() {
+        processor.deadline = Duration.ofMillis(100L);
+        Event event = mockGetTargetEndpoints();
+        NotificationHistory webhookHistory = buildHistory();
+        NotificationHistory emailHistory = buildHistory();
+
+        CountDownLatch release = new CountDownLatch(1);
+        when(webhookTypeProcessor.process(eq(event), any())).thenReturn(List.of(webhookHistory));
+        when(emailSubscriptionTypeProcessor.process(eq(event), any())).then(invocation -> {
+            assertTrue(release.await(10L, TimeUnit.SECONDS));
+            return List.of(emailHistory);
+        });
+
+        endpointProcessor.process(event);
+
+        // The deadline was exceeded: only the webhook history is persisted when the processing returns.
+        verify(notificationHistoryRepository).createNotificationHistory(webhookHistory);
+        verify(notificationHistoryRepository, never()).createNotificationHistory(emailHistory);
+        micrometerAssertionHelper.assertCounterIncrement(DEADLINE_EXCEEDED_COUNTER_NAME, 1);
+
+        release.countDown();
+        verify(notificationHistoryRepository, timeout(10_000L)).createNotificationHistory(emailHistory);
+    }
+
+    @Test
+    void testLateFailureIsCounted() {
+        processor.deadline = Duration.ofMillis(100L);
+        Event event = mockGetTargetEndpoints();
+        NotificationHistory webhookHistory = buildHistory();
+
+        CountDownLatch release = new CountDownLatch(1);
+        when(webhookTypeProcessor.process(eq(event), any())).thenReturn(List.of(webhookHistory));
+        when(emailSubscriptionTypeProcessor.process(eq(event), any())).then(invocation -> {
+            assertTrue(release.await(10L, TimeUnit.SECONDS));
+            throw new RuntimeException("Late failure");
+        });
+
+        // The email processor fails after the deadline, the failure is not propagated to the caller.
+        endpointProcessor.process(event);
+        verify(notificationHistoryRepository).createNotificationHistory(webhookHistory);
+        micrometerAssertionHelper.assertCounterIncrement(LATE_FAILURE_COUNTER_NAME, 0);
+
+        release.countDown();
+        micrometerAssertionHelper.awaitAndAssertCounterIncrement(LATE_FAILURE_COUNTER_NAME, 1);
+    }
+
+    private Event mockGetTargetEndpoints() {
+        Event event = new Event();
+        event.setId(UUID.randomUUID());
+        event.setOrgId("org-id");
+        event.setAccountId("account-id");
+        when(endpointRepository.getTargetEndpoints(any(), any(), any())).thenReturn(List.of(
+                buildEndpoint(WEBHOOK),
+                buildEndpoint(EMAIL_SUBSCRIPTION)
+        ));
+        return event;
+    }
+
+    private static NotificationHistory buildHistory() {
+        NotificationHistory history = new NotificationHistory();
+        history.setId(UUID.randomUUID());
+        return history;
+    }
+
+    private static Endpoint buildEndpoint(EndpointType type) {
+        Endpoint endpoint = new Endpoint();
+        endpoint.setId(UUID.randomUUID());
+        endpoint.setType(type);
+        return endpoint;
+    }
+}
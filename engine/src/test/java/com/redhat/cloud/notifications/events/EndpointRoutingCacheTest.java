@@ -0,0 +1,157 @@
+package com.redhat.cloud.notifications.events;
+
+import com.redhat.cloud.notifications.MicrometerAssertionHelper;
+import com.redhat.cloud.notifications.TestLifecycleManager;
+import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.db.CacheInvalidationListener;
+import com.redhat.cloud.notifications.db.repositories.EndpointRepository;
+import com.redhat.cloud.notifications.models.Endpoint;
+import com.redhat.cloud.notifications.models.Event;
+import com.redhat.cloud.notifications.models.EventType;
+import io.quarkus.arc.ClientProxy;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.mockito.InjectMock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.util.List;
+import java.util.UUID;
+
+import static com.redhat.cloud.notifications.db.CacheInvalidation.CHANNEL;
+import static com.redhat.cloud.notifications.db.CacheInvalidation.KEY_SEPARATOR;
+import static com.redhat.cloud.notifications.db.CacheInvalidation.ROUTING;
+import static com.redhat.cloud.notifications.events.EndpointRoutingCache.CACHE_HIT_COUNTER_NAME;
+import static com.redhat.cloud.notifications.events.EndpointRoutingCache.CACHE_MISS_COUNTER_NAME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@QuarkusTest
+@QuarkusTestResource(TestLifecycleManager.class)
+public class EndpointRoutingCacheTest {
+
+    @InjectMock
+    EndpointRepository endpointRepository;
+
+    @Inject
+    EndpointRoutingCache endpointRoutingCache;
+
+    @Inject
+    CacheInvalidationListener cacheInvalidationListener;
+
+    @Inject
+    FeatureFlipper featureFlipper;
+
+    @Inject
+    MicrometerAssertionHelper micrometerAssertionHelper;
+
+    @Inject
+    EntityManager entityManager;
+
+    private EndpointRoutingCache cache;
+    private long maxEntries;
+
+    @BeforeEach
+    void beforeEach() {
+        // The bean fields are only visible from the real instance, not from the client proxy.
+        cache = (EndpointRoutingCache) ((ClientProxy) endpointRoutingCache).arc_contextualInstance();
+        maxEntries = cache.maxEntries;
+        cache.invalidate(null);
+        featureFlipper.setRoutingCacheEnabled(true);
+        when(endpointRepository.getTargetEndpoints(any(), any(), any())).then(invocation -> List.of(new Endpoint()));
+        micrometerAssertionHelper.saveCounterValuesBeforeTest(CACHE_HIT_COUNTER_NAME, CACHE_MISS_COUNTER_NAME);
+    }
+
+    @AfterEach
+    void afterEach() {
+        featureFlipper.setRoutingCacheEnabled(false);
+        cacheInvalidationListener.poll();
+        cache.maxEntries = maxEntries;
+        cache.init();
+        micrometerAssertionHelper.clearSavedValues();
+    }
+
+    @Test
+    void testCacheHitsAndMisses() {
+        EventType eventType = buildEventType();
+        Event event1 = buildEvent("account-1", eventType);
+        Event event2 = buildEvent("account-2", eventType);
+
+        List<Endpoint> endpoints = endpointRoutingCache.getTargetEndpoints(event1);
+        assertEquals(endpoints, endpointRoutingCache.getTargetEndpoints(event1));
+        endpointRoutingCache.getTargetEndpoints(event2);
+
+        micrometerAssertionHelper.assertCounterIncrement(CACHE_HIT_COUNTER_NAME, 1);
+        micrometerAssertionHelper.assertCounterIncrement(CACHE_MISS_COUNTER_NAME, 2);
+        verify(endpointRepository, times(1)).getTargetEndpoints(eq("account-1"), any(), eq(eventType));
+    }
+
+    @Test
+    void testAccountInvalidationNotification() {
+        // The first poll opens the listening connection and invalidates the whole cache.
+        cacheInvalidationListener.poll();
+
+        EventType eventType = buildEventType();
+        Event event1 = buildEvent("account-1", eventType);
+        Event event2 = buildEvent("account-2", eventType);
+        endpointRoutingCache.getTargetEndpoints(event1);
+        endpointRoutingCache.getTargetEndpoints(event2);
+
+        // Only the entries of the notified account are invalidated.
+        notifyEngine(ROUTING + KEY_SEPARATOR + "account-1");
+        cacheInvalidationListener.poll();
+        endpointRoutingCache.getTargetEndpoints(event1);
+        endpointRoutingCache.getTargetEndpoints(event2);
+        micrometerAssertionHelper.assertCounterIncrement(CACHE_HIT_COUNTER_NAME, 1);
+        micrometerAssertionHelper.assertCounterIncrement(CACHE_MISS_COUNTER_NAME, 3);
+
+        // A notification without account (e.g. default behavior group change) invalidates all entries.
+        notifyEngine(ROUTING);
+        cacheInvalidationListener.poll();
+        endpointRoutingCache.getTargetEndpoints(event1);
+        endpointRoutingCache.getTargetEndpoints(event2);
+        micrometerAssertionHelper.assertCounterIncrement(CACHE_HIT_COUNTER_NAME, 1);
+        micrometerAssertionHelper.assertCounterIncrement(CACHE_MISS_COUNTER_NAME, 5);
+    }
+
+    @Test
+    void testCacheSizeIsBounded() {
+        cache.maxEntries = 10L;
+        cache.init();
+
+        for (int i = 0; i < 50; i++) {
+            endpointRoutingCache.getTargetEndpoints(buildEvent("account-" + i, buildEventType()));
+        }
+        assertTrue(cache.size() <= 10L);
+    }
+
+    @Transactional
+    void notifyEngine(String payload) {
+        entityManager.createNativeQuery("SELECT CAST(pg_notify(:channel, :payload) AS VARCHAR)")
+                .setParameter("channel", CHANNEL)
+                .setParameter("payload", payload)
+                .getSingleResult();
+    }
+
+    private static EventType buildEventType() {
+        EventType eventType = new EventType();
+        eventType.setId(UUID.randomUUID());
+        return eventType;
+    }
+
+    private static Event buildEvent(String accountId, EventType eventType) {
+        Event event = new Event();
+        event.setAccountId(accountId);
+        event.setEventType(eventType);
+        return event;
+    }
+}
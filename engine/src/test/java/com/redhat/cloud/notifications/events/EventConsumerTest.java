@@ -3,6 +3,7 @@ package com.redhat.cloud.notifications.events;
 import com.redhat.cloud.notifications.MicrometerAssertionHelper;
 import com.redhat.cloud.notifications.TestLifecycleManager;
 import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.db.StatelessSessionFactory;
 import com.redhat.cloud.notifications.db.repositories.EventRepository;
 import com.redhat.cloud.notifications.db.repositories.EventTypeRepository;
 import com.redhat.cloud.notifications.ingress.Action;
@@ -14,12 +15,14 @@ import com.redhat.cloud.notifications.models.Bundle;
 import com.redhat.cloud.notifications.models.Event;
 import com.redhat.cloud.notifications.models.EventType;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.arc.ClientProxy;
 import io.quarkus.test.common.QuarkusTestResource;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.junit.mockito.InjectMock;
 import io.quarkus.test.junit.mockito.InjectSpy;
 import io.smallrye.reactive.messaging.kafka.api.OutgoingKafkaRecordMetadata;
 import io.smallrye.reactive.messaging.providers.connectors.InMemoryConnector;
+import io.vertx.core.json.JsonObject;
 import org.apache.kafka.common.header.internals.RecordHeaders;
 import org.eclipse.microprofile.reactive.messaging.Message;
 import org.junit.jupiter.api.AfterEach;
@@ -32,8 +35,15 @@ import javax.inject.Inject;
 import javax.persistence.NoResultException;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
 import static com.redhat.cloud.notifications.TestConstants.DEFAULT_ACCOUNT_ID;
 import static com.redhat.cloud.notifications.TestConstants.DEFAULT_ORG_ID;
@@ -53,6 +63,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -83,6 +94,12 @@ public class EventConsumerTest {
     @InjectSpy
     KafkaMessageDeduplicator kafkaMessageDeduplicator;
 
+    @Inject
+    EventConsumer eventConsumer;
+
+    @Inject
+    StatelessSessionFactory statelessSessionFactory;
+
     @Inject
     MicrometerAssertionHelper micrometerAssertionHelper;
 
@@ -332,6 +349,233 @@ public class EventConsumerTest {
         verify(kafkaMessageDeduplicator, times(1)).registerMessageId(null);
     }
 
+    @Test
+    void testBatchWithDuplicatePayload() {
+        EventType eventType = mockGetEventTypeAndCreateEvent();
+        Action action = buildValidAction();
+        String payload = serializeAction(action);
+        UUID messageId = UUID.randomUUID();
+        Message<String> message = buildMessageWithId(messageId.toString().getBytes(UTF_8), payload);
+        eventConsumer.process(List.of(message, message)).toCompletableFuture().join();
+
+        assertEquals(2L, registry.timer(CONSUMED_TIMER_NAME, "bundle", action.getBundle(), "application", action.getApplication()).count());
+        micrometerAssertionHelper.assertCounterIncrement(MESSAGE_ID_VALID_COUNTER_NAME, 2);
+        micrometerAssertionHelper.assertCounterIncrement(DUPLICATE_COUNTER_NAME, 1);
+        assertNoCounterIncrement(
+                REJECTED_COUNTER_NAME,
+                PROCESSING_ERROR_COUNTER_NAME,
+                PROCESSING_EXCEPTION_COUNTER_NAME,
+                MESSAGE_ID_INVALID_COUNTER_NAME,
+                MESSAGE_ID_MISSING_COUNTER_NAME,
+                MISSING_ORG_ID
+        );
+        verifyExactlyOneProcessing(eventType, payload, action);
+        // The duplicate of the batch is detected by the registration statement.
+        verify(kafkaMessageDeduplicator, times(1)).registerNewMessageIds(List.of(messageId, messageId));
+        verify(eventRepository, times(1)).createAll(any());
+    }
+
+    @Test
+    void testDuplicatePayloadWithInsertFirstDeduplication() {
+        featureFlipper.setInsertFirstDeduplicationEnabled(true);
+        try {
+            EventType eventType = mockGetEventTypeAndCreateEvent();
+            Action action = buildValidAction();
+            String payload = serializeAction(action);
+            UUID messageId = UUID.randomUUID();
+            Message<String> message = buildMessageWithId(messageId.toString().getBytes(UTF_8), payload);
+            inMemoryConnector.source(INGRESS_CHANNEL).send(message);
+            inMemoryConnector.source(INGRESS_CHANNEL).send(message);
+
+            micrometerAssertionHelper.awaitAndAssertTimerIncrement(CONSUMED_TIMER_NAME, 2);
+            micrometerAssertionHelper.assertCounterIncrement(DUPLICATE_COUNTER_NAME, 1);
+            assertNoCounterIncrement(
+                    REJECTED_COUNTER_NAME,
+                    PROCESSING_ERROR_COUNTER_NAME,
+                    PROCESSING_EXCEPTION_COUNTER_NAME
+            );
+            verifyExactlyOneProcessing(eventType, payload, action);
+            verify(kafkaMessageDeduplicator, times(2)).registerIfNew(messageId);
+            verify(kafkaMessageDeduplicator, never()).isDuplicate(any(UUID.class));
+            verify(kafkaMessageDeduplicator, never()).registerMessageId(any(UUID.class));
+        } finally {
+            featureFlipper.setInsertFirstDeduplicationEnabled(false);
+        }
+    }
+
+    @Test
+    void testBatchWithDuplicatePayloadAndInsertFirstDeduplication() {
+        featureFlipper.setInsertFirstDeduplicationEnabled(true);
+        try {
+            EventType eventType = mockGetEventTypeAndCreateEvent();
+            Action action = buildValidAction();
+            String payload = serializeAction(action);
+            UUID messageId = UUID.randomUUID();
+            Message<String> message = buildMessageWithId(messageId.toString().getBytes(UTF_8), payload);
+            eventConsumer.process(List.of(message, message)).toCompletableFuture().join();
+
+            micrometerAssertionHelper.assertCounterIncrement(DUPLICATE_COUNTER_NAME, 1);
+            assertNoCounterIncrement(
+                    REJECTED_COUNTER_NAME,
+                    PROCESSING_ERROR_COUNTER_NAME,
+                    PROCESSING_EXCEPTION_COUNTER_NAME
+            );
+            verifyExactlyOneProcessing(eventType, payload, action);
+            verify(kafkaMessageDeduplicator, never()).findKnownMessageIds(any());
+        } finally {
+            featureFlipper.setInsertFirstDeduplicationEnabled(false);
+        }
+    }
+
+    @Test
+    void testBatchPersistenceFailureIsRetriedPerRecord() {
+        EventType eventType = mockGetEventTypeAndCreateEvent();
+        Action action1 = buildValidAction();
+        Action action2 = buildValidAction();
+        String payload2 = serializeAction(action2);
+        UUID messageId1 = UUID.randomUUID();
+        UUID messageId2 = UUID.randomUUID();
+        // The batch insert and the insert of the first event fail, e.g. because its ID already exists.
+        when(eventRepository.createAll(any())).thenAnswer(invocation -> {
+            List<Event> events = invocation.getArgument(0);
+            // The event IDs are the message IDs because the actions don't have any ID.
+            if (events.stream().anyMatch(event -> event.getId().equals(messageId1))) {
+                throw new RuntimeException("I am a forced exception!");
+            }
+            return events;
+        });
+
+        eventConsumer.process(List.of(
+                buildMessageWithId(messageId1.toString().getBytes(UTF_8), serializeAction(action1)),
+                buildMessageWithId(messageId2.toString().getBytes(UTF_8), payload2)
+        )).toCompletableFuture().join();
+
+        micrometerAssertionHelper.assertCounterIncrement(PROCESSING_EXCEPTION_COUNTER_NAME, 1);
+        assertNoCounterIncrement(
+                REJECTED_COUNTER_NAME,
+                PROCESSING_ERROR_COUNTER_NAME,
+                DUPLICATE_COUNTER_NAME
+        );
+        verifyExactlyOneProcessing(eventType, payload2, action2);
+        verify(eventRepository, times(3)).createAll(any());
+        // The message ID of the failed record was rolled back with its event, it can be processed again.
+        Set<UUID> knownIds = statelessSessionFactory.withSession(statelessSession -> {
+            return kafkaMessageDeduplicator.findKnownMessageIds(List.of(messageId1, messageId2));
+        });
+        assertEquals(Set.of(messageId2), knownIds);
+    }
+
+    @Test
+    void testValidPayloadWithLazyActionParsing() {
+        featureFlipper.setLazyActionParsingEnabled(true);
+        try {
+            EventType eventType = mockGetEventTypeAndCreateEvent();
+            Action action = buildValidAction();
+            String payload = serializeAction(action);
+            UUID messageId = UUID.randomUUID();
+            Message<String> message = buildMessageWithId(messageId.toString().getBytes(UTF_8), payload);
+            inMemoryConnector.source(INGRESS_CHANNEL).send(message);
+
+            micrometerAssertionHelper.awaitAndAssertTimerIncrement(CONSUMED_TIMER_NAME, 1);
+            assertEquals(1L, registry.timer(CONSUMED_TIMER_NAME, "bundle", action.getBundle(), "application", action.getApplication()).count());
+            assertNoCounterIncrement(
+                    REJECTED_COUNTER_NAME,
+                    PROCESSING_ERROR_COUNTER_NAME,
+                    PROCESSING_EXCEPTION_COUNTER_NAME,
+                    DUPLICATE_COUNTER_NAME
+            );
+            verifyExactlyOneProcessing(eventType, payload, action);
+            verify(kafkaMessageDeduplicator, times(1)).registerMessageId(messageId);
+        } finally {
+            featureFlipper.setLazyActionParsingEnabled(false);
+        }
+    }
+
+    @Test
+    void testInvalidPayloadWithLazyActionParsing() {
+        featureFlipper.setLazyActionParsingEnabled(true);
+        try {
+            mockGetEventTypeAndCreateEvent();
+            // The routing fields are valid but the rest of the action is not.
+            JsonObject action = new JsonObject(serializeAction(buildValidAction()));
+            action.put("events", "not-an-array");
+            doAnswer(invocation -> {
+                Event event = invocation.getArgument(0);
+                event.getAction();
+                return null;
+            }).when(endpointProcessor).process(any(Event.class));
+            inMemoryConnector.source(INGRESS_CHANNEL).send(action.encode());
+
+            micrometerAssertionHelper.awaitAndAssertCounterIncrement(PROCESSING_EXCEPTION_COUNTER_NAME, 1);
+            // The event is persisted but the message is counted as rejected when its action is decoded.
+            micrometerAssertionHelper.assertCounterIncrement(REJECTED_COUNTER_NAME, 1);
+            assertNoCounterIncrement(
+                    PROCESSING_ERROR_COUNTER_NAME,
+                    DUPLICATE_COUNTER_NAME
+            );
+            verify(eventRepository, times(1)).create(any(Event.class));
+        } finally {
+            featureFlipper.setLazyActionParsingEnabled(false);
+        }
+    }
+
+    @Test
+    void testBatchWithConcurrency() {
+        mockGetEventTypeAndCreateEvent();
+        List<String> processedOrgIds = Collections.synchronizedList(new ArrayList<>());
+        List<String> ackedOrgIds = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            Event event = invocation.getArgument(0);
+            // The first org is slower than the second one, the ordering must still be preserved per org.
+            if (event.getOrgId().equals("org-1")) {
+                Thread.sleep(50L);
+            }
+            processedOrgIds.add(event.getOrgId() + "/" + event.getId());
+            return null;
+        }).when(endpointProcessor).process(any(Event.class));
+
+        List<Message<String>> messages = new ArrayList<>();
+        List<String> expectedOrg1 = new ArrayList<>();
+        List<String> expectedOrg2 = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Action action = buildValidAction();
+            action.setOrgId(i % 2 == 0 ? "org-1" : "org-2");
+            UUID messageId = UUID.randomUUID();
+            (i % 2 == 0 ? expectedOrg1 : expectedOrg2).add(action.getOrgId() + "/" + messageId);
+            messages.add(buildMessageWithId(messageId.toString().getBytes(UTF_8), serializeAction(action)).withAck(() -> {
+                ackedOrgIds.add(action.getOrgId());
+                return CompletableFuture.completedFuture(null);
+            }));
+        }
+
+        EventConsumer consumer = (EventConsumer) ((ClientProxy) eventConsumer).arc_contextualInstance();
+        int initialConcurrency = consumer.concurrency;
+        ExecutorService initialExecutor = consumer.executor;
+        consumer.concurrency = 2;
+        consumer.executor = Executors.newFixedThreadPool(2);
+        try {
+            consumer.process(messages).toCompletableFuture().join();
+        } finally {
+            consumer.executor.shutdown();
+            consumer.concurrency = initialConcurrency;
+            consumer.executor = initialExecutor;
+        }
+
+        assertEquals(6, processedOrgIds.size());
+        assertEquals(expectedOrg1, processedOrgIds.stream().filter(id -> id.startsWith("org-1")).collect(Collectors.toList()));
+        assertEquals(expectedOrg2, processedOrgIds.stream().filter(id -> id.startsWith("org-2")).collect(Collectors.toList()));
+        // The second org didn't have to wait for the slow first org.
+        assertEquals(expectedOrg2, processedOrgIds.subList(0, 3));
+        // The records of the second org were acknowledged without waiting for the first org.
+        assertEquals(List.of("org-2", "org-2", "org-2"), ackedOrgIds.subList(0, 3));
+        assertNoCounterIncrement(
+                REJECTED_COUNTER_NAME,
+                PROCESSING_ERROR_COUNTER_NAME,
+                PROCESSING_EXCEPTION_COUNTER_NAME,
+                DUPLICATE_COUNTER_NAME
+        );
+    }
+
     private EventType mockGetEventTypeAndCreateEvent() {
         Bundle bundle = new Bundle();
         bundle.setDisplayName("Bundle");
@@ -0,0 +1,171 @@
+package com.redhat.cloud.notifications.events;
+
+import com.redhat.cloud.notifications.MicrometerAssertionHelper;
+import com.redhat.cloud.notifications.TestLifecycleManager;
+import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.db.CacheInvalidationEvent;
+import com.redhat.cloud.notifications.db.CacheInvalidationListener;
+import com.redhat.cloud.notifications.db.ResourceHelpers;
+import com.redhat.cloud.notifications.db.StatelessSessionFactory;
+import com.redhat.cloud.notifications.db.repositories.EventTypeRepository;
+import com.redhat.cloud.notifications.models.Application;
+import com.redhat.cloud.notifications.models.Bundle;
+import com.redhat.cloud.notifications.models.EventType;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.mockito.InjectSpy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.NoResultException;
+import javax.transaction.Transactional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static com.redhat.cloud.notifications.db.CacheInvalidation.CHANNEL;
+import static com.redhat.cloud.notifications.db.CacheInvalidation.EVENT_TYPES;
+import static com.redhat.cloud.notifications.events.EventTypeCatalog.CACHE_HIT_COUNTER_NAME;
+import static com.redhat.cloud.notifications.events.EventTypeCatalog.CACHE_MISS_COUNTER_NAME;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.doAnswer;
+
+@QuarkusTest
+@QuarkusTestResource(TestLifecycleManager.class)
+public class EventTypeCatalogTest {
+
+    @Inject
+    EventTypeCatalog eventTypeCatalog;
+
+    @Inject
+    CacheInvalidationListener cacheInvalidationListener;
+
+    @Inject
+    StatelessSessionFactory statelessSessionFactory;
+
+    @Inject
+    ResourceHelpers resourceHelpers;
+
+    @Inject
+    FeatureFlipper featureFlipper;
+
+    @Inject
+    MicrometerAssertionHelper micrometerAssertionHelper;
+
+    @Inject
+    EntityManager entityManager;
+
+    @InjectSpy
+    EventTypeRepository eventTypeRepository;
+
+    @BeforeEach
+    void beforeEach() {
+        featureFlipper.setEventTypeCacheEnabled(true);
+        micrometerAssertionHelper.saveCounterValuesBeforeTest(CACHE_HIT_COUNTER_NAME, CACHE_MISS_COUNTER_NAME);
+    }
+
+    @AfterEach
+    void afterEach() {
+        featureFlipper.setEventTypeCacheEnabled(false);
+        cacheInvalidationListener.poll();
+        micrometerAssertionHelper.clearSavedValues();
+    }
+
+    @Test
+    void testCacheHitsAndMisses() {
+        EventType eventType = createEventType();
+        eventTypeCatalog.onCacheInvalidation(new CacheInvalidationEvent(EVENT_TYPES));
+
+        // The event type was loaded with the snapshot.
+        getEventType(eventType);
+        micrometerAssertionHelper.assertCounterIncrement(CACHE_HIT_COUNTER_NAME, 1);
+        micrometerAssertionHelper.assertCounterIncrement(CACHE_MISS_COUNTER_NAME, 0);
+
+        // This event type was created after the last reload, it has to be retrieved from the DB once.
+        EventType newEventType = createEventType();
+        getEventType(newEventType);
+        getEventType(newEventType);
+        micrometerAssertionHelper.assertCounterIncrement(CACHE_HIT_COUNTER_NAME, 2);
+        micrometerAssertionHelper.assertCounterIncrement(CACHE_MISS_COUNTER_NAME, 1);
+
+        // Unknown triplets are also cached.
+        for (int i = 0; i < 2; i++) {
+            assertThrows(NoResultException.class, () -> {
+                statelessSessionFactory.withSession(statelessSession -> {
+                    eventTypeCatalog.getEventType("unknown-bundle", "unknown-app", "unknown-event-type");
+                });
+            });
+        }
+        micrometerAssertionHelper.assertCounterIncrement(CACHE_HIT_COUNTER_NAME, 3);
+        micrometerAssertionHelper.assertCounterIncrement(CACHE_MISS_COUNTER_NAME, 2);
+    }
+
+    @Test
+    void testCacheInvalidationNotification() {
+        // The first poll opens the listening connection and loads the snapshot.
+        cacheInvalidationListener.poll();
+
+        EventType eventType = createEventType();
+        notifyEngine(EVENT_TYPES);
+        cacheInvalidationListener.poll();
+
+        // The snapshot was reloaded after the notification so the new event type is found without querying the DB.
+        getEventType(eventType);
+        micrometerAssertionHelper.assertCounterIncrement(CACHE_HIT_COUNTER_NAME, 1);
+        micrometerAssertionHelper.assertCounterIncrement(CACHE_MISS_COUNTER_NAME, 0);
+    }
+
+    @Test
+    void testUnknownTripletIsNotCachedAcrossReloads() {
+        eventTypeCatalog.onCacheInvalidation(new CacheInvalidationEvent(EVENT_TYPES));
+        doAnswer(invocation -> {
+            try {
+                return invocation.callRealMethod();
+            } finally {
+                // The snapshot is reloaded by another thread between the DB lookup and the caching of the unknown triplet.
+                CompletableFuture.runAsync(() -> eventTypeCatalog.onCacheInvalidation(new CacheInvalidationEvent(EVENT_TYPES)))
+                        .get(10L, SECONDS);
+            }
+        }).when(eventTypeRepository).getEventType("unknown-bundle", "unknown-app", "reloaded-event-type");
+
+        for (int i = 0; i < 2; i++) {
+            assertThrows(NoResultException.class, () -> {
+                statelessSessionFactory.withSession(statelessSession -> {
+                    eventTypeCatalog.getEventType("unknown-bundle", "unknown-app", "reloaded-event-type");
+                });
+            });
+        }
+
+        // The unknown triplet was cached in the previous snapshot, so the DB is queried again after the reload.
+        micrometerAssertionHelper.assertCounterIncrement(CACHE_HIT_COUNTER_NAME, 0);
+        micrometerAssertionHelper.assertCounterIncrement(CACHE_MISS_COUNTER_NAME, 2);
+    }
+
+    @Transactional
+    void notifyEngine(String cacheName) {
+        entityManager.createNativeQuery("SELECT CAST(pg_notify(:channel, :cacheName) AS VARCHAR)")
+                .setParameter("channel", CHANNEL)
+                .setParameter("cacheName", cacheName)
+                .getSingleResult();
+    }
+
+    private EventType createEventType() {
+        Bundle bundle = resourceHelpers.createBundle("bundle-" + UUID.randomUUID());
+        Application app = resourceHelpers.createApp(bundle.getId(), "app-" + UUID.randomUUID());
+        EventType eventType = resourceHelpers.createEventType(app.getId(), "event-type-" + UUID.randomUUID());
+        eventType.getApplication().setBundle(bundle);
+        return eventType;
+    }
+
+    private void getEventType(EventType expected) {
+        statelessSessionFactory.withSession(statelessSession -> {
+            EventType actual = eventTypeCatalog.getEventType(expected.getApplication().getBundle().getName(),
+                    expected.getApplication().getName(), expected.getName());
+            assertEquals(expected.getId(), actual.getId());
+        });
+    }
+}
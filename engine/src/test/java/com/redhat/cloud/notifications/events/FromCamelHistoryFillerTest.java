@@ -3,7 +3,10 @@ package com.redhat.cloud.notifications.events;
 import com.redhat.cloud.notifications.Json;
 import com.redhat.cloud.notifications.MicrometerAssertionHelper;
 import com.redhat.cloud.notifications.TestLifecycleManager;
+import com.redhat.cloud.notifications.cloudevents.CamelReturn;
 import com.redhat.cloud.notifications.db.repositories.NotificationHistoryRepository;
+import com.redhat.cloud.notifications.models.UpdatedHistoryItem;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.quarkus.test.common.QuarkusTestResource;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.junit.mockito.InjectMock;
@@ -16,16 +19,27 @@ import org.mockito.ArgumentCaptor;
 import javax.enterprise.inject.Any;
 import javax.inject.Inject;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 import static com.redhat.cloud.notifications.events.FromCamelHistoryFiller.FROMCAMEL_CHANNEL;
 import static com.redhat.cloud.notifications.events.FromCamelHistoryFiller.MESSAGES_ERROR_COUNTER_NAME;
 import static com.redhat.cloud.notifications.events.FromCamelHistoryFiller.MESSAGES_PROCESSED_COUNTER_NAME;
+import static com.redhat.cloud.notifications.events.FromCamelHistoryFiller.ROUND_TRIP_TIMER_NAME;
+import static java.time.ZoneOffset.UTC;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
 
 @QuarkusTest
 @QuarkusTestResource(TestLifecycleManager.class)
@@ -38,9 +52,15 @@ public class FromCamelHistoryFillerTest {
     @InjectMock
     NotificationHistoryRepository notificationHistoryRepository;
 
+    @InjectMock
+    IntegrationFailureAggregator integrationFailureAggregator;
+
     @Inject
     MicrometerAssertionHelper micrometerAssertionHelper;
 
+    @Inject
+    MeterRegistry registry;
+
     @BeforeEach
     void beforeEach() {
         micrometerAssertionHelper.saveCounterValuesBeforeTest(
@@ -56,12 +76,13 @@ public class FromCamelHistoryFillerTest {
 
     @Test
     void testInvalidPayload() {
-        inMemoryConnector.source(FROMCAMEL_CHANNEL).send("I am not valid!");
+        inMemoryConnector.source(FROMCAMEL_CHANNEL).send(List.of("I am not valid!"));
 
         micrometerAssertionHelper.awaitAndAssertCounterIncrement(MESSAGES_PROCESSED_COUNTER_NAME, 1);
         micrometerAssertionHelper.assertCounterIncrement(MESSAGES_ERROR_COUNTER_NAME, 1);
 
         verifyNoInteractions(notificationHistoryRepository);
+        verifyNoInteractions(integrationFailureAggregator);
     }
 
     @Test
@@ -72,39 +93,109 @@ public class FromCamelHistoryFillerTest {
         String expectedDetailsType = "com.redhat.console.notification.toCamel.tower";
         String expectedDetailsTarget = "1.2.3.4";
 
-        String payload = Json.encode(Map.of(
+        UUID endpointId = UUID.randomUUID();
+        when(notificationHistoryRepository.updateHistoryItems(anyList())).thenReturn(Map.of(UUID.fromString(expectedHistoryId), new UpdatedHistoryItem(endpointId, LocalDateTime.now(UTC).minusSeconds(2))));
+        long roundTripsBefore = registry.timer(ROUND_TRIP_TIMER_NAME).count();
+
+        String payload = buildPayload(expectedHistoryId, expectedDuration, expectedOutcome, expectedDetailsType, expectedDetailsTarget);
+        inMemoryConnector.source(FROMCAMEL_CHANNEL).send(List.of(payload));
+
+        micrometerAssertionHelper.awaitAndAssertCounterIncrement(MESSAGES_PROCESSED_COUNTER_NAME, 1);
+        micrometerAssertionHelper.assertCounterIncrement(MESSAGES_ERROR_COUNTER_NAME, 0);
+
+        ArgumentCaptor<List<CamelReturn>> decodedPayloads = ArgumentCaptor.forClass(List.class);
+        verify(notificationHistoryRepository, times(1)).updateHistoryItems(decodedPayloads.capture());
+        verifyNoMoreInteractions(notificationHistoryRepository);
+        // The failed call is reinjected with the other failures of its endpoint.
+        verify(integrationFailureAggregator, times(1)).record(endpointId, decodedPayloads.getValue().get(0));
+        // The round trip is measured from the creation of the history item.
+        assertEquals(roundTripsBefore + 1, registry.timer(ROUND_TRIP_TIMER_NAME).count());
+        assertTrue(registry.timer(ROUND_TRIP_TIMER_NAME).max(SECONDS) >= 2);
+
+        assertEquals(1, decodedPayloads.getValue().size());
+        CamelReturn decodedPayload = decodedPayloads.getValue().get(0);
+        assertEquals(expectedHistoryId, decodedPayload.getHistoryId());
+        assertEquals(expectedDuration, decodedPayload.getDuration());
+        assertEquals(expectedOutcome, decodedPayload.getOutcome());
+        Map<String, Object> details = decodedPayload.getDetails();
+        assertEquals(expectedDetailsType, details.get("type"));
+        assertEquals(expectedDetailsTarget, details.get("target"));
+    }
+
+    @Test
+    void testBatchWithInvalidAndDuplicatePayloads() {
+        String historyId1 = UUID.randomUUID().toString();
+        String historyId2 = UUID.randomUUID().toString();
+
+        inMemoryConnector.source(FROMCAMEL_CHANNEL).send(List.of(
+                buildPayload(historyId1, 10, "Success: first try", "type", "target"),
+                "I am not valid!",
+                buildPayload(historyId2, 20, "Success", "type", "target"),
+                buildPayload(historyId1, 30, "Success: second try", "type", "target")
+        ));
+
+        micrometerAssertionHelper.awaitAndAssertCounterIncrement(MESSAGES_PROCESSED_COUNTER_NAME, 4);
+        micrometerAssertionHelper.assertCounterIncrement(MESSAGES_ERROR_COUNTER_NAME, 1);
+
+        // The valid records are applied with a single update, the last record of a duplicated history ID wins.
+        ArgumentCaptor<List<CamelReturn>> decodedPayloads = ArgumentCaptor.forClass(List.class);
+        verify(notificationHistoryRepository, times(1)).updateHistoryItems(decodedPayloads.capture());
+        verifyNoMoreInteractions(notificationHistoryRepository);
+        // None of the history items were found, so there is nothing to reinject.
+        verifyNoInteractions(integrationFailureAggregator);
+
+        assertEquals(2, decodedPayloads.getValue().size());
+        assertEquals(historyId1, decodedPayloads.getValue().get(0).getHistoryId());
+        assertEquals("Success: second try", decodedPayloads.getValue().get(0).getOutcome());
+        assertEquals(historyId2, decodedPayloads.getValue().get(1).getHistoryId());
+    }
+
+    @Test
+    void testFailedBatchIsUpdatedPerRecord() {
+        String historyId1 = UUID.randomUUID().toString();
+        String historyId2 = UUID.randomUUID().toString();
+        UUID endpointId = UUID.randomUUID();
+
+        // The whole poll fails, then only the second record fails when the records are updated one by one.
+        when(notificationHistoryRepository.updateHistoryItems(anyList())).then(invocation -> {
+            List<CamelReturn> returns = invocation.getArgument(0);
+            if (returns.size() > 1 || returns.get(0).getHistoryId().equals(historyId2)) {
+                throw new RuntimeException("Update failure");
+            }
+            return Map.of(UUID.fromString(historyId1), new UpdatedHistoryItem(endpointId, LocalDateTime.now(UTC)));
+        });
+
+        inMemoryConnector.source(FROMCAMEL_CHANNEL).send(List.of(
+                buildPayload(historyId1, 10, "Failure", "type", "target"),
+                buildPayload(historyId2, 20, "Failure", "type", "target")
+        ));
+
+        micrometerAssertionHelper.awaitAndAssertCounterIncrement(MESSAGES_PROCESSED_COUNTER_NAME, 2);
+        micrometerAssertionHelper.assertCounterIncrement(MESSAGES_ERROR_COUNTER_NAME, 1);
+
+        verify(notificationHistoryRepository, times(3)).updateHistoryItems(anyList());
+        // The first record was applied despite the failure of the batch.
+        verify(integrationFailureAggregator, times(1)).record(eq(endpointId), any(CamelReturn.class));
+    }
+
+    private static String buildPayload(String historyId, int duration, String outcome, String detailsType, String detailsTarget) {
+        return Json.encode(Map.of(
                 "specversion", "1.0",
                 "source", "demo-log",
                 "type", "com.redhat.cloud.notifications.history",
                 "time", "2021-12-14T10:08:23.217Z",
-                "id", expectedHistoryId,
+                "id", historyId,
                 "content-type", "application/json",
                 "data", Json.encode(Map.of(
-                        "duration", expectedDuration,
+                        "duration", duration,
                         "finishTime", 1639476503209L,
                         "details", Map.of(
-                                "type", expectedDetailsType,
-                                "target", expectedDetailsTarget
+                                "type", detailsType,
+                                "target", detailsTarget
                         ),
-                        "outcome", expectedOutcome,
-                        "successful", false
+                        "outcome", outcome,
+                        "successful", outcome.startsWith("Success")
                 ))
         ));
-        inMemoryConnector.source(FROMCAMEL_CHANNEL).send(payload);
-
-        micrometerAssertionHelper.awaitAndAssertCounterIncrement(MESSAGES_PROCESSED_COUNTER_NAME, 1);
-        micrometerAssertionHelper.assertCounterIncrement(MESSAGES_ERROR_COUNTER_NAME, 0);
-
-        ArgumentCaptor<Map<String, Object>> decodedPayload = ArgumentCaptor.forClass(Map.class);
-        verify(notificationHistoryRepository, times(1)).updateHistoryItem(decodedPayload.capture());
-        verify(notificationHistoryRepository, times(1)).getEndpointForHistoryId((String) decodedPayload.getValue().get("historyId"));
-        verifyNoMoreInteractions(notificationHistoryRepository);
-
-        assertEquals(expectedHistoryId, decodedPayload.getValue().get("historyId"));
-        assertEquals(expectedDuration, decodedPayload.getValue().get("duration"));
-        assertEquals(expectedOutcome, decodedPayload.getValue().get("outcome"));
-        Map<String, Object> details = (Map<String, Object>) decodedPayload.getValue().get("details");
-        assertEquals(expectedDetailsType, details.get("type"));
-        assertEquals(expectedDetailsTarget, details.get("target"));
     }
 }
@@ -0,0 +1,118 @@
+package com.redhat.cloud.notifications.events;
+
+import com.redhat.cloud.notifications.TestLifecycleManager;
+import com.redhat.cloud.notifications.cloudevents.CamelReturn;
+import com.redhat.cloud.notifications.ingress.Action;
+import com.redhat.cloud.notifications.ingress.Parser;
+import com.redhat.cloud.notifications.models.Endpoint;
+import io.quarkus.arc.ClientProxy;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.reactive.messaging.providers.connectors.InMemoryConnector;
+import io.smallrye.reactive.messaging.providers.connectors.InMemorySink;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.enterprise.inject.Any;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.util.List;
+import java.util.UUID;
+
+import static com.redhat.cloud.notifications.events.FromCamelHistoryFiller.EGRESS_CHANNEL;
+import static com.redhat.cloud.notifications.models.EndpointType.CAMEL;
+import static java.lang.Boolean.FALSE;
+import static java.lang.Boolean.TRUE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@QuarkusTest
+@QuarkusTestResource(TestLifecycleManager.class)
+public class IntegrationFailureAggregatorTest {
+
+    @Inject
+    @Any
+    InMemoryConnector inMemoryConnector;
+
+    @Inject
+    IntegrationFailureAggregator integrationFailureAggregator;
+
+    @Inject
+    EntityManager entityManager;
+
+    @BeforeEach
+    @AfterEach
+    void clearSink() {
+        inMemoryConnector.sink(EGRESS_CHANNEL).clear();
+    }
+
+    @Test
+    void testFailuresAreCoalescedPerEndpoint() {
+        Endpoint endpoint = createEndpoint();
+        CamelReturn failure1 = buildFailure();
+        CamelReturn failure2 = buildFailure();
+        CamelReturn failure3 = buildFailure();
+
+        integrationFailureAggregator.record(endpoint.getId(), failure1);
+        integrationFailureAggregator.record(endpoint.getId(), failure2);
+        integrationFailureAggregator.record(endpoint.getId(), failure3);
+        // The failures of an unknown endpoint are dropped.
+        integrationFailureAggregator.record(UUID.randomUUID(), buildFailure());
+
+        integrationFailureAggregator.flush();
+
+        InMemorySink<String> egressSink = inMemoryConnector.sink(EGRESS_CHANNEL);
+        assertEquals(1, egressSink.received().size());
+        Action action = Parser.decode(egressSink.received().get(0).getPayload());
+        assertEquals("integration-failed", action.getEventType());
+        assertEquals(endpoint.getAccountId(), action.getAccountId());
+        assertEquals(endpoint.getName(), action.getContext().getAdditionalProperties().get("failed-integration"));
+        assertEquals(endpoint.getId().toString(), action.getContext().getAdditionalProperties().get("endpoint-id"));
+        assertEquals(3, action.getContext().getAdditionalProperties().get("failure-count"));
+        assertEquals(List.of(failure1.getHistoryId(), failure2.getHistoryId(), failure3.getHistoryId()),
+                action.getContext().getAdditionalProperties().get("history-ids"));
+        assertEquals(3, action.getEvents().size());
+        assertEquals("Connection refused", action.getEvents().get(0).getPayload().getAdditionalProperties().get("outcome"));
+
+        // The window was flushed, nothing is reinjected until new failures are recorded.
+        integrationFailureAggregator.flush();
+        assertEquals(1, egressSink.received().size());
+    }
+
+    @Test
+    void testFailuresAreFlushedOnShutdown() {
+        Endpoint endpoint = createEndpoint();
+        integrationFailureAggregator.record(endpoint.getId(), buildFailure());
+
+        IntegrationFailureAggregator aggregator = (IntegrationFailureAggregator) ((ClientProxy) integrationFailureAggregator).arc_contextualInstance();
+        aggregator.shutdown();
+
+        InMemorySink<String> egressSink = inMemoryConnector.sink(EGRESS_CHANNEL);
+        assertEquals(1, egressSink.received().size());
+        Action action = Parser.decode(egressSink.received().get(0).getPayload());
+        assertEquals(1, action.getContext().getAdditionalProperties().get("failure-count"));
+    }
+
+    @Transactional
+    Endpoint createEndpoint() {
+        Endpoint endpoint = new Endpoint();
+        endpoint.setAccountId("account-id");
+        endpoint.setType(CAMEL);
+        endpoint.setSubType("slack");
+        endpoint.setName("Slack " + UUID.randomUUID());
+        endpoint.setDescription("Endpoint description");
+        endpoint.setEnabled(TRUE);
+        entityManager.persist(endpoint);
+        return endpoint;
+    }
+
+    private static CamelReturn buildFailure() {
+        CamelReturn camelReturn = new CamelReturn();
+        camelReturn.setHistoryId(UUID.randomUUID().toString());
+        camelReturn.setOutcome("Connection refused");
+        camelReturn.setSuccessful(FALSE);
+        camelReturn.setDuration(123L);
+        return camelReturn;
+    }
+}
@@ -0,0 +1,199 @@
+package com.redhat.cloud.notifications.events;
+
+import com.redhat.cloud.notifications.TestLifecycleManager;
+import com.redhat.cloud.notifications.db.repositories.EventRepository;
+import com.redhat.cloud.notifications.models.Event;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.arc.ClientProxy;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.mockito.InjectMock;
+import io.smallrye.reactive.messaging.providers.connectors.InMemoryConnector;
+import io.smallrye.reactive.messaging.providers.connectors.InMemorySink;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.enterprise.inject.Any;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.redhat.cloud.notifications.events.TenantScheduler.DELAYED_CHANNEL;
+import static com.redhat.cloud.notifications.events.TenantScheduler.DELAY_CHANNEL;
+import static com.redhat.cloud.notifications.events.TenantScheduler.QUEUE_DEPTH_GAUGE_NAME;
+import static com.redhat.cloud.notifications.events.TenantScheduler.THROTTLED_COUNTER_NAME;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@QuarkusTest
+@QuarkusTestResource(TestLifecycleManager.class)
+public class TenantSchedulerTest {
+
+    @Inject
+    @Any
+    InMemoryConnector inMemoryConnector;
+
+    @InjectMock
+    EndpointProcessor endpointProcessor;
+
+    @InjectMock
+    EventRepository eventRepository;
+
+    @Inject
+    TenantScheduler tenantScheduler;
+
+    @Inject
+    MeterRegistry registry;
+
+    private TenantScheduler scheduler;
+    private double tenantCapacity;
+    private double tenantRefillPerSecond;
+    private Duration idleEviction;
+
+    @BeforeEach
+    void beforeEach() {
+        // The bean fields are only visible from the real instance, not from the client proxy.
+        scheduler = (TenantScheduler) ((ClientProxy) tenantScheduler).arc_contextualInstance();
+        tenantCapacity = scheduler.tenantCapacity;
+        tenantRefillPerSecond = scheduler.tenantRefillPerSecond;
+        idleEviction = scheduler.idleEviction;
+        inMemoryConnector.sink(DELAY_CHANNEL).clear();
+    }
+
+    @AfterEach
+    void afterEach() {
+        scheduler.tenantCapacity = tenantCapacity;
+        scheduler.tenantRefillPerSecond = tenantRefillPerSecond;
+        scheduler.idleEviction = idleEviction;
+    }
+
+    @Test
+    void testEventsAreProcessedInOrderPerTenant() {
+        String org1 = randomOrgId();
+        String org2 = randomOrgId();
+        UUID bundleId = UUID.randomUUID();
+
+        List<Event> processed = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            processed.add(invocation.getArgument(0));
+            return null;
+        }).when(endpointProcessor).process(any(Event.class));
+
+        List<Event> events = new ArrayList<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Event event = buildEvent(i % 2 == 0 ? org1 : org2, bundleId);
+            events.add(event);
+            futures.add(tenantScheduler.schedule(event).toCompletableFuture());
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).orTimeout(10, TimeUnit.SECONDS).join();
+
+        assertEquals(20, processed.size());
+        for (String org : List.of(org1, org2)) {
+            assertEquals(filterByOrg(events, org), filterByOrg(processed, org));
+        }
+    }
+
+    @Test
+    void testBurstingTenantIsThrottled() {
+        scheduler.tenantCapacity = 2;
+        scheduler.tenantRefillPerSecond = 0;
+        String org = randomOrgId();
+        UUID bundleId = UUID.randomUUID();
+        double throttledBefore = registry.counter(THROTTLED_COUNTER_NAME).count();
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Event event = buildEvent(org, bundleId);
+            events.add(event);
+            futures.add(tenantScheduler.schedule(event).toCompletableFuture());
+        }
+        // The throttled event is done as soon as it is sent to the delay topic, its tenant never holds the caller.
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).orTimeout(10, TimeUnit.SECONDS).join();
+
+        verify(endpointProcessor, times(2)).process(any(Event.class));
+        InMemorySink<String> delaySink = inMemoryConnector.sink(DELAY_CHANNEL);
+        assertEquals(1, delaySink.received().size());
+        JsonObject delayed = new JsonObject(delaySink.received().get(0).getPayload());
+        assertEquals(events.get(2).getId().toString(), delayed.getString("eventId"));
+        assertEquals(throttledBefore + 1D, registry.counter(THROTTLED_COUNTER_NAME).count());
+        assertNull(registry.find(THROTTLED_COUNTER_NAME).tag("org", org).counter());
+    }
+
+    @Test
+    void testDelayedEventIsProcessed() {
+        Event event = buildEvent(randomOrgId(), UUID.randomUUID());
+        event.setPayload("{}");
+        when(eventRepository.findById(event.getId())).thenReturn(event);
+
+        JsonObject payload = new JsonObject()
+                .put("eventId", event.getId().toString())
+                .put("notBefore", System.currentTimeMillis());
+        inMemoryConnector.source(DELAYED_CHANNEL).send(payload.encode());
+
+        verify(endpointProcessor, timeout(10_000L)).process(event);
+    }
+
+    @Test
+    void testIdleTenantIsEvicted() {
+        String org = randomOrgId();
+        tenantScheduler.schedule(buildEvent(org, UUID.randomUUID())).toCompletableFuture().orTimeout(10, TimeUnit.SECONDS).join();
+        assertNotNull(registry.find(QUEUE_DEPTH_GAUGE_NAME).tag("org", org).gauge());
+
+        // The tenant is not idle for long enough yet.
+        scheduler.evictIdleTenants();
+        assertNotNull(registry.find(QUEUE_DEPTH_GAUGE_NAME).tag("org", org).gauge());
+
+        // The worker may still be releasing the tenant right after the event was processed.
+        scheduler.idleEviction = Duration.ZERO;
+        await().atMost(Duration.ofSeconds(10L)).untilAsserted(() -> {
+            scheduler.evictIdleTenants();
+            assertNull(registry.find(QUEUE_DEPTH_GAUGE_NAME).tag("org", org).gauge());
+        });
+
+        // The tenant gets a new queue if it comes back.
+        CompletableFuture<Void> future = tenantScheduler.schedule(buildEvent(org, UUID.randomUUID())).toCompletableFuture();
+        future.orTimeout(10, TimeUnit.SECONDS).join();
+        assertFalse(future.isCompletedExceptionally());
+        assertNotNull(registry.find(QUEUE_DEPTH_GAUGE_NAME).tag("org", org).gauge());
+    }
+
+    private static Event buildEvent(String orgId, UUID bundleId) {
+        Event event = new Event();
+        event.setId(UUID.randomUUID());
+        event.setOrgId(orgId);
+        event.setBundleId(bundleId);
+        return event;
+    }
+
+    private static String randomOrgId() {
+        return "org-" + UUID.randomUUID();
+    }
+
+    private static List<Event> filterByOrg(List<Event> events, String orgId) {
+        List<Event> result = new ArrayList<>();
+        for (Event event : events) {
+            if (orgId.equals(event.getOrgId())) {
+                result.add(event);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,234 @@
+package com.redhat.cloud.notifications.processors;
+
+import com.redhat.cloud.notifications.MicrometerAssertionHelper;
+import com.redhat.cloud.notifications.MockServerLifecycleManager;
+import com.redhat.cloud.notifications.TestLifecycleManager;
+import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.db.ResourceHelpers;
+import com.redhat.cloud.notifications.models.Endpoint;
+import com.redhat.cloud.notifications.models.EndpointStatus;
+import com.redhat.cloud.notifications.models.Event;
+import com.redhat.cloud.notifications.models.HttpType;
+import com.redhat.cloud.notifications.models.NotificationHistory;
+import com.redhat.cloud.notifications.models.WebhookProperties;
+import com.redhat.cloud.notifications.processors.webhooks.WebhookTypeProcessor;
+import io.quarkus.arc.ClientProxy;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockserver.model.HttpRequest;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.redhat.cloud.notifications.MockServerLifecycleManager.getMockServerUrl;
+import static com.redhat.cloud.notifications.TestHelpers.createPoliciesAction;
+import static com.redhat.cloud.notifications.models.EndpointType.WEBHOOK;
+import static com.redhat.cloud.notifications.processors.EndpointCircuitBreaker.CIRCUIT_OPEN_DETAIL;
+import static com.redhat.cloud.notifications.processors.EndpointCircuitBreaker.OPENED_COUNTER_NAME;
+import static com.redhat.cloud.notifications.processors.EndpointCircuitBreaker.SHORT_CIRCUITED_COUNTER_NAME;
+import static com.redhat.cloud.notifications.processors.EndpointCircuitBreaker.State.CLOSED;
+import static com.redhat.cloud.notifications.processors.EndpointCircuitBreaker.State.HALF_OPEN;
+import static com.redhat.cloud.notifications.processors.EndpointCircuitBreaker.State.OPEN;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockserver.model.HttpResponse.response;
+
+@QuarkusTest
+@QuarkusTestResource(TestLifecycleManager.class)
+public class EndpointCircuitBreakerTest {
+
+    private static final Duration OPEN_DURATION = Duration.ofMillis(500L);
+
+    @Inject
+    EndpointCircuitBreaker endpointCircuitBreaker;
+
+    @Inject
+    WebhookTypeProcessor webhookTypeProcessor;
+
+    @Inject
+    FeatureFlipper featureFlipper;
+
+    @Inject
+    MicrometerAssertionHelper micrometerAssertionHelper;
+
+    @Inject
+    ResourceHelpers resourceHelpers;
+
+    @Inject
+    EntityManager entityManager;
+
+    private EndpointCircuitBreaker circuitBreaker;
+    private int windowSize;
+    private int minimumCalls;
+    private Duration openDuration;
+
+    @BeforeEach
+    void beforeEach() {
+        // The bean fields are only visible from the real instance, not from the client proxy.
+        circuitBreaker = (EndpointCircuitBreaker) ((ClientProxy) endpointCircuitBreaker).arc_contextualInstance();
+        windowSize = circuitBreaker.windowSize;
+        minimumCalls = circuitBreaker.minimumCalls;
+        openDuration = circuitBreaker.openDuration;
+        circuitBreaker.windowSize = 4;
+        circuitBreaker.minimumCalls = 4;
+        circuitBreaker.openDuration = OPEN_DURATION;
+        circuitBreaker.reset();
+        featureFlipper.setCircuitBreakerEnabled(true);
+        micrometerAssertionHelper.saveCounterValuesBeforeTest(SHORT_CIRCUITED_COUNTER_NAME, OPENED_COUNTER_NAME);
+    }
+
+    @AfterEach
+    void afterEach() {
+        circuitBreaker.windowSize = windowSize;
+        circuitBreaker.minimumCalls = minimumCalls;
+        circuitBreaker.openDuration = openDuration;
+        circuitBreaker.endpointStatusEnabled = false;
+        circuitBreaker.reset();
+        featureFlipper.setCircuitBreakerEnabled(false);
+        featureFlipper.setWebhookRetryTopicEnabled(false);
+        micrometerAssertionHelper.clearSavedValues();
+    }
+
+    @Test
+    void testStateTransitions() throws InterruptedException {
+        Endpoint endpoint = buildEndpoint(UUID.randomUUID());
+
+        // The failure rate is only evaluated once the minimum number of calls is reached.
+        for (int i = 0; i < 3; i++) {
+            assertTrue(endpointCircuitBreaker.allowRequest(endpoint));
+            endpointCircuitBreaker.recordResult(endpoint.getId(), false);
+        }
+        assertEquals(CLOSED, circuitBreaker.getState(endpoint.getId()));
+
+        assertTrue(endpointCircuitBreaker.allowRequest(endpoint));
+        endpointCircuitBreaker.recordResult(endpoint.getId(), false);
+        assertEquals(OPEN, circuitBreaker.getState(endpoint.getId()));
+        assertFalse(endpointCircuitBreaker.allowRequest(endpoint));
+        micrometerAssertionHelper.assertCounterIncrement(OPENED_COUNTER_NAME, 1);
+        micrometerAssertionHelper.assertCounterIncrement(SHORT_CIRCUITED_COUNTER_NAME, 1);
+
+        // After the open duration, a single trial call is allowed. It fails so the circuit opens again.
+        Thread.sleep(OPEN_DURATION.toMillis() + 100L);
+        assertTrue(endpointCircuitBreaker.allowRequest(endpoint));
+        assertEquals(HALF_OPEN, circuitBreaker.getState(endpoint.getId()));
+        assertFalse(endpointCircuitBreaker.allowRequest(endpoint));
+        endpointCircuitBreaker.recordResult(endpoint.getId(), false);
+        assertEquals(OPEN, circuitBreaker.getState(endpoint.getId()));
+
+        // This time the trial call succeeds and the circuit closes.
+        Thread.sleep(OPEN_DURATION.toMillis() + 100L);
+        assertTrue(endpointCircuitBreaker.allowRequest(endpoint));
+        endpointCircuitBreaker.recordResult(endpoint.getId(), true);
+        assertEquals(CLOSED, circuitBreaker.getState(endpoint.getId()));
+        assertTrue(endpointCircuitBreaker.allowRequest(endpoint));
+    }
+
+    @Test
+    void testSuccessesKeepTheCircuitClosed() {
+        Endpoint endpoint = buildEndpoint(UUID.randomUUID());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(endpointCircuitBreaker.allowRequest(endpoint));
+            // One failure out of four calls is below the threshold.
+            endpointCircuitBreaker.recordResult(endpoint.getId(), i % 4 != 0);
+        }
+        assertEquals(CLOSED, circuitBreaker.getState(endpoint.getId()));
+    }
+
+    @Test
+    void testWebhookCallsAreShortCircuited() {
+        // A single call per event, the retries are scheduled on the retry topic.
+        featureFlipper.setWebhookRetryTopicEnabled(true);
+        AtomicInteger callsCounter = new AtomicInteger();
+        HttpRequest mockServerRequest = new HttpRequest()
+                .withPath("/circuit-breaker")
+                .withMethod("POST");
+        MockServerLifecycleManager.getClient()
+                .withSecure(false)
+                .when(mockServerRequest)
+                .respond(request -> {
+                    callsCounter.incrementAndGet();
+                    return response().withStatusCode(503);
+                });
+
+        try {
+            Endpoint endpoint = buildEndpoint(UUID.randomUUID());
+            for (int i = 0; i < 4; i++) {
+                NotificationHistory history = webhookTypeProcessor.process(buildEvent(), List.of(endpoint)).get(0);
+                assertFalse(history.isInvocationResult());
+                assertNull(history.getDetails().get(CIRCUIT_OPEN_DETAIL));
+            }
+
+            NotificationHistory history = webhookTypeProcessor.process(buildEvent(), List.of(endpoint)).get(0);
+            assertFalse(history.isInvocationResult());
+            assertEquals(true, history.getDetails().get(CIRCUIT_OPEN_DETAIL));
+            assertEquals(4, callsCounter.get());
+            micrometerAssertionHelper.assertCounterIncrement(SHORT_CIRCUITED_COUNTER_NAME, 1);
+        } finally {
+            MockServerLifecycleManager.getClient().clear(mockServerRequest);
+        }
+    }
+
+    @Test
+    void testEndpointStatusTransitions() throws InterruptedException {
+        circuitBreaker.endpointStatusEnabled = true;
+        Endpoint endpoint = resourceHelpers.createEndpoint(WEBHOOK, null);
+
+        for (int i = 0; i < 4; i++) {
+            endpointCircuitBreaker.allowRequest(endpoint);
+            endpointCircuitBreaker.recordResult(endpoint.getId(), false);
+        }
+        awaitEndpointStatus(endpoint.getId(), EndpointStatus.CIRCUIT_OPEN);
+
+        // Another pod which loads the endpoint starts with an open circuit.
+        circuitBreaker.reset();
+        endpoint.setStatus(EndpointStatus.CIRCUIT_OPEN);
+        assertFalse(endpointCircuitBreaker.allowRequest(endpoint));
+
+        Thread.sleep(OPEN_DURATION.toMillis() + 100L);
+        assertTrue(endpointCircuitBreaker.allowRequest(endpoint));
+        endpointCircuitBreaker.recordResult(endpoint.getId(), true);
+        awaitEndpointStatus(endpoint.getId(), EndpointStatus.READY);
+    }
+
+    private void awaitEndpointStatus(UUID endpointId, EndpointStatus expected) throws InterruptedException {
+        EndpointStatus status = null;
+        for (int i = 0; i < 100; i++) {
+            entityManager.clear();
+            status = entityManager.find(Endpoint.class, endpointId).getStatus();
+            if (status == expected) {
+                return;
+            }
+            Thread.sleep(100L);
+        }
+        assertEquals(expected, status);
+    }
+
+    private static Event buildEvent() {
+        Event event = new Event();
+        event.setId(UUID.randomUUID());
+        event.setAction(createPoliciesAction("account-id", "rhel", "policies", "host"));
+        return event;
+    }
+
+    private static Endpoint buildEndpoint(UUID id) {
+        WebhookProperties properties = new WebhookProperties();
+        properties.setMethod(HttpType.POST);
+        properties.setUrl(getMockServerUrl() + "/circuit-breaker");
+
+        Endpoint endpoint = new Endpoint();
+        endpoint.setId(id);
+        endpoint.setType(WEBHOOK);
+        endpoint.setEnabled(true);
+        endpoint.setProperties(properties);
+        return endpoint;
+    }
+}
@@ -0,0 +1,71 @@
+package com.redhat.cloud.notifications.processors;
+
+import io.quarkus.runtime.configuration.MemorySize;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.redhat.cloud.notifications.processors.ResponseBodyLimiter.TRUNCATED_KEY;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class ResponseBodyLimiterTest {
+
+    private ResponseBodyLimiter limiter;
+
+    @BeforeEach
+    void beforeEach() {
+        limiter = new ResponseBodyLimiter();
+        limiter.maxSize = new MemorySize(BigInteger.valueOf(10L));
+        limiter.init();
+    }
+
+    @Test
+    void testShortValuesAreKept() {
+        Map<String, Object> details = new HashMap<>();
+        details.put("outcome", "Success");
+        details.put("code", 200);
+        limiter.limitDetails(details);
+        assertEquals(Map.of("outcome", "Success", "code", 200), details);
+    }
+
+    @Test
+    void testLongValuesAreTruncated() {
+        Map<String, Object> details = new HashMap<>();
+        details.put("outcome", "<html>Internal error</html>");
+        details.put("target", "https://example.com");
+        limiter.limitDetails(details);
+        assertEquals("<html>Inte", details.get("outcome"));
+        assertEquals(27, details.get("outcome_length"));
+        assertEquals("https://ex", details.get("target"));
+        assertEquals(19, details.get("target_length"));
+        assertEquals(true, details.get(TRUNCATED_KEY));
+    }
+
+    @Test
+    void testMultiByteCharsAreNotCut() {
+        // Each of these chars is encoded with 3 bytes, the 4th char would be cut by a 10 bytes limit.
+        byte[] bytes = "€€€€".getBytes(UTF_8);
+        assertEquals("€€€", ResponseBodyLimiter.decode(bytes, 10));
+        assertEquals("€€€€", ResponseBodyLimiter.decode(bytes, bytes.length));
+
+        Map<String, Object> details = new HashMap<>();
+        details.put("outcome", "€€€€");
+        limiter.limitDetails(details);
+        assertEquals("€€€", details.get("outcome"));
+        assertEquals(12, details.get("outcome_length"));
+    }
+
+    @Test
+    void testNoLimitReached() {
+        Map<String, Object> details = new HashMap<>();
+        details.put("outcome", "0123456789");
+        limiter.limitDetails(details);
+        assertEquals("0123456789", details.get("outcome"));
+        assertFalse(details.containsKey(TRUNCATED_KEY));
+    }
+}
@@ -0,0 +1,114 @@
+package com.redhat.cloud.notifications.processors.camel;
+
+import com.redhat.cloud.notifications.TestLifecycleManager;
+import com.redhat.cloud.notifications.db.ResourceHelpers;
+import com.redhat.cloud.notifications.db.StatelessSessionFactory;
+import com.redhat.cloud.notifications.db.repositories.NotificationHistoryRepository;
+import com.redhat.cloud.notifications.models.Application;
+import com.redhat.cloud.notifications.models.Bundle;
+import com.redhat.cloud.notifications.models.Endpoint;
+import com.redhat.cloud.notifications.models.Event;
+import com.redhat.cloud.notifications.models.EventType;
+import com.redhat.cloud.notifications.models.NotificationHistory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.reactive.messaging.providers.connectors.InMemoryConnector;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.enterprise.inject.Any;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.security.SecureRandom;
+import java.util.UUID;
+
+import static com.redhat.cloud.notifications.models.EndpointType.CAMEL;
+import static com.redhat.cloud.notifications.models.NotificationHistory.getHistoryStub;
+import static com.redhat.cloud.notifications.processors.camel.CamelDispatcher.IN_FLIGHT_GAUGE_NAME;
+import static com.redhat.cloud.notifications.processors.camel.CamelDispatcher.SEND_TIMER_NAME;
+import static com.redhat.cloud.notifications.processors.camel.CamelTypeProcessor.TOCAMEL_CHANNEL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@QuarkusTest
+@QuarkusTestResource(TestLifecycleManager.class)
+public class CamelDispatcherTest {
+
+    @Inject
+    @Any
+    InMemoryConnector inMemoryConnector;
+
+    @Inject
+    CamelDispatcher camelDispatcher;
+
+    @Inject
+    NotificationHistoryRepository notificationHistoryRepository;
+
+    @Inject
+    StatelessSessionFactory statelessSessionFactory;
+
+    @Inject
+    ResourceHelpers resourceHelpers;
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    MeterRegistry registry;
+
+    @AfterEach
+    void afterEach() {
+        inMemoryConnector.sink(TOCAMEL_CHANNEL).clear();
+    }
+
+    @Test
+    void testAckReleasesInFlightPermit() {
+        long acksBefore = registry.timer(SEND_TIMER_NAME, "outcome", "ack").count();
+        NotificationHistory history = getHistoryStub(new Endpoint(), new Event(), 0L, UUID.randomUUID());
+
+        camelDispatcher.dispatch(Message.of("payload"), history);
+
+        // The in-memory sink acknowledges the messages as soon as it receives them.
+        assertEquals(1, inMemoryConnector.sink(TOCAMEL_CHANNEL).received().size());
+        assertEquals(0, registry.get(IN_FLIGHT_GAUGE_NAME).gauge().value());
+        assertEquals(acksBefore + 1, registry.timer(SEND_TIMER_NAME, "outcome", "ack").count());
+        assertFalse(history.isInvocationResult());
+    }
+
+    @Test
+    void testNackMarksHistoryFailed() throws InterruptedException {
+        Endpoint endpoint = resourceHelpers.createEndpoint(CAMEL, "slack");
+        NotificationHistory history = getHistoryStub(endpoint, createEvent(), 10L, UUID.randomUUID());
+        history.setInvocationResult(true);
+
+        // The nack is received before the stub is persisted, the history entry is updated once it exists.
+        camelDispatcher.track(Message.of("payload"), history).nack(new IllegalStateException("Record too large"));
+        statelessSessionFactory.withSession(statelessSession -> {
+            notificationHistoryRepository.createNotificationHistory(history);
+        });
+
+        NotificationHistory updated = null;
+        for (int i = 0; i < 50; i++) {
+            entityManager.clear();
+            updated = entityManager.find(NotificationHistory.class, history.getId());
+            if (!updated.isInvocationResult()) {
+                break;
+            }
+            Thread.sleep(100L);
+        }
+        assertFalse(updated.isInvocationResult());
+        assertEquals("Record too large", updated.getDetails().get("failure"));
+        assertEquals(0, registry.get(IN_FLIGHT_GAUGE_NAME).gauge().value());
+    }
+
+    @Transactional
+    Event createEvent() {
+        Bundle bundle = resourceHelpers.createBundle("bundle-" + new SecureRandom().nextInt());
+        Application app = resourceHelpers.createApp(bundle.getId(), "app-" + new SecureRandom().nextInt());
+        EventType eventType = resourceHelpers.createEventType(app.getId(), "event-type-" + new SecureRandom().nextInt());
+        return resourceHelpers.createEvent(eventType);
+    }
+}
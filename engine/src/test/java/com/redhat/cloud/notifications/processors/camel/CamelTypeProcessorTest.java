@@ -17,6 +17,7 @@ import com.redhat.cloud.notifications.models.Event;
 import com.redhat.cloud.notifications.models.NotificationHistory;
 import com.redhat.cloud.notifications.openbridge.Bridge;
 import com.redhat.cloud.notifications.openbridge.BridgeHelper;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.quarkus.test.common.QuarkusTestResource;
 import io.quarkus.test.junit.QuarkusTest;
 import io.smallrye.reactive.messaging.TracingMetadata;
@@ -49,6 +50,7 @@ import static com.redhat.cloud.notifications.processors.camel.CamelTypeProcessor
 import static com.redhat.cloud.notifications.processors.camel.CamelTypeProcessor.PROCESSED_COUNTER_NAME;
 import static com.redhat.cloud.notifications.processors.camel.CamelTypeProcessor.TOCAMEL_CHANNEL;
 import static com.redhat.cloud.notifications.processors.camel.CamelTypeProcessor.TOKEN_HEADER;
+import static com.redhat.cloud.notifications.processors.camel.OpenBridgeSender.CALL_TIMER_NAME;
 import static java.lang.Boolean.TRUE;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -79,6 +81,9 @@ public class CamelTypeProcessorTest {
     @Inject
     FeatureFlipper featureFlipper;
 
+    @Inject
+    MeterRegistry registry;
+
     @BeforeEach
     void beforeEach() {
         micrometerAssertionHelper.saveCounterValueWithTagsBeforeTest(PROCESSED_COUNTER_NAME, SUB_TYPE_KEY);
@@ -195,6 +200,9 @@ public class CamelTypeProcessorTest {
         System.out.println("==> Auth token " + bridgeHelper.getAuthToken());
         System.out.println("==> The bridge " + bridgeHelper.getBridgeIfNeeded());
 
+        long successfulCalls = registry.timer(CALL_TIMER_NAME, "outcome", "success").count();
+        long failedCalls = registry.timer(CALL_TIMER_NAME, "outcome", "failure").count();
+
         // Process again
         result = processor.process(event, List.of(endpoint));
 
@@ -210,6 +218,8 @@ public class CamelTypeProcessorTest {
         assertEquals(CAMEL, historyItem.getEndpointType());
         assertEquals("slack", historyItem.getEndpointSubType());
         assertNull(historyItem.getDetails());
+        // The latency of the OpenBridge calls is measured separately.
+        assertEquals(successfulCalls + 1, registry.timer(CALL_TIMER_NAME, "outcome", "success").count());
 
         // Now try again, but the remote throws an error
         event.getAction().setAccountId("something-random");
@@ -228,6 +238,7 @@ public class CamelTypeProcessorTest {
         assertNotNull(historyItem.getInvocationTime());
         // The invocation will be complete when the response from Camel has been received.
         assertFalse(historyItem.isInvocationResult());
+        assertEquals(failedCalls + 1, registry.timer(CALL_TIMER_NAME, "outcome", "failure").count());
 
         MockServerConfig.clearOpenBridgeEndpoints(bridge);
         featureFlipper.setObEnabled(false);
@@ -0,0 +1,122 @@
+package com.redhat.cloud.notifications.processors.webclient;
+
+import com.redhat.cloud.notifications.MockServerLifecycleManager;
+import com.redhat.cloud.notifications.TestLifecycleManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.vertx.ext.web.client.WebClientOptions;
+import io.vertx.ext.web.client.impl.WebClientInternal;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.ext.web.client.WebClient;
+import org.junit.jupiter.api.Test;
+import org.mockserver.model.HttpRequest;
+
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.redhat.cloud.notifications.MockServerLifecycleManager.getMockServerUrl;
+import static com.redhat.cloud.notifications.processors.webclient.HostPoolMetrics.ACTIVE_GAUGE_NAME;
+import static com.redhat.cloud.notifications.processors.webclient.HostPoolMetrics.IDLE_GAUGE_NAME;
+import static com.redhat.cloud.notifications.processors.webclient.HostPoolMetrics.OTHER_HOSTS;
+import static com.redhat.cloud.notifications.processors.webclient.HostPoolMetrics.PENDING_GAUGE_NAME;
+import static com.redhat.cloud.notifications.processors.webclient.HostPoolMetrics.WAIT_TIMER_NAME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockserver.model.HttpResponse.response;
+
+@QuarkusTest
+@QuarkusTestResource(TestLifecycleManager.class)
+public class HostPoolMetricsTest {
+
+    @Inject
+    Vertx vertx;
+
+    @Test
+    void testPoolGauges() throws Exception {
+        HttpRequest mockServerRequest = new HttpRequest()
+                .withPath("/pool-metrics")
+                .withMethod("GET");
+        CountDownLatch release = new CountDownLatch(1);
+        MockServerLifecycleManager.getClient()
+                .withSecure(false)
+                .when(mockServerRequest)
+                .respond(request -> {
+                    assertTrue(release.await(10L, TimeUnit.SECONDS));
+                    return response().withStatusCode(200);
+                });
+
+        MeterRegistry registry = new SimpleMeterRegistry();
+        // A single connection per host: the second request has to wait for the first one.
+        WebClient webClient = createWebClient(registry, new WebClientOptions().setMaxPoolSize(1), 10);
+        try {
+            List<CompletableFuture<?>> responses = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                responses.add(webClient.getAbs(getMockServerUrl() + "/pool-metrics").send().subscribeAsCompletionStage());
+            }
+
+            awaitGauge(registry, ACTIVE_GAUGE_NAME, 1);
+            awaitGauge(registry, PENDING_GAUGE_NAME, 1);
+
+            release.countDown();
+            for (CompletableFuture<?> response : responses) {
+                response.get(10L, TimeUnit.SECONDS);
+            }
+
+            awaitGauge(registry, ACTIVE_GAUGE_NAME, 0);
+            awaitGauge(registry, PENDING_GAUGE_NAME, 0);
+            // The connection is kept alive in the pool.
+            awaitGauge(registry, IDLE_GAUGE_NAME, 1);
+            Timer waitTimer = registry.find(WAIT_TIMER_NAME).tags("client", "test", "host", "localhost").timer();
+            assertNotNull(waitTimer);
+            assertEquals(2L, waitTimer.count());
+        } finally {
+            release.countDown();
+            webClient.close();
+            MockServerLifecycleManager.getClient().clear(mockServerRequest);
+        }
+    }
+
+    @Test
+    void testHostsAreBounded() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        WebClient webClient = createWebClient(registry, new WebClientOptions().setConnectTimeout(100), 1);
+        try {
+            // Nothing listens on these ports, the requests fail but they are still measured.
+            for (String host : List.of("localhost", "127.0.0.1", "127.0.0.2")) {
+                webClient.getAbs("http://" + host + ":1/").send().onFailure().recoverWithNull().await().atMost(Duration.ofSeconds(10L));
+            }
+            assertEquals(2, registry.find(PENDING_GAUGE_NAME).gauges().size());
+            assertNotNull(registry.find(PENDING_GAUGE_NAME).tags("host", "localhost").gauge());
+            assertNotNull(registry.find(PENDING_GAUGE_NAME).tags("host", OTHER_HOSTS).gauge());
+            assertEquals(0d, registry.find(PENDING_GAUGE_NAME).tags("host", OTHER_HOSTS).gauge().value());
+        } finally {
+            webClient.close();
+        }
+    }
+
+    private WebClient createWebClient(MeterRegistry registry, WebClientOptions options, int maxHosts) {
+        WebClient webClient = WebClient.create(vertx, options);
+        ((WebClientInternal) webClient.getDelegate()).addInterceptor(new HostPoolMetrics(registry, "test", maxHosts));
+        return webClient;
+    }
+
+    private static void awaitGauge(MeterRegistry registry, String name, double expected) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            if (registry.find(name).tags("host", "localhost").gauge() != null &&
+                    registry.find(name).tags("host", "localhost").gauge().value() == expected) {
+                return;
+            }
+            Thread.sleep(100L);
+        }
+        assertEquals(expected, registry.find(name).tags("host", "localhost").gauge().value());
+    }
+}
@@ -0,0 +1,154 @@
+package com.redhat.cloud.notifications.processors.webhook;
+
+import com.redhat.cloud.notifications.MockServerLifecycleManager;
+import com.redhat.cloud.notifications.TestLifecycleManager;
+import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.models.Endpoint;
+import com.redhat.cloud.notifications.models.Event;
+import com.redhat.cloud.notifications.models.HttpType;
+import com.redhat.cloud.notifications.models.NotificationHistory;
+import com.redhat.cloud.notifications.models.WebhookProperties;
+import com.redhat.cloud.notifications.processors.webhooks.AdaptiveTimeouts;
+import com.redhat.cloud.notifications.processors.webhooks.WebhookTypeProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockserver.model.HttpRequest;
+
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.redhat.cloud.notifications.MockServerLifecycleManager.getMockServerUrl;
+import static com.redhat.cloud.notifications.TestHelpers.createPoliciesAction;
+import static com.redhat.cloud.notifications.models.EndpointType.WEBHOOK;
+import static com.redhat.cloud.notifications.processors.webhooks.AdaptiveTimeouts.EXPIRED_COUNTER_NAME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockserver.model.HttpResponse.response;
+
+@QuarkusTest
+@QuarkusTestResource(TestLifecycleManager.class)
+public class AdaptiveTimeoutsTest {
+
+    private static final Duration CEILING = Duration.ofSeconds(60L);
+    private static final Duration FLOOR = Duration.ofSeconds(2L);
+
+    @Inject
+    AdaptiveTimeouts adaptiveTimeouts;
+
+    @Inject
+    WebhookTypeProcessor webhookTypeProcessor;
+
+    @Inject
+    FeatureFlipper featureFlipper;
+
+    @Inject
+    MeterRegistry registry;
+
+    @AfterEach
+    void afterEach() {
+        featureFlipper.setWebhookAdaptiveTimeoutEnabled(false);
+    }
+
+    @Test
+    void testCeilingWithoutEnoughSamples() {
+        featureFlipper.setWebhookAdaptiveTimeoutEnabled(true);
+        Endpoint endpoint = buildEndpoint("http://localhost", null);
+        assertEquals(CEILING, adaptiveTimeouts.getTimeout(endpoint));
+
+        record(endpoint, 19, 100L);
+        assertEquals(CEILING, adaptiveTimeouts.getTimeout(endpoint));
+    }
+
+    @Test
+    void testTimeoutFollowsLatency() {
+        featureFlipper.setWebhookAdaptiveTimeoutEnabled(true);
+        Endpoint endpoint = buildEndpoint("http://localhost", null);
+
+        // 3 times 100 ms is below the floor.
+        record(endpoint, 20, 100L);
+        assertEquals(FLOOR, adaptiveTimeouts.getTimeout(endpoint));
+
+        // The p99 of the window is now 5 s.
+        record(endpoint, 20, 5000L);
+        assertEquals(Duration.ofSeconds(15L), adaptiveTimeouts.getTimeout(endpoint));
+
+        // 3 times 30 s is above the ceiling.
+        record(endpoint, 20, 30000L);
+        assertEquals(CEILING, adaptiveTimeouts.getTimeout(endpoint));
+    }
+
+    @Test
+    void testLatencyIgnoredWhenDisabled() {
+        Endpoint endpoint = buildEndpoint("http://localhost", null);
+        record(endpoint, 20, 100L);
+        assertEquals(CEILING, adaptiveTimeouts.getTimeout(endpoint));
+    }
+
+    @Test
+    void testOverride() {
+        Endpoint endpoint = buildEndpoint("http://localhost", 500);
+        assertEquals(Duration.ofMillis(500L), adaptiveTimeouts.getTimeout(endpoint));
+
+        featureFlipper.setWebhookAdaptiveTimeoutEnabled(true);
+        record(endpoint, 20, 10000L);
+        assertEquals(Duration.ofMillis(500L), adaptiveTimeouts.getTimeout(endpoint));
+    }
+
+    @Test
+    void testOverrideIsCappedByTheCeiling() {
+        Endpoint endpoint = buildEndpoint("http://localhost", (int) CEILING.toMillis() * 2);
+        assertEquals(CEILING, adaptiveTimeouts.getTimeout(endpoint));
+    }
+
+    @Test
+    void testHangingEndpointFailsFast() {
+        HttpRequest mockServerRequest = new HttpRequest()
+                .withPath("/hanging")
+                .withMethod("POST");
+        MockServerLifecycleManager.getClient()
+                .withSecure(false)
+                .when(mockServerRequest)
+                .respond(response().withStatusCode(200).withDelay(TimeUnit.SECONDS, 5L));
+
+        double expiredBefore = registry.counter(EXPIRED_COUNTER_NAME).count();
+        Endpoint endpoint = buildEndpoint(getMockServerUrl() + "/hanging", 500);
+        Event event = new Event();
+        event.setAction(createPoliciesAction("account-id", "rhel", "policies", "host"));
+
+        try {
+            List<NotificationHistory> histories = webhookTypeProcessor.process(event, List.of(endpoint));
+            assertEquals(1, histories.size());
+            assertFalse(histories.get(0).isInvocationResult());
+            assertTrue(histories.get(0).getInvocationTime() < 5000L);
+            assertEquals(expiredBefore + 1, registry.counter(EXPIRED_COUNTER_NAME).count());
+        } finally {
+            MockServerLifecycleManager.getClient().clear(mockServerRequest);
+        }
+    }
+
+    private void record(Endpoint endpoint, int count, long latency) {
+        for (int i = 0; i < count; i++) {
+            adaptiveTimeouts.record(endpoint, latency, false);
+        }
+    }
+
+    private static Endpoint buildEndpoint(String url, Integer timeoutMs) {
+        WebhookProperties properties = new WebhookProperties();
+        properties.setMethod(HttpType.POST);
+        properties.setUrl(url);
+        properties.setTimeoutMs(timeoutMs);
+
+        Endpoint endpoint = new Endpoint();
+        endpoint.setId(UUID.randomUUID());
+        endpoint.setType(WEBHOOK);
+        endpoint.setProperties(properties);
+        return endpoint;
+    }
+}
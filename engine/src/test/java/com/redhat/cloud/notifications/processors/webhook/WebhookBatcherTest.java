@@ -0,0 +1,226 @@
+package com.redhat.cloud.notifications.processors.webhook;
+
+import com.redhat.cloud.notifications.MockServerLifecycleManager;
+import com.redhat.cloud.notifications.TestLifecycleManager;
+import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.db.ResourceHelpers;
+import com.redhat.cloud.notifications.models.Application;
+import com.redhat.cloud.notifications.models.Bundle;
+import com.redhat.cloud.notifications.models.Endpoint;
+import com.redhat.cloud.notifications.models.Event;
+import com.redhat.cloud.notifications.models.EventType;
+import com.redhat.cloud.notifications.models.HttpType;
+import com.redhat.cloud.notifications.models.NotificationHistory;
+import com.redhat.cloud.notifications.models.WebhookProperties;
+import com.redhat.cloud.notifications.processors.webhooks.WebhookTypeProcessor;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.reactive.messaging.providers.connectors.InMemoryConnector;
+import io.smallrye.reactive.messaging.providers.connectors.InMemorySink;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockserver.model.HttpRequest;
+
+import javax.enterprise.inject.Any;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static com.redhat.cloud.notifications.MockServerLifecycleManager.getMockServerUrl;
+import static com.redhat.cloud.notifications.TestHelpers.createPoliciesAction;
+import static com.redhat.cloud.notifications.models.EndpointType.WEBHOOK;
+import static com.redhat.cloud.notifications.processors.webhooks.WebhookRetryScheduler.RETRY_CHANNEL;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockserver.model.HttpResponse.response;
+
+@QuarkusTest
+@QuarkusTestResource(TestLifecycleManager.class)
+public class WebhookBatcherTest {
+
+    @Inject
+    WebhookTypeProcessor webhookTypeProcessor;
+
+    @Inject
+    FeatureFlipper featureFlipper;
+
+    @Inject
+    @Any
+    InMemoryConnector inMemoryConnector;
+
+    @Inject
+    ResourceHelpers resourceHelpers;
+
+    @Inject
+    EntityManager entityManager;
+
+    private final List<String> bodyRequests = Collections.synchronizedList(new ArrayList<>());
+    private HttpRequest mockServerRequest;
+    private int statusCode;
+
+    @BeforeEach
+    void beforeEach() {
+        featureFlipper.setWebhookBatchingEnabled(true);
+        inMemoryConnector.sink(RETRY_CHANNEL).clear();
+        statusCode = 200;
+        mockServerRequest = new HttpRequest()
+                .withPath("/batch")
+                .withMethod("POST");
+        MockServerLifecycleManager.getClient()
+                .withSecure(false)
+                .when(mockServerRequest)
+                .respond(req -> {
+                    bodyRequests.add(req.getBodyAsString());
+                    return response().withStatusCode(statusCode);
+                });
+    }
+
+    @AfterEach
+    void afterEach() {
+        featureFlipper.setWebhookBatchingEnabled(false);
+        MockServerLifecycleManager.getClient().clear(mockServerRequest);
+    }
+
+    @Test
+    void testFullBatch() throws InterruptedException {
+        // The linger time is long enough to make sure that the batch is sent because it is full.
+        Endpoint endpoint = createBatchedEndpoint(3, 60000);
+        List<Event> events = createEvents(3);
+
+        for (Event event : events) {
+            // The history entries of the batched events are written once the batch is sent.
+            assertTrue(webhookTypeProcessor.process(event, List.of(endpoint)).isEmpty());
+        }
+
+        List<NotificationHistory> histories = awaitHistories(endpoint, 3);
+        assertEquals(1, bodyRequests.size());
+        JsonArray batch = new JsonArray(bodyRequests.get(0));
+        assertEquals(3, batch.size());
+        assertEquals("policies", batch.getJsonObject(0).getString("application"));
+        for (NotificationHistory history : histories) {
+            assertTrue(history.isInvocationResult());
+        }
+        assertEquals(3, histories.stream().map(history -> history.getEvent().getId()).distinct().count());
+    }
+
+    @Test
+    void testLingeringBatch() throws InterruptedException {
+        statusCode = 400;
+        Endpoint endpoint = createBatchedEndpoint(10, 200);
+        List<Event> events = createEvents(2);
+
+        for (Event event : events) {
+            webhookTypeProcessor.process(event, List.of(endpoint));
+        }
+
+        // The batch is not full, it is sent after the linger time.
+        List<NotificationHistory> histories = awaitHistories(endpoint, 2);
+        assertEquals(1, bodyRequests.size());
+        assertEquals(2, new JsonArray(bodyRequests.get(0)).size());
+        for (NotificationHistory history : histories) {
+            assertFalse(history.isInvocationResult());
+            assertEquals(400, history.getDetails().get("code"));
+            assertEquals(2, history.getDetails().get("batch_size"));
+        }
+    }
+
+    @Test
+    void testFailedBatchIsRetriedPerEvent() throws InterruptedException {
+        featureFlipper.setWebhookRetryTopicEnabled(true);
+        try {
+            statusCode = 503;
+            Endpoint endpoint = createBatchedEndpoint(2, 60000);
+            List<Event> events = createEvents(2);
+
+            for (Event event : events) {
+                webhookTypeProcessor.process(event, List.of(endpoint));
+            }
+
+            // The batch is not retried from the current thread, each event is retried from the retry topic.
+            List<NotificationHistory> histories = awaitHistories(endpoint, 2);
+            assertEquals(1, bodyRequests.size());
+            for (NotificationHistory history : histories) {
+                assertFalse(history.isInvocationResult());
+                assertEquals(503, history.getDetails().get("code"));
+            }
+            InMemorySink<String> retrySink = inMemoryConnector.sink(RETRY_CHANNEL);
+            await().atMost(Duration.ofSeconds(10L)).until(() -> retrySink.received().size() == 2);
+            Set<String> retriedHistoryIds = new HashSet<>();
+            for (Message<String> retry : retrySink.received()) {
+                retriedHistoryIds.add(new JsonObject(retry.getPayload()).getString("historyId"));
+            }
+            assertEquals(histories.stream().map(history -> history.getId().toString()).collect(Collectors.toSet()), retriedHistoryIds);
+        } finally {
+            featureFlipper.setWebhookRetryTopicEnabled(false);
+        }
+    }
+
+    @Test
+    void testBatchingDisabled() {
+        featureFlipper.setWebhookBatchingEnabled(false);
+        Endpoint endpoint = createBatchedEndpoint(3, 60000);
+        Event event = createEvents(1).get(0);
+
+        List<NotificationHistory> histories = webhookTypeProcessor.process(event, List.of(endpoint));
+        assertEquals(1, histories.size());
+        assertTrue(histories.get(0).isInvocationResult());
+        assertEquals(1, bodyRequests.size());
+    }
+
+    private List<NotificationHistory> awaitHistories(Endpoint endpoint, int expectedCount) throws InterruptedException {
+        List<NotificationHistory> histories = List.of();
+        for (int i = 0; i < 100; i++) {
+            entityManager.clear();
+            histories = entityManager.createQuery("FROM NotificationHistory WHERE endpoint.id = :endpointId", NotificationHistory.class)
+                    .setParameter("endpointId", endpoint.getId())
+                    .getResultList();
+            if (histories.size() == expectedCount) {
+                break;
+            }
+            Thread.sleep(100L);
+        }
+        assertEquals(expectedCount, histories.size());
+        return histories;
+    }
+
+    private Endpoint createBatchedEndpoint(int batchMaxSize, int batchMaxLingerMs) {
+        WebhookProperties properties = new WebhookProperties();
+        properties.setMethod(HttpType.POST);
+        properties.setUrl(getMockServerUrl() + "/batch");
+        properties.setBatchMaxSize(batchMaxSize);
+        properties.setBatchMaxLingerMs(batchMaxLingerMs);
+
+        Endpoint endpoint = resourceHelpers.createEndpoint(WEBHOOK, null);
+        endpoint.setProperties(properties);
+        return endpoint;
+    }
+
+    @Transactional
+    List<Event> createEvents(int count) {
+        Bundle bundle = resourceHelpers.createBundle("bundle-" + new SecureRandom().nextInt());
+        Application app = resourceHelpers.createApp(bundle.getId(), "app-" + new SecureRandom().nextInt());
+        EventType eventType = resourceHelpers.createEventType(app.getId(), "event-type-" + new SecureRandom().nextInt());
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Event event = resourceHelpers.createEvent(eventType);
+            event.setAction(createPoliciesAction("account-id", "rhel", "policies", "host-" + UUID.randomUUID()));
+            events.add(event);
+        }
+        return events;
+    }
+}
@@ -0,0 +1,113 @@
+package com.redhat.cloud.notifications.processors.webhook;
+
+import com.redhat.cloud.notifications.MockServerLifecycleManager;
+import com.redhat.cloud.notifications.TestLifecycleManager;
+import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.models.Endpoint;
+import com.redhat.cloud.notifications.models.EndpointType;
+import com.redhat.cloud.notifications.models.Event;
+import com.redhat.cloud.notifications.models.HttpType;
+import com.redhat.cloud.notifications.models.NotificationHistory;
+import com.redhat.cloud.notifications.models.WebhookProperties;
+import com.redhat.cloud.notifications.processors.webhooks.WebhookTypeProcessor;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+import org.mockserver.model.HttpRequest;
+
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.redhat.cloud.notifications.MockServerLifecycleManager.getMockServerUrl;
+import static com.redhat.cloud.notifications.TestHelpers.createPoliciesAction;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockserver.model.HttpResponse.response;
+
+@QuarkusTest
+@QuarkusTestResource(TestLifecycleManager.class)
+public class WebhookDeliveryDeadlineTest {
+
+    private static final long RESPONSE_DELAY = 2000L;
+
+    @Inject
+    WebhookTypeProcessor webhookTypeProcessor;
+
+    @Inject
+    FeatureFlipper featureFlipper;
+
+    @Test
+    void testPendingCallsAreFailedWhenTheDeadlinePasses() {
+        HttpRequest slowRequest = new HttpRequest()
+                .withPath("/reactive-deadline-slow")
+                .withMethod("POST");
+        HttpRequest fastRequest = new HttpRequest()
+                .withPath("/reactive-deadline-fast")
+                .withMethod("POST");
+        MockServerLifecycleManager.getClient()
+                .withSecure(false)
+                .when(slowRequest)
+                .respond(request -> {
+                    Thread.sleep(RESPONSE_DELAY);
+                    return response().withStatusCode(200);
+                });
+        MockServerLifecycleManager.getClient()
+                .withSecure(false)
+                .when(fastRequest)
+                .respond(response().withStatusCode(200));
+
+        Endpoint slowEndpoint = buildWebhookEndpoint("/reactive-deadline-slow");
+        Endpoint fastEndpoint = buildWebhookEndpoint("/reactive-deadline-fast");
+
+        Duration deadline = webhookTypeProcessor.getDeliveryDeadline();
+        webhookTypeProcessor.setDeliveryDeadline(Duration.ofMillis(500L));
+        featureFlipper.setWebhookReactiveDeliveryEnabled(true);
+        try {
+            long start = System.nanoTime();
+            List<NotificationHistory> histories = webhookTypeProcessor.process(buildEvent(), List.of(slowEndpoint, fastEndpoint));
+            // The processing thread no longer waits for the slow webhook.
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < RESPONSE_DELAY);
+
+            assertEquals(2, histories.size());
+            NotificationHistory fastHistory = findHistory(histories, fastEndpoint);
+            assertTrue(fastHistory.isInvocationResult());
+            NotificationHistory slowHistory = findHistory(histories, slowEndpoint);
+            assertFalse(slowHistory.isInvocationResult());
+            assertNotNull(slowHistory.getDetails().get("error_message"));
+        } finally {
+            featureFlipper.setWebhookReactiveDeliveryEnabled(false);
+            webhookTypeProcessor.setDeliveryDeadline(deadline);
+            MockServerLifecycleManager.getClient().clear(slowRequest);
+            MockServerLifecycleManager.getClient().clear(fastRequest);
+        }
+    }
+
+    private static NotificationHistory findHistory(List<NotificationHistory> histories, Endpoint endpoint) {
+        return histories.stream()
+                .filter(history -> history.getEndpoint() == endpoint)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static Event buildEvent() {
+        Event event = new Event();
+        event.setAction(createPoliciesAction("account-id", "rhel", "policies", "host"));
+        return event;
+    }
+
+    private static Endpoint buildWebhookEndpoint(String path) {
+        WebhookProperties properties = new WebhookProperties();
+        properties.setMethod(HttpType.POST);
+        properties.setUrl(getMockServerUrl() + path);
+
+        Endpoint endpoint = new Endpoint();
+        endpoint.setType(EndpointType.WEBHOOK);
+        endpoint.setEnabled(true);
+        endpoint.setProperties(properties);
+        return endpoint;
+    }
+}
@@ -0,0 +1,169 @@
+package com.redhat.cloud.notifications.processors.webhook;
+
+import com.redhat.cloud.notifications.MockServerLifecycleManager;
+import com.redhat.cloud.notifications.TestLifecycleManager;
+import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.ingress.Action;
+import com.redhat.cloud.notifications.models.Endpoint;
+import com.redhat.cloud.notifications.models.EndpointType;
+import com.redhat.cloud.notifications.models.Event;
+import com.redhat.cloud.notifications.models.HttpType;
+import com.redhat.cloud.notifications.models.NotificationHistory;
+import com.redhat.cloud.notifications.models.WebhookProperties;
+import com.redhat.cloud.notifications.processors.webhooks.WebhookTypeProcessor;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockserver.mock.action.ExpectationResponseCallback;
+import org.mockserver.model.HttpRequest;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.redhat.cloud.notifications.MockServerLifecycleManager.getMockServerUrl;
+import static com.redhat.cloud.notifications.TestHelpers.createPoliciesAction;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockserver.model.HttpResponse.response;
+
+@QuarkusTest
+@QuarkusTestResource(TestLifecycleManager.class)
+public class WebhookReactiveDeliveryTest {
+
+    private static final long RESPONSE_DELAY = 500L;
+    private static final int ENDPOINTS = 4;
+
+    @Inject
+    WebhookTypeProcessor webhookTypeProcessor;
+
+    @Inject
+    FeatureFlipper featureFlipper;
+
+    @BeforeEach
+    void beforeEach() {
+        featureFlipper.setWebhookReactiveDeliveryEnabled(true);
+    }
+
+    @AfterEach
+    void afterEach() {
+        featureFlipper.setWebhookReactiveDeliveryEnabled(false);
+    }
+
+    @Test
+    void testEndpointsAreCalledConcurrently() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        HttpRequest mockServerRequest = mockServerRequest("/reactive-concurrent", request -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(RESPONSE_DELAY);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            return response().withStatusCode(200);
+        });
+
+        try {
+            List<Endpoint> endpoints = new ArrayList<>();
+            for (int i = 0; i < ENDPOINTS; i++) {
+                endpoints.add(buildWebhookEndpoint(getMockServerUrl() + "/reactive-concurrent"));
+            }
+
+            long start = System.nanoTime();
+            List<NotificationHistory> histories = webhookTypeProcessor.process(buildEvent(), endpoints);
+            long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertEquals(ENDPOINTS, histories.size());
+            for (NotificationHistory history : histories) {
+                assertTrue(history.isInvocationResult());
+                // The invocation time is measured for each call, not for the whole event.
+                assertTrue(history.getInvocationTime() >= RESPONSE_DELAY);
+            }
+            assertTrue(maxInFlight.get() > 1);
+            assertTrue(duration < ENDPOINTS * RESPONSE_DELAY);
+        } finally {
+            MockServerLifecycleManager.getClient().clear(mockServerRequest);
+        }
+    }
+
+    @Test
+    void testRetryWithFinalSuccess() {
+        testRetry(true);
+    }
+
+    @Test
+    void testRetryWithFinalFailure() {
+        testRetry(false);
+    }
+
+    private void testRetry(boolean shouldSucceedEventually) {
+        // The default configuration allows 3 retries after the initial call.
+        AtomicInteger callsCounter = new AtomicInteger();
+        HttpRequest mockServerRequest = mockServerRequest("/reactive-retry", request -> {
+            if (callsCounter.incrementAndGet() == 4 && shouldSucceedEventually) {
+                return response().withStatusCode(200);
+            } else {
+                return response().withStatusCode(503);
+            }
+        });
+
+        try {
+            Endpoint endpoint = buildWebhookEndpoint(getMockServerUrl() + "/reactive-retry");
+            NotificationHistory history = webhookTypeProcessor.process(buildEvent(), List.of(endpoint)).get(0);
+
+            assertEquals(shouldSucceedEventually, history.isInvocationResult());
+            assertEquals(4, callsCounter.get());
+            if (!shouldSucceedEventually) {
+                assertEquals(503, history.getDetails().get("code"));
+            }
+        } finally {
+            MockServerLifecycleManager.getClient().clear(mockServerRequest);
+        }
+    }
+
+    @Test
+    void testConnectionFailure() {
+        // Nothing listens on that port.
+        Endpoint endpoint = buildWebhookEndpoint("http://localhost:1/unreachable");
+        NotificationHistory history = webhookTypeProcessor.process(buildEvent(), List.of(endpoint)).get(0);
+
+        assertFalse(history.isInvocationResult());
+        assertTrue(history.getDetails().containsKey("error_message"));
+    }
+
+    private static HttpRequest mockServerRequest(String path, ExpectationResponseCallback callback) {
+        HttpRequest request = new HttpRequest()
+                .withPath(path)
+                .withMethod("POST");
+        MockServerLifecycleManager.getClient()
+                .withSecure(false)
+                .when(request)
+                .respond(callback);
+        return request;
+    }
+
+    private static Event buildEvent() {
+        Action action = createPoliciesAction("account-id", "rhel", "policies", "host");
+        Event event = new Event();
+        event.setAction(action);
+        return event;
+    }
+
+    private static Endpoint buildWebhookEndpoint(String url) {
+        WebhookProperties properties = new WebhookProperties();
+        properties.setMethod(HttpType.POST);
+        properties.setUrl(url);
+
+        Endpoint endpoint = new Endpoint();
+        endpoint.setType(EndpointType.WEBHOOK);
+        endpoint.setEnabled(true);
+        endpoint.setProperties(properties);
+        return endpoint;
+    }
+}
@@ -0,0 +1,311 @@
+package com.redhat.cloud.notifications.processors.webhook;
+
+import com.redhat.cloud.notifications.MicrometerAssertionHelper;
+import com.redhat.cloud.notifications.MockServerLifecycleManager;
+import com.redhat.cloud.notifications.TestLifecycleManager;
+import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.db.repositories.EndpointRepository;
+import com.redhat.cloud.notifications.db.repositories.EventRepository;
+import com.redhat.cloud.notifications.db.repositories.NotificationHistoryRepository;
+import com.redhat.cloud.notifications.ingress.Action;
+import com.redhat.cloud.notifications.models.Endpoint;
+import com.redhat.cloud.notifications.models.EndpointType;
+import com.redhat.cloud.notifications.models.Event;
+import com.redhat.cloud.notifications.models.HttpType;
+import com.redhat.cloud.notifications.models.NotificationHistory;
+import com.redhat.cloud.notifications.models.WebhookProperties;
+import com.redhat.cloud.notifications.processors.webhooks.WebhookTypeProcessor;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.mockito.InjectMock;
+import io.smallrye.reactive.messaging.providers.connectors.InMemoryConnector;
+import io.smallrye.reactive.messaging.providers.connectors.InMemorySink;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockserver.model.HttpRequest;
+
+import javax.enterprise.inject.Any;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.redhat.cloud.notifications.MockServerLifecycleManager.getMockServerUrl;
+import static com.redhat.cloud.notifications.TestHelpers.createPoliciesAction;
+import static com.redhat.cloud.notifications.TestHelpers.serializeAction;
+import static com.redhat.cloud.notifications.processors.webhooks.WebhookRetryScheduler.RETRIED_CHANNEL;
+import static com.redhat.cloud.notifications.processors.webhooks.WebhookRetryScheduler.RETRY_CHANNEL;
+import static com.redhat.cloud.notifications.processors.webhooks.WebhookRetryScheduler.RETRY_SCHEDULED_COUNTER_NAME;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockserver.model.HttpResponse.response;
+
+@QuarkusTest
+@QuarkusTestResource(TestLifecycleManager.class)
+public class WebhookRetrySchedulerTest {
+
+    @Inject
+    @Any
+    InMemoryConnector inMemoryConnector;
+
+    @Inject
+    WebhookTypeProcessor webhookTypeProcessor;
+
+    @Inject
+    FeatureFlipper featureFlipper;
+
+    @Inject
+    MicrometerAssertionHelper micrometerAssertionHelper;
+
+    @InjectMock
+    EndpointRepository endpointRepository;
+
+    @InjectMock
+    EventRepository eventRepository;
+
+    @InjectMock
+    NotificationHistoryRepository notificationHistoryRepository;
+
+    @BeforeEach
+    void beforeEach() {
+        featureFlipper.setWebhookRetryTopicEnabled(true);
+        inMemoryConnector.sink(RETRY_CHANNEL).clear();
+        micrometerAssertionHelper.saveCounterValuesBeforeTest(RETRY_SCHEDULED_COUNTER_NAME);
+    }
+
+    @AfterEach
+    void afterEach() {
+        featureFlipper.setWebhookRetryTopicEnabled(false);
+        micrometerAssertionHelper.clearSavedValues();
+    }
+
+    @Test
+    void testRetryUpdatesTheExistingHistory() {
+        AtomicInteger callsCounter = new AtomicInteger();
+        HttpRequest mockServerRequest = new HttpRequest()
+                .withPath("/retry")
+                .withMethod("POST");
+        MockServerLifecycleManager.getClient()
+                .withSecure(false)
+                .when(mockServerRequest)
+                .respond(request -> {
+                    // The first call fails with a temporary error, the retry succeeds.
+                    if (callsCounter.incrementAndGet() == 1) {
+                        return response().withStatusCode(503);
+                    } else {
+                        return response().withStatusCode(200);
+                    }
+                });
+
+        try {
+            Action action = createPoliciesAction("account-id", "rhel", "policies", "host");
+            Event event = new Event();
+            event.setId(UUID.randomUUID());
+            event.setAction(action);
+            event.setPayload(serializeAction(action));
+            Endpoint endpoint = buildWebhookEndpoint(getMockServerUrl() + "/retry");
+
+            // The initial call is not retried from the current thread.
+            NotificationHistory history = webhookTypeProcessor.process(event, List.of(endpoint)).get(0);
+            assertFalse(history.isInvocationResult());
+            assertEquals(1, callsCounter.get());
+            micrometerAssertionHelper.assertCounterIncrement(RETRY_SCHEDULED_COUNTER_NAME, 1);
+
+            InMemorySink<String> retrySink = inMemoryConnector.sink(RETRY_CHANNEL);
+            assertEquals(1, retrySink.received().size());
+
+            when(notificationHistoryRepository.historyExists(history.getId())).thenReturn(true);
+            when(endpointRepository.findEnabledById(endpoint.getId())).thenReturn(endpoint);
+            when(eventRepository.findById(event.getId())).thenReturn(event);
+            inMemoryConnector.source(RETRIED_CHANNEL).send(retrySink.received().get(0).getPayload());
+
+            ArgumentCaptor<NotificationHistory> historyCaptor = ArgumentCaptor.forClass(NotificationHistory.class);
+            verify(notificationHistoryRepository, timeout(10_000L)).updateRetriedHistoryItem(historyCaptor.capture());
+            assertEquals(history.getId(), historyCaptor.getValue().getId());
+            assertTrue(historyCaptor.getValue().isInvocationResult());
+            assertNull(historyCaptor.getValue().getDetails());
+            assertEquals(2, callsCounter.get());
+            micrometerAssertionHelper.assertCounterIncrement(RETRY_SCHEDULED_COUNTER_NAME, 1);
+        } finally {
+            MockServerLifecycleManager.getClient().clear(mockServerRequest);
+        }
+    }
+
+    @Test
+    void testPendingRetryDoesNotBlockTheConsumer() {
+        HttpRequest mockServerRequest = new HttpRequest()
+                .withPath("/pending-retry")
+                .withMethod("POST");
+        MockServerLifecycleManager.getClient()
+                .withSecure(false)
+                .when(mockServerRequest)
+                .respond(response().withStatusCode(200));
+
+        try {
+            Action action = createPoliciesAction("account-id", "rhel", "policies", "host");
+            Event event = new Event();
+            event.setId(UUID.randomUUID());
+            event.setAction(action);
+            event.setPayload(serializeAction(action));
+            Endpoint endpoint = buildWebhookEndpoint(getMockServerUrl() + "/pending-retry");
+            when(notificationHistoryRepository.historyExists(any(UUID.class))).thenReturn(true);
+            when(endpointRepository.findEnabledById(endpoint.getId())).thenReturn(endpoint);
+            when(eventRepository.findById(event.getId())).thenReturn(event);
+
+            UUID laterHistoryId = UUID.randomUUID();
+            UUID dueHistoryId = UUID.randomUUID();
+            AtomicInteger laterAcks = new AtomicInteger();
+            AtomicInteger dueAcks = new AtomicInteger();
+            long now = System.currentTimeMillis();
+            inMemoryConnector.source(RETRIED_CHANNEL).send(buildRetryMessage(laterHistoryId, endpoint, event, now + 5_000L, laterAcks));
+            inMemoryConnector.source(RETRIED_CHANNEL).send(buildRetryMessage(dueHistoryId, endpoint, event, now, dueAcks));
+
+            // The due retry is replayed and acknowledged while the other one is still pending.
+            ArgumentCaptor<NotificationHistory> historyCaptor = ArgumentCaptor.forClass(NotificationHistory.class);
+            verify(notificationHistoryRepository, timeout(3_000L)).updateRetriedHistoryItem(historyCaptor.capture());
+            assertEquals(dueHistoryId, historyCaptor.getValue().getId());
+            await().atMost(Duration.ofSeconds(3L)).until(() -> dueAcks.get() == 1);
+            assertEquals(0, laterAcks.get());
+
+            await().atMost(Duration.ofSeconds(10L)).until(() -> laterAcks.get() == 1);
+            verify(notificationHistoryRepository, times(2)).updateRetriedHistoryItem(any(NotificationHistory.class));
+        } finally {
+            MockServerLifecycleManager.getClient().clear(mockServerRequest);
+        }
+    }
+
+    @Test
+    void testSlowRetryDoesNotDelayTheOthers() {
+        HttpRequest slowRequest = new HttpRequest()
+                .withPath("/slow-retry")
+                .withMethod("POST");
+        MockServerLifecycleManager.getClient()
+                .withSecure(false)
+                .when(slowRequest)
+                .respond(request -> {
+                    Thread.sleep(3_000L);
+                    return response().withStatusCode(200);
+                });
+        HttpRequest fastRequest = new HttpRequest()
+                .withPath("/fast-retry")
+                .withMethod("POST");
+        MockServerLifecycleManager.getClient()
+                .withSecure(false)
+                .when(fastRequest)
+                .respond(response().withStatusCode(200));
+
+        try {
+            Action action = createPoliciesAction("account-id", "rhel", "policies", "host");
+            Event event = new Event();
+            event.setId(UUID.randomUUID());
+            event.setAction(action);
+            event.setPayload(serializeAction(action));
+            Endpoint slowEndpoint = buildWebhookEndpoint(getMockServerUrl() + "/slow-retry");
+            Endpoint fastEndpoint = buildWebhookEndpoint(getMockServerUrl() + "/fast-retry");
+            when(notificationHistoryRepository.historyExists(any(UUID.class))).thenReturn(true);
+            when(endpointRepository.findEnabledById(slowEndpoint.getId())).thenReturn(slowEndpoint);
+            when(endpointRepository.findEnabledById(fastEndpoint.getId())).thenReturn(fastEndpoint);
+            when(eventRepository.findById(event.getId())).thenReturn(event);
+
+            AtomicInteger slowAcks = new AtomicInteger();
+            AtomicInteger fastAcks = new AtomicInteger();
+            long now = System.currentTimeMillis();
+            inMemoryConnector.source(RETRIED_CHANNEL).send(buildRetryMessage(UUID.randomUUID(), slowEndpoint, event, now, slowAcks));
+            inMemoryConnector.source(RETRIED_CHANNEL).send(buildRetryMessage(UUID.randomUUID(), fastEndpoint, event, now, fastAcks));
+
+            // The fast retry is replayed by another thread while the slow one is still waiting for its endpoint.
+            await().atMost(Duration.ofSeconds(2L)).until(() -> fastAcks.get() == 1);
+            assertEquals(0, slowAcks.get());
+            await().atMost(Duration.ofSeconds(10L)).until(() -> slowAcks.get() == 1);
+        } finally {
+            MockServerLifecycleManager.getClient().clear(slowRequest);
+            MockServerLifecycleManager.getClient().clear(fastRequest);
+        }
+    }
+
+    @Test
+    void testBatchedEndpointIsRetriedWithAnArray() {
+        List<String> bodyRequests = Collections.synchronizedList(new ArrayList<>());
+        HttpRequest mockServerRequest = new HttpRequest()
+                .withPath("/batched-retry")
+                .withMethod("POST");
+        MockServerLifecycleManager.getClient()
+                .withSecure(false)
+                .when(mockServerRequest)
+                .respond(request -> {
+                    bodyRequests.add(request.getBodyAsString());
+                    return response().withStatusCode(200);
+                });
+
+        featureFlipper.setWebhookBatchingEnabled(true);
+        try {
+            Action action = createPoliciesAction("account-id", "rhel", "policies", "host");
+            Event event = new Event();
+            event.setId(UUID.randomUUID());
+            event.setAction(action);
+            event.setPayload(serializeAction(action));
+            Endpoint endpoint = buildWebhookEndpoint(getMockServerUrl() + "/batched-retry");
+            endpoint.getProperties(WebhookProperties.class).setBatchMaxSize(10);
+            when(notificationHistoryRepository.historyExists(any(UUID.class))).thenReturn(true);
+            when(endpointRepository.findEnabledById(endpoint.getId())).thenReturn(endpoint);
+            when(eventRepository.findById(event.getId())).thenReturn(event);
+
+            AtomicInteger acks = new AtomicInteger();
+            inMemoryConnector.source(RETRIED_CHANNEL).send(buildRetryMessage(UUID.randomUUID(), endpoint, event, System.currentTimeMillis(), acks));
+
+            await().atMost(Duration.ofSeconds(10L)).until(() -> acks.get() == 1);
+            // The event of the failed batch is retried alone, but still within a JSON array.
+            assertEquals(1, bodyRequests.size());
+            JsonArray body = new JsonArray(bodyRequests.get(0));
+            assertEquals(1, body.size());
+            assertEquals("policies", body.getJsonObject(0).getString("application"));
+        } finally {
+            featureFlipper.setWebhookBatchingEnabled(false);
+            MockServerLifecycleManager.getClient().clear(mockServerRequest);
+        }
+    }
+
+    private static Message<String> buildRetryMessage(UUID historyId, Endpoint endpoint, Event event, long dueTime, AtomicInteger acks) {
+        JsonObject retry = new JsonObject()
+                .put("historyId", historyId.toString())
+                .put("endpointId", endpoint.getId().toString())
+                .put("eventId", event.getId().toString())
+                .put("attempt", 1)
+                .put("dueTime", dueTime)
+                .put("historyLookups", 0);
+        return Message.of(retry.encode(), () -> {
+            acks.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    private static Endpoint buildWebhookEndpoint(String url) {
+        WebhookProperties properties = new WebhookProperties();
+        properties.setMethod(HttpType.POST);
+        properties.setUrl(url);
+
+        Endpoint endpoint = new Endpoint();
+        endpoint.setId(UUID.randomUUID());
+        endpoint.setType(EndpointType.WEBHOOK);
+        endpoint.setEnabled(true);
+        endpoint.setProperties(properties);
+        return endpoint;
+    }
+}
@@ -25,10 +25,12 @@ import javax.inject.Inject;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.redhat.cloud.notifications.MockServerLifecycleManager.getMockServerUrl;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockserver.model.HttpResponse.response;
@@ -105,6 +107,71 @@ public class WebhookTest {
 
     }
 
+    @Test
+    void testPayloadSharedByAllEndpoints() {
+        String url = getMockServerUrl() + "/foobar";
+
+        final List<String> bodyRequests = new ArrayList<>();
+        final List<String> contentTypes = new ArrayList<>();
+        ExpectationResponseCallback verifyRequest = req -> {
+            synchronized (bodyRequests) {
+                bodyRequests.add(req.getBodyAsString());
+                contentTypes.add(req.getFirstHeader("Content-Type"));
+            }
+            return response().withStatusCode(200);
+        };
+
+        HttpRequest postReq = getMockHttpRequest(verifyRequest);
+
+        Event event = new Event();
+        event.setAction(buildWebhookAction());
+        List<Endpoint> endpoints = List.of(buildWebhookEndpoint(url), buildWebhookEndpoint(url), buildWebhookEndpoint(url));
+
+        try {
+            List<NotificationHistory> process = webhookTypeProcessor.process(event, endpoints);
+            assertEquals(3, process.size());
+            process.forEach(history -> assertTrue(history.isInvocationResult()));
+        } finally {
+            MockServerLifecycleManager.getClient().clear(postReq);
+        }
+
+        // The payload is encoded once and the same bytes are sent to each endpoint.
+        assertEquals(3, bodyRequests.size());
+        assertEquals(1, bodyRequests.stream().distinct().count());
+        assertEquals("testWebhook", new JsonObject(bodyRequests.get(0)).getString("event_type"));
+        contentTypes.forEach(contentType -> assertEquals("application/json", contentType));
+    }
+
+    @Test
+    void testLargeErrorBodyIsTruncated() {
+        String url = getMockServerUrl() + "/foobar";
+
+        String errorPage = "<html>" + "x".repeat(100 * 1024) + "</html>";
+        HttpRequest postReq = getMockHttpRequest(req -> response()
+                .withStatusCode(400)
+                .withHeader("Content-Type", "text/html")
+                .withBody(errorPage));
+
+        Event event = new Event();
+        event.setAction(buildWebhookAction());
+
+        NotificationHistory history;
+        try {
+            history = webhookTypeProcessor.process(event, List.of(buildWebhookEndpoint(url))).get(0);
+        } finally {
+            MockServerLifecycleManager.getClient().clear(postReq);
+        }
+
+        assertFalse(history.isInvocationResult());
+        Map<String, Object> details = history.getDetails();
+        assertEquals(400, details.get("code"));
+        // Only the first 8K of the body are kept, the default limit.
+        assertEquals(errorPage.substring(0, 8 * 1024), details.get("response_body"));
+        assertEquals((long) errorPage.length(), details.get("response_body_length"));
+        assertEquals(true, details.get("truncated"));
+        assertEquals("text/html", details.get("response_content_type"));
+    }
+
     @Test
     void testRetryWithFinalSuccess() {
         testRetry(true);
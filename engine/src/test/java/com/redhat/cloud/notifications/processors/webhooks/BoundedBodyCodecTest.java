@@ -0,0 +1,63 @@
+package com.redhat.cloud.notifications.processors.webhooks;
+
+import com.redhat.cloud.notifications.processors.webhooks.BoundedBodyCodec.BoundedBody;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.ext.web.codec.spi.BodyStream;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BoundedBodyCodecTest {
+
+    @Test
+    void testShortBodyIsKept() {
+        BoundedBody body = receive(10, "Success");
+        assertEquals("Success", body.asString());
+        assertEquals(7L, body.getLength());
+        assertFalse(body.isTruncated());
+    }
+
+    @Test
+    void testBodyOfExactlyMaxBytesIsNotTruncated() {
+        BoundedBody body = receive(5, "Hello");
+        assertEquals("Hello", body.asString());
+        assertFalse(body.isTruncated());
+    }
+
+    @Test
+    void testLongBodyIsTruncated() {
+        BoundedBody body = receive(5, "Hello", ", ", "World!");
+        assertEquals("Hello", body.asString());
+        assertEquals(13L, body.getLength());
+        assertTrue(body.isTruncated());
+    }
+
+    @Test
+    void testCharCutByTheLimitIsDropped() {
+        // "é" is encoded with 2 bytes, the limit falls between them.
+        BoundedBody body = receive(4, "Caf", "é au lait");
+        assertEquals("Caf", body.asString());
+        assertEquals(("Café au lait").getBytes(UTF_8).length, body.getLength());
+        assertTrue(body.isTruncated());
+
+        // "€" is encoded with 3 bytes, the limit falls right after it.
+        body = receive(6, "abc€def");
+        assertEquals("abc€", body.asString());
+        assertTrue(body.isTruncated());
+    }
+
+    private static BoundedBody receive(int maxBytes, String... chunks) {
+        AtomicReference<BodyStream<BoundedBody>> stream = new AtomicReference<>();
+        new BoundedBodyCodec(maxBytes).create(result -> stream.set(result.result()));
+        for (String chunk : chunks) {
+            stream.get().write(Buffer.buffer(chunk));
+        }
+        stream.get().end();
+        return stream.get().result().result();
+    }
+}
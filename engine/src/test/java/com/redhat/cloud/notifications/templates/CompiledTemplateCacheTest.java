@@ -0,0 +1,147 @@
+package com.redhat.cloud.notifications.templates;
+
+import com.redhat.cloud.notifications.MicrometerAssertionHelper;
+import com.redhat.cloud.notifications.TestLifecycleManager;
+import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.db.CacheInvalidationListener;
+import com.redhat.cloud.notifications.db.StatelessSessionFactory;
+import com.redhat.cloud.notifications.models.Template;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static com.redhat.cloud.notifications.db.CacheInvalidation.CHANNEL;
+import static com.redhat.cloud.notifications.db.CacheInvalidation.TEMPLATES;
+import static com.redhat.cloud.notifications.templates.CompiledTemplateCache.CACHE_HIT_COUNTER_NAME;
+import static com.redhat.cloud.notifications.templates.CompiledTemplateCache.CACHE_MISS_COUNTER_NAME;
+import static com.redhat.cloud.notifications.templates.CompiledTemplateCache.PARSE_TIMER_NAME;
+import static com.redhat.cloud.notifications.templates.TemplateService.USE_TEMPLATES_FROM_DB_KEY;
+import static java.time.ZoneOffset.UTC;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@QuarkusTest
+@QuarkusTestResource(TestLifecycleManager.class)
+public class CompiledTemplateCacheTest {
+
+    @Inject
+    CompiledTemplateCache compiledTemplateCache;
+
+    @Inject
+    CacheInvalidationListener cacheInvalidationListener;
+
+    @Inject
+    FeatureFlipper featureFlipper;
+
+    @Inject
+    MicrometerAssertionHelper micrometerAssertionHelper;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    StatelessSessionFactory statelessSessionFactory;
+
+    @Inject
+    EntityManager entityManager;
+
+    @BeforeEach
+    void beforeEach() {
+        System.setProperty(USE_TEMPLATES_FROM_DB_KEY, "true");
+        featureFlipper.setTemplateCacheEnabled(true);
+        // The first poll opens the listening connection and invalidates the whole cache.
+        cacheInvalidationListener.poll();
+        micrometerAssertionHelper.saveCounterValuesBeforeTest(CACHE_HIT_COUNTER_NAME, CACHE_MISS_COUNTER_NAME);
+    }
+
+    @AfterEach
+    void afterEach() {
+        featureFlipper.setTemplateCacheEnabled(false);
+        cacheInvalidationListener.poll();
+        System.clearProperty(USE_TEMPLATES_FROM_DB_KEY);
+        micrometerAssertionHelper.clearSavedValues();
+    }
+
+    @Test
+    void testTemplateIsCompiledOncePerVersion() {
+        Template template = createTemplate("cached-template-" + UUID.randomUUID(), "Hello, {name}!");
+        long parsesBefore = registry.timer(PARSE_TIMER_NAME).count();
+
+        assertEquals("Hello, World!", render(template));
+        assertEquals("Hello, World!", render(template));
+        micrometerAssertionHelper.assertCounterIncrement(CACHE_HIT_COUNTER_NAME, 1);
+        micrometerAssertionHelper.assertCounterIncrement(CACHE_MISS_COUNTER_NAME, 1);
+        assertEquals(parsesBefore + 1, registry.timer(PARSE_TIMER_NAME).count());
+
+        // A new version of the template is compiled again, even without invalidation.
+        updateTemplateData(template.getId(), "Goodbye, {name}!");
+        assertEquals("Goodbye, World!", render(findTemplate(template.getId())));
+        micrometerAssertionHelper.assertCounterIncrement(CACHE_HIT_COUNTER_NAME, 1);
+        micrometerAssertionHelper.assertCounterIncrement(CACHE_MISS_COUNTER_NAME, 2);
+    }
+
+    @Test
+    void testInvalidationNotification() {
+        String innerTemplateName = "cached-inner-template-" + UUID.randomUUID();
+        Template outerTemplate = createTemplate("cached-outer-template-" + UUID.randomUUID(), "Hello, {#include " + innerTemplateName + " /}");
+        Template innerTemplate = createTemplate(innerTemplateName, "World!");
+        assertEquals("Hello, World!", render(outerTemplate));
+
+        // The outer template did not change but it includes the updated template.
+        updateTemplateData(innerTemplate.getId(), "Red Hat!");
+        notifyEngine(TEMPLATES);
+        cacheInvalidationListener.poll();
+        assertEquals("Hello, Red Hat!", render(outerTemplate));
+        micrometerAssertionHelper.assertCounterIncrement(CACHE_HIT_COUNTER_NAME, 0);
+        micrometerAssertionHelper.assertCounterIncrement(CACHE_MISS_COUNTER_NAME, 2);
+    }
+
+    private String render(Template template) {
+        return statelessSessionFactory.withSession(statelessSession -> {
+            return compiledTemplateCache.getTemplateInstance(template, template.getName())
+                    .data("name", "World")
+                    .render();
+        });
+    }
+
+    @Transactional
+    Template createTemplate(String name, String data) {
+        Template template = new Template();
+        template.setName(name);
+        template.setDescription("Template description");
+        template.setData(data);
+        entityManager.persist(template);
+        return template;
+    }
+
+    // The backend updates the templates with a bulk update which sets the update timestamp explicitly.
+    @Transactional
+    void updateTemplateData(UUID id, String data) {
+        entityManager.createQuery("UPDATE Template SET data = :data, updated = :updated WHERE id = :id")
+                .setParameter("data", data)
+                .setParameter("updated", LocalDateTime.now(UTC))
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    Template findTemplate(UUID id) {
+        entityManager.clear();
+        return entityManager.find(Template.class, id);
+    }
+
+    @Transactional
+    void notifyEngine(String payload) {
+        entityManager.createNativeQuery("SELECT CAST(pg_notify(:channel, :payload) AS VARCHAR)")
+                .setParameter("channel", CHANNEL)
+                .setParameter("payload", payload)
+                .getSingleResult();
+    }
+}
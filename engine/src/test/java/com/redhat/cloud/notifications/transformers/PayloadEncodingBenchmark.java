@@ -0,0 +1,104 @@
+package com.redhat.cloud.notifications.transformers;
+
+import com.redhat.cloud.notifications.ingress.Action;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.redhat.cloud.notifications.TestHelpers.createPoliciesAction;
+import static com.redhat.cloud.notifications.processors.camel.CamelTypeProcessor.NOTIF_METADATA_KEY;
+
+/**
+ * Compares the payload preparation of the webhook and Camel processors when the action is transformed and encoded for
+ * each endpoint of an event and when it is transformed and encoded once per event. This is not a test, it can be run
+ * from the IDE or with:
+ * <pre>
+ * mvn test-compile -pl engine
+ * java -cp "$(cat cp.txt):engine/target/test-classes:engine/target/classes" com.redhat.cloud.notifications.transformers.PayloadEncodingBenchmark
+ * </pre>
+ * where {@code cp.txt} is generated with {@code mvn dependency:build-classpath -pl engine -Dmdep.outputFile=../cp.txt}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadEncodingBenchmark {
+
+    @Param({"1", "10", "100"})
+    int endpoints;
+
+    private BaseTransformer transformer;
+    private Action action;
+
+    @Setup
+    public void setup() {
+        transformer = new BaseTransformer();
+        action = createPoliciesAction("account-id", "rhel", "policies", "host");
+    }
+
+    @Benchmark
+    public void webhookPerEndpoint(Blackhole blackhole) {
+        for (int i = 0; i < endpoints; i++) {
+            blackhole.consume(transformer.transform(action).toBuffer());
+        }
+    }
+
+    @Benchmark
+    public void webhookPerEvent(Blackhole blackhole) {
+        Buffer payload = transformer.transform(action).toBuffer();
+        for (int i = 0; i < endpoints; i++) {
+            blackhole.consume(payload);
+        }
+    }
+
+    @Benchmark
+    public void camelPerEndpoint(Blackhole blackhole) {
+        for (int i = 0; i < endpoints; i++) {
+            JsonObject payload = transformer.transform(action);
+            payload.put(NOTIF_METADATA_KEY, buildMetadata(i));
+            blackhole.consume(payload.encode());
+        }
+    }
+
+    @Benchmark
+    public void camelPerEvent(Blackhole blackhole) {
+        JsonObject transformedAction = transformer.transform(action);
+        for (int i = 0; i < endpoints; i++) {
+            JsonObject payload = new JsonObject(new LinkedHashMap<>(transformedAction.getMap()));
+            payload.put(NOTIF_METADATA_KEY, buildMetadata(i));
+            blackhole.consume(payload.encode());
+        }
+    }
+
+    private static JsonObject buildMetadata(int endpoint) {
+        return new JsonObject()
+                .put("url", "https://example.com/" + endpoint)
+                .put("type", "splunk")
+                .put("trustAll", "false");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PayloadEncodingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
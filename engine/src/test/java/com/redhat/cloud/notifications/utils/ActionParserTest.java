@@ -0,0 +1,89 @@
+package com.redhat.cloud.notifications.utils;
+
+import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.ingress.Action;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static com.redhat.cloud.notifications.TestConstants.DEFAULT_ACCOUNT_ID;
+import static com.redhat.cloud.notifications.TestConstants.DEFAULT_ORG_ID;
+import static com.redhat.cloud.notifications.TestHelpers.createPoliciesAction;
+import static com.redhat.cloud.notifications.TestHelpers.serializeAction;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ActionParserTest {
+
+    private final ActionParser actionParser = new ActionParser();
+
+    @BeforeEach
+    void beforeEach() {
+        actionParser.featureFlipper = mock(FeatureFlipper.class);
+        when(actionParser.featureFlipper.isLazyActionParsingEnabled()).thenReturn(true);
+    }
+
+    @Test
+    void testLazyParsing() {
+        Action action = createPoliciesAction(DEFAULT_ACCOUNT_ID, "rhel", "policies", "host");
+        action.setOrgId(DEFAULT_ORG_ID);
+        action.setId(UUID.randomUUID());
+
+        ParsedAction parsedAction = actionParser.parse(serializeAction(action));
+        assertEquals("rhel", parsedAction.getBundle());
+        assertEquals("policies", parsedAction.getApplication());
+        assertEquals(action.getEventType(), parsedAction.getEventType());
+        assertEquals(DEFAULT_ORG_ID, parsedAction.getOrgId());
+        assertEquals(DEFAULT_ACCOUNT_ID, parsedAction.getAccountId());
+        assertEquals(action.getId(), parsedAction.getId());
+        assertEquals(action, parsedAction.getAction());
+    }
+
+    @Test
+    void testLazyParsingWithoutOptionalFields() {
+        Action action = createPoliciesAction(DEFAULT_ACCOUNT_ID, "rhel", "policies", "host");
+
+        ParsedAction parsedAction = actionParser.parse(serializeAction(action));
+        assertNull(parsedAction.getOrgId());
+        assertNull(parsedAction.getId());
+        assertEquals(action, parsedAction.getAction());
+    }
+
+    @Test
+    void testLazyParsingDefersValidation() {
+        JsonObject action = new JsonObject(serializeAction(createPoliciesAction(DEFAULT_ACCOUNT_ID, "rhel", "policies", "host")));
+        // The events array items must contain a payload field.
+        action.getJsonArray("events").getJsonObject(0).remove("payload");
+
+        ParsedAction parsedAction = actionParser.parse(action.encode());
+        assertEquals("rhel", parsedAction.getBundle());
+        assertThrows(RuntimeException.class, parsedAction::getAction);
+    }
+
+    @Test
+    void testLazyParsingWithMissingRoutingField() {
+        JsonObject action = new JsonObject(serializeAction(createPoliciesAction(DEFAULT_ACCOUNT_ID, "rhel", "policies", "host")));
+        action.remove("bundle");
+        assertThrows(RuntimeException.class, () -> actionParser.parse(action.encode()));
+    }
+
+    @Test
+    void testLazyParsingWithInvalidJson() {
+        assertThrows(RuntimeException.class, () -> actionParser.parse("[\"I am not an action\"]"));
+        assertThrows(RuntimeException.class, () -> actionParser.parse("{\"bundle\": {}}"));
+        assertThrows(RuntimeException.class, () -> actionParser.parse("{\"bundle\": \"rhel\""));
+    }
+
+    @Test
+    void testEagerParsing() {
+        when(actionParser.featureFlipper.isLazyActionParsingEnabled()).thenReturn(false);
+        JsonObject action = new JsonObject(serializeAction(createPoliciesAction(DEFAULT_ACCOUNT_ID, "rhel", "policies", "host")));
+        action.getJsonArray("events").getJsonObject(0).remove("payload");
+        assertThrows(RuntimeException.class, () -> actionParser.parse(action.encode()));
+    }
+}